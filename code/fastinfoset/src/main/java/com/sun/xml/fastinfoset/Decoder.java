@@ -22,15 +22,20 @@ import com.sun.xml.fastinfoset.org.apache.xerces.util.XMLChar;
 import com.sun.xml.fastinfoset.util.CharArray;
 import com.sun.xml.fastinfoset.util.CharArrayArray;
 import com.sun.xml.fastinfoset.util.CharArrayString;
+import com.sun.xml.fastinfoset.util.ConcurrentStringInterner;
 import com.sun.xml.fastinfoset.util.ContiguousCharArrayArray;
 import com.sun.xml.fastinfoset.util.DuplicateAttributeVerifier;
 import com.sun.xml.fastinfoset.util.PrefixArray;
 import com.sun.xml.fastinfoset.util.QualifiedNameArray;
 import com.sun.xml.fastinfoset.util.StringArray;
+import com.sun.xml.fastinfoset.util.StringInterner;
 import com.sun.xml.fastinfoset.vocab.ParserVocabulary;
+import com.sun.xml.fastinfoset.vocab.SharedExternalVocabulary;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -72,6 +77,12 @@ public abstract class Decoder implements FastInfosetParser {
     private static final char[] XMLNS_NAMESPACE_NAME_CHARS =
             EncodingConstants.XMLNS_NAMESPACE_NAME.toCharArray();
     
+    /**
+     * The maximum size of a region of a file channel that is mapped into
+     * memory at one time.
+     */
+    private static final int MAXIMUM_MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+    
     /**
      * String interning system property.
      */
@@ -109,11 +120,49 @@ public abstract class Decoder implements FastInfosetParser {
      */
     private boolean _stringInterning = _stringInterningSystemDefault;
     
+    /**
+     * The interner of strings if string interning is performed.
+     */
+    private StringInterner _stringInterner = ConcurrentStringInterner.getInstance();
+    
     /**
      * The input stream from which the fast infoset document is being read.
      */
     private InputStream _s;
     
+    /**
+     * The direct or read-only byte buffer from which the fast infoset document
+     * is being read, or the currently mapped region of the file channel.
+     */
+    private ByteBuffer _inputBuffer;
+    
+    /**
+     * The file channel from which the fast infoset document is being read.
+     */
+    private FileChannel _inputChannel;
+    
+    /**
+     * The position in the file channel of the next region to be mapped.
+     */
+    private long _inputChannelPosition;
+    
+    /**
+     * The position in the file channel of the end of the document.
+     */
+    private long _inputChannelEnd;
+    
+    /**
+     * The number of octets of the document that have been read from the
+     * input into the octet buffer.
+     */
+    private long _inputPosition;
+    
+    /**
+     * The internal buffer that is set aside while the array of a byte buffer
+     * is decoded in place.
+     */
+    private byte[] _internalOctetBuffer;
+    
     /**
      * The map of URIs to referenced vocabularies.
      */
@@ -151,6 +200,43 @@ public abstract class Decoder implements FastInfosetParser {
      */
     protected Map _registeredEncodingAlgorithms = new HashMap();
     
+    /**
+     * The map of namespace names to maps of local names to the handles
+     * of registered qualified names, or null if no names are registered.
+     */
+    private Map _nameHandles;
+    
+    /**
+     * The number of registered qualified names.
+     */
+    private int _nameHandleCount;
+    
+    /**
+     * The handles, plus one, of the names of the element name table
+     * indexed by table index, or zero if the handle of a name has not
+     * been obtained.
+     */
+    private int[] _elementNameHandles = new int[0];
+    
+    /**
+     * The handles, plus one, of the names of the attribute name table
+     * indexed by table index, or zero if the handle of a name has not
+     * been obtained.
+     */
+    private int[] _attributeNameHandles = new int[0];
+    
+    /**
+     * The number of obtained handles of the element name table that need
+     * to be cleared when the table is modified.
+     */
+    private int _elementNameHandlesSize;
+    
+    /**
+     * The number of obtained handles of the attribute name table that need
+     * to be cleared when the table is modified.
+     */
+    private int _attributeNameHandlesSize;
+    
     /**
      * The vocabulary used for decoding.
      */
@@ -243,6 +329,13 @@ public abstract class Decoder implements FastInfosetParser {
      */
     protected int _octetBufferLength;
     
+    /**
+     * True if the buffer is the array of a byte buffer holding the whole
+     * fast infoset document, in which case the buffer is never refilled or
+     * modified.
+     */
+    protected boolean _octetBufferIsInput;
+    
     /**
      * The internal buffer of characters.
      */
@@ -253,11 +346,33 @@ public abstract class Decoder implements FastInfosetParser {
      */
     protected int _charBufferLength;
     
+    /**
+     * The stream of octets returned by {@link #decodeOctetsAsInputStream}.
+     */
+    private final InputStream _octetsInputStream = new OctetsInputStream();
+    
+    /**
+     * The number of octets of the stream that have not been read.
+     */
+    private int _octetsInputStreamRemaining;
+    
+    /**
+     * The listener that is notified before octets in the buffer are 
+     * overwritten, or discarded, when the buffer is refilled from the
+     * input, or null if there is no listener.
+     */
+    protected OctetBufferListener _octetBufferListener;
+    
     /**
      * Helper class that checks for duplicate attribute information items.
      */
     protected DuplicateAttributeVerifier _duplicateAttributeVerifier = new DuplicateAttributeVerifier();
     
+    /**
+     * True if the attributes of an element are checked for duplicates.
+     */
+    protected boolean _duplicateAttributeChecking = true;
+    
     /**
      * Default constructor for the Decoder.
      */
@@ -288,6 +403,57 @@ public abstract class Decoder implements FastInfosetParser {
         return _stringInterning;
     }
     
+    /**
+     * Set the interner of the strings of names, namespace names and prefixes
+     * used when string interning is performed.
+     * <p>
+     * By default the interner is shared by all parsers, and the interned
+     * strings are not interned using {@link String#intern()}. To obtain
+     * strings that are identical to string literals set an interner such
+     * as {@link ConcurrentStringInterner#ConcurrentStringInterner(int, boolean)}
+     * that uses {@link String#intern()}.
+     *
+     * @param stringInterner the interner, or null to use the default
+     *        interner.
+     */
+    public void setStringInterner(StringInterner stringInterner) {
+        _stringInterner = (stringInterner != null) ? stringInterner : ConcurrentStringInterner.getInstance();
+    }
+    
+    /**
+     * Get the interner of the strings of names, namespace names and prefixes
+     * used when string interning is performed.
+     *
+     * @return the interner.
+     */
+    public StringInterner getStringInterner() {
+        return _stringInterner;
+    }
+    
+    /**
+     * Set whether the attributes of each element are checked for duplicate
+     * qualified names.
+     * <p>
+     * The check may be disabled for documents from trusted producers that
+     * are known not to contain duplicate attributes. By default the check
+     * is enabled.
+     *
+     * @param duplicateAttributeChecking true if the attributes are checked.
+     */
+    public void setDuplicateAttributeChecking(boolean duplicateAttributeChecking) {
+        _duplicateAttributeChecking = duplicateAttributeChecking;
+    }
+    
+    /**
+     * Get whether the attributes of each element are checked for duplicate
+     * qualified names.
+     *
+     * @return true if the attributes are checked.
+     */
+    public boolean getDuplicateAttributeChecking() {
+        return _duplicateAttributeChecking;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -369,6 +535,47 @@ public abstract class Decoder implements FastInfosetParser {
         return _needForceStreamClose;
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    public int registerNameHandle(String namespaceURI, String localName) {
+        if (namespaceURI == null) {
+            namespaceURI = "";
+        }
+        if (localName == null || localName.length() == 0) {
+            throw new IllegalArgumentException(CommonResourceBundle.getInstance().
+                    getString("message.nameHandleLocalNameEmpty"));
+        }
+        
+        if (_nameHandles == null) {
+            _nameHandles = new HashMap();
+        }
+        Map localNames = (Map)_nameHandles.get(namespaceURI);
+        if (localNames == null) {
+            localNames = new HashMap();
+            _nameHandles.put(namespaceURI, localNames);
+        }
+        
+        final Integer handle = (Integer)localNames.get(localName);
+        if (handle != null) {
+            return handle.intValue();
+        }
+        
+        localNames.put(localName, Integer.valueOf(_nameHandleCount));
+        // Names may previously have been obtained as not registered
+        clearNameHandleTables();
+        return _nameHandleCount++;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void clearNameHandles() {
+        _nameHandles = null;
+        _nameHandleCount = 0;
+        clearNameHandleTables();
+    }
+    
 // End FastInfosetParser interface
     
     /**
@@ -376,6 +583,93 @@ public abstract class Decoder implements FastInfosetParser {
      */
     public void reset() {
         _terminate = _doubleTerminate = false;
+        clearNameHandleTables();
+    }
+    
+    /**
+     * Get the handle of an element name of the element name table.
+     *
+     * @param name the element name.
+     * @return the handle registered for the namespace name and local name
+     *         of the element name, or {@link FastInfosetParser#NO_NAME_HANDLE}.
+     */
+    protected final int getElementNameHandle(QualifiedName name) {
+        final int i = name.index;
+        if (i >= 0 && i < _elementNameHandlesSize && _elementNameHandles[i] != 0) {
+            return _elementNameHandles[i] - 1;
+        } else if (_nameHandles == null) {
+            return NO_NAME_HANDLE;
+        }
+        
+        final int handle = obtainNameHandle(name);
+        if (i >= 0) {
+            if (i >= _elementNameHandles.length) {
+                _elementNameHandles = resizeNameHandleTable(_elementNameHandles, i);
+            }
+            _elementNameHandles[i] = handle + 1;
+            if (i >= _elementNameHandlesSize) {
+                _elementNameHandlesSize = i + 1;
+            }
+        }
+        return handle;
+    }
+    
+    /**
+     * Get the handle of an attribute name of the attribute name table.
+     *
+     * @param name the attribute name.
+     * @return the handle registered for the namespace name and local name
+     *         of the attribute name, or {@link FastInfosetParser#NO_NAME_HANDLE}.
+     */
+    protected final int getAttributeNameHandle(QualifiedName name) {
+        final int i = name.index;
+        if (i >= 0 && i < _attributeNameHandlesSize && _attributeNameHandles[i] != 0) {
+            return _attributeNameHandles[i] - 1;
+        } else if (_nameHandles == null) {
+            return NO_NAME_HANDLE;
+        }
+        
+        final int handle = obtainNameHandle(name);
+        if (i >= 0) {
+            if (i >= _attributeNameHandles.length) {
+                _attributeNameHandles = resizeNameHandleTable(_attributeNameHandles, i);
+            }
+            _attributeNameHandles[i] = handle + 1;
+            if (i >= _attributeNameHandlesSize) {
+                _attributeNameHandlesSize = i + 1;
+            }
+        }
+        return handle;
+    }
+    
+    private int obtainNameHandle(QualifiedName name) {
+        final Map localNames = (Map)_nameHandles.get(name.namespaceName);
+        if (localNames == null) {
+            return NO_NAME_HANDLE;
+        }
+        final Integer handle = (Integer)localNames.get(name.localName);
+        return (handle != null) ? handle.intValue() : NO_NAME_HANDLE;
+    }
+    
+    private static int[] resizeNameHandleTable(int[] handles, int index) {
+        final int[] newHandles = new int[Math.max(index + 1, handles.length * 3 / 2 + 16)];
+        System.arraycopy(handles, 0, newHandles, 0, handles.length);
+        return newHandles;
+    }
+    
+    /**
+     * Clear the handles obtained for the names of the element and attribute
+     * name tables, which is required when the tables are modified.
+     */
+    private void clearNameHandleTables() {
+        for (int i = 0; i < _elementNameHandlesSize; i++) {
+            _elementNameHandles[i] = 0;
+        }
+        _elementNameHandlesSize = 0;
+        for (int i = 0; i < _attributeNameHandlesSize; i++) {
+            _attributeNameHandles[i] = 0;
+        }
+        _attributeNameHandlesSize = 0;
     }
     
     /**
@@ -391,6 +685,7 @@ public abstract class Decoder implements FastInfosetParser {
         _characterContentChunkTable = _v.characterContentChunk;
         _attributeValueTable = _v.attributeValue;
         _vIsInternal = false;
+        clearNameHandleTables();
     }
     
     /**
@@ -400,11 +695,235 @@ public abstract class Decoder implements FastInfosetParser {
      */
     public void setInputStream(InputStream s) {
         _s = s;
+        setInput(null, null);
+    }
+    
+    /**
+     * Set the ByteBuffer to decode the fast infoset document.
+     * <p>
+     * The remaining bytes of the buffer must contain the whole document.
+     * If the buffer is backed by an accessible array then the document is
+     * decoded directly from that array, without copying. Otherwise, for 
+     * example for a direct or read-only buffer, bytes are copied in bulk
+     * from the buffer into the internal octet buffer as required, as when
+     * decoding from an input stream but without a read per block.
+     * The position of the buffer is not modified.
+     * <p>
+     * The buffer, and the array backing it, is referenced until the input
+     * is set again or is released, see {@link #releaseInput}.
+     *
+     * @param b the ByteBuffer where the fast infoset document is decoded from.
+     */
+    public void setInputBuffer(ByteBuffer b) {
+        _s = null;
+        if (b.hasArray()) {
+            setInput(null, null);
+            if (!_octetBufferIsInput) {
+                _internalOctetBuffer = _octetBuffer;
+                _octetBufferIsInput = true;
+            }
+            _octetBuffer = b.array();
+            _octetBufferOffset = b.arrayOffset() + b.position();
+            _octetBufferEnd = b.arrayOffset() + b.limit();
+            _inputPosition = b.remaining();
+        } else {
+            setInput(b.duplicate(), null);
+        }
+    }
+    
+    /**
+     * Set the FileChannel to decode the fast infoset document.
+     * <p>
+     * The document is decoded from the current position of the channel to
+     * the end of the channel. 
+     * See {@link #setInputChannel(FileChannel, long, long)}.
+     *
+     * @param channel the FileChannel where the fast infoset document is 
+     *        decoded from.
+     */
+    public void setInputChannel(FileChannel channel) throws IOException {
+        final long position = channel.position();
+        setInputChannel(channel, position, channel.size() - position);
+    }
+    
+    /**
+     * Set the region of a FileChannel to decode the fast infoset document.
+     * <p>
+     * The region is mapped into memory, in successive parts if the region 
+     * is large, and bytes are copied in bulk from the mapped memory into
+     * the internal octet buffer as required, so the document is not 
+     * decoded directly from the mapped memory.
+     * The position of the channel is not modified.
+     *
+     * @param channel the FileChannel where the fast infoset document is 
+     *        decoded from.
+     * @param position the position in the channel of the document.
+     * @param size the size of the document.
+     */
+    public void setInputChannel(FileChannel channel, long position, long size) {
+        _s = null;
+        setInput(null, channel);
+        _inputChannelPosition = position;
+        _inputChannelEnd = position + size;
+    }
+    
+    /**
+     * @return the approximate number of bytes held by the internal buffers
+     *         and the internal vocabulary.
+     */
+    final int getFootprint() {
+        int footprint = _octetBuffer.length + 2 * _charBuffer.length;
+        if (_vIsInternal) {
+            footprint += _v.getFootprint();
+        }
+        return footprint;
+    }
+    
+    /**
+     * Release the byte buffer or file channel that is the input, so that
+     * it is not retained by a decoder that is reused, or pooled, after
+     * the document has been decoded.
+     * <p>
+     * An input stream is retained until the input is set again.
+     */
+    protected final void releaseInput() {
+        _inputBuffer = null;
+        _inputChannel = null;
+        if (_octetBufferIsInput) {
+            _octetBuffer = _internalOctetBuffer;
+            _internalOctetBuffer = null;
+            _octetBufferIsInput = false;
+            _octetBufferOffset = 0;
+            _octetBufferEnd = 0;
+        }
+    }
+    
+    private void setInput(ByteBuffer b, FileChannel channel) {
+        _inputBuffer = b;
+        _inputChannel = channel;
+        if (_octetBufferIsInput) {
+            _octetBuffer = _internalOctetBuffer;
+            _internalOctetBuffer = null;
+            _octetBufferIsInput = false;
+        }
         _octetBufferOffset = 0;
         _octetBufferEnd = 0;
+        _octetsInputStreamRemaining = 0;
+        _inputPosition = 0;
         if (_vIsInternal == true) {
             _v.clear();
         }
+        clearNameHandleTables();
+    }
+    
+    /**
+     * Read octets from the input stream, byte buffer or file channel.
+     *
+     * @return the number of octets read, or -1 if there are no more octets.
+     */
+    private int readInput(byte[] b, int offset, int length) throws IOException {
+        if (_s != null) {
+            final int n = _s.read(b, offset, length);
+            if (n > 0) {
+                _inputPosition += n;
+            }
+            return n;
+        }
+        
+        if (_inputBuffer == null || !_inputBuffer.hasRemaining()) {
+            if (!mapNextRegion()) {
+                return -1;
+            }
+        }
+        
+        final int n = Math.min(length, _inputBuffer.remaining());
+        _inputBuffer.get(b, offset, n);
+        _inputPosition += n;
+        return n;
+    }
+    
+    /**
+     * Get the position of the next octet to be decoded, relative to the
+     * start of the input.
+     *
+     * @return the position of the next octet.
+     */
+    protected final long getInputPosition() {
+        return _inputPosition - (_octetBufferEnd - _octetBufferOffset);
+    }
+    
+    /**
+     * Skip the octets of the input up to a position, without decoding them.
+     * <p>
+     * Octets that are not in the octet buffer are skipped in the input
+     * stream, or are not mapped or copied from the file channel or byte
+     * buffer.
+     *
+     * @param position the position, relative to the start of the input, of
+     *        the next octet to be decoded.
+     */
+    protected final void skipInputTo(long position) throws IOException {
+        final long current = getInputPosition();
+        if (position < current) {
+            throw new IOException(CommonResourceBundle.getInstance().
+                    getString("message.inputPositionBeforeCurrent", 
+                    new Object[]{Long.valueOf(position), Long.valueOf(current)}));
+        }
+        
+        final int octetsInBuffer = _octetBufferEnd - _octetBufferOffset;
+        if (position - current <= octetsInBuffer) {
+            _octetBufferOffset += (int)(position - current);
+            return;
+        } else if (_octetBufferIsInput) {
+            throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
+        }
+        
+        notifyOctetBufferOverwrite(null);
+        _octetBufferOffset = 0;
+        _octetBufferEnd = 0;
+        _octetsInputStreamRemaining = 0;
+        
+        long n = position - _inputPosition;
+        if (_s != null) {
+            while (n > 0) {
+                final long skipped = _s.skip(n);
+                if (skipped > 0) {
+                    n -= skipped;
+                } else if (_s.read() != -1) {
+                    n--;
+                } else {
+                    throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
+                }
+            }
+        } else {
+            if (_inputBuffer != null) {
+                final int skipped = (int)Math.min(n, _inputBuffer.remaining());
+                _inputBuffer.position(_inputBuffer.position() + skipped);
+                n -= skipped;
+            }
+            if (n > 0) {
+                if (_inputChannel == null || n > _inputChannelEnd - _inputChannelPosition) {
+                    throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
+                }
+                // The next region is mapped from the position
+                _inputBuffer = null;
+                _inputChannelPosition += n;
+            }
+        }
+        _inputPosition = position;
+    }
+    
+    private boolean mapNextRegion() throws IOException {
+        if (_inputChannel == null || _inputChannelPosition >= _inputChannelEnd) {
+            return false;
+        }
+        
+        final long size = Math.min(MAXIMUM_MAPPED_REGION_SIZE, 
+                _inputChannelEnd - _inputChannelPosition);
+        _inputBuffer = _inputChannel.map(FileChannel.MapMode.READ_ONLY, 
+                _inputChannelPosition, size);
+        _inputChannelPosition += size;
+        return true;
     }
     
     protected final void decodeDII() throws FastInfosetException, IOException {
@@ -505,9 +1024,13 @@ public abstract class Decoder implements FastInfosetParser {
                 decodeNonEmptyOctetStringOnSecondBitAsUtf8String();
         
         Object o = _externalVocabularies.get(externalVocabularyURI);
+        clearNameHandleTables();
         if (o instanceof ParserVocabulary) {
             _v.setReferencedVocabulary(externalVocabularyURI,
                     (ParserVocabulary)o, false);
+        } else if (o instanceof SharedExternalVocabulary) {
+            _v.setReferencedVocabulary(externalVocabularyURI,
+                    ((SharedExternalVocabulary)o).getParserVocabulary(), false);
         } else if (o instanceof org.jvnet.fastinfoset.ExternalVocabulary) {
             org.jvnet.fastinfoset.ExternalVocabulary v =
                     (org.jvnet.fastinfoset.ExternalVocabulary)o;
@@ -873,6 +1396,23 @@ public abstract class Decoder implements FastInfosetParser {
     }
     
     protected final void decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit(int b) throws FastInfosetException, IOException {
+        decodeOctetsLengthOnSeventhBitOfNonIdentifyingStringOnThirdBit(b);
+        
+        ensureOctetBufferSize();
+        _octetBufferStart = _octetBufferOffset;
+        _octetBufferOffset += _octetBufferLength;
+    }
+    
+    /**
+     * Decode the length of the octets of a non identifying string on the 
+     * seventh bit, without reading the octets.
+     * <p>
+     * The octets may then be read using 
+     * {@link #decodeOctetsAsInputStream}.
+     *
+     * @param b the octet containing the seventh bit.
+     */
+    protected final void decodeOctetsLengthOnSeventhBitOfNonIdentifyingStringOnThirdBit(int b) throws FastInfosetException, IOException {
         // Remove top 6 bits of restricted alphabet or encoding algorithm integer
         switch (b & 0x03) {
             // Small length
@@ -896,12 +1436,88 @@ public abstract class Decoder implements FastInfosetParser {
                 _octetBufferLength += EncodingConstants.OCTET_STRING_LENGTH_7TH_BIT_MEDIUM_LIMIT;
                 break;
         }
+    }
+    
+    /**
+     * Obtain a stream of the octets whose length has been decoded, see
+     * {@link #decodeOctetsLengthOnSeventhBitOfNonIdentifyingStringOnThirdBit}.
+     * <p>
+     * The octets are read from the internal buffer, which is refilled from
+     * the input as required, so the octets are never buffered as a whole. 
+     * The octets must be read, or skipped with {@link #skipOctetsOfInputStream},
+     * before decoding continues.
+     *
+     * @return the stream of octets.
+     */
+    protected final InputStream decodeOctetsAsInputStream() {
+        _octetsInputStreamRemaining = _octetBufferLength;
+        return _octetsInputStream;
+    }
+    
+    /**
+     * Skip the octets of the stream obtained from 
+     * {@link #decodeOctetsAsInputStream} that have not been read.
+     */
+    protected final void skipOctetsOfInputStream() throws IOException {
+        while (_octetsInputStreamRemaining > 0) {
+            if (_octetBufferOffset == _octetBufferEnd) {
+                fillOctetBuffer();
+            }
+            final int n = Math.min(_octetsInputStreamRemaining, _octetBufferEnd - _octetBufferOffset);
+            _octetBufferOffset += n;
+            _octetsInputStreamRemaining -= n;
+        }
+    }
+    
+    /**
+     * Skip <code>_octetBufferLength</code> octets, which are read from the
+     * internal buffer, refilled from the input as required, so the octets
+     * are never buffered as a whole.
+     */
+    protected final void skipOctets() throws IOException {
+        _octetsInputStreamRemaining = _octetBufferLength;
+        skipOctetsOfInputStream();
+    }
+    
+    /**
+     * Read the octets of the stream obtained from 
+     * {@link #decodeOctetsAsInputStream}, none of which must have been 
+     * read, in to the internal buffer as if the octets had been decoded by
+     * {@link #decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit}.
+     */
+    protected final void decodeOctetsOfInputStream() throws IOException {
+        _octetBufferLength = _octetsInputStreamRemaining;
+        _octetsInputStreamRemaining = 0;
         
         ensureOctetBufferSize();
         _octetBufferStart = _octetBufferOffset;
         _octetBufferOffset += _octetBufferLength;
     }
     
+    /**
+     * Get the number of octets of the stream obtained from 
+     * {@link #decodeOctetsAsInputStream} that have not been read.
+     *
+     * @return the number of octets.
+     */
+    protected final int getOctetsInputStreamRemaining() {
+        return _octetsInputStreamRemaining;
+    }
+    
+    private void fillOctetBuffer() throws IOException {
+        if (_octetBufferIsInput) {
+            throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
+        }
+        
+        notifyOctetBufferOverwrite(null);
+        _octetBufferEnd = readInput(_octetBuffer, 0, _octetBuffer.length);
+        if (_octetBufferEnd < 0) {
+            _octetBufferEnd = 0;
+            throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
+        }
+        _octetBufferOffset = 0;
+    }
+    
     /*
      * C.13
      */
@@ -911,14 +1527,14 @@ public abstract class Decoder implements FastInfosetParser {
             case DecoderStateTables.ISTRING_SMALL_LENGTH:
             {
                 _octetBufferLength = b + 1;
-                final String s = (_stringInterning) ? decodeUtf8StringAsString().intern() : decodeUtf8StringAsString();
+                final String s = (_stringInterning) ? decodeUtf8StringAsInternedString() : decodeUtf8StringAsString();
                 _identifier = table.add(s) - 1;
                 return s;
             }
             case DecoderStateTables.ISTRING_MEDIUM_LENGTH:
             {
                 _octetBufferLength = read() + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_SMALL_LIMIT;
-                final String s = (_stringInterning) ? decodeUtf8StringAsString().intern() : decodeUtf8StringAsString();
+                final String s = (_stringInterning) ? decodeUtf8StringAsInternedString() : decodeUtf8StringAsString();
                 _identifier = table.add(s) - 1;
                 return s;
             }
@@ -929,7 +1545,7 @@ public abstract class Decoder implements FastInfosetParser {
                         (read() << 8) |
                         read();
                 _octetBufferLength = length + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_MEDIUM_LIMIT;
-                final String s = (_stringInterning) ? decodeUtf8StringAsString().intern() : decodeUtf8StringAsString();
+                final String s = (_stringInterning) ? decodeUtf8StringAsInternedString() : decodeUtf8StringAsString();
                 _identifier = table.add(s) - 1;
                 return s;
             }
@@ -968,7 +1584,7 @@ public abstract class Decoder implements FastInfosetParser {
                     throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.prefixIllegal"));
                 }
                 
-                final String s = (_stringInterning) ? new String(_charBuffer, 0, _charBufferLength).intern() :
+                final String s = (_stringInterning) ? _stringInterner.intern(_charBuffer, 0, _charBufferLength) :
                     new String(_charBuffer, 0, _charBufferLength);
                 _prefixIndex = _v.prefix.add(s);
                 return s;
@@ -986,7 +1602,7 @@ public abstract class Decoder implements FastInfosetParser {
                     throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.xmlns"));
                 }
                 
-                final String s = (_stringInterning) ? new String(_charBuffer, 0, _charBufferLength).intern() :
+                final String s = (_stringInterning) ? _stringInterner.intern(_charBuffer, 0, _charBufferLength) :
                     new String(_charBuffer, 0, _charBufferLength);
                 _prefixIndex = _v.prefix.add(s);
                 return s;
@@ -996,14 +1612,14 @@ public abstract class Decoder implements FastInfosetParser {
             case DecoderStateTables.ISTRING_PREFIX_NAMESPACE_LENGTH_36:
             {
                 _octetBufferLength = b + 1;
-                final String s = (_stringInterning) ? decodeUtf8StringAsString().intern() : decodeUtf8StringAsString();
+                final String s = (_stringInterning) ? decodeUtf8StringAsInternedString() : decodeUtf8StringAsString();
                 _prefixIndex = _v.prefix.add(s);
                 return s;
             }
             case DecoderStateTables.ISTRING_MEDIUM_LENGTH:
             {
                 _octetBufferLength = read() + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_SMALL_LIMIT;
-                final String s = (_stringInterning) ? decodeUtf8StringAsString().intern() : decodeUtf8StringAsString();
+                final String s = (_stringInterning) ? decodeUtf8StringAsInternedString() : decodeUtf8StringAsString();
                 _prefixIndex = _v.prefix.add(s);
                 return s;
             }
@@ -1014,7 +1630,7 @@ public abstract class Decoder implements FastInfosetParser {
                         (read() << 8) |
                         read();
                 _octetBufferLength = length + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_MEDIUM_LIMIT;
-                final String s = (_stringInterning) ? decodeUtf8StringAsString().intern() : decodeUtf8StringAsString();
+                final String s = (_stringInterning) ? decodeUtf8StringAsInternedString() : decodeUtf8StringAsString();
                 _prefixIndex = _v.prefix.add(s);
                 return s;
             }
@@ -1093,7 +1709,7 @@ public abstract class Decoder implements FastInfosetParser {
             case DecoderStateTables.ISTRING_SMALL_LENGTH:
             {
                 _octetBufferLength = b + 1;
-                final String s = (_stringInterning) ? decodeUtf8StringAsString().intern() : decodeUtf8StringAsString();
+                final String s = (_stringInterning) ? decodeUtf8StringAsInternedString() : decodeUtf8StringAsString();
                 _namespaceNameIndex = _v.namespaceName.add(s);
                 return s;
             }
@@ -1106,7 +1722,7 @@ public abstract class Decoder implements FastInfosetParser {
                     throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.xmlnsConnotBeBoundToPrefix"));
                 }
                 
-                final String s = (_stringInterning) ? new String(_charBuffer, 0, _charBufferLength).intern() :
+                final String s = (_stringInterning) ? _stringInterner.intern(_charBuffer, 0, _charBufferLength) :
                     new String(_charBuffer, 0, _charBufferLength);
                 _namespaceNameIndex = _v.namespaceName.add(s);
                 return s;
@@ -1120,7 +1736,7 @@ public abstract class Decoder implements FastInfosetParser {
                     throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.illegalNamespaceName"));
                 }
                 
-                final String s = (_stringInterning) ? new String(_charBuffer, 0, _charBufferLength).intern() :
+                final String s = (_stringInterning) ? _stringInterner.intern(_charBuffer, 0, _charBufferLength) :
                     new String(_charBuffer, 0, _charBufferLength);
                 _namespaceNameIndex = _v.namespaceName.add(s);
                 return s;
@@ -1128,7 +1744,7 @@ public abstract class Decoder implements FastInfosetParser {
             case DecoderStateTables.ISTRING_MEDIUM_LENGTH:
             {
                 _octetBufferLength = read() + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_SMALL_LIMIT;
-                final String s = (_stringInterning) ? decodeUtf8StringAsString().intern() : decodeUtf8StringAsString();
+                final String s = (_stringInterning) ? decodeUtf8StringAsInternedString() : decodeUtf8StringAsString();
                 _namespaceNameIndex = _v.namespaceName.add(s);
                 return s;
             }
@@ -1139,7 +1755,7 @@ public abstract class Decoder implements FastInfosetParser {
                         (read() << 8) |
                         read();
                 _octetBufferLength = length + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_MEDIUM_LIMIT;
-                final String s = (_stringInterning) ? decodeUtf8StringAsString().intern() : decodeUtf8StringAsString();
+                final String s = (_stringInterning) ? decodeUtf8StringAsInternedString() : decodeUtf8StringAsString();
                 _namespaceNameIndex = _v.namespaceName.add(s);
                 return s;
             }
@@ -1209,8 +1825,8 @@ public abstract class Decoder implements FastInfosetParser {
      * C.22
      */
     protected final String decodeNonEmptyOctetStringOnSecondBitAsUtf8String() throws FastInfosetException, IOException {
-        decodeNonEmptyOctetStringOnSecondBitAsUtf8CharArray();
-        return new String(_charBuffer, 0, _charBufferLength);
+        decodeNonEmptyOctetStringLengthOnSecondBit();
+        return decodeUtf8StringAsString();
     }
     
     /*
@@ -1306,25 +1922,70 @@ public abstract class Decoder implements FastInfosetParser {
         return new String(_charBuffer, 0, _charBufferLength);
     }
     
+    /**
+     * The restricted alphabet of <code>_fourBitAlphabetTable</code>.
+     */
+    private char[] _fourBitAlphabet;
+    
+    /**
+     * The pair of characters decoded from each octet using a restricted
+     * alphabet of 4 bit characters, the first character in the high 16 bits,
+     * or -1 if a 4 bit value of the octet is not in the alphabet.
+     */
+    private final int[] _fourBitAlphabetTable = new int[256];
+    
+    private int[] getFourBitAlphabetTable(char[] restrictedAlphabet) {
+        if (_fourBitAlphabet != restrictedAlphabet) {
+            for (int v = 0; v < 256; v++) {
+                final int high = v >> 4;
+                final int low = v & 0x0F;
+                _fourBitAlphabetTable[v] = (high < restrictedAlphabet.length && low < restrictedAlphabet.length) ?
+                    (restrictedAlphabet[high] << 16) | restrictedAlphabet[low] : -1;
+            }
+            _fourBitAlphabet = restrictedAlphabet;
+        }
+        return _fourBitAlphabetTable;
+    }
+    
     protected final void decodeFourBitAlphabetOctetsAsCharBuffer(char[] restrictedAlphabet) throws FastInfosetException, IOException {
-        _charBufferLength = 0;
         final int characters = _octetBufferLength * 2;
         if (_charBuffer.length < characters) {
             _charBuffer = new char[characters];
         }
         
-        int v = 0;
-        for (int i = 0; i < _octetBufferLength - 1; i++) {
-            v = _octetBuffer[_octetBufferStart++] & 0xFF;
-            _charBuffer[_charBufferLength++] = restrictedAlphabet[v >> 4];
-            _charBuffer[_charBufferLength++] = restrictedAlphabet[v & 0x0F];
+        // Decode two characters from each octet, except the last
+        final int[] table = getFourBitAlphabetTable(restrictedAlphabet);
+        final byte[] octets = _octetBuffer;
+        final char[] ch = _charBuffer;
+        final int end = _octetBufferStart + _octetBufferLength - 1;
+        int offset = _octetBufferStart;
+        int length = 0;
+        int pair;
+        while (offset < end) {
+            pair = table[octets[offset++] & 0xFF];
+            if (pair == -1) {
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.characterOutofAlphabetRange"));
+            }
+            ch[length++] = (char)(pair >>> 16);
+            ch[length++] = (char)pair;
         }
-        v = _octetBuffer[_octetBufferStart++] & 0xFF;
-        _charBuffer[_charBufferLength++] = restrictedAlphabet[v >> 4];
-        v &= 0x0F;
-        if (v != 0x0F) {
-            _charBuffer[_charBufferLength++] = restrictedAlphabet[v & 0x0F];
+        
+        // The low 4 bits of the last octet are all ones if the number of
+        // characters is odd
+        final int v = octets[offset++] & 0xFF;
+        if ((v >> 4) >= restrictedAlphabet.length) {
+            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.characterOutofAlphabetRange"));
+        }
+        ch[length++] = restrictedAlphabet[v >> 4];
+        if ((v & 0x0F) != 0x0F) {
+            if ((v & 0x0F) >= restrictedAlphabet.length) {
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.characterOutofAlphabetRange"));
+            }
+            ch[length++] = restrictedAlphabet[v & 0x0F];
         }
+        
+        _octetBufferStart = offset;
+        _charBufferLength = length;
     }
     
     protected final void decodeAlphabetOctetsAsCharBuffer(char[] restrictedAlphabet) throws FastInfosetException, IOException {
@@ -1343,43 +2004,41 @@ public abstract class Decoder implements FastInfosetParser {
             throw new IOException("");
         }
         
-        _charBufferLength = 0;
         if (_charBuffer.length < characters) {
             _charBuffer = new char[characters];
         }
         
-        resetBits();
+        // Shift octets into the low bits of an int and take the characters
+        // from the high bits of those not yet consumed
+        final byte[] octets = _octetBuffer;
+        final char[] ch = _charBuffer;
+        int offset = _octetBufferStart;
+        int bits = 0;
+        int bitCount = 0;
+        int length = 0;
         for (int i = 0; i < characters; i++) {
-            int value = readBits(bitsPerCharacter);
-            if (bitsPerCharacter < 8 && value == terminatingValue) {
-                int octetPosition = (i * bitsPerCharacter) >>> 3;
-                if (octetPosition != _octetBufferLength - 1) {
-                    throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.alphabetIncorrectlyTerminated"));
-                }
-                break;
+            while (bitCount < bitsPerCharacter) {
+                bits = (bits << 8) | (octets[offset++] & 0xFF);
+                bitCount += 8;
             }
-            _charBuffer[_charBufferLength++] = restrictedAlphabet[value];
-        }
-    }
-    
-    private int _bitsLeftInOctet;
-    
-    private void resetBits() {
-        _bitsLeftInOctet = 0;
-    }
-    
-    private int readBits(int bits) throws IOException {
-        int value = 0;
-        while (bits > 0) {
-            if (_bitsLeftInOctet == 0) {
-                _b = _octetBuffer[_octetBufferStart++] & 0xFF;
-                _bitsLeftInOctet = 8;
+            bitCount -= bitsPerCharacter;
+            final int value = (bits >>> bitCount) & terminatingValue;
+            
+            if (value >= restrictedAlphabet.length) {
+                if (bitsPerCharacter < 8 && value == terminatingValue) {
+                    int octetPosition = (i * bitsPerCharacter) >>> 3;
+                    if (octetPosition != _octetBufferLength - 1) {
+                        throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.alphabetIncorrectlyTerminated"));
+                    }
+                    break;
+                }
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.characterOutofAlphabetRange"));
             }
-            int bit = ((_b & (1 << --_bitsLeftInOctet)) > 0) ? 1 : 0;
-            value |= (bit << --bits);
+            ch[length++] = restrictedAlphabet[value];
         }
         
-        return value;
+        _octetBufferStart = offset;
+        _charBufferLength = length;
     }
     
     protected final void decodeUtf8StringAsCharBuffer() throws IOException {
@@ -1392,11 +2051,140 @@ public abstract class Decoder implements FastInfosetParser {
         decodeUtf8StringIntoCharBuffer(ch, offset);
     }
     
+    /**
+     * Decode a UTF-8 encoded string of length <code>_octetBufferLength</code>
+     * as a String.
+     * <p>
+     * If all the octets are ASCII characters the String is created directly
+     * from the octets, otherwise the octets are decoded into the character
+     * buffer from which the String is created.
+     */
     protected final String decodeUtf8StringAsString() throws IOException {
-        decodeUtf8StringAsCharBuffer();
+        ensureOctetBufferSize();
+        if (isAsciiOctets(_octetBufferOffset, _octetBufferLength)) {
+            return decodeAsciiOctetsAsString();
+        }
+        decodeUtf8StringIntoCharBuffer();
         return new String(_charBuffer, 0, _charBufferLength);
     }
     
+    /**
+     * Decode a UTF-8 encoded string of length <code>_octetBufferLength</code>
+     * as a String interned using the interner of strings.
+     * <p>
+     * A string of US-ASCII octets is interned without decoding the octets
+     * into the buffer of characters.
+     */
+    protected final String decodeUtf8StringAsInternedString() throws IOException {
+        ensureOctetBufferSize();
+        if (isAsciiOctets(_octetBufferOffset, _octetBufferLength)) {
+            final String s = _stringInterner.intern(_octetBuffer, _octetBufferOffset, _octetBufferLength);
+            _octetBufferOffset += _octetBufferLength;
+            return s;
+        }
+        decodeUtf8StringIntoCharBuffer();
+        return _stringInterner.intern(_charBuffer, 0, _charBufferLength);
+    }
+    
+    private boolean isAsciiOctets(int offset, int length) {
+        final byte[] octets = _octetBuffer;
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            final int b = octets[i];
+            // Octets >= 0x80 are negative, control characters are
+            // checked against the UTF-8 state table
+            if (b < 0x20 && (b < 0 ||
+                    DecoderStateTables.UTF8(b) != DecoderStateTables.UTF8_ONE_BYTE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private String decodeAsciiOctetsAsString() throws IOException {
+        // US-ASCII octets are ISO-8859-1 characters, the String is created
+        // from the octets without an intermediate character array
+        final String s = new String(_octetBuffer, _octetBufferOffset, _octetBufferLength, "ISO-8859-1");
+        _octetBufferOffset += _octetBufferLength;
+        return s;
+    }
+    
+    /**
+     * Read the octets of a UTF-8 or UTF-16 encoded string of length 
+     * <code>_octetBufferLength</code>, starting at 
+     * <code>_octetBufferStart</code>, without decoding them.
+     * <p>
+     * The octets may be decoded later using 
+     * {@link #decodeStringOctetsAsCharBuffer} or 
+     * {@link #decodeStringOctetsAsString}, if they have not been 
+     * overwritten, see {@link #_octetBufferListener}.
+     */
+    protected final void skipStringOctets() throws IOException {
+        ensureOctetBufferSize();
+        _octetBufferStart = _octetBufferOffset;
+        _octetBufferOffset += _octetBufferLength;
+    }
+    
+    /**
+     * Decode octets, that have been read using {@link #skipStringOctets},
+     * as a UTF-8 or UTF-16 encoded string into the buffer of characters.
+     *
+     * @param octets the array of octets.
+     * @param offset the offset of the octets in the array.
+     * @param length the number of octets.
+     * @param isUtf8 true if the string is UTF-8 encoded, otherwise UTF-16.
+     */
+    protected final void decodeStringOctetsAsCharBuffer(byte[] octets, int offset, int length,
+            boolean isUtf8) throws IOException {
+        decodeStringOctets(octets, offset, length, isUtf8, false);
+    }
+    
+    /**
+     * Decode octets, that have been read using {@link #skipStringOctets},
+     * as a UTF-8 or UTF-16 encoded string.
+     *
+     * @param octets the array of octets.
+     * @param offset the offset of the octets in the array.
+     * @param length the number of octets.
+     * @param isUtf8 true if the string is UTF-8 encoded, otherwise UTF-16.
+     * @return the string.
+     */
+    protected final String decodeStringOctetsAsString(byte[] octets, int offset, int length,
+            boolean isUtf8) throws IOException {
+        return decodeStringOctets(octets, offset, length, isUtf8, true);
+    }
+    
+    private String decodeStringOctets(byte[] octets, int offset, int length, 
+            boolean isUtf8, boolean asString) throws IOException {
+        // Decode from the octets as if they were the buffer, leaving the 
+        // state of the buffer unmodified
+        final byte[] octetBuffer = _octetBuffer;
+        final int octetBufferOffset = _octetBufferOffset;
+        final int octetBufferEnd = _octetBufferEnd;
+        final int octetBufferLength = _octetBufferLength;
+        _octetBuffer = octets;
+        _octetBufferOffset = offset;
+        _octetBufferEnd = offset + length;
+        _octetBufferLength = length;
+        try {
+            if (asString) {
+                return (isUtf8) ? decodeUtf8StringAsString() : decodeUtf16StringAsString();
+            }
+            
+            if (isUtf8) {
+                decodeUtf8StringIntoCharBuffer();
+            } else {
+                decodeUtf16StringIntoCharBuffer();
+            }
+            return null;
+        } finally {
+            _octetBuffer = octetBuffer;
+            _octetBufferOffset = octetBufferOffset;
+            _octetBufferEnd = octetBufferEnd;
+            _octetBufferLength = octetBufferLength;
+        }
+    }
+    
     protected final void decodeUtf16StringAsCharBuffer() throws IOException {
         ensureOctetBufferSize();
         decodeUtf16StringIntoCharBuffer();
@@ -1409,6 +2197,11 @@ public abstract class Decoder implements FastInfosetParser {
     
     private void ensureOctetBufferSize() throws IOException {
         if (_octetBufferEnd < (_octetBufferOffset + _octetBufferLength)) {
+            if (_octetBufferIsInput) {
+                throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
+            }
+            
+            notifyOctetBufferOverwrite(null);
             final int octetsInBuffer = _octetBufferEnd - _octetBufferOffset;
             
             if (_octetBuffer.length < _octetBufferLength) {
@@ -1424,7 +2217,7 @@ public abstract class Decoder implements FastInfosetParser {
             _octetBufferOffset = 0;
             
             // Read as many octets as possible to fill the buffer
-            final int octetsRead = _s.read(_octetBuffer, octetsInBuffer, _octetBuffer.length - octetsInBuffer);
+            final int octetsRead = readInput(_octetBuffer, octetsInBuffer, _octetBuffer.length - octetsInBuffer);
             if (octetsRead < 0) {
                 throw new EOFException("Unexpeceted EOF");
             }
@@ -1442,7 +2235,7 @@ public abstract class Decoder implements FastInfosetParser {
         // Check if the number of octets that have been read is not enough
         while (_octetBufferEnd < _octetBufferLength) {
             // Read as many octets as possible to fill the buffer
-            final int octetsRead = _s.read(_octetBuffer, _octetBufferEnd, _octetBuffer.length - _octetBufferEnd);
+            final int octetsRead = readInput(_octetBuffer, _octetBufferEnd, _octetBuffer.length - _octetBufferEnd);
             if (octetsRead < 0) {
                 throw new EOFException("Unexpeceted EOF");
             }
@@ -1458,7 +2251,12 @@ public abstract class Decoder implements FastInfosetParser {
         _charBufferLength = 0;
         final int end = _octetBufferLength + _octetBufferOffset;
         int b1;
-        while (end != _octetBufferOffset) {
+        while (true) {
+            decodeAsciiRun(_charBuffer, end);
+            if (end == _octetBufferOffset) {
+                break;
+            }
+            
             b1 = _octetBuffer[_octetBufferOffset++] & 0xFF;
             if (DecoderStateTables.UTF8(b1) == DecoderStateTables.UTF8_ONE_BYTE) {
                 _charBuffer[_charBufferLength++] = (char) b1;
@@ -1472,7 +2270,12 @@ public abstract class Decoder implements FastInfosetParser {
         _charBufferLength = offset;
         final int end = _octetBufferLength + _octetBufferOffset;
         int b1;
-        while (end != _octetBufferOffset) {
+        while (true) {
+            decodeAsciiRun(ch, end);
+            if (end == _octetBufferOffset) {
+                break;
+            }
+            
             b1 = _octetBuffer[_octetBufferOffset++] & 0xFF;
             if (DecoderStateTables.UTF8(b1) == DecoderStateTables.UTF8_ONE_BYTE) {
                 ch[_charBufferLength++] = (char) b1;
@@ -1483,6 +2286,23 @@ public abstract class Decoder implements FastInfosetParser {
         _charBufferLength -= offset;
     }
     
+    /**
+     * Copy the run of printable ASCII octets, starting at
+     * <code>_octetBufferOffset</code> and ending before <code>end</code>,
+     * to the character array at <code>_charBufferLength</code>.
+     */
+    private void decodeAsciiRun(char[] ch, int end) {
+        final byte[] octets = _octetBuffer;
+        int i = _octetBufferOffset;
+        int j = _charBufferLength;
+        // Octets >= 0x80 are negative
+        while (i < end && octets[i] >= 0x20) {
+            ch[j++] = (char) octets[i++];
+        }
+        _octetBufferOffset = i;
+        _charBufferLength = j;
+    }
+    
     private void decodeTwoToFourByteUtf8Character(int b1, int end) throws IOException {
         switch(DecoderStateTables.UTF8(b1)) {
             case DecoderStateTables.UTF8_TWO_BYTES:
@@ -1818,7 +2638,8 @@ public abstract class Decoder implements FastInfosetParser {
         if (_octetBufferOffset < _octetBufferEnd) {
             return _octetBuffer[_octetBufferOffset++] & 0xFF;
         } else {
-            _octetBufferEnd = _s.read(_octetBuffer);
+            notifyOctetBufferOverwrite(null);
+            _octetBufferEnd = readInput(_octetBuffer, 0, _octetBuffer.length);
             if (_octetBufferEnd < 0) {
                 throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
             }
@@ -1842,11 +2663,9 @@ public abstract class Decoder implements FastInfosetParser {
         if (_octetBufferOffset < _octetBufferEnd) {
             return _octetBuffer[_octetBufferOffset] & 0xFF;
         } else {
-            if (octetBufferListener != null) {
-                octetBufferListener.onBeforeOctetBufferOverwrite();
-            }
+            notifyOctetBufferOverwrite(octetBufferListener);
             
-            _octetBufferEnd = _s.read(_octetBuffer);
+            _octetBufferEnd = readInput(_octetBuffer, 0, _octetBuffer.length);
             if (_octetBufferEnd < 0) {
                 throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
             }
@@ -1860,8 +2679,10 @@ public abstract class Decoder implements FastInfosetParser {
         if (_octetBufferOffset + 1 < _octetBufferEnd) {
             return _octetBuffer[_octetBufferOffset + 1] & 0xFF;
         } else {
-            if (octetBufferListener != null) {
-                octetBufferListener.onBeforeOctetBufferOverwrite();
+            notifyOctetBufferOverwrite(octetBufferListener);
+            
+            if (_octetBufferIsInput) {
+                throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
             }
             
             int offset = 0;
@@ -1869,17 +2690,27 @@ public abstract class Decoder implements FastInfosetParser {
                 _octetBuffer[0] = _octetBuffer[_octetBufferOffset];
                 offset = 1;
             }
-            _octetBufferEnd = _s.read(_octetBuffer, offset, _octetBuffer.length - offset);
+            final int n = readInput(_octetBuffer, offset, _octetBuffer.length - offset);
             
-            if (_octetBufferEnd < 0) {
+            if (n < 0) {
                 throw new EOFException(CommonResourceBundle.getInstance().getString("message.EOF"));
             }
             
+            _octetBufferEnd = offset + n;
             _octetBufferOffset = 0;
             return _octetBuffer[1] & 0xFF;
         }
     }
     
+    private void notifyOctetBufferOverwrite(OctetBufferListener octetBufferListener) {
+        if (octetBufferListener != null) {
+            octetBufferListener.onBeforeOctetBufferOverwrite();
+        }
+        if (_octetBufferListener != null && _octetBufferListener != octetBufferListener) {
+            _octetBufferListener.onBeforeOctetBufferOverwrite();
+        }
+    }
+    
     protected class EncodingAlgorithmInputStream extends InputStream {
         
         public int read() throws IOException {
@@ -1920,30 +2751,101 @@ public abstract class Decoder implements FastInfosetParser {
                 return -1;
             }
         }
+        
+        @Override
+        public int available() throws IOException {
+            return _octetBufferOffset - _octetBufferStart;
+        }
+    }
+    
+    /**
+     * The stream of the octets of a non identifying string, which reads
+     * octets from the internal buffer and refills it from the input.
+     */
+    private final class OctetsInputStream extends InputStream {
+        
+        public int read() throws IOException {
+            if (_octetsInputStreamRemaining == 0) {
+                return -1;
+            }
+            if (_octetBufferOffset == _octetBufferEnd) {
+                fillOctetBuffer();
+            }
+            
+            _octetsInputStreamRemaining--;
+            return _octetBuffer[_octetBufferOffset++] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte b[], int off, int len) throws IOException {
+            if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            } else if (_octetsInputStreamRemaining == 0) {
+                return -1;
+            }
+            if (_octetBufferOffset == _octetBufferEnd) {
+                fillOctetBuffer();
+            }
+            
+            final int n = Math.min(Math.min(len, _octetsInputStreamRemaining), 
+                    _octetBufferEnd - _octetBufferOffset);
+            System.arraycopy(_octetBuffer, _octetBufferOffset, b, off, n);
+            _octetBufferOffset += n;
+            _octetsInputStreamRemaining -= n;
+            return n;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            
+            final int remaining = _octetsInputStreamRemaining;
+            if (n < remaining) {
+                _octetsInputStreamRemaining = (int)n;
+                skipOctetsOfInputStream();
+                _octetsInputStreamRemaining = remaining - (int)n;
+                return n;
+            }
+            skipOctetsOfInputStream();
+            return remaining;
+        }
+        
+        @Override
+        public int available() throws IOException {
+            return Math.min(_octetsInputStreamRemaining, _octetBufferEnd - _octetBufferOffset);
+        }
     }
     
     protected final boolean _isFastInfosetDocument() throws IOException {
         // Fill up the octet buffer
         peek();
         
+        // The start of the document in the buffer, which is not zero
+        // when decoding in place from the array of a byte buffer
+        final int start = _octetBufferOffset;
+        
         _octetBufferLength = EncodingConstants.BINARY_HEADER.length;
         ensureOctetBufferSize();
         _octetBufferOffset += _octetBufferLength;
         
         // Check for binary header
-        if (_octetBuffer[0] != EncodingConstants.BINARY_HEADER[0] ||
-                _octetBuffer[1] != EncodingConstants.BINARY_HEADER[1] ||
-                _octetBuffer[2] != EncodingConstants.BINARY_HEADER[2] ||
-                _octetBuffer[3] != EncodingConstants.BINARY_HEADER[3]) {
+        if (_octetBuffer[start] != EncodingConstants.BINARY_HEADER[0] ||
+                _octetBuffer[start + 1] != EncodingConstants.BINARY_HEADER[1] ||
+                _octetBuffer[start + 2] != EncodingConstants.BINARY_HEADER[2] ||
+                _octetBuffer[start + 3] != EncodingConstants.BINARY_HEADER[3]) {
             
             // Check for each form of XML declaration
             for (int i = 0; i < EncodingConstants.XML_DECLARATION_VALUES.length; i++) {
-                _octetBufferLength = EncodingConstants.XML_DECLARATION_VALUES[i].length - _octetBufferOffset;
+                _octetBufferLength = EncodingConstants.XML_DECLARATION_VALUES[i].length - (_octetBufferOffset - start);
                 ensureOctetBufferSize();
                 _octetBufferOffset += _octetBufferLength;
                 
                 // Check XML declaration
-                if (arrayEquals(_octetBuffer, 0,
+                if (arrayEquals(_octetBuffer, start,
                         EncodingConstants.XML_DECLARATION_VALUES[i],
                         EncodingConstants.XML_DECLARATION_VALUES[i].length)) {
                     _octetBufferLength = EncodingConstants.BINARY_HEADER.length;
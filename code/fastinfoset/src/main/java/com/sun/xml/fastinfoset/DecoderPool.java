@@ -0,0 +1,110 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset;
+
+import com.sun.xml.fastinfoset.util.InstancePool;
+import java.util.Map;
+
+/**
+ * A thread-safe pool of decoders.
+ * <p>
+ * Decoders are reset, and their vocabulary is cleared, when released to
+ * the pool. An idle decoder keeps its internal buffers and the external 
+ * vocabularies that it has converted, so borrowing a decoder avoids the 
+ * cost of both.
+ * <p>
+ * For example:
+ * <pre>
+ * DecoderPool&lt;StAXDocumentParser&gt; pool = 
+ *     new DecoderPool&lt;StAXDocumentParser&gt;(StAXDocumentParser.class);
+ *
+ * StAXDocumentParser p = pool.borrow();
+ * try {
+ *     p.setInputStream(in);
+ *     ...
+ * } finally {
+ *     pool.release(p);
+ * }
+ * </pre>
+ */
+public class DecoderPool<T extends Decoder> extends InstancePool<T> {
+    private final Class<T> _decoderClass;
+    
+    private volatile Map _externalVocabularies;
+    
+    /**
+     * @param decoderClass the class of the decoders, which must have a 
+     *        public no-argument constructor.
+     */
+    public DecoderPool(Class<T> decoderClass) {
+        _decoderClass = decoderClass;
+    }
+    
+    /**
+     * @param decoderClass the class of the decoders, which must have a 
+     *        public no-argument constructor.
+     * @param maximumIdleInstances the maximum number of idle decoders.
+     * @param maximumIdleFootprint the maximum footprint, in bytes, of an 
+     *        idle decoder.
+     */
+    public DecoderPool(Class<T> decoderClass, int maximumIdleInstances, int maximumIdleFootprint) {
+        super(maximumIdleInstances, maximumIdleFootprint);
+        _decoderClass = decoderClass;
+    }
+    
+    /**
+     * Set the map of referenced external vocabularies that decoders created
+     * by the pool shall use.
+     * <p>
+     * Idle decoders are discarded so that decoders borrowed after this
+     * method returns use the external vocabularies.
+     *
+     * @param referencedVocabularies the map of URI to vocabulary, see
+     *        {@link org.jvnet.fastinfoset.FastInfosetParser#setExternalVocabularies}.
+     */
+    public void setExternalVocabularies(Map referencedVocabularies) {
+        _externalVocabularies = referencedVocabularies;
+        clear();
+    }
+
+    protected T create() {
+        final T decoder;
+        try {
+            decoder = _decoderClass.newInstance();
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        
+        final Map externalVocabularies = _externalVocabularies;
+        if (externalVocabularies != null) {
+            decoder.setExternalVocabularies(externalVocabularies);
+        }
+        return decoder;
+    }
+    
+    protected void reset(T decoder) {
+        decoder.reset();
+        decoder.setInputStream(null);
+    }
+    
+    protected int getFootprint(T decoder) {
+        return decoder.getFootprint();
+    }
+}
@@ -24,8 +24,15 @@ import com.sun.xml.fastinfoset.util.KeyIntMap;
 import com.sun.xml.fastinfoset.util.LocalNameQualifiedNamesMap;
 import com.sun.xml.fastinfoset.util.StringIntMap;
 import com.sun.xml.fastinfoset.vocab.SerializerVocabulary;
+import com.sun.xml.fastinfoset.vocab.SharedExternalVocabulary;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import org.jvnet.fastinfoset.EncodingAlgorithm;
@@ -57,6 +64,13 @@ import org.xml.sax.helpers.DefaultHandler;
  * Combining buffering with encoding enables better performance.
  *
  * <p>
+ * Octets may alternatively be written to a
+ * {@link java.nio.channels.WritableByteChannel}, see
+ * {@link #setOutputChannel(WritableByteChannel)}, or to a
+ * {@link java.nio.ByteBuffer}, see {@link #setOutputBuffer(ByteBuffer)},
+ * without an intermediate {@link java.io.OutputStream}.
+ *
+ * <p>
  * More than one fast infoset document may be encoded to the 
  * {@link java.io.OutputStream}.
  *
@@ -201,6 +215,26 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
      */
     protected OutputStream _s;
 
+    /**
+     * The {@link java.nio.channels.WritableByteChannel} that the encoded XML
+     * infoset is written to, or null if the encoded XML infoset is not 
+     * written to a channel.
+     */
+    protected WritableByteChannel _channel;
+
+    /**
+     * The {@link java.nio.ByteBuffer} that the encoded XML infoset is
+     * written to, or null if the encoded XML infoset is not written to
+     * a buffer.
+     */
+    protected ByteBuffer _outputBuffer;
+
+    /**
+     * The buffers used for gathering writes of the internal buffer
+     * followed by an array of bytes to a channel.
+     */
+    private final ByteBuffer[] _gatheringBuffers = new ByteBuffer[2];
+
     /**
      * The internal buffer of characters used for the UTF-8 or UTF-16 encoding 
      * of characters.
@@ -537,8 +571,15 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         // Create internal serializer vocabulary
         _v = new SerializerVocabulary();
         // Set the external vocabulary
-        SerializerVocabulary ev = new SerializerVocabulary(v.vocabulary,
-                _useLocalNameAsKeyForQualifiedNameLookup);
+        SerializerVocabulary ev;
+        if (v instanceof SharedExternalVocabulary) {
+            ev = ((SharedExternalVocabulary)v).getSerializerVocabulary(
+                    _useLocalNameAsKeyForQualifiedNameLookup);
+        } else {
+            ev = new SerializerVocabulary(v.vocabulary,
+                    _useLocalNameAsKeyForQualifiedNameLookup);
+            ev.freeze();
+        }
         _v.setExternalVocabulary(v.URI,
                 ev, false);
         
@@ -575,9 +616,50 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
      * @param s the OutputStream where the fast infoset document is written to.
      */
     public void setOutputStream(OutputStream s) {
-        _octetBufferIndex = 0;
-        _markIndex = -1;
+        resetOutput();
         _s = s;
+        _channel = null;
+        _outputBuffer = null;
+    }
+
+    /**
+     * Set the WritableByteChannel to encode the XML infoset to a 
+     * fast infoset document.
+     *
+     * <p>
+     * Octets are written directly to the channel without an intermediate
+     * {@link java.io.OutputStream}. If the channel is a
+     * {@link java.nio.channels.GatheringByteChannel} then the internal buffer
+     * and large arrays of bytes are written using one gathering write.
+     * The channel is expected to be in blocking mode.
+     *
+     * @param channel the WritableByteChannel where the fast infoset document 
+     *        is written to.
+     */
+    public void setOutputChannel(WritableByteChannel channel) {
+        resetOutput();
+        _s = null;
+        _channel = channel;
+        _outputBuffer = null;
+    }
+
+    /**
+     * Set the ByteBuffer to encode the XML infoset to a 
+     * fast infoset document.
+     *
+     * <p>
+     * Octets are written in bulk at the current position of the buffer, 
+     * which may be a direct buffer. An IOException is thrown if the 
+     * remaining space of the buffer is not large enough.
+     *
+     * @param buffer the ByteBuffer where the fast infoset document 
+     *        is written to.
+     */
+    public void setOutputBuffer(ByteBuffer buffer) {
+        resetOutput();
+        _s = null;
+        _channel = null;
+        _outputBuffer = buffer;
     }
 
     /**
@@ -597,9 +679,10 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
      */
     protected final void encodeHeader(boolean encodeXmlDecl) throws IOException {
         if (encodeXmlDecl) {
-            _s.write(EncodingConstants.XML_DECLARATION_VALUES[0]);
+            final byte[] xmlDecl = EncodingConstants.XML_DECLARATION_VALUES[0];
+            writeOctets(xmlDecl, 0, xmlDecl.length);
         }
-        _s.write(EncodingConstants.BINARY_HEADER);
+        writeOctets(EncodingConstants.BINARY_HEADER, 0, EncodingConstants.BINARY_HEADER.length);
     }
 
     /**
@@ -656,7 +739,7 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         encodeElementTermination();
         encodeTermination();
         _flush();
-        _s.flush();
+        flushOutput();
     }
 
     /**
@@ -990,7 +1073,7 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
             for (int i = 0; i < entry._valueIndex; i++) {
                 if ((prefix == names[i].prefix || prefix.equals(names[i].prefix))
                         && (namespaceURI == names[i].namespaceName || namespaceURI.equals(names[i].namespaceName))) {
-                    encodeNonZeroIntegerOnThirdBit(names[i].index);
+                    encodeElementQualifiedNameIndexOnThirdBit(names[i]);
                     return;
                 }
             }
@@ -1000,6 +1083,25 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
                 localName, entry);
     }
 
+    /**
+     * Encode the index of a qualified name of an Element Information Item,
+     * that is present in the vocabulary, on the third bit of an octet.
+     * <p>
+     * The octets of the index are cached on the qualified name, see 
+     * {@link QualifiedName#getElementIndexOctets}, and are copied to the
+     * buffer.
+     *
+     * @param name the qualified name.
+     */
+    protected final void encodeElementQualifiedNameIndexOnThirdBit(QualifiedName name) throws IOException {
+        final byte[] octets = name.getElementIndexOctets();
+        ensureSize(octets.length);
+        _octetBuffer[_octetBufferIndex++] = (byte)(_b | octets[0]);
+        for (int i = 1; i < octets.length; i++) {
+            _octetBuffer[_octetBufferIndex++] = octets[i];
+        }
+    }
+    
     /**
      * Encode a literal qualified name of an Element Informaiton Item on the
      * third bit of an octet.
@@ -1012,7 +1114,7 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
     protected final void encodeLiteralElementQualifiedNameOnThirdBit(String namespaceURI, String prefix, String localName,
             LocalNameQualifiedNamesMap.Entry entry) throws IOException {
         QualifiedName name = new QualifiedName(prefix, namespaceURI, localName, "", _v.elementName.getNextIndex());
-        entry.addQualifiedName(name);
+        _v.elementName.addQualifiedName(entry, name);
 
         int namespaceURIIndex = KeyIntMap.NOT_PRESENT;
         int prefixIndex = KeyIntMap.NOT_PRESENT;
@@ -1076,7 +1178,7 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
             for (int i = 0; i < entry._valueIndex; i++) {
                 if ((prefix == names[i].prefix || prefix.equals(names[i].prefix))
                         && (namespaceURI == names[i].namespaceName || namespaceURI.equals(names[i].namespaceName))) {
-                    encodeNonZeroIntegerOnSecondBitFirstBitZero(names[i].index);
+                    encodeAttributeQualifiedNameIndexOnSecondBit(names[i]);
                     return;
                 }
             }
@@ -1086,6 +1188,24 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
                 localName, entry);
     }
 
+    /**
+     * Encode the index of a qualified name of an Attribute Information Item,
+     * that is present in the vocabulary, on the second bit of an octet.
+     * <p>
+     * The octets of the index are cached on the qualified name, see 
+     * {@link QualifiedName#getAttributeIndexOctets}, and are copied to the
+     * buffer.
+     *
+     * @param name the qualified name.
+     */
+    protected final void encodeAttributeQualifiedNameIndexOnSecondBit(QualifiedName name) throws IOException {
+        final byte[] octets = name.getAttributeIndexOctets();
+        ensureSize(octets.length);
+        for (int i = 0; i < octets.length; i++) {
+            _octetBuffer[_octetBufferIndex++] = octets[i];
+        }
+    }
+    
     /**
      * Encode a literal qualified name of an Attribute Informaiton Item on the
      * third bit of an octet.
@@ -1121,7 +1241,7 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         int localNameIndex = _v.localName.obtainIndex(localName);
 
         QualifiedName name = new QualifiedName(prefix, namespaceURI, localName, "", _v.attributeName.getNextIndex());
-        entry.addQualifiedName(name);
+        _v.attributeName.addQualifiedName(entry, name);
 
         _b = EncodingConstants.ATTRIBUTE_LITERAL_QNAME_FLAG;
         if (namespaceURI.length() > 0) {
@@ -1666,6 +1786,31 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         encodeCIIOctetAlgorithmData(id, d, offset, length);
     }
 
+    /**
+     * Encode a non identifying string on the third bit of an octet as binary
+     * data, read from a stream, using an encoding algorithm.
+     * Implementation of clause C.15 of ITU-T Rec. X.891 | ISO/IEC 24824-1.
+     *
+     * @param URI the encoding algorithm URI. If the URI == null then the
+     *            encoding algorithm identifier takes precendence.
+     * @param id the encoding algorithm identifier.
+     * @param d the stream of the data to be encoded.
+     * @param length the length of bytes.
+     * @throws EncodingAlgorithmException if the encoding algorithm URI is not 
+     *         present in the vocabulary.
+     */
+    protected final void encodeNonIdentifyingStringOnThirdBit(String URI, int id, InputStream d, int length) throws FastInfosetException, IOException {
+        if (URI != null) {
+            id = _v.encodingAlgorithm.get(URI);
+            if (id == KeyIntMap.NOT_PRESENT) {
+                throw new EncodingAlgorithmException(CommonResourceBundle.getInstance().getString("message.EncodingAlgorithmURI", new Object[]{URI}));
+            }
+            id += EncodingConstants.ENCODING_ALGORITHM_APPLICATION_START;
+        }
+
+        encodeCIIOctetAlgorithmData(id, d, length);
+    }
+
     /**
      * Encode a chunk of Character Information Items using 
      * using an encoding algorithm.
@@ -1690,6 +1835,45 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         write(d, offset, length);
     }
 
+    /**
+     * Encode a chunk of Character Information Items using 
+     * using an encoding algorithm, where the data is read from a stream.
+     * Implementation of clause C.15 of ITU-T Rec. X.891 | ISO/IEC 24824-1.
+     * <p>
+     * The data is read directly in to the internal buffer, which is 
+     * written as it fills, so the data is never buffered as a whole.
+     *
+     * @param id the encoding algorithm identifier.
+     * @param d the stream of the data to be encoded.
+     * @param length the length of bytes.
+     * @throws EOFException if the stream ends before length bytes are read.
+     */
+    protected final void encodeCIIOctetAlgorithmData(int id, InputStream d, int length) throws IOException {
+        // Encode identification and top two bits of encoding algorithm id
+        write (EncodingConstants.CHARACTER_CHUNK | EncodingConstants.CHARACTER_CHUNK_ENCODING_ALGORITHM_FLAG |
+                ((id & 0xC0) >> 6));
+
+        // Encode bottom 6 bits of enoding algorithm id
+        _b = (id & 0x3F) << 2;
+
+        // Encode the length
+        encodeNonZeroOctetStringLengthOnSenventhBit(length);
+
+        while (length > 0) {
+            if (_octetBufferIndex == _octetBuffer.length) {
+                makeSpace();
+            }
+            
+            final int n = d.read(_octetBuffer, _octetBufferIndex, 
+                    Math.min(length, _octetBuffer.length - _octetBufferIndex));
+            if (n < 0) {
+                throw new EOFException();
+            }
+            _octetBufferIndex += n;
+            length -= n;
+        }
+    }
+
     /**
      * Encode a chunk of Character Information Items using 
      * using an encoding algorithm.
@@ -1762,9 +1946,8 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         _b = EncodingAlgorithmIndexes.CDATA << 2;
 
         
-        length = encodeUTF8String(ch, offset, length);
-        encodeNonZeroOctetStringLengthOnSenventhBit(length);
-        write(_encodingBuffer, length);
+        encodeNonZeroOctetStringLengthOnSenventhBit(calculateUTF8Length(ch, offset, length));
+        writeUTF8String(ch, offset, length);
     }
     
     /**
@@ -1794,9 +1977,10 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
      * @param s the string.
      */
     protected final void encodeNonEmptyOctetStringOnSecondBit(String s) throws IOException {
-        final int length = encodeUTF8String(s);
-        encodeNonZeroOctetStringLengthOnSecondBit(length);
-        write(_encodingBuffer, length);
+        final int length = s.length();
+        final char[] ch = getCharacters(s);
+        encodeNonZeroOctetStringLengthOnSecondBit(calculateUTF8Length(ch, 0, length));
+        writeUTF8String(ch, 0, length);
     }
 
     /**
@@ -1832,9 +2016,8 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
      * @param s the string.
      */
     protected final void encodeNonEmptyCharacterStringOnFifthBit(String s) throws IOException {
-        final int length = (_encodingStringsAsUtf8) ? encodeUTF8String(s) : encodeUtf16String(s);
-        encodeNonZeroOctetStringLengthOnFifthBit(length);
-        write(_encodingBuffer, length);
+        final int length = s.length();
+        encodeNonEmptyCharacterStringOnFifthBit(getCharacters(s), 0, length);
     }
 
     /**
@@ -1847,9 +2030,13 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
      * @param length the length of characters.
      */
     protected final void encodeNonEmptyCharacterStringOnFifthBit(char[] ch, int offset, int length) throws IOException {
-        length = (_encodingStringsAsUtf8) ? encodeUTF8String(ch, offset, length) : encodeUtf16String(ch, offset, length);
-        encodeNonZeroOctetStringLengthOnFifthBit(length);
-        write(_encodingBuffer, length);
+        if (_encodingStringsAsUtf8) {
+            encodeNonZeroOctetStringLengthOnFifthBit(calculateUTF8Length(ch, offset, length));
+            writeUTF8String(ch, offset, length);
+        } else {
+            encodeNonZeroOctetStringLengthOnFifthBit(length * 2);
+            writeUtf16String(ch, offset, length);
+        }
     }
 
     /**
@@ -1888,9 +2075,13 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
      * @param length the length of characters.
      */
     protected final void encodeNonEmptyCharacterStringOnSeventhBit(char[] ch, int offset, int length) throws IOException {
-        length = (_encodingStringsAsUtf8) ? encodeUTF8String(ch, offset, length) : encodeUtf16String(ch, offset, length);
-        encodeNonZeroOctetStringLengthOnSenventhBit(length);
-        write(_encodingBuffer, length);
+        if (_encodingStringsAsUtf8) {
+            encodeNonZeroOctetStringLengthOnSenventhBit(calculateUTF8Length(ch, offset, length));
+            writeUTF8String(ch, offset, length);
+        } else {
+            encodeNonZeroOctetStringLengthOnSenventhBit(length * 2);
+            writeUtf16String(ch, offset, length);
+        }
     }
 
     /**
@@ -1916,23 +2107,69 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
     protected final void encodeNonEmptyFourBitCharacterString(int[] table, char[] ch, int offset, 
             int octetPairLength, int octetSingleLength) throws FastInfosetException, IOException {
         ensureSize(octetPairLength + octetSingleLength);
-        // Encode all pairs
-        int v = 0;
-        for (int i = 0; i < octetPairLength; i++) {
-            v = (table[ch[offset++]] << 4) | table[ch[offset++]];
-            if (v < 0) {
-                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.characterOutofAlphabetRange"));
-            }
-            _octetBuffer[_octetBufferIndex++] = (byte)v;
+        // Encode all pairs, a character not in the alphabet has a negative
+        // value that is detected once all pairs are encoded
+        final byte[] octets = _octetBuffer;
+        int index = _octetBufferIndex;
+        int v;
+        int check = 0;
+        final int end = offset + octetPairLength * 2;
+        while (offset < end) {
+            v = (table[ch[offset]] << 4) | table[ch[offset + 1]];
+            offset += 2;
+            check |= v;
+            octets[index++] = (byte)v;
         }
         // Encode single character at end with termination bits
         if (octetSingleLength == 1) {
             v = (table[ch[offset]] << 4) | 0x0F;
-            if (v < 0) {
-                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.characterOutofAlphabetRange"));
+            check |= v;
+            octets[index++] = (byte)v;
+        }
+        if (check < 0) {
+            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.characterOutofAlphabetRange"));
+        }
+        _octetBufferIndex = index;
+    }
+    
+    /**
+     * The maximum character of a restricted alphabet whose characters are
+     * mapped to values using a table indexed by character.
+     */
+    private static final int MAXIMUM_ALPHABET_TABLE_CHARACTER = 0xFFF;
+    
+    /**
+     * The restricted alphabet of <code>_alphabetTable</code>.
+     */
+    private String _alphabet;
+    
+    /**
+     * The table mapping the characters of a restricted alphabet to values,
+     * or null if a character of the alphabet is greater than
+     * MAXIMUM_ALPHABET_TABLE_CHARACTER.
+     */
+    private int[] _alphabetTable;
+    
+    private int[] getAlphabetTable(String alphabet) {
+        if (_alphabet != alphabet && !alphabet.equals(_alphabet)) {
+            int max = 0;
+            for (int i = 0; i < alphabet.length(); i++) {
+                max = Math.max(max, alphabet.charAt(i));
             }
-            _octetBuffer[_octetBufferIndex++] = (byte)v;
-        }        
+            
+            if (max <= MAXIMUM_ALPHABET_TABLE_CHARACTER) {
+                final int[] table = new int[max + 1];
+                Arrays.fill(table, -1);
+                for (int i = 0; i < alphabet.length(); i++) {
+                    table[alphabet.charAt(i)] = i;
+                }
+                _alphabetTable = table;
+            } else {
+                _alphabetTable = null;
+            }
+            _alphabet = alphabet;
+        }
+        return _alphabetTable;
     }
     
     /**
@@ -1960,46 +2197,41 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         // Encode the length
         encodeNonZeroOctetStringLengthOnSenventhBit(totalOctets);
 
-        resetBits();
         ensureSize(totalOctets);
-        int v = 0;
-        for (int i = 0; i < length; i++) {
-            final char c = ch[offset + i];
-            // This is grotesquely slow, need to use hash table of character to int value
-            for (v = 0; v < alphabet.length(); v++) {
-                if (c == alphabet.charAt(v)) {
-                    break;
-                }
+        final int[] table = getAlphabetTable(alphabet);
+        final byte[] buffer = _octetBuffer;
+        int index = _octetBufferIndex;
+        
+        // Shift the values into the low bits of an int and write the
+        // octets from the high bits of those not yet written
+        int value = 0;
+        int bitCount = 0;
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            final char c = ch[i];
+            int v;
+            if (table != null) {
+                v = (c < table.length) ? table[c] : -1;
+            } else {
+                v = alphabet.indexOf(c);
             }
-            if (v == alphabet.length()) {
+            if (v < 0) {
                 throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.characterOutofAlphabetRange"));
             }
-            writeBits(bitsPerCharacter, v);            
-        }        
+            
+            value = (value << bitsPerCharacter) | v;
+            bitCount += bitsPerCharacter;
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                buffer[index++] = (byte)(value >>> bitCount);
+            }
+        }
         
+        // Pad the last octet with ones
         if (bitsOfLastOctet > 0) {
-            _b |= (1 << (8 - bitsOfLastOctet)) - 1;
-            write(_b);
-        }
-    }
-
-    private int _bitsLeftInOctet;
-
-    private final void resetBits() {
-        _bitsLeftInOctet = 8;
-        _b = 0;
-    }
-    
-    private final void writeBits(int bits, int v) throws IOException {
-        while (bits > 0) {
-            final int bit = (v & (1 << --bits)) > 0 ? 1 : 0;
-            _b |= bit << (--_bitsLeftInOctet);
-            if (_bitsLeftInOctet == 0) {
-                write(_b);
-                _bitsLeftInOctet = 8;
-                _b = 0;
-            }
+            buffer[index++] = (byte)((value << (8 - bitsOfLastOctet)) | ((1 << (8 - bitsOfLastOctet)) - 1));
         }
+        _octetBufferIndex = index;
     }
     
     /**
@@ -2197,9 +2429,8 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
      *        how the length of the UTF-8 encoded string is encoded.
      */
     protected final void encodeNonEmptyUTF8StringAsOctetString(int b, char ch[], int offset, int length, int[] constants) throws IOException {
-        length = encodeUTF8String(ch, offset, length);
-        encodeNonZeroOctetStringLength(b, length, constants);
-        write(_encodingBuffer, length);
+        encodeNonZeroOctetStringLength(b, calculateUTF8Length(ch, offset, length), constants);
+        writeUTF8String(ch, offset, length);
     }
 
     /**
@@ -2263,6 +2494,7 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
      */
     protected final void mark() {
         _markIndex = _octetBufferIndex;
+        _markSegment = -1;
     }
 
     /**
@@ -2280,6 +2512,19 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         return _markIndex != -1;
     }
     
+    /**
+     * Set bits of the octet at the marked position in the buffered stream.
+     *
+     * @param bits the bits to set.
+     */
+    protected final void setMarkedOctetBits(int bits) {
+        if (_markSegment == -1) {
+            _octetBuffer[_markIndex] |= bits;
+        } else {
+            _segments[_markSegment][_markIndex] |= bits;
+        }
+    }
+    
     /**
      * Write a byte to the buffered stream.
      */
@@ -2287,14 +2532,8 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         if (_octetBufferIndex < _octetBuffer.length) {
             _octetBuffer[_octetBufferIndex++] = (byte)i;
         } else {
-            if (_markIndex == -1) {
-                _s.write(_octetBuffer);
-                _octetBufferIndex = 1;
-                _octetBuffer[0] = (byte)i;
-            } else {
-                resize(_octetBuffer.length * 3 / 2);
-                _octetBuffer[_octetBufferIndex++] = (byte)i;
-            }
+            makeSpace();
+            _octetBuffer[_octetBufferIndex++] = (byte)i;
         }
     }
 
@@ -2321,36 +2560,276 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
             _octetBufferIndex += length;
         } else {
             if (_markIndex == -1) {
-                _s.write(_octetBuffer, 0, _octetBufferIndex);
-                _s.write(b, offset, length);
+                flushSegments();
+                writeOctets(_octetBuffer, _octetBufferIndex, b, offset, length);
                 _octetBufferIndex = 0;
             } else {
-                resize((_octetBuffer.length + length) * 3 / 2 + 1);
-                System.arraycopy(b, offset, _octetBuffer, _octetBufferIndex, length);
-                _octetBufferIndex += length;
+                while (true) {
+                    final int n = Math.min(_octetBuffer.length - _octetBufferIndex, length);
+                    System.arraycopy(b, offset, _octetBuffer, _octetBufferIndex, n);
+                    _octetBufferIndex += n;
+                    offset += n;
+                    length -= n;
+                    if (length == 0) {
+                        break;
+                    }
+                    appendSegment(0);
+                }
             }
         }
     }
 
-    private void ensureSize(int length) {
-        if ((_octetBufferIndex + length) > _octetBuffer.length) {
-            resize((_octetBufferIndex + length) * 3 / 2 + 1);
+    /**
+     * Make space in the internal buffer when it is full, either by writing
+     * the internal buffer or, if the mark is set, by appending it to the
+     * chain of segments.
+     */
+    private void makeSpace() throws IOException {
+        if (_markIndex == -1) {
+            flushSegments();
+            writeOctets(_octetBuffer, 0, _octetBufferIndex);
+            _octetBufferIndex = 0;
+        } else {
+            appendSegment(0);
         }
     }
 
-    private void resize(int length) {
-        byte[] b = new byte[length];
-        System.arraycopy(_octetBuffer, 0, b, 0, _octetBufferIndex);
-        _octetBuffer = b;
+    private void ensureSize(int length) throws IOException {
+        if ((_octetBufferIndex + length) > _octetBuffer.length) {
+            if (_markIndex == -1) {
+                _flush();
+                if (length > _octetBuffer.length) {
+                    _octetBuffer = new byte[length * 3 / 2 + 1];
+                }
+            } else {
+                appendSegment(length);
+            }
+        }
     }
 
     private void _flush() throws IOException {
+        flushSegments();
         if (_octetBufferIndex > 0) {
-            _s.write(_octetBuffer, 0, _octetBufferIndex);
+            writeOctets(_octetBuffer, 0, _octetBufferIndex);
             _octetBufferIndex = 0;
         }
     }
 
+    /**
+     * The maximum number of segments retained for reuse.
+     */
+    private static final int MAXIMUM_SEGMENT_POOL_SIZE = 32;
+
+    /**
+     * The chain of segments, in order, that were filled while the mark was 
+     * set and are held until the mark is reset.
+     * <p>
+     * The internal buffer is appended to the chain when it is full and 
+     * the mark is set, and is replaced by a new segment. This avoids 
+     * copying the contents of the internal buffer when it grows.
+     */
+    private byte[][] _segments = new byte[4][];
+
+    /**
+     * The number of octets in each segment of the chain.
+     */
+    private int[] _segmentLengths = new int[4];
+
+    /**
+     * The number of segments in the chain.
+     */
+    private int _segmentCount;
+
+    /**
+     * The index of the segment in the chain that contains the marked 
+     * octet, or -1 if the marked octet is in the internal buffer.
+     */
+    private int _markSegment = -1;
+
+    /**
+     * The segments that have been written and are available for reuse.
+     */
+    private byte[][] _segmentPool = new byte[4][];
+
+    /**
+     * The number of segments available for reuse.
+     */
+    private int _segmentPoolCount;
+
+    /**
+     * Append the internal buffer to the chain of segments and replace
+     * it with a segment that has a length of at least the length of the 
+     * internal buffer and the minimum length.
+     *
+     * @param minimumLength the minimum length of the new segment.
+     */
+    private void appendSegment(int minimumLength) {
+        if (_segmentCount == _segments.length) {
+            final byte[][] segments = new byte[_segmentCount * 3 / 2 + 1][];
+            System.arraycopy(_segments, 0, segments, 0, _segmentCount);
+            _segments = segments;
+            
+            final int[] segmentLengths = new int[segments.length];
+            System.arraycopy(_segmentLengths, 0, segmentLengths, 0, _segmentCount);
+            _segmentLengths = segmentLengths;
+        }
+
+        if (_markSegment == -1 && _markIndex != -1) {
+            if (_markIndex < _octetBufferIndex) {
+                _markSegment = _segmentCount;
+            } else {
+                // The marked octet has yet to be written
+                _markIndex = 0;
+            }
+        }
+        
+        _segments[_segmentCount] = _octetBuffer;
+        _segmentLengths[_segmentCount++] = _octetBufferIndex;
+        
+        _octetBuffer = obtainSegment(Math.max(minimumLength, _octetBuffer.length));
+        _octetBufferIndex = 0;
+    }
+    
+    private byte[] obtainSegment(int length) {
+        while (_segmentPoolCount > 0) {
+            final byte[] segment = _segmentPool[--_segmentPoolCount];
+            _segmentPool[_segmentPoolCount] = null;
+            if (segment.length >= length) {
+                return segment;
+            }
+        }
+        return new byte[length];
+    }
+
+    private void recycleSegment(byte[] segment) {
+        if (_segmentPoolCount == _segmentPool.length) {
+            if (_segmentPoolCount == MAXIMUM_SEGMENT_POOL_SIZE) {
+                return;
+            }
+            final byte[][] segmentPool = new byte[Math.min(_segmentPoolCount * 2, MAXIMUM_SEGMENT_POOL_SIZE)][];
+            System.arraycopy(_segmentPool, 0, segmentPool, 0, _segmentPoolCount);
+            _segmentPool = segmentPool;
+        }
+        _segmentPool[_segmentPoolCount++] = segment;
+    }
+    
+    /**
+     * Write, segment by segment, the chain of segments.
+     */
+    private void flushSegments() throws IOException {
+        if (_segmentCount == 0) {
+            return;
+        }
+        
+        for (int i = 0; i < _segmentCount; i++) {
+            writeOctets(_segments[i], 0, _segmentLengths[i]);
+            recycleSegment(_segments[i]);
+            _segments[i] = null;
+        }
+        _segmentCount = 0;
+        _markSegment = -1;
+    }
+    
+    /**
+     * @return the approximate number of bytes held by the internal buffers
+     *         and the internal vocabulary.
+     */
+    final int getFootprint() {
+        int footprint = _octetBuffer.length + _encodingBuffer.length + 2 * _charBuffer.length;
+        for (int i = 0; i < _segmentPoolCount; i++) {
+            footprint += _segmentPool[i].length;
+        }
+        if (_vIsInternal) {
+            footprint += _v.getFootprint();
+        }
+        return footprint;
+    }
+    
+    /**
+     * Clear the internal vocabulary, if any, so that the tables of a large
+     * vocabulary are not retained by an idle encoder.
+     */
+    final void clearVocabulary() {
+        if (_vIsInternal) {
+            _v.clear();
+            if (_vData != null)
+                _vData.clear();
+        }
+    }
+    
+    /**
+     * Discard the chain of segments and reset the internal buffer and mark.
+     */
+    private void resetOutput() {
+        for (int i = 0; i < _segmentCount; i++) {
+            recycleSegment(_segments[i]);
+            _segments[i] = null;
+        }
+        _segmentCount = 0;
+        _markSegment = -1;
+        _octetBufferIndex = 0;
+        _markIndex = -1;
+    }
+
+    /**
+     * Flush the OutputStream, if any, that the fast infoset document is
+     * written to.
+     * <p>
+     * Channels and buffers are written to directly and do not require 
+     * flushing.
+     */
+    protected final void flushOutput() throws IOException {
+        if (_s != null) {
+            _s.flush();
+        }
+    }
+
+    /**
+     * Write an array of bytes, bypassing the internal buffer, to the 
+     * OutputStream, WritableByteChannel or ByteBuffer.
+     */
+    private void writeOctets(byte[] b, int offset, int length) throws IOException {
+        if (_channel != null) {
+            final ByteBuffer bb = ByteBuffer.wrap(b, offset, length);
+            while (bb.hasRemaining()) {
+                _channel.write(bb);
+            }
+        } else if (_outputBuffer != null) {
+            if (_outputBuffer.remaining() < length) {
+                throw new IOException(CommonResourceBundle.getInstance().getString("message.outputBufferOverflow"));
+            }
+            _outputBuffer.put(b, offset, length);
+        } else {
+            _s.write(b, offset, length);
+        }
+    }
+
+    /**
+     * Write the internal buffer followed by an array of bytes, bypassing
+     * the internal buffer, to the OutputStream, WritableByteChannel or
+     * ByteBuffer.
+     * <p>
+     * A gathering write is performed if the channel supports it.
+     */
+    private void writeOctets(byte[] a, int aLength, byte[] b, int bOffset, int bLength) throws IOException {
+        if (_channel instanceof GatheringByteChannel) {
+            final ByteBuffer[] bbs = _gatheringBuffers;
+            bbs[0] = ByteBuffer.wrap(a, 0, aLength);
+            bbs[1] = ByteBuffer.wrap(b, bOffset, bLength);
+            try {
+                final GatheringByteChannel channel = (GatheringByteChannel)_channel;
+                while (bbs[1].hasRemaining()) {
+                    channel.write(bbs, 0, 2);
+                }
+            } finally {
+                bbs[0] = bbs[1] = null;
+            }
+        } else {
+            writeOctets(a, 0, aLength);
+            writeOctets(b, bOffset, bLength);
+        }
+    }
+
     
     private EncodingBufferOutputStream _encodingBufferOutputStream = new EncodingBufferOutputStream();
 
@@ -2469,6 +2948,130 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
     }
     
     private void encodeCharacterAsUtf8FourByte(int c, char[] ch, int chpos, int chend, int bpos) throws IOException {
+        final int uc = decodeSurrogatePair(c, ch, chpos, chend);
+
+        _encodingBuffer[bpos++] = (byte)(0xF0 | ((uc >> 18)));
+        _encodingBuffer[bpos++] = (byte)(0x80 | ((uc >> 12) & 0x3F));
+        _encodingBuffer[bpos++] = (byte)(0x80 | ((uc >> 6) & 0x3F));
+        _encodingBuffer[bpos++] = (byte)(0x80 | (uc & 0x3F));
+    }
+
+    /**
+     * Obtain the characters of a string, using the internal buffer of 
+     * characters if the string is not too long.
+     *
+     * @param s the string.
+     * @return the array of characters, starting at offset 0.
+     */
+    private char[] getCharacters(String s) {
+        final int length = s.length();
+        if (length < _charBuffer.length) {
+            s.getChars(0, length, _charBuffer, 0);
+            return _charBuffer;
+        } else {
+            return s.toCharArray();
+        }
+    }
+    
+    /**
+     * Calculate the length of the UTF-8 encoding of characters.
+     *
+     * @param ch the array of characters.
+     * @param offset the offset into the array of characters.
+     * @param length the length of characters.
+     * @return the length in octets.
+     */
+    private static int calculateUTF8Length(char[] ch, int offset, int length) {
+        final int end = offset + length;
+        // Skip the leading run of ASCII characters
+        while (offset < end && ch[offset] < 0x80) {
+            offset++;
+        }
+        
+        int utf8Length = length;
+        while (offset < end) {
+            final int c = ch[offset++];
+            if (c < 0x80) {
+                continue;
+            } else if (c < 0x800) {
+                utf8Length += 1;
+            } else if (!XMLChar.isHighSurrogate(c) && !XMLChar.isLowSurrogate(c)) {
+                utf8Length += 2;
+            } else {
+                // 4 bytes for the high and low surrogate
+                utf8Length += 2;
+                offset++;
+            }
+        }
+        
+        return utf8Length;
+    }
+    
+    /**
+     * Write characters, encoded using the UTF-8 encoding, directly to
+     * the internal buffer.
+     * <p>
+     * Runs of ASCII characters are copied in bulk. If the internal buffer
+     * becomes full then space is made and encoding continues, so the 
+     * encoded octets are never copied to an intermediate buffer.
+     *
+     * @param ch the array of characters.
+     * @param offset the offset into the array of characters.
+     * @param length the length of characters.
+     */
+    private void writeUTF8String(char[] ch, int offset, int length) throws IOException {
+        final int end = offset + length;
+        byte[] buffer = _octetBuffer;
+        int bpos = _octetBufferIndex;
+        
+        while (offset < end) {
+            // Copy the run of ASCII characters that fits in the buffer
+            final int asciiEnd = Math.min(end, offset + (buffer.length - bpos));
+            int c;
+            while (offset < asciiEnd && (c = ch[offset]) < 0x80) {
+                buffer[bpos++] = (byte) c;
+                offset++;
+            }
+            if (offset == end) {
+                break;
+            }
+            
+            if (buffer.length - bpos < 4) {
+                _octetBufferIndex = bpos;
+                makeSpace();
+                buffer = _octetBuffer;
+                bpos = _octetBufferIndex;
+                continue;
+            }
+            
+            c = ch[offset++];
+            if (c < 0x80) {
+                // 1 byte, 7 bits
+                buffer[bpos++] = (byte) c;
+            } else if (c < 0x800) {
+                // 2 bytes, 11 bits
+                buffer[bpos++] = (byte) (0xC0 | (c >> 6));    // first 5
+                buffer[bpos++] = (byte) (0x80 | (c & 0x3F));  // second 6
+            } else if (!XMLChar.isHighSurrogate(c) && !XMLChar.isLowSurrogate(c)) {
+                // 3 bytes, 16 bits
+                buffer[bpos++] = (byte) (0xE0 | (c >> 12));   // first 4
+                buffer[bpos++] = (byte) (0x80 | ((c >> 6) & 0x3F));  // second 6
+                buffer[bpos++] = (byte) (0x80 | (c & 0x3F));  // third 6
+            } else {
+                // 4 bytes, high and low surrogate
+                final int uc = decodeSurrogatePair(c, ch, offset, end);
+                offset++;
+                buffer[bpos++] = (byte)(0xF0 | ((uc >> 18)));
+                buffer[bpos++] = (byte)(0x80 | ((uc >> 12) & 0x3F));
+                buffer[bpos++] = (byte)(0x80 | ((uc >> 6) & 0x3F));
+                buffer[bpos++] = (byte)(0x80 | (uc & 0x3F));
+            }
+        }
+        
+        _octetBufferIndex = bpos;
+    }
+    
+    private static int decodeSurrogatePair(int c, char[] ch, int chpos, int chend) throws IOException {
         if (chpos == chend) {
             throw new IOException("");
         }
@@ -2482,13 +3085,36 @@ public abstract class Encoder extends DefaultHandler implements FastInfosetSeria
         if (uc < 0 || uc >= 0x200000) {
             throw new IOException("");
         }
-
-        _encodingBuffer[bpos++] = (byte)(0xF0 | ((uc >> 18)));
-        _encodingBuffer[bpos++] = (byte)(0x80 | ((uc >> 12) & 0x3F));
-        _encodingBuffer[bpos++] = (byte)(0x80 | ((uc >> 6) & 0x3F));
-        _encodingBuffer[bpos++] = (byte)(0x80 | (uc & 0x3F));
+        return uc;
     }
-
+    
+    /**
+     * Write characters, encoded using the UTF-16 encoding, directly to
+     * the internal buffer.
+     *
+     * @param ch the array of characters.
+     * @param offset the offset into the array of characters.
+     * @param length the length of characters.
+     */
+    private void writeUtf16String(char[] ch, int offset, int length) throws IOException {
+        final int end = offset + length;
+        while (offset < end) {
+            if (_octetBuffer.length - _octetBufferIndex < 2) {
+                makeSpace();
+            }
+            
+            final byte[] buffer = _octetBuffer;
+            int bpos = _octetBufferIndex;
+            final int n = Math.min(end, offset + (buffer.length - bpos) / 2);
+            while (offset < n) {
+                final int c = ch[offset++];
+                buffer[bpos++] = (byte)(c >> 8);
+                buffer[bpos++] = (byte)(c & 0xFF);
+            }
+            _octetBufferIndex = bpos;
+        }
+    }
+    
     /**
      * Encode a string using the UTF-16 encoding.
      *
@@ -0,0 +1,111 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset;
+
+import com.sun.xml.fastinfoset.util.InstancePool;
+import org.jvnet.fastinfoset.ExternalVocabulary;
+
+/**
+ * A thread-safe pool of encoders.
+ * <p>
+ * Encoders are reset, and their vocabulary is cleared, when released to
+ * the pool. An idle encoder keeps its internal buffers and the external 
+ * vocabulary, if any, that was converted when the encoder was created, so 
+ * borrowing an encoder avoids the cost of both.
+ * <p>
+ * For example:
+ * <pre>
+ * EncoderPool&lt;StAXDocumentSerializer&gt; pool = 
+ *     new EncoderPool&lt;StAXDocumentSerializer&gt;(StAXDocumentSerializer.class);
+ *
+ * StAXDocumentSerializer s = pool.borrow();
+ * try {
+ *     s.setOutputStream(out);
+ *     ...
+ * } finally {
+ *     pool.release(s);
+ * }
+ * </pre>
+ */
+public class EncoderPool<T extends Encoder> extends InstancePool<T> {
+    private final Class<T> _encoderClass;
+    
+    private volatile ExternalVocabulary _externalVocabulary;
+    
+    /**
+     * @param encoderClass the class of the encoders, which must have a 
+     *        public no-argument constructor.
+     */
+    public EncoderPool(Class<T> encoderClass) {
+        _encoderClass = encoderClass;
+    }
+    
+    /**
+     * @param encoderClass the class of the encoders, which must have a 
+     *        public no-argument constructor.
+     * @param maximumIdleInstances the maximum number of idle encoders.
+     * @param maximumIdleFootprint the maximum footprint, in bytes, of an 
+     *        idle encoder.
+     */
+    public EncoderPool(Class<T> encoderClass, int maximumIdleInstances, int maximumIdleFootprint) {
+        super(maximumIdleInstances, maximumIdleFootprint);
+        _encoderClass = encoderClass;
+    }
+    
+    /**
+     * Set the external vocabulary that encoders created by the pool shall
+     * use.
+     * <p>
+     * Idle encoders are discarded so that encoders borrowed after this
+     * method returns use the external vocabulary.
+     *
+     * @param v the external vocabulary, or null if no external vocabulary
+     *        shall be used.
+     */
+    public void setExternalVocabulary(ExternalVocabulary v) {
+        _externalVocabulary = v;
+        clear();
+    }
+
+    protected T create() {
+        final T encoder;
+        try {
+            encoder = _encoderClass.newInstance();
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        
+        final ExternalVocabulary v = _externalVocabulary;
+        if (v != null) {
+            encoder.setExternalVocabulary(v);
+        }
+        return encoder;
+    }
+    
+    protected void reset(T encoder) {
+        encoder.reset();
+        encoder.setOutputStream(null);
+        encoder.clearVocabulary();
+    }
+    
+    protected int getFootprint(T encoder) {
+        return encoder.getFootprint();
+    }
+}
@@ -0,0 +1,710 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sun.xml.fastinfoset;
+
+import org.jvnet.fastinfoset.FastInfosetException;
+
+/**
+ * Scanner that finds the boundaries of the information items of a fast
+ * infoset document without decoding them.
+ * <p>
+ * The scanner examines only the structure of the encoding, lengths, indexes
+ * and terminators, and does not require a vocabulary. Each call to
+ * {@link #scan} determines the extent of the next unit of the document,
+ * which is the header and the document information item properties, followed
+ * by one information item (or terminator) of the children of the document
+ * and its descendants at a time. Element information items include their
+ * namespace and attribute information items.
+ * <p>
+ * If the octets of the next unit are not all present then the scanner
+ * records the number of octets that are required, at least, to make progress,
+ * and the unit is scanned again from its start when more octets are
+ * available. The state between units is the scanner's position in the
+ * document, and the element depth.
+ */
+public final class InformationItemScanner {
+
+    /**
+     * Value returned by {@link #scan} when the next unit is incomplete.
+     */
+    public static final int INCOMPLETE = -1;
+
+    /**
+     * Position of the scanner before the header.
+     */
+    public static final int STATE_HEADER = 0;
+
+    /**
+     * Position of the scanner within the children of the document
+     * information item.
+     */
+    public static final int STATE_CHILDREN = 1;
+
+    /**
+     * Position of the scanner after the end of the document.
+     */
+    public static final int STATE_END = 2;
+
+    /**
+     * Signals that the octets of the unit are not all present.
+     * <p>
+     * One instance without a stack trace is thrown, it is never serialized.
+     */
+    private static final class Underflow extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final Underflow UNDERFLOW = new Underflow();
+
+    private int _state;
+
+    private int _depth;
+
+    private int _itemType;
+
+    private int _requiredLength;
+
+    private byte[] _b;
+
+    private int _start;
+
+    private int _p;
+
+    private int _end;
+
+    public InformationItemScanner() {
+    }
+
+    /**
+     * Reset the scanner to the start of a document.
+     */
+    public void reset() {
+        _state = STATE_HEADER;
+        _depth = 0;
+        _itemType = DecoderStateTables.STATE_ILLEGAL;
+        _requiredLength = 0;
+    }
+
+    /**
+     * Get the position of the scanner.
+     *
+     * @return {@link #STATE_HEADER}, {@link #STATE_CHILDREN} or
+     *         {@link #STATE_END}.
+     */
+    public int getState() {
+        return _state;
+    }
+
+    /**
+     * Get the number of elements that are open.
+     */
+    public int getDepth() {
+        return _depth;
+    }
+
+    /**
+     * Get the type of the last unit that was scanned, as the
+     * {@link DecoderStateTables#EII} state of its first octet.
+     * <p>
+     * The type is {@link DecoderStateTables#STATE_ILLEGAL} for the header
+     * and the document information item properties.
+     */
+    public int getItemType() {
+        return _itemType;
+    }
+
+    /**
+     * Get the minimum number of octets of the next unit, counted from its
+     * start, that are required before scanning the unit again can make
+     * progress.
+     */
+    public int getRequiredLength() {
+        return _requiredLength;
+    }
+
+    /**
+     * Scan the next unit of the document.
+     *
+     * @param b the array of octets.
+     * @param offset the offset in the array of the start of the next unit.
+     * @param end the offset in the array of the end of the octets that are
+     *        present.
+     * @return the offset in the array of the end of the unit, or
+     *         {@link #INCOMPLETE} if the octets of the unit are not all
+     *         present.
+     * @throws FastInfosetException if the octets are not a valid encoding.
+     */
+    public int scan(byte[] b, int offset, int end) throws FastInfosetException {
+        if (_state == STATE_END) {
+            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.noMoreItems"));
+        }
+
+        _b = b;
+        _start = _p = offset;
+        _end = end;
+        try {
+            if (_state == STATE_HEADER) {
+                scanHeader();
+                scanDIIProperties();
+                _itemType = DecoderStateTables.STATE_ILLEGAL;
+                _state = STATE_CHILDREN;
+            } else {
+                scanChild();
+            }
+            _requiredLength = 0;
+            return _p;
+        } catch (Underflow e) {
+            return INCOMPLETE;
+        } finally {
+            _b = null;
+        }
+    }
+
+    private void scanHeader() throws FastInfosetException, Underflow {
+        final byte[] header = EncodingConstants.BINARY_HEADER;
+        if (startsWith(header)) {
+            _p += header.length;
+            return;
+        }
+
+        for (int i = 0; i < EncodingConstants.XML_DECLARATION_VALUES.length; i++) {
+            final byte[] declaration = EncodingConstants.XML_DECLARATION_VALUES[i];
+            if (startsWith(declaration)) {
+                _p += declaration.length;
+                if (startsWith(header)) {
+                    _p += header.length;
+                    return;
+                }
+                break;
+            }
+        }
+
+        throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.notFIDocument"));
+    }
+
+    private boolean startsWith(byte[] prefix) throws Underflow {
+        final int available = Math.min(prefix.length, _end - _p);
+        for (int i = 0; i < available; i++) {
+            if (_b[_p + i] != prefix[i]) {
+                return false;
+            }
+        }
+        if (available < prefix.length) {
+            require(prefix.length);
+        }
+        return true;
+    }
+
+    private void scanDIIProperties() throws FastInfosetException, Underflow {
+        final int b = read();
+        if ((b & EncodingConstants.DOCUMENT_ADDITIONAL_DATA_FLAG) > 0) {
+            final int noOfItems = readNumberOfItemsOfSequence();
+            for (int i = 0; i < noOfItems; i++) {
+                skipNonEmptyOctetStringOnSecondBit();
+                skipNonEmptyOctetStringOnSecondBit();
+            }
+        }
+
+        if ((b & EncodingConstants.DOCUMENT_INITIAL_VOCABULARY_FLAG) > 0) {
+            scanInitialVocabulary();
+        }
+
+        if ((b & EncodingConstants.DOCUMENT_NOTATIONS_FLAG) > 0) {
+            int b2 = read();
+            while ((b2 & EncodingConstants.NOTATIONS_MASK) == EncodingConstants.NOTATIONS) {
+                skipIdentifyingStringOrIndexOnFirstBit();
+                if ((b2 & EncodingConstants.NOTATIONS_SYSTEM_IDENTIFIER_FLAG) > 0) {
+                    skipIdentifyingStringOrIndexOnFirstBit();
+                }
+                if ((b2 & EncodingConstants.NOTATIONS_PUBLIC_IDENTIFIER_FLAG) > 0) {
+                    skipIdentifyingStringOrIndexOnFirstBit();
+                }
+                b2 = read();
+            }
+            if (b2 != EncodingConstants.TERMINATOR) {
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.IIsNotTerminatedCorrectly"));
+            }
+        }
+
+        if ((b & EncodingConstants.DOCUMENT_UNPARSED_ENTITIES_FLAG) > 0) {
+            int b2 = read();
+            while ((b2 & EncodingConstants.UNPARSED_ENTITIES_MASK) == EncodingConstants.UNPARSED_ENTITIES) {
+                skipIdentifyingStringOrIndexOnFirstBit();
+                skipIdentifyingStringOrIndexOnFirstBit();
+                if ((b2 & EncodingConstants.UNPARSED_ENTITIES_PUBLIC_IDENTIFIER_FLAG) > 0) {
+                    skipIdentifyingStringOrIndexOnFirstBit();
+                }
+                skipIdentifyingStringOrIndexOnFirstBit();
+                b2 = read();
+            }
+            if (b2 != EncodingConstants.TERMINATOR) {
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.unparsedEntities"));
+            }
+        }
+
+        if ((b & EncodingConstants.DOCUMENT_CHARACTER_ENCODING_SCHEME) > 0) {
+            skipNonEmptyOctetStringOnSecondBit();
+        }
+
+        if ((b & EncodingConstants.DOCUMENT_STANDALONE_FLAG) > 0) {
+            read();
+        }
+
+        if ((b & EncodingConstants.DOCUMENT_VERSION_FLAG) > 0) {
+            skipNonIdentifyingStringOnFirstBit();
+        }
+    }
+
+    private void scanInitialVocabulary() throws FastInfosetException, Underflow {
+        final int b = read();
+        final int b2 = read();
+
+        if ((b & EncodingConstants.INITIAL_VOCABULARY_EXTERNAL_VOCABULARY_FLAG) > 0) {
+            skipNonEmptyOctetStringOnSecondBit();
+        }
+
+        // Restricted alphabets, encoding algorithms, prefixes and namespace names
+        for (int flag = EncodingConstants.INITIAL_VOCABULARY_RESTRICTED_ALPHABETS_FLAG; flag > 0; flag >>= 1) {
+            if ((b & flag) > 0) {
+                skipOctetStringTableItems();
+            }
+        }
+
+        // Local names, other NCNames, other URIs and attribute values
+        for (int flag = EncodingConstants.INITIAL_VOCABULARY_LOCAL_NAMES_FLAG;
+                flag >= EncodingConstants.INITIAL_VOCABULARY_ATTRIBUTE_VALUES_FLAG; flag >>= 1) {
+            if ((b2 & flag) > 0) {
+                skipOctetStringTableItems();
+            }
+        }
+
+        // Content character chunks and other strings
+        for (int flag = EncodingConstants.INITIAL_VOCABULARY_CONTENT_CHARACTER_CHUNKS_FLAG;
+                flag >= EncodingConstants.INITIAL_VOCABULARY_OTHER_STRINGS_FLAG; flag >>= 1) {
+            if ((b2 & flag) > 0) {
+                final int noOfItems = readNumberOfItemsOfSequence();
+                for (int i = 0; i < noOfItems; i++) {
+                    skipNonIdentifyingStringOnFirstBit();
+                }
+            }
+        }
+
+        // Element name and attribute name surrogates
+        for (int flag = EncodingConstants.INITIAL_VOCABULARY_ELEMENT_NAME_SURROGATES_FLAG; flag > 0; flag >>= 1) {
+            if ((b2 & flag) > 0) {
+                final int noOfItems = readNumberOfItemsOfSequence();
+                for (int i = 0; i < noOfItems; i++) {
+                    final int s = read();
+                    if ((s & EncodingConstants.NAME_SURROGATE_PREFIX_FLAG) > 0) {
+                        skipIntegerIndexOnSecondBit();
+                    }
+                    if ((s & EncodingConstants.NAME_SURROGATE_NAME_FLAG) > 0) {
+                        skipIntegerIndexOnSecondBit();
+                    }
+                    skipIntegerIndexOnSecondBit();
+                }
+            }
+        }
+    }
+
+    private void skipOctetStringTableItems() throws FastInfosetException, Underflow {
+        final int noOfItems = readNumberOfItemsOfSequence();
+        for (int i = 0; i < noOfItems; i++) {
+            skipNonEmptyOctetStringOnSecondBit();
+        }
+    }
+
+    private void scanChild() throws FastInfosetException, Underflow {
+        int b = read();
+        _itemType = DecoderStateTables.EII(b);
+        switch (_itemType) {
+            case DecoderStateTables.EII_NO_AIIS_INDEX_SMALL:
+                _depth++;
+                break;
+            case DecoderStateTables.EII_AIIS_INDEX_SMALL:
+                _depth++;
+                scanAIIs();
+                break;
+            case DecoderStateTables.EII_INDEX_MEDIUM:
+            case DecoderStateTables.EII_INDEX_LARGE:
+            case DecoderStateTables.EII_LITERAL:
+                scanEII(b, (b & EncodingConstants.ELEMENT_ATTRIBUTE_FLAG) > 0);
+                break;
+            case DecoderStateTables.EII_NAMESPACES:
+            {
+                final boolean hasAttributes = (b & EncodingConstants.ELEMENT_ATTRIBUTE_FLAG) > 0;
+                int b2 = read();
+                while ((b2 & EncodingConstants.NAMESPACE_ATTRIBUTE_MASK) == EncodingConstants.NAMESPACE_ATTRIBUTE) {
+                    if ((b2 & EncodingConstants.NAMESPACE_ATTRIBUTE_PREFIX_FLAG) > 0) {
+                        skipIdentifyingStringOrIndexOnFirstBit();
+                    }
+                    if ((b2 & EncodingConstants.NAMESPACE_ATTRIBUTE_NAME_FLAG) > 0) {
+                        skipIdentifyingStringOrIndexOnFirstBit();
+                    }
+                    b2 = read();
+                }
+                if (b2 != EncodingConstants.TERMINATOR) {
+                    throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.EIInamespaceNameNotTerminatedCorrectly"));
+                }
+
+                b = read();
+                switch (DecoderStateTables.EII(b)) {
+                    case DecoderStateTables.EII_NO_AIIS_INDEX_SMALL:
+                    case DecoderStateTables.EII_INDEX_MEDIUM:
+                    case DecoderStateTables.EII_INDEX_LARGE:
+                    case DecoderStateTables.EII_LITERAL:
+                        scanEII(b, hasAttributes);
+                        break;
+                    default:
+                        throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.IllegalStateDecodingEIIAfterAIIs"));
+                }
+                break;
+            }
+            case DecoderStateTables.CII_UTF8_SMALL_LENGTH:
+            case DecoderStateTables.CII_UTF16_SMALL_LENGTH:
+                skip((b & EncodingConstants.OCTET_STRING_LENGTH_7TH_BIT_SMALL_MASK) + 1);
+                break;
+            case DecoderStateTables.CII_UTF8_MEDIUM_LENGTH:
+            case DecoderStateTables.CII_UTF16_MEDIUM_LENGTH:
+                skip(read() + EncodingConstants.OCTET_STRING_LENGTH_7TH_BIT_SMALL_LIMIT);
+                break;
+            case DecoderStateTables.CII_UTF8_LARGE_LENGTH:
+            case DecoderStateTables.CII_UTF16_LARGE_LENGTH:
+                skip(readLength() + EncodingConstants.OCTET_STRING_LENGTH_7TH_BIT_MEDIUM_LIMIT);
+                break;
+            case DecoderStateTables.CII_RA:
+            case DecoderStateTables.CII_EA:
+            {
+                final int b2 = read();
+                switch (b2 & 0x03) {
+                    case 0:
+                        skip(1);
+                        break;
+                    case 1:
+                        skip(2);
+                        break;
+                    case 2:
+                        skip(read() + EncodingConstants.OCTET_STRING_LENGTH_7TH_BIT_SMALL_LIMIT);
+                        break;
+                    case 3:
+                        skip(readLength() + EncodingConstants.OCTET_STRING_LENGTH_7TH_BIT_MEDIUM_LIMIT);
+                        break;
+                }
+                break;
+            }
+            case DecoderStateTables.CII_INDEX_SMALL:
+                break;
+            case DecoderStateTables.CII_INDEX_MEDIUM:
+                skip(1);
+                break;
+            case DecoderStateTables.CII_INDEX_LARGE:
+                skip(2);
+                break;
+            case DecoderStateTables.CII_INDEX_LARGE_LARGE:
+                skip(3);
+                break;
+            case DecoderStateTables.COMMENT_II:
+                skipNonIdentifyingStringOnFirstBit();
+                break;
+            case DecoderStateTables.PROCESSING_INSTRUCTION_II:
+                skipIdentifyingStringOrIndexOnFirstBit();
+                skipNonIdentifyingStringOnFirstBit();
+                break;
+            case DecoderStateTables.DOCUMENT_TYPE_DECLARATION_II:
+                scanDocumentTypeDeclaration(b);
+                break;
+            case DecoderStateTables.UNEXPANDED_ENTITY_REFERENCE_II:
+                skipIdentifyingStringOrIndexOnFirstBit();
+                if ((b & EncodingConstants.UNEXPANDED_ENTITY_SYSTEM_IDENTIFIER_FLAG) > 0) {
+                    skipIdentifyingStringOrIndexOnFirstBit();
+                }
+                if ((b & EncodingConstants.UNEXPANDED_ENTITY_PUBLIC_IDENTIFIER_FLAG) > 0) {
+                    skipIdentifyingStringOrIndexOnFirstBit();
+                }
+                break;
+            case DecoderStateTables.TERMINATOR_SINGLE:
+                terminate(1);
+                break;
+            case DecoderStateTables.TERMINATOR_DOUBLE:
+                terminate(2);
+                break;
+            default:
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.IllegalStateDecodingEII"));
+        }
+    }
+
+    private void scanEII(int b, boolean hasAttributes) throws FastInfosetException, Underflow {
+        switch (DecoderStateTables.EII(b)) {
+            case DecoderStateTables.EII_INDEX_MEDIUM:
+                skip(1);
+                break;
+            case DecoderStateTables.EII_INDEX_LARGE:
+                skip(((b & EncodingConstants.INTEGER_3RD_BIT_LARGE_LARGE_FLAG) == 0x20) ? 2 : 3);
+                break;
+            case DecoderStateTables.EII_LITERAL:
+                skipLiteralQualifiedName(b);
+                break;
+        }
+
+        _depth++;
+        if (hasAttributes) {
+            scanAIIs();
+        }
+    }
+
+    private void scanAIIs() throws FastInfosetException, Underflow {
+        while (true) {
+            final int b = read();
+            switch (DecoderStateTables.AII(b)) {
+                case DecoderStateTables.AII_INDEX_SMALL:
+                    break;
+                case DecoderStateTables.AII_INDEX_MEDIUM:
+                    skip(1);
+                    break;
+                case DecoderStateTables.AII_INDEX_LARGE:
+                    skip(2);
+                    break;
+                case DecoderStateTables.AII_LITERAL:
+                    skipLiteralQualifiedName(b);
+                    break;
+                case DecoderStateTables.AII_TERMINATOR_DOUBLE:
+                    // The element has no children
+                    _depth--;
+                    return;
+                case DecoderStateTables.AII_TERMINATOR_SINGLE:
+                    return;
+                default:
+                    throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.decodingAIIs"));
+            }
+
+            skipNonIdentifyingStringOnFirstBit();
+        }
+    }
+
+    private void scanDocumentTypeDeclaration(int b) throws FastInfosetException, Underflow {
+        if ((b & EncodingConstants.DOCUMENT_TYPE_SYSTEM_IDENTIFIER_FLAG) > 0) {
+            skipIdentifyingStringOrIndexOnFirstBit();
+        }
+        if ((b & EncodingConstants.DOCUMENT_TYPE_PUBLIC_IDENTIFIER_FLAG) > 0) {
+            skipIdentifyingStringOrIndexOnFirstBit();
+        }
+
+        int b2 = read();
+        while (b2 == EncodingConstants.PROCESSING_INSTRUCTION) {
+            skipIdentifyingStringOrIndexOnFirstBit();
+            skipNonIdentifyingStringOnFirstBit();
+            b2 = read();
+        }
+        if ((b2 & EncodingConstants.TERMINATOR) != EncodingConstants.TERMINATOR) {
+            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.processingInstructionIIsNotTerminatedCorrectly"));
+        }
+        if (b2 == EncodingConstants.DOUBLE_TERMINATOR) {
+            // The terminator of the document type declaration is followed
+            // by the terminator of the children of the document
+            terminate(1);
+        }
+    }
+
+    private void terminate(int n) {
+        _depth -= n;
+        if (_depth < 0) {
+            _depth = 0;
+            _state = STATE_END;
+        }
+    }
+
+    private void skipLiteralQualifiedName(int b) throws FastInfosetException, Underflow {
+        switch (b & EncodingConstants.LITERAL_QNAME_PREFIX_NAMESPACE_NAME_MASK) {
+            case 0:
+                break;
+            case 1:
+                skipIdentifyingStringOrIndexOnFirstBit();
+                break;
+            case 3:
+                skipIdentifyingStringOrIndexOnFirstBit();
+                skipIdentifyingStringOrIndexOnFirstBit();
+                break;
+            default:
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.qNameMissingNamespaceName"));
+        }
+
+        // Local name
+        skipIdentifyingStringOrIndexOnFirstBit();
+    }
+
+    /*
+     * C.13
+     */
+    private void skipIdentifyingStringOrIndexOnFirstBit() throws FastInfosetException, Underflow {
+        final int b = read();
+        switch (DecoderStateTables.ISTRING(b)) {
+            case DecoderStateTables.ISTRING_SMALL_LENGTH:
+                skip(b + 1);
+                break;
+            case DecoderStateTables.ISTRING_MEDIUM_LENGTH:
+                skip(read() + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_SMALL_LIMIT);
+                break;
+            case DecoderStateTables.ISTRING_LARGE_LENGTH:
+                skip(readLength() + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_MEDIUM_LIMIT);
+                break;
+            case DecoderStateTables.ISTRING_INDEX_SMALL:
+                break;
+            case DecoderStateTables.ISTRING_INDEX_MEDIUM:
+                skip(1);
+                break;
+            case DecoderStateTables.ISTRING_INDEX_LARGE:
+                skip(2);
+                break;
+            default:
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.decodingIdentifyingString"));
+        }
+    }
+
+    /*
+     * C.14
+     */
+    private void skipNonIdentifyingStringOnFirstBit() throws FastInfosetException, Underflow {
+        final int b = read();
+        switch (DecoderStateTables.NISTRING(b)) {
+            case DecoderStateTables.NISTRING_UTF8_SMALL_LENGTH:
+            case DecoderStateTables.NISTRING_UTF16_SMALL_LENGTH:
+                skip((b & EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_SMALL_MASK) + 1);
+                break;
+            case DecoderStateTables.NISTRING_UTF8_MEDIUM_LENGTH:
+            case DecoderStateTables.NISTRING_UTF16_MEDIUM_LENGTH:
+                skip(read() + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_SMALL_LIMIT);
+                break;
+            case DecoderStateTables.NISTRING_UTF8_LARGE_LENGTH:
+            case DecoderStateTables.NISTRING_UTF16_LARGE_LENGTH:
+                skip(readLength() + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_MEDIUM_LIMIT);
+                break;
+            case DecoderStateTables.NISTRING_RA:
+            case DecoderStateTables.NISTRING_EA:
+            {
+                // Remove top 4 bits of restricted alphabet or encoding algorithm integer
+                final int b2 = read() & 0x0F;
+                switch (DecoderStateTables.NISTRING(b2)) {
+                    case DecoderStateTables.NISTRING_UTF8_SMALL_LENGTH:
+                        skip(b2 + 1);
+                        break;
+                    case DecoderStateTables.NISTRING_UTF8_MEDIUM_LENGTH:
+                        skip(read() + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_SMALL_LIMIT);
+                        break;
+                    case DecoderStateTables.NISTRING_UTF8_LARGE_LENGTH:
+                        skip(readLength() + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_MEDIUM_LIMIT);
+                        break;
+                    default:
+                        throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.decodingOctets"));
+                }
+                break;
+            }
+            case DecoderStateTables.NISTRING_INDEX_SMALL:
+                break;
+            case DecoderStateTables.NISTRING_INDEX_MEDIUM:
+                skip(1);
+                break;
+            case DecoderStateTables.NISTRING_INDEX_LARGE:
+                skip(2);
+                break;
+            case DecoderStateTables.NISTRING_EMPTY:
+                break;
+            default:
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.decodingNonIdentifyingString"));
+        }
+    }
+
+    /*
+     * C.22
+     */
+    private void skipNonEmptyOctetStringOnSecondBit() throws FastInfosetException, Underflow {
+        final int b = read();
+        switch (DecoderStateTables.ISTRING(b)) {
+            case DecoderStateTables.ISTRING_SMALL_LENGTH:
+                skip(b + 1);
+                break;
+            case DecoderStateTables.ISTRING_MEDIUM_LENGTH:
+                skip(read() + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_SMALL_LIMIT);
+                break;
+            case DecoderStateTables.ISTRING_LARGE_LENGTH:
+                skip(readLength() + EncodingConstants.OCTET_STRING_LENGTH_2ND_BIT_MEDIUM_LIMIT);
+                break;
+            default:
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.decodingNonEmptyOctet"));
+        }
+    }
+
+    /*
+     * C.25
+     */
+    private void skipIntegerIndexOnSecondBit() throws FastInfosetException, Underflow {
+        switch (DecoderStateTables.ISTRING(read() | 0x80)) {
+            case DecoderStateTables.ISTRING_INDEX_SMALL:
+                break;
+            case DecoderStateTables.ISTRING_INDEX_MEDIUM:
+                skip(1);
+                break;
+            case DecoderStateTables.ISTRING_INDEX_LARGE:
+                skip(2);
+                break;
+            default:
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.decodingIndexOnSecondBit"));
+        }
+    }
+
+    private int readNumberOfItemsOfSequence() throws Underflow {
+        final int b = read();
+        if (b < 128) {
+            return b + 1;
+        } else {
+            return (((b & 0x0F) << 16) | (read() << 8) | read()) + 129;
+        }
+    }
+
+    private int readLength() throws Underflow {
+        return (read() << 24) | (read() << 16) | (read() << 8) | read();
+    }
+
+    private int read() throws Underflow {
+        if (_p == _end) {
+            require(1);
+        }
+        return _b[_p++] & 0xFF;
+    }
+
+    private void skip(int length) throws FastInfosetException, Underflow {
+        if (length < 0) {
+            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.deliminatorTooSmall"));
+        }
+        if (length > _end - _p) {
+            require(length);
+        }
+        _p += length;
+    }
+
+    private void require(int length) throws Underflow {
+        final long required = (long) (_p - _start) + length;
+        _requiredLength = (required > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) required;
+        throw UNDERFLOW;
+    }
+}
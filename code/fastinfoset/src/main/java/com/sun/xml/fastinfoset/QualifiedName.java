@@ -32,6 +32,14 @@ public class QualifiedName {
     public int attributeHash;
     private QName qNameObject;
     
+    /**
+     * The encodings of the index, as the qualified name of an element and 
+     * of an attribute, and the index that was encoded.
+     */
+    private byte[] elementIndexOctets;
+    private byte[] attributeIndexOctets;
+    private int encodedIndex;
+    
     public QualifiedName() { }
     
     public QualifiedName(String prefix, String namespaceName, String localName, String qName) {
@@ -282,6 +290,92 @@ public class QualifiedName {
         return this.qName = createQNameString(prefix, localName);
     }
     
+    /**
+     * Get the encoding of the index as the qualified name of an Element
+     * Information Item, on the third bit of an octet. The first octet 
+     * is to be combined with the bits that precede the index.
+     * <p>
+     * The octets are created on first use, and again if the index changes.
+     *
+     * @return the encoded index.
+     */
+    public final byte[] getElementIndexOctets() {
+        if (elementIndexOctets == null || encodedIndex != index) {
+            createIndexOctets();
+        }
+        return elementIndexOctets;
+    }
+    
+    /**
+     * Get the encoding of the index as the qualified name of an Attribute
+     * Information Item, on the second bit of an octet.
+     *
+     * @return the encoded index.
+     */
+    public final byte[] getAttributeIndexOctets() {
+        if (attributeIndexOctets == null || encodedIndex != index) {
+            createIndexOctets();
+        }
+        return attributeIndexOctets;
+    }
+    
+    /**
+     * Create the encodings of the index, see {@link #getElementIndexOctets}
+     * and {@link #getAttributeIndexOctets}. 
+     * <p>
+     * A name that is read concurrently by many serializers must have its
+     * encodings created before it is shared.
+     */
+    public final void createIndexOctets() {
+        final int i = index;
+        elementIndexOctets = encodeIndexOnThirdBit(i);
+        attributeIndexOctets = encodeIndexOnSecondBitFirstBitZero(i);
+        encodedIndex = i;
+    }
+    
+    // C.27
+    private static byte[] encodeIndexOnThirdBit(int i) {
+        if (i < EncodingConstants.INTEGER_3RD_BIT_SMALL_LIMIT) {
+            return new byte[] {(byte)i};
+        } else if (i < EncodingConstants.INTEGER_3RD_BIT_MEDIUM_LIMIT) {
+            i -= EncodingConstants.INTEGER_3RD_BIT_SMALL_LIMIT;
+            return new byte[] {
+                (byte)(EncodingConstants.INTEGER_3RD_BIT_MEDIUM_FLAG | (i >> 8)),
+                (byte)i};
+        } else if (i < EncodingConstants.INTEGER_3RD_BIT_LARGE_LIMIT) {
+            i -= EncodingConstants.INTEGER_3RD_BIT_MEDIUM_LIMIT;
+            return new byte[] {
+                (byte)(EncodingConstants.INTEGER_3RD_BIT_LARGE_FLAG | (i >> 16)),
+                (byte)(i >> 8),
+                (byte)i};
+        } else {
+            i -= EncodingConstants.INTEGER_3RD_BIT_LARGE_LIMIT;
+            return new byte[] {
+                (byte)EncodingConstants.INTEGER_3RD_BIT_LARGE_LARGE_FLAG,
+                (byte)(i >> 16),
+                (byte)(i >> 8),
+                (byte)i};
+        }
+    }
+    
+    // C.25
+    private static byte[] encodeIndexOnSecondBitFirstBitZero(int i) {
+        if (i < EncodingConstants.INTEGER_2ND_BIT_SMALL_LIMIT) {
+            return new byte[] {(byte)i};
+        } else if (i < EncodingConstants.INTEGER_2ND_BIT_MEDIUM_LIMIT) {
+            i -= EncodingConstants.INTEGER_2ND_BIT_SMALL_LIMIT;
+            return new byte[] {
+                (byte)(EncodingConstants.INTEGER_2ND_BIT_MEDIUM_FLAG | (i >> 8)),
+                (byte)i};
+        } else {
+            i -= EncodingConstants.INTEGER_2ND_BIT_MEDIUM_LIMIT;
+            return new byte[] {
+                (byte)(EncodingConstants.INTEGER_2ND_BIT_LARGE_FLAG | (i >> 16)),
+                (byte)(i >> 8),
+                (byte)i};
+        }
+    }
+    
     public final void createAttributeValues(int size) {
         attributeId = localNameIndex | (namespaceNameIndex << 20);
         attributeHash = localNameIndex % size;
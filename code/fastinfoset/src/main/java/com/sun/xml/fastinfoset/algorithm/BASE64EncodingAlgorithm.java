@@ -110,7 +110,7 @@ public class BASE64EncodingAlgorithm extends BuiltInEncodingAlgorithm {
     }
     
     public final Object decodeFromInputStream(InputStream s) throws IOException {
-        throw new UnsupportedOperationException(CommonResourceBundle.getInstance().getString("message.notImplemented"));
+        return readOctets(s);
     }
     
     
@@ -22,8 +22,6 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.CharBuffer;
-import java.util.ArrayList;
 import java.util.List;
 
 import org.jvnet.fastinfoset.EncodingAlgorithmException;
@@ -74,32 +72,16 @@ public class BooleanEncodingAlgorithm extends BuiltInEncodingAlgorithm {
     }                
                 
     public final Object decodeFromInputStream(InputStream s) throws IOException {
-        final List booleanList = new ArrayList();
-
-        int value = s.read();
-        if (value == -1) {
+        final byte[] b = readOctets(s);
+        if (b.length == 0) {
             throw new EOFException();            
         }
-        final int unusedBits = (value >> 4) & 0xFF;
-                   
-        int bitPosition = 4;
-        int bitPositionEnd = 8;
-        int valueNext = 0;
-        do {
-            valueNext = s.read();
-            if (valueNext == -1) {
-                bitPositionEnd -= unusedBits;
-            }
-            
-            while(bitPosition < bitPositionEnd) {
-                booleanList.add(
-                        Boolean.valueOf((value & BIT_TABLE[bitPosition++]) > 0));
-            }
-            
-            value = valueNext;
-        } while (value != -1);
-        
-        return generateArrayFromList(booleanList);
+        final int unusedBits = (b[0] >> 4) & 0x0F;
+        final int blength = Math.max(0, b.length * 8 - 4 - unusedBits);
+        final boolean[] data = new boolean[blength];
+
+        decodeFromBytesToBooleanArray(data, 0, blength, b, 0, b.length);
+        return data;
     }
                 
     public void encodeToOutputStream(Object data, OutputStream s) throws IOException {
@@ -127,32 +109,24 @@ public class BooleanEncodingAlgorithm extends BuiltInEncodingAlgorithm {
             }
         }
         
-        if (bitPosition != 8) {
+        if (bitPosition != 0) {
             s.write(value);
         }
     }
                                 
     public final Object convertFromCharacters(char[] ch, int start, int length) {
-        if (length == 0) {
-            return new boolean[0];
+        final int end = start + length;
+        final boolean[] data = new boolean[countWords(ch, start, end)];
+        
+        int i = start;
+        for (int n = 0; n < data.length; n++) {
+            i = skipWhiteSpace(ch, i, end);
+            final int wordEnd = skipWord(ch, i, end);
+            data[n] = (ch[i] == 't');
+            i = wordEnd;
         }
-
-        final CharBuffer cb = CharBuffer.wrap(ch, start, length);
-        final List booleanList = new ArrayList();
-
-        matchWhiteSpaceDelimnatedWords(cb,
-            new WordListener() {
-                public void word(int start, int end) {
-                    if (cb.charAt(start) == 't') {
-                        booleanList.add(Boolean.TRUE);
-                    } else {
-                        booleanList.add(Boolean.FALSE);
-                    }
-                }
-            }
-        );
-
-        return generateArrayFromList(booleanList);
+        
+        return data;
     }
 
     public final void convertToCharacters(Object data, StringBuffer s) {
@@ -17,6 +17,10 @@
  */
 package com.sun.xml.fastinfoset.algorithm;
 
+import com.sun.xml.fastinfoset.CommonResourceBundle;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.CharBuffer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -31,6 +35,122 @@ public abstract class BuiltInEncodingAlgorithm implements EncodingAlgorithm {
     public abstract int getOctetLengthFromPrimitiveLength(int primitiveLength);
 
     public abstract void encodeToBytes(Object array, int astart, int alength, byte[] b, int start);
+
+    /**
+     * The size of the buffer of octets read from a stream.
+     */
+    private final static int OCTET_BUFFER_SIZE = 4096;
+    
+    /**
+     * Decode octets to primitives of an array.
+     * <p>
+     * This is implemented by the algorithms of fixed size primitives, 
+     * and is used by {@link #decodeFromInputStreamToArray}. Other 
+     * algorithms throw UnsupportedOperationException.
+     *
+     * @param array the array of primitives.
+     * @param astart the index of the first primitive.
+     * @param b the octets.
+     * @param start the start of the octets.
+     * @param length the number of octets, a multiple of the size of the
+     *        primitive.
+     */
+    protected void decodeFromBytesToArray(Object array, int astart, byte[] b, int start, int length) {
+        throw new UnsupportedOperationException(CommonResourceBundle.getInstance().
+                getString("message.decodingToArrayNotSupported", new Object[]{getClass().getName()}));
+    }
+    
+    /**
+     * Decode fixed size primitives from a stream to an array.
+     *
+     * @param s the stream.
+     * @param array the array of primitives.
+     * @param astart the index of the first primitive.
+     * @param alength the maximum number of primitives.
+     * @param primitiveSize the number of octets of a primitive.
+     * @return the number of primitives decoded, which is less than alength
+     *         only at the end of the stream.
+     * @throws EOFException if the stream ends within a primitive.
+     */
+    protected final int decodeFromInputStreamToArray(InputStream s, Object array, 
+            int astart, int alength, int primitiveSize) throws IOException {
+        final byte[] b = new byte[Math.max(1, Math.min(alength, OCTET_BUFFER_SIZE / primitiveSize)) * primitiveSize];
+        int count = 0;
+        while (count < alength) {
+            final int length = Math.min(alength - count, b.length / primitiveSize) * primitiveSize;
+            final int n = readOctets(s, b, length);
+            if (n % primitiveSize != 0) {
+                throw new EOFException();
+            }
+            
+            decodeFromBytesToArray(array, astart + count, b, 0, n);
+            count += n / primitiveSize;
+            if (n < length) {
+                break;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Read all the octets of a stream.
+     * <p>
+     * The octets are read in bulk. The number of octets available from
+     * the stream, if known, is used as the initial size of the array, so
+     * the octets of a stream whose length is known are not copied.
+     *
+     * @param s the stream.
+     * @return the octets.
+     */
+    protected static byte[] readOctets(InputStream s) throws IOException {
+        final int available = s.available();
+        byte[] b = new byte[(available > 0) ? available : OCTET_BUFFER_SIZE];
+        int length = 0;
+        int n;
+        while ((n = s.read(b, length, b.length - length)) != -1) {
+            length += n;
+            if (length == b.length) {
+                // Check for the end of the stream before growing
+                final int c = s.read();
+                if (c == -1) {
+                    return b;
+                }
+                
+                final byte[] newB = new byte[Math.max(b.length * 2, OCTET_BUFFER_SIZE)];
+                System.arraycopy(b, 0, newB, 0, length);
+                b = newB;
+                b[length++] = (byte)c;
+            }
+        }
+        
+        if (length == b.length) {
+            return b;
+        }
+        final byte[] octets = new byte[length];
+        System.arraycopy(b, 0, octets, 0, length);
+        return octets;
+    }
+    
+    /**
+     * Read octets from a stream until length octets are read or the
+     * stream ends.
+     *
+     * @param s the stream.
+     * @param b the array to read the octets into.
+     * @param length the number of octets to read.
+     * @return the number of octets read.
+     */
+    protected static int readOctets(InputStream s, byte[] b, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            final int n = s.read(b, offset, length - offset);
+            if (n == -1) {
+                break;
+            }
+            offset += n;
+        }
+        return offset;
+    }
         
     public interface WordListener {
         public void word(int start, int end);
@@ -51,6 +171,63 @@ public abstract class BuiltInEncodingAlgorithm implements EncodingAlgorithm {
             wl.word(i, cb.length());
     }
     
+    /**
+     * Count the white space delimited words of characters.
+     * <p>
+     * White space is that matched by {@link #SPACE_PATTERN}, as for
+     * {@link #matchWhiteSpaceDelimnatedWords}.
+     *
+     * @param ch the characters.
+     * @param start the start of the characters.
+     * @param end the end of the characters.
+     * @return the number of words.
+     */
+    protected static int countWords(char[] ch, int start, int end) {
+        int count = 0;
+        int i = start;
+        while ((i = skipWhiteSpace(ch, i, end)) < end) {
+            i = skipWord(ch, i, end);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the index of the first character that is not white space, 
+     *         or end.
+     */
+    protected static int skipWhiteSpace(char[] ch, int i, int end) {
+        while (i < end && isWhiteSpace(ch[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the index of the first character that is white space, 
+     *         or end.
+     */
+    protected static int skipWord(char[] ch, int i, int end) {
+        while (i < end && !isWhiteSpace(ch[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhiteSpace(char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+                return true;
+            default:
+                return false;
+        }
+    }
+    
     public StringBuffer removeWhitespace(char[] ch, int start, int length) {
         StringBuffer buf = new StringBuffer();
         int firstNonWS = 0;
@@ -21,8 +21,6 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.CharBuffer;
-import java.util.ArrayList;
 import java.util.List;
 import org.jvnet.fastinfoset.EncodingAlgorithmException;
 import com.sun.xml.fastinfoset.CommonResourceBundle;
@@ -67,19 +65,21 @@ public class DoubleEncodingAlgorithm extends IEEE754FloatingPointEncodingAlgorit
     }
     
     public final Object convertFromCharacters(char[] ch, int start, int length) {
-        final CharBuffer cb = CharBuffer.wrap(ch, start, length);
-        final List doubleList = new ArrayList();
+        final int end = start + length;
+        final double[] data = new double[countWords(ch, start, end)];
         
-        matchWhiteSpaceDelimnatedWords(cb,
-                new WordListener() {
-            public void word(int start, int end) {
-                String fStringValue = cb.subSequence(start, end).toString();
-                doubleList.add(Double.valueOf(fStringValue));
-            }
+        int i = start;
+        for (int n = 0; n < data.length; n++) {
+            i = skipWhiteSpace(ch, i, end);
+            final int wordEnd = skipWord(ch, i, end);
+            final double v = parseDecimal(ch, i, wordEnd, false);
+            data[n] = !Double.isNaN(v)
+                    ? v
+                    : Double.parseDouble(new String(ch, i, wordEnd - i));
+            i = wordEnd;
         }
-        );
         
-        return generateArrayFromList(doubleList);
+        return data;
     }
     
     public final void convertToCharacters(Object data, StringBuffer s) {
@@ -110,39 +110,32 @@ public class DoubleEncodingAlgorithm extends IEEE754FloatingPointEncodingAlgorit
     }
     
     public final double[] decodeFromInputStreamToDoubleArray(InputStream s) throws IOException {
-        final List doubleList = new ArrayList();
-        final byte[] b = new byte[DOUBLE_SIZE];
-        
-        while (true) {
-            int n = s.read(b);
-            if (n != DOUBLE_SIZE) {
-                if (n == -1) {
-                    break;
-                }
-                
-                while(n != DOUBLE_SIZE) {
-                    final int m = s.read(b, n, DOUBLE_SIZE - n);
-                    if (m == -1) {
-                        throw new EOFException();
-                    }
-                    n += m;
-                }
-            }
-            
-            final long bits = 
-                    ((long)(b[0] & 0xFF) << 56) | 
-                    ((long)(b[1] & 0xFF) << 48) | 
-                    ((long)(b[2] & 0xFF) << 40) | 
-                    ((long)(b[3] & 0xFF) << 32) | 
-                    ((b[4] & 0xFF) << 24) | 
-                    ((b[5] & 0xFF) << 16) | 
-                    ((b[6] & 0xFF) << 8) | 
-                    (b[7] & 0xFF);
-            
-            doubleList.add(Double.valueOf(Double.longBitsToDouble(bits)));
+        final byte[] b = readOctets(s);
+        if (b.length % DOUBLE_SIZE != 0) {
+            throw new EOFException();
         }
         
-        return generateArrayFromList(doubleList);
+        final double[] data = new double[b.length / DOUBLE_SIZE];
+        decodeFromBytesToDoubleArray(data, 0, b, 0, b.length);
+        return data;
+    }
+    
+    /**
+     * Decode doubles from a stream to an array.
+     *
+     * @param s the stream.
+     * @param data the array.
+     * @param start the index of the first double.
+     * @param length the maximum number of doubles.
+     * @return the number of doubles decoded, which is less than length 
+     *         only at the end of the stream.
+     */
+    public final int decodeFromInputStreamToDoubleArray(InputStream s, double[] data, int start, int length) throws IOException {
+        return decodeFromInputStreamToArray(s, data, start, length, DOUBLE_SIZE);
+    }
+    
+    protected final void decodeFromBytesToArray(Object array, int astart, byte[] b, int start, int length) {
+        decodeFromBytesToDoubleArray((double[])array, astart, b, start, length);
     }
     
     
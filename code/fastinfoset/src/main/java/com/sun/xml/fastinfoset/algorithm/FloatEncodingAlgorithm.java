@@ -21,8 +21,6 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.CharBuffer;
-import java.util.ArrayList;
 import java.util.List;
 import org.jvnet.fastinfoset.EncodingAlgorithmException;
 import com.sun.xml.fastinfoset.CommonResourceBundle;
@@ -67,19 +65,21 @@ public class FloatEncodingAlgorithm extends IEEE754FloatingPointEncodingAlgorith
     }
     
     public final Object convertFromCharacters(char[] ch, int start, int length) {
-        final CharBuffer cb = CharBuffer.wrap(ch, start, length);
-        final List floatList = new ArrayList();
+        final int end = start + length;
+        final float[] data = new float[countWords(ch, start, end)];
         
-        matchWhiteSpaceDelimnatedWords(cb,
-                new WordListener() {
-            public void word(int start, int end) {
-                String fStringValue = cb.subSequence(start, end).toString();
-                floatList.add(Float.valueOf(fStringValue));
-            }
+        int i = start;
+        for (int n = 0; n < data.length; n++) {
+            i = skipWhiteSpace(ch, i, end);
+            final int wordEnd = skipWord(ch, i, end);
+            final double v = parseDecimal(ch, i, wordEnd, true);
+            data[n] = !Double.isNaN(v)
+                    ? (float)v
+                    : Float.parseFloat(new String(ch, i, wordEnd - i));
+            i = wordEnd;
         }
-        );
         
-        return generateArrayFromList(floatList);
+        return data;
     }
     
     public final void convertToCharacters(Object data, StringBuffer s) {
@@ -105,33 +105,32 @@ public class FloatEncodingAlgorithm extends IEEE754FloatingPointEncodingAlgorith
     }
     
     public final float[] decodeFromInputStreamToFloatArray(InputStream s) throws IOException {
-        final List floatList = new ArrayList();
-        final byte[] b = new byte[FLOAT_SIZE];
-        
-        while (true) {
-            int n = s.read(b);
-            if (n != 4) {
-                if (n == -1) {
-                    break;
-                }
-                
-                while(n != 4) {
-                    final int m = s.read(b, n, FLOAT_SIZE - n);
-                    if (m == -1) {
-                        throw new EOFException();
-                    }
-                    n += m;
-                }
-            }
-            
-            final int bits = ((b[0] & 0xFF) << 24) | 
-                    ((b[1] & 0xFF) << 16) | 
-                    ((b[2] & 0xFF) << 8) | 
-                    (b[3] & 0xFF);
-            floatList.add(Float.valueOf(Float.intBitsToFloat(bits)));
+        final byte[] b = readOctets(s);
+        if (b.length % FLOAT_SIZE != 0) {
+            throw new EOFException();
         }
         
-        return generateArrayFromList(floatList);
+        final float[] data = new float[b.length / FLOAT_SIZE];
+        decodeFromBytesToFloatArray(data, 0, b, 0, b.length);
+        return data;
+    }
+    
+    /**
+     * Decode floats from a stream to an array.
+     *
+     * @param s the stream.
+     * @param data the array.
+     * @param start the index of the first float.
+     * @param length the maximum number of floats.
+     * @return the number of floats decoded, which is less than length 
+     *         only at the end of the stream.
+     */
+    public final int decodeFromInputStreamToFloatArray(InputStream s, float[] data, int start, int length) throws IOException {
+        return decodeFromInputStreamToArray(s, data, start, length, FLOAT_SIZE);
+    }
+    
+    protected final void decodeFromBytesToArray(Object array, int astart, byte[] b, int start, int length) {
+        decodeFromBytesToFloatArray((float[])array, astart, b, start, length);
     }
     
     
@@ -61,7 +61,7 @@ public class HexadecimalEncodingAlgorithm extends BuiltInEncodingAlgorithm {
     }
     
     public final Object decodeFromInputStream(InputStream s) throws IOException {
-        throw new UnsupportedOperationException(CommonResourceBundle.getInstance().getString("message.notImplemented"));
+        return readOctets(s);
     }
     
     
@@ -23,5 +23,149 @@ public abstract class IEEE754FloatingPointEncodingAlgorithm extends BuiltInEncod
 
     public final static int FLOAT_MAX_CHARACTER_SIZE    = 14;
     public final static int DOUBLE_MAX_CHARACTER_SIZE   = 24;
+
+    /**
+     * The powers of ten that are exact doubles.
+     */
+    private final static double[] DOUBLE_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    /**
+     * The powers of ten that are exact floats.
+     */
+    private final static float[] FLOAT_POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    
+    /**
+     * The maximum number of significant digits of a decimal whose value is
+     * an exact double, or an exact float.
+     */
+    private final static int DOUBLE_MAXIMUM_DIGITS = 15;
+    private final static int FLOAT_MAXIMUM_DIGITS = 7;
+    
+    /**
+     * Parse a decimal number, optionally signed and with an exponent, of
+     * ASCII digits.
+     * <p>
+     * Only a number whose significant digits and power of ten are exactly 
+     * representable is parsed. Its value is then a single multiplication or
+     * division, which is correctly rounded. Other characters are not parsed.
+     * They are to be parsed by {@link Double#parseDouble} or 
+     * {@link Float#parseFloat}, which report the error if they are not a 
+     * valid number.
+     *
+     * @param ch the characters.
+     * @param start the start of the number.
+     * @param end the end of the number.
+     * @param isFloat true if the number is parsed as a float, otherwise
+     *        it is parsed as a double.
+     * @return the number, or NaN if it is not parsed.
+     */
+    protected static double parseDecimal(char[] ch, int start, int end, boolean isFloat) {
+        int i = start;
+        boolean isNegative = false;
+        if (i < end) {
+            if (ch[i] == '-') {
+                isNegative = true;
+                i++;
+            } else if (ch[i] == '+') {
+                i++;
+            }
+        }
+        
+        final int maximumDigits = (isFloat) ? FLOAT_MAXIMUM_DIGITS : DOUBLE_MAXIMUM_DIGITS;
+        long significand = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean isFraction = false;
+        for (; i < end; i++) {
+            final char c = ch[i];
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (significand != 0 || c != '0') {
+                    if (++significantDigits > maximumDigits) {
+                        return Double.NaN;
+                    }
+                    significand = significand * 10 + (c - '0');
+                }
+                if (isFraction) {
+                    exponent--;
+                }
+            } else if (c == '.' && !isFraction) {
+                isFraction = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        
+        if (i < end) {
+            if (ch[i] != 'e' && ch[i] != 'E') {
+                return Double.NaN;
+            }
+            final int e = parseExponent(ch, i + 1, end);
+            if (e == Integer.MIN_VALUE) {
+                return Double.NaN;
+            }
+            exponent += e;
+        }
+        
+        final double v;
+        if (isFloat) {
+            if (exponent < -FLOAT_POWERS_OF_TEN.length + 1 || exponent > FLOAT_POWERS_OF_TEN.length - 1) {
+                return (significand == 0) ? zero(isNegative) : Double.NaN;
+            }
+            v = (exponent < 0) 
+                    ? (float)significand / FLOAT_POWERS_OF_TEN[-exponent]
+                    : (float)significand * FLOAT_POWERS_OF_TEN[exponent];
+        } else {
+            if (exponent < -DOUBLE_POWERS_OF_TEN.length + 1 || exponent > DOUBLE_POWERS_OF_TEN.length - 1) {
+                return (significand == 0) ? zero(isNegative) : Double.NaN;
+            }
+            v = (exponent < 0) 
+                    ? (double)significand / DOUBLE_POWERS_OF_TEN[-exponent]
+                    : (double)significand * DOUBLE_POWERS_OF_TEN[exponent];
+        }
+        return isNegative ? -v : v;
+    }
+    
+    /**
+     * @return the exponent, of at most four digits, or Integer.MIN_VALUE.
+     */
+    private static int parseExponent(char[] ch, int i, int end) {
+        boolean isNegative = false;
+        if (i < end) {
+            if (ch[i] == '-') {
+                isNegative = true;
+                i++;
+            } else if (ch[i] == '+') {
+                i++;
+            }
+        }
+        
+        if (i == end || end - i > 4) {
+            return Integer.MIN_VALUE;
+        }
+        
+        int e = 0;
+        for (; i < end; i++) {
+            final int digit = ch[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.MIN_VALUE;
+            }
+            e = e * 10 + digit;
+        }
+        return isNegative ? -e : e;
+    }
+    
+    private static double zero(boolean isNegative) {
+        return isNegative ? -0.0d : 0.0d;
+    }
         
 }
@@ -21,8 +21,6 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.CharBuffer;
-import java.util.ArrayList;
 import java.util.List;
 import org.jvnet.fastinfoset.EncodingAlgorithmException;
 import com.sun.xml.fastinfoset.CommonResourceBundle;
@@ -68,19 +66,21 @@ public class IntEncodingAlgorithm extends IntegerEncodingAlgorithm {
     
     
     public final Object convertFromCharacters(char[] ch, int start, int length) {
-        final CharBuffer cb = CharBuffer.wrap(ch, start, length);
-        final List integerList = new ArrayList();
+        final int end = start + length;
+        final int[] data = new int[countWords(ch, start, end)];
         
-        matchWhiteSpaceDelimnatedWords(cb,
-                new WordListener() {
-            public void word(int start, int end) {
-                String iStringValue = cb.subSequence(start, end).toString();
-                integerList.add(Integer.valueOf(iStringValue));
-            }
+        int i = start;
+        for (int n = 0; n < data.length; n++) {
+            i = skipWhiteSpace(ch, i, end);
+            final int wordEnd = skipWord(ch, i, end);
+            final long v = parseInteger(ch, i, wordEnd);
+            data[n] = (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE)
+                    ? (int)v
+                    : Integer.parseInt(new String(ch, i, wordEnd - i));
+            i = wordEnd;
         }
-        );
         
-        return generateArrayFromList(integerList);
+        return data;
     }
     
     public final void convertToCharacters(Object data, StringBuffer s) {
@@ -105,33 +105,32 @@ public class IntEncodingAlgorithm extends IntegerEncodingAlgorithm {
     }
     
     public final int[] decodeFromInputStreamToIntArray(InputStream s) throws IOException {
-        final List integerList = new ArrayList();
-        final byte[] b = new byte[INT_SIZE];
-        
-        while (true) {
-            int n = s.read(b);
-            if (n != 4) {
-                if (n == -1) {
-                    break;
-                }
-                
-                while(n != 4) {
-                    final int m = s.read(b, n, INT_SIZE - n);
-                    if (m == -1) {
-                        throw new EOFException();
-                    }
-                    n += m;
-                }
-            }
-            
-            final int i = ((b[0] & 0xFF) << 24) | 
-                    ((b[1] & 0xFF) << 16) | 
-                    ((b[2] & 0xFF) << 8) | 
-                    (b[3] & 0xFF);
-            integerList.add(Integer.valueOf(i));
+        final byte[] b = readOctets(s);
+        if (b.length % INT_SIZE != 0) {
+            throw new EOFException();
         }
         
-        return generateArrayFromList(integerList);
+        final int[] data = new int[b.length / INT_SIZE];
+        decodeFromBytesToIntArray(data, 0, b, 0, b.length);
+        return data;
+    }
+    
+    /**
+     * Decode ints from a stream to an array.
+     *
+     * @param s the stream.
+     * @param data the array.
+     * @param start the index of the first int.
+     * @param length the maximum number of ints.
+     * @return the number of ints decoded, which is less than length 
+     *         only at the end of the stream.
+     */
+    public final int decodeFromInputStreamToIntArray(InputStream s, int[] data, int start, int length) throws IOException {
+        return decodeFromInputStreamToArray(s, data, start, length, INT_SIZE);
+    }
+    
+    protected final void decodeFromBytesToArray(Object array, int astart, byte[] b, int start, int length) {
+        decodeFromBytesToIntArray((int[])array, astart, b, start, length);
     }
     
     
@@ -25,5 +25,57 @@ public abstract class IntegerEncodingAlgorithm extends BuiltInEncodingAlgorithm
     public final static int SHORT_MAX_CHARACTER_SIZE    = 6;
     public final static int INT_MAX_CHARACTER_SIZE      = 11;
     public final static int LONG_MAX_CHARACTER_SIZE     = 20;
+
+    /**
+     * The value returned by {@link #parseInteger} for characters that it
+     * does not parse.
+     */
+    protected final static long NOT_PARSED = Long.MIN_VALUE;
+    
+    /**
+     * The maximum number of digits that are accumulated in a long without
+     * overflow.
+     */
+    private final static int MAXIMUM_DIGITS = 18;
+    
+    /**
+     * Parse a decimal integer, optionally signed, of ASCII digits.
+     * <p>
+     * Characters that are not such an integer, or that have more digits
+     * than a long can accumulate, are not parsed. They are to be parsed
+     * by the parse method of the primitive type, which reports the 
+     * error if they are not valid.
+     *
+     * @param ch the characters.
+     * @param start the start of the integer.
+     * @param end the end of the integer.
+     * @return the integer, or {@link #NOT_PARSED}.
+     */
+    protected static long parseInteger(char[] ch, int start, int end) {
+        boolean isNegative = false;
+        int i = start;
+        if (i < end) {
+            if (ch[i] == '-') {
+                isNegative = true;
+                i++;
+            } else if (ch[i] == '+') {
+                i++;
+            }
+        }
+        
+        if (i == end || end - i > MAXIMUM_DIGITS) {
+            return NOT_PARSED;
+        }
+        
+        long v = 0;
+        for (; i < end; i++) {
+            final int digit = ch[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_PARSED;
+            }
+            v = v * 10 + digit;
+        }
+        return isNegative ? -v : v;
+    }
         
 }
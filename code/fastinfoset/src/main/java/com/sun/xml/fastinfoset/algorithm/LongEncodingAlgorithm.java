@@ -21,8 +21,6 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.CharBuffer;
-import java.util.ArrayList;
 import java.util.List;
 import org.jvnet.fastinfoset.EncodingAlgorithmException;
 import com.sun.xml.fastinfoset.CommonResourceBundle;
@@ -67,19 +65,21 @@ public class LongEncodingAlgorithm extends IntegerEncodingAlgorithm {
     
     
     public Object convertFromCharacters(char[] ch, int start, int length) {
-        final CharBuffer cb = CharBuffer.wrap(ch, start, length);
-        final List longList = new ArrayList();
+        final int end = start + length;
+        final long[] data = new long[countWords(ch, start, end)];
         
-        matchWhiteSpaceDelimnatedWords(cb,
-                new WordListener() {
-            public void word(int start, int end) {
-                String lStringValue = cb.subSequence(start, end).toString();
-                longList.add(Long.valueOf(lStringValue));
-            }
+        int i = start;
+        for (int n = 0; n < data.length; n++) {
+            i = skipWhiteSpace(ch, i, end);
+            final int wordEnd = skipWord(ch, i, end);
+            final long v = parseInteger(ch, i, wordEnd);
+            data[n] = (v != NOT_PARSED)
+                    ? v
+                    : Long.parseLong(new String(ch, i, wordEnd - i));
+            i = wordEnd;
         }
-        );
         
-        return generateArrayFromList(longList);
+        return data;
     }
     
     public void convertToCharacters(Object data, StringBuffer s) {
@@ -109,39 +109,32 @@ public class LongEncodingAlgorithm extends IntegerEncodingAlgorithm {
     }
     
     public final long[] decodeFromInputStreamToIntArray(InputStream s) throws IOException {
-        final List longList = new ArrayList();
-        final byte[] b = new byte[LONG_SIZE];
-        
-        while (true) {
-            int n = s.read(b);
-            if (n != LONG_SIZE) {
-                if (n == -1) {
-                    break;
-                }
-                
-                while(n != LONG_SIZE) {
-                    final int m = s.read(b, n, LONG_SIZE - n);
-                    if (m == -1) {
-                        throw new EOFException();
-                    }
-                    n += m;
-                }
-            }
-            
-            final long l =
-                    (((long) b[0] << 56) +
-                    ((long) (b[1] & 0xFF) << 48) +
-                    ((long) (b[2] & 0xFF) << 40) +
-                    ((long) (b[3] & 0xFF) << 32) +
-                    ((long) (b[4] & 0xFF) << 24) +
-                    ((b[5] & 0xFF) << 16) +
-                    ((b[6] & 0xFF) << 8) +
-                    ((b[7] & 0xFF) << 0));
-
-            longList.add(Long.valueOf(l));
+        final byte[] b = readOctets(s);
+        if (b.length % LONG_SIZE != 0) {
+            throw new EOFException();
         }
         
-        return generateArrayFromList(longList);
+        final long[] data = new long[b.length / LONG_SIZE];
+        decodeFromBytesToLongArray(data, 0, b, 0, b.length);
+        return data;
+    }
+    
+    /**
+     * Decode longs from a stream to an array.
+     *
+     * @param s the stream.
+     * @param data the array.
+     * @param start the index of the first long.
+     * @param length the maximum number of longs.
+     * @return the number of longs decoded, which is less than length 
+     *         only at the end of the stream.
+     */
+    public final int decodeFromInputStreamToLongArray(InputStream s, long[] data, int start, int length) throws IOException {
+        return decodeFromInputStreamToArray(s, data, start, length, LONG_SIZE);
+    }
+    
+    protected final void decodeFromBytesToArray(Object array, int astart, byte[] b, int start, int length) {
+        decodeFromBytesToLongArray((long[])array, astart, b, start, length);
     }
     
     
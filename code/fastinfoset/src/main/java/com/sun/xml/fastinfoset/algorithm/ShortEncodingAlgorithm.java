@@ -21,8 +21,6 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.CharBuffer;
-import java.util.ArrayList;
 import java.util.List;
 import org.jvnet.fastinfoset.EncodingAlgorithmException;
 import com.sun.xml.fastinfoset.CommonResourceBundle;
@@ -73,19 +71,21 @@ public class ShortEncodingAlgorithm extends IntegerEncodingAlgorithm {
 
 
     public final Object convertFromCharacters(char[] ch, int start, int length) {
-        final CharBuffer cb = CharBuffer.wrap(ch, start, length);
-        final List shortList = new ArrayList();
-
-        matchWhiteSpaceDelimnatedWords(cb,
-                new WordListener() {
-            public void word(int start, int end) {
-                String iStringValue = cb.subSequence(start, end).toString();
-                shortList.add(Short.valueOf(iStringValue));
-            }
+        final int end = start + length;
+        final short[] data = new short[countWords(ch, start, end)];
+        
+        int i = start;
+        for (int n = 0; n < data.length; n++) {
+            i = skipWhiteSpace(ch, i, end);
+            final int wordEnd = skipWord(ch, i, end);
+            final long v = parseInteger(ch, i, wordEnd);
+            data[n] = (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE)
+                    ? (short)v
+                    : Short.parseShort(new String(ch, i, wordEnd - i));
+            i = wordEnd;
         }
-        );
-
-        return generateArrayFromList(shortList);
+        
+        return data;
     }
 
     public final void convertToCharacters(Object data, StringBuffer s) {
@@ -108,31 +108,32 @@ public class ShortEncodingAlgorithm extends IntegerEncodingAlgorithm {
     }
 
     public final short[] decodeFromInputStreamToShortArray(InputStream s) throws IOException {
-        final List shortList = new ArrayList();
-        final byte[] b = new byte[SHORT_SIZE];
-
-        while (true) {
-            int n = s.read(b);
-            if (n != 2) {
-                if (n == -1) {
-                    break;
-                }
-
-                while(n != 2) {
-                    final int m = s.read(b, n, SHORT_SIZE - n);
-                    if (m == -1) {
-                        throw new EOFException();
-                    }
-                    n += m;
-                }
-            }
-
-            final int i = ((b[0] & 0xFF) << 8) |
-                    (b[1] & 0xFF);
-            shortList.add(Short.valueOf((short)i));
+        final byte[] b = readOctets(s);
+        if (b.length % SHORT_SIZE != 0) {
+            throw new EOFException();
         }
-
-        return generateArrayFromList(shortList);
+        
+        final short[] data = new short[b.length / SHORT_SIZE];
+        decodeFromBytesToShortArray(data, 0, b, 0, b.length);
+        return data;
+    }
+    
+    /**
+     * Decode shorts from a stream to an array.
+     *
+     * @param s the stream.
+     * @param data the array.
+     * @param start the index of the first short.
+     * @param length the maximum number of shorts.
+     * @return the number of shorts decoded, which is less than length 
+     *         only at the end of the stream.
+     */
+    public final int decodeFromInputStreamToShortArray(InputStream s, short[] data, int start, int length) throws IOException {
+        return decodeFromInputStreamToArray(s, data, start, length, SHORT_SIZE);
+    }
+    
+    protected final void decodeFromBytesToArray(Object array, int astart, byte[] b, int start, int length) {
+        decodeFromBytesToShortArray((short[])array, astart, b, start, length);
     }
 
 
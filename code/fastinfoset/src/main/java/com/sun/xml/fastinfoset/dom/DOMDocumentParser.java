@@ -26,6 +26,8 @@ import com.sun.xml.fastinfoset.util.CharArray;
 import com.sun.xml.fastinfoset.util.CharArrayString;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import org.jvnet.fastinfoset.EncodingAlgorithm;
 import org.jvnet.fastinfoset.EncodingAlgorithmException;
 import org.jvnet.fastinfoset.EncodingAlgorithmIndexes;
@@ -76,6 +78,51 @@ public class DOMDocumentParser extends Decoder {
         parse(s);
     }
     
+    /**
+     * Parse a fast infoset document, held in the remaining bytes of a
+     * {@link ByteBuffer}, into a {@link Document} instance.
+     * <p>
+     * Only a buffer backed by an accessible array is decoded without 
+     * copying, see {@link #setInputBuffer}.
+     *
+     * @param d the {@link Document} instance.
+     * @param b the byte buffer containing the fast infoset document.
+     */
+    public void parse(Document d, ByteBuffer b) throws FastInfosetException, IOException {
+        _currentNode = _document = d;
+        _namespaceAttributesIndex = 0;
+        
+        setInputBuffer(b);
+        try {
+            parse();
+        } finally {
+            releaseInput();
+        }
+    }
+    
+    /**
+     * Parse a fast infoset document, held in a {@link FileChannel} from the
+     * current position of the channel to the end of the channel, into a
+     * {@link Document} instance.
+     * <p>
+     * The document is copied in bulk from the mapped channel, see 
+     * {@link #setInputChannel(FileChannel, long, long)}.
+     *
+     * @param d the {@link Document} instance.
+     * @param channel the file channel containing the fast infoset document.
+     */
+    public void parse(Document d, FileChannel channel) throws FastInfosetException, IOException {
+        _currentNode = _document = d;
+        _namespaceAttributesIndex = 0;
+        
+        setInputChannel(channel);
+        try {
+            parse();
+        } finally {
+            releaseInput();
+        }
+    }
+    
     protected final void parse(InputStream s) throws FastInfosetException, IOException {
         setInputStream(s);
         parse();
@@ -522,8 +569,7 @@ public class DOMDocumentParser extends Decoder {
             _characterContentChunkTable.add(_charBufferLength);
             return _characterContentChunkTable.getString(_characterContentChunkTable._cachedIndex);
         } else {
-            decodeUtf8StringAsCharBuffer();
-            return new String(_charBuffer, 0, _charBufferLength);
+            return decodeUtf8StringAsString();
         }
     }
     
@@ -733,9 +779,7 @@ public class DOMDocumentParser extends Decoder {
         int b;
         String value;
         
-        if (++_duplicateAttributeVerifier._currentIteration == Integer.MAX_VALUE) {
-            _duplicateAttributeVerifier.clear();
-        }
+        _duplicateAttributeVerifier.startElement();
         
         do {
             // AII qualified name
@@ -779,7 +823,9 @@ public class DOMDocumentParser extends Decoder {
                 throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.AIIqNameNotInScope"));
             }
             
-            _duplicateAttributeVerifier.checkForDuplicateAttribute(name.attributeHash, name.attributeId);
+            if (_duplicateAttributeChecking) {
+                _duplicateAttributeVerifier.checkForDuplicateAttribute(name.attributeId);
+            }
             
             Attr a = createAttribute(
                     name.namespaceName,
@@ -947,9 +993,6 @@ public class DOMDocumentParser extends Decoder {
             
         } while (!_terminate);
         
-        // Reset duplication attribute verfifier
-        _duplicateAttributeVerifier._poolCurrent = _duplicateAttributeVerifier._poolHead;
-        
         _terminate = _doubleTerminate;
         _doubleTerminate = false;
     }
@@ -305,7 +305,7 @@ public class DOMDocumentSerializer extends Encoder {
             final QualifiedName[] names = entry._value;
             for (int i = 0; i < entry._valueIndex; i++) {
                 if ((namespaceURI == names[i].namespaceName || namespaceURI.equals(names[i].namespaceName))) {
-                    encodeNonZeroIntegerOnThirdBit(names[i].index);
+                    encodeElementQualifiedNameIndexOnThirdBit(names[i]);
                     return;
                 }
             }
@@ -326,7 +326,7 @@ public class DOMDocumentSerializer extends Encoder {
             final QualifiedName[] names = entry._value;
             for (int i = 0; i < entry._valueIndex; i++) {
                 if ((namespaceURI == names[i].namespaceName || namespaceURI.equals(names[i].namespaceName))) {
-                    encodeNonZeroIntegerOnSecondBitFirstBitZero(names[i].index);
+                    encodeAttributeQualifiedNameIndexOnSecondBit(names[i]);
                     return;
                 }
             }
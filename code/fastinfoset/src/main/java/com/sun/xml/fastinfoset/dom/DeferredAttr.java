@@ -0,0 +1,145 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.dom;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * A read-only attribute of a {@link DeferredDocument}, whose index is the
+ * index of the attribute in the attribute arrays of the store.
+ */
+final class DeferredAttr extends DeferredNode implements Attr {
+    private static final NodeList EMPTY_LIST = new DeferredNodeList(null, new int[0], 0);
+
+    DeferredAttr(DeferredDocument document, int index) {
+        super(document, index);
+    }
+
+    private int getNameIndex() {
+        return _document._attributeNames[_index];
+    }
+
+    @Override
+    int getContainerIndex() {
+        return _document._attributeOwners[_index];
+    }
+
+    @Override
+    int getTreeIndex() {
+        return -1;
+    }
+
+    // Node
+
+    public String getNodeName() {
+        return _document._qNames[getNameIndex()];
+    }
+
+    public short getNodeType() {
+        return ATTRIBUTE_NODE;
+    }
+
+    @Override
+    public String getNodeValue() {
+        return _document.getAttributeValue(_index);
+    }
+
+    @Override
+    public Node getParentNode() {
+        return null;
+    }
+
+    @Override
+    public NodeList getChildNodes() {
+        return EMPTY_LIST;
+    }
+
+    @Override
+    public Node getFirstChild() {
+        return null;
+    }
+
+    @Override
+    public Node getLastChild() {
+        return null;
+    }
+
+    @Override
+    public Node getPreviousSibling() {
+        return null;
+    }
+
+    @Override
+    public Node getNextSibling() {
+        return null;
+    }
+
+    @Override
+    public boolean hasChildNodes() {
+        return false;
+    }
+
+    @Override
+    public String getNamespaceURI() {
+        return _document._namespaceNames[getNameIndex()];
+    }
+
+    @Override
+    public String getPrefix() {
+        return _document._prefixes[getNameIndex()];
+    }
+
+    @Override
+    public String getLocalName() {
+        return _document._localNames[getNameIndex()];
+    }
+
+    // Attr
+
+    public String getName() {
+        return getNodeName();
+    }
+
+    public boolean getSpecified() {
+        return true;
+    }
+
+    public String getValue() {
+        return getNodeValue();
+    }
+
+    public void setValue(String value) {
+        throw readOnly();
+    }
+
+    public Element getOwnerElement() {
+        return (Element)_document.getNode(getContainerIndex());
+    }
+
+    public TypeInfo getSchemaTypeInfo() {
+        return null;
+    }
+
+    public boolean isId() {
+        return false;
+    }
+}
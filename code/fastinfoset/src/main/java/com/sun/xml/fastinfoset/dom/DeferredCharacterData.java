@@ -0,0 +1,75 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.dom;
+
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.DOMException;
+
+/**
+ * A read-only text or comment node of a {@link DeferredDocument}, whose
+ * characters are a range of the character array of the store.
+ */
+abstract class DeferredCharacterData extends DeferredNode implements CharacterData {
+
+    DeferredCharacterData(DeferredDocument document, int index) {
+        super(document, index);
+    }
+
+    @Override
+    public String getNodeValue() {
+        return getData();
+    }
+
+    // CharacterData
+
+    public String getData() {
+        return _document.getString(_document._offsets[_index], _document._lengths[_index]);
+    }
+
+    public void setData(String data) {
+        throw readOnly();
+    }
+
+    public int getLength() {
+        return _document._lengths[_index];
+    }
+
+    public String substringData(int offset, int count) {
+        final int length = getLength();
+        if (offset < 0 || offset > length || count < 0) {
+            throw new DOMException(DOMException.INDEX_SIZE_ERR, null);
+        }
+        return _document.getString(_document._offsets[_index] + offset, Math.min(count, length - offset));
+    }
+
+    public void appendData(String arg) {
+        throw readOnly();
+    }
+
+    public void insertData(int offset, String arg) {
+        throw readOnly();
+    }
+
+    public void deleteData(int offset, int count) {
+        throw readOnly();
+    }
+
+    public void replaceData(int offset, int count, String arg) {
+        throw readOnly();
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.dom;
+
+import com.sun.xml.fastinfoset.EncodingConstants;
+import com.sun.xml.fastinfoset.QualifiedName;
+import com.sun.xml.fastinfoset.sax.AttributesHolder;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import org.jvnet.fastinfoset.FastInfosetException;
+import org.w3c.dom.Node;
+
+/**
+ * The Fast Infoset deferred DOM parser.
+ * <p>
+ * Instantiate this parser to parse a fast infoset document into a
+ * read-only {@link DeferredDocument}. Unlike {@link DOMDocumentParser},
+ * which creates a {@link Node} for each item of the document, the parser
+ * decodes the document into the compact store of the
+ * {@link DeferredDocument}, and nodes are created only when they are
+ * navigated to.
+ * <p>
+ * The document is decoded using a {@link StAXDocumentParser}, which may be
+ * obtained using {@link #getParser} to be configured, for example to
+ * register external vocabularies.
+ */
+public class DeferredDOMDocumentParser {
+
+    private final Parser _parser = new Parser();
+
+    /**
+     * The indexes in the name table of the document being parsed, of the
+     * qualified names of the parser.
+     */
+    private final Map _names = new IdentityHashMap();
+
+    /**
+     * The indexes in the name table of the document being parsed, of the
+     * namespace declaration attributes and processing instruction targets.
+     */
+    private final Map _namespaceAttributeNames = new HashMap();
+    private final Map _targetNames = new HashMap();
+
+    /**
+     * The sizes of the store of the last document parsed, used as the
+     * initial capacity of the store of the next document since documents
+     * parsed by the same parser are often alike.
+     */
+    private int _nodeCapacity;
+    private int _attributeCapacity;
+    private int _nameCapacity;
+    private int _charactersCapacity;
+
+    private int[] _parents = new int[32];
+    private int[] _lastChildren = new int[32];
+
+    /**
+     * Get the parser used to decode documents.
+     *
+     * @return the parser.
+     */
+    public StAXDocumentParser getParser() {
+        return _parser;
+    }
+
+    /**
+     * Parse a fast infoset document.
+     *
+     * @param s the input stream containing the fast infoset document.
+     * @return the document.
+     */
+    public DeferredDocument parse(InputStream s) throws FastInfosetException, IOException {
+        _parser.setInputStream(s);
+        return parse();
+    }
+
+    /**
+     * Parse a fast infoset document held in the remaining bytes of a
+     * {@link ByteBuffer}.
+     *
+     * @param b the byte buffer containing the fast infoset document.
+     * @return the document.
+     */
+    public DeferredDocument parse(ByteBuffer b) throws FastInfosetException, IOException {
+        _parser.setInputBuffer(b);
+        try {
+            return parse();
+        } finally {
+            _parser.release();
+        }
+    }
+
+    /**
+     * Parse a fast infoset document held in a {@link FileChannel} from the
+     * current position of the channel to the end of the channel.
+     *
+     * @param channel the file channel containing the fast infoset document.
+     * @return the document.
+     */
+    public DeferredDocument parse(FileChannel channel) throws FastInfosetException, IOException {
+        _parser.setInputChannel(channel);
+        try {
+            return parse();
+        } finally {
+            _parser.release();
+        }
+    }
+
+    private DeferredDocument parse() throws FastInfosetException, IOException {
+        final DeferredDocument d = new DeferredDocument(_nodeCapacity, _attributeCapacity,
+                _nameCapacity, _charactersCapacity);
+        _names.clear();
+        _namespaceAttributeNames.clear();
+        _targetNames.clear();
+
+        int depth = 0;
+        _parents[0] = 0;
+        _lastChildren[0] = -1;
+        try {
+            while (true) {
+                switch (_parser.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                    {
+                        final int parent = _parents[depth];
+                        final int element = _lastChildren[depth] = d.addNode(Node.ELEMENT_NODE,
+                                getName(d, _parser.getQualifiedName()), parent, _lastChildren[depth],
+                                d._attributeCount, 0);
+
+                        for (int i = 0; i < _parser.getNamespaceCount(); i++) {
+                            final String namespaceName = _parser.getNamespaceURI(i);
+                            d.addAttribute(getNamespaceAttributeName(d, _parser.getNamespacePrefix(i)),
+                                    element, (namespaceName != null) ? namespaceName : "");
+                        }
+
+                        final AttributesHolder attributes = _parser.getAttributesHolder();
+                        for (int i = 0; i < attributes.getLength(); i++) {
+                            d.addAttribute(getName(d, attributes.getQualifiedName(i)),
+                                    element, attributes.getValue(i));
+                        }
+                        d._lengths[element] = d._attributeCount - d._offsets[element];
+
+                        if (++depth == _parents.length) {
+                            resizeStack();
+                        }
+                        _parents[depth] = element;
+                        _lastChildren[depth] = -1;
+                        break;
+                    }
+                    case XMLStreamConstants.END_ELEMENT:
+                        depth--;
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                    {
+                        final int last = _lastChildren[depth];
+                        final int offset = d._charactersLength;
+                        final int length = _parser.getTextLength();
+                        d.addCharacters(_parser.getTextCharacters(), _parser.getTextStart(), length);
+                        if (last != -1 && d._kinds[last] == Node.TEXT_NODE) {
+                            // The characters of the last child immediately precede
+                            d._lengths[last] += length;
+                        } else {
+                            _lastChildren[depth] = d.addNode(Node.TEXT_NODE, -1, _parents[depth], last,
+                                    offset, length);
+                        }
+                        break;
+                    }
+                    case XMLStreamConstants.COMMENT:
+                    {
+                        final int offset = d._charactersLength;
+                        final int length = _parser.getTextLength();
+                        d.addCharacters(_parser.getTextCharacters(), _parser.getTextStart(), length);
+                        _lastChildren[depth] = d.addNode(Node.COMMENT_NODE, -1, _parents[depth],
+                                _lastChildren[depth], offset, length);
+                        break;
+                    }
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    {
+                        final int target = getTargetName(d, _parser.getPITarget());
+                        final String data = _parser.getPIData();
+                        final int offset = d._charactersLength;
+                        if (data != null) {
+                            d.addCharacters(data);
+                        }
+                        _lastChildren[depth] = d.addNode(Node.PROCESSING_INSTRUCTION_NODE, target,
+                                _parents[depth], _lastChildren[depth], offset, d._charactersLength - offset);
+                        break;
+                    }
+                    case XMLStreamConstants.END_DOCUMENT:
+                        _nodeCapacity = d._nodeCount;
+                        _attributeCapacity = d._attributeCount;
+                        _nameCapacity = d._nameCount;
+                        _charactersCapacity = d._charactersLength;
+                        d.trim();
+                        return d;
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            final Throwable t = e.getNestedException();
+            if (t instanceof IOException) {
+                throw (IOException)t;
+            } else if (t instanceof FastInfosetException) {
+                throw (FastInfosetException)t;
+            }
+            throw new FastInfosetException(e);
+        }
+    }
+
+    private int getName(DeferredDocument d, QualifiedName name) {
+        final Integer i = (Integer)_names.get(name);
+        // A qualified name of a literal may be reused for another name
+        if (i != null && d._localNames[i.intValue()] == name.localName &&
+                sameString(d._prefixes[i.intValue()], name.prefix) &&
+                sameString(d._namespaceNames[i.intValue()], name.namespaceName)) {
+            return i.intValue();
+        }
+
+        final int index = d.addName(name.namespaceName, name.prefix, name.localName, name.getQNameString());
+        _names.put(name, Integer.valueOf(index));
+        return index;
+    }
+
+    private static boolean sameString(String stored, String s) {
+        return (stored == null) ? s == null || s.length() == 0 : stored == s;
+    }
+
+    private int getNamespaceAttributeName(DeferredDocument d, String prefix) {
+        if (prefix == null) {
+            prefix = "";
+        }
+
+        Integer i = (Integer)_namespaceAttributeNames.get(prefix);
+        if (i == null) {
+            i = Integer.valueOf((prefix.length() == 0) ?
+                d.addName(EncodingConstants.XMLNS_NAMESPACE_NAME, "",
+                    EncodingConstants.XMLNS_NAMESPACE_PREFIX, EncodingConstants.XMLNS_NAMESPACE_PREFIX) :
+                d.addName(EncodingConstants.XMLNS_NAMESPACE_NAME, EncodingConstants.XMLNS_NAMESPACE_PREFIX,
+                    prefix, EncodingConstants.XMLNS_NAMESPACE_PREFIX + ":" + prefix));
+            _namespaceAttributeNames.put(prefix, i);
+        }
+        return i.intValue();
+    }
+
+    private int getTargetName(DeferredDocument d, String target) {
+        Integer i = (Integer)_targetNames.get(target);
+        if (i == null) {
+            i = Integer.valueOf(d.addName(null, null, target, target));
+            _targetNames.put(target, i);
+        }
+        return i.intValue();
+    }
+
+    private void resizeStack() {
+        final int[] parents = new int[_parents.length * 2];
+        System.arraycopy(_parents, 0, parents, 0, _parents.length);
+        _parents = parents;
+
+        final int[] lastChildren = new int[_lastChildren.length * 2];
+        System.arraycopy(_lastChildren, 0, lastChildren, 0, _lastChildren.length);
+        _lastChildren = lastChildren;
+    }
+
+    /**
+     * The parser, giving access to the qualified name of the current
+     * element.
+     */
+    private static final class Parser extends StAXDocumentParser {
+        QualifiedName getQualifiedName() {
+            return _qualifiedName;
+        }
+
+        void release() {
+            releaseInput();
+        }
+    }
+}
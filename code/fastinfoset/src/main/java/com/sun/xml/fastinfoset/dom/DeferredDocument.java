@@ -0,0 +1,629 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.dom;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Comment;
+import org.w3c.dom.DOMConfiguration;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.EntityReference;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+import org.w3c.dom.Text;
+
+/**
+ * A read-only {@link Document} whose content is held in a compact store
+ * of parallel arrays, and whose {@link Node}s are created when they are
+ * navigated to.
+ * <p>
+ * The nodes of the document are held in document order, the document
+ * being the node at index 0, so the first child of a node is the
+ * following node. Each node has a kind, the index of its name in the
+ * name table, the indexes of its parent and next sibling, and an offset
+ * and length. The offset and length of a text,
+ * comment or processing instruction node is the range of its characters
+ * in the character array, and of an element node is the range of its
+ * attributes in the attribute arrays. Namespace declarations are held as
+ * attributes of the "http://www.w3.org/2000/xmlns/" namespace preceding
+ * the other attributes of an element, in the same way as
+ * {@link DOMDocumentParser} creates them.
+ * <p>
+ * Instances are created by {@link DeferredDOMDocumentParser}. Methods that
+ * modify the document throw a {@link org.w3c.dom.DOMException}. The
+ * document is not thread safe, since nodes are created and cached when
+ * they are first navigated to.
+ */
+public final class DeferredDocument extends DeferredNode implements Document {
+    private static final int INITIAL_CAPACITY = 64;
+
+    byte[] _kinds;
+    int[] _names;
+    int[] _parents;
+    int[] _nextSiblings;
+    int[] _offsets;
+    int[] _lengths;
+    int _nodeCount;
+
+    int[] _attributeNames;
+    int[] _attributeOffsets;
+    int[] _attributeLengths;
+    int[] _attributeOwners;
+    int _attributeCount;
+
+    String[] _namespaceNames;
+    String[] _prefixes;
+    String[] _localNames;
+    String[] _qNames;
+    int _nameCount;
+
+    char[] _characters;
+    int _charactersLength;
+
+    /**
+     * The nodes that have been navigated to, indexed by the index of the
+     * node or the attribute.
+     */
+    private Node[] _nodes;
+    private Node[] _attributeNodes;
+
+    /**
+     * Creates a new instance of DeferredDocument whose store has an
+     * initial capacity.
+     *
+     * @param nodeCapacity the number of nodes.
+     * @param attributeCapacity the number of attributes.
+     * @param nameCapacity the number of names.
+     * @param charactersCapacity the number of characters.
+     */
+    DeferredDocument(int nodeCapacity, int attributeCapacity, int nameCapacity, int charactersCapacity) {
+        super(null, 0);
+        nodeCapacity = Math.max(nodeCapacity, INITIAL_CAPACITY);
+        _kinds = new byte[nodeCapacity];
+        _names = new int[nodeCapacity];
+        _parents = new int[nodeCapacity];
+        _nextSiblings = new int[nodeCapacity];
+        _offsets = new int[nodeCapacity];
+        _lengths = new int[nodeCapacity];
+
+        attributeCapacity = Math.max(attributeCapacity, INITIAL_CAPACITY);
+        _attributeNames = new int[attributeCapacity];
+        _attributeOffsets = new int[attributeCapacity];
+        _attributeLengths = new int[attributeCapacity];
+        _attributeOwners = new int[attributeCapacity];
+
+        nameCapacity = Math.max(nameCapacity, INITIAL_CAPACITY);
+        _namespaceNames = new String[nameCapacity];
+        _prefixes = new String[nameCapacity];
+        _localNames = new String[nameCapacity];
+        _qNames = new String[nameCapacity];
+
+        _characters = new char[Math.max(charactersCapacity, INITIAL_CAPACITY * 16)];
+
+        addNode(DOCUMENT_NODE, -1, -1, -1, 0, 0);
+    }
+
+    /**
+     * Get the number of nodes of the document, including the document and
+     * excluding attributes.
+     *
+     * @return the number of nodes.
+     */
+    public int getNodeCount() {
+        return _nodeCount;
+    }
+
+    /**
+     * Get the number of attributes of the document, including namespace
+     * declarations.
+     *
+     * @return the number of attributes.
+     */
+    public int getAttributeCount() {
+        return _attributeCount;
+    }
+
+    /**
+     * Get the number of characters of the text, comments, processing
+     * instructions and attribute values of the document.
+     *
+     * @return the number of characters.
+     */
+    public int getCharacterCount() {
+        return _charactersLength;
+    }
+
+    // Building
+
+    int addNode(short kind, int name, int parent, int previousSibling, int offset, int length) {
+        if (_nodeCount == _kinds.length) {
+            resizeNodes(_nodeCount * 2);
+        }
+
+        final int node = _nodeCount++;
+        _kinds[node] = (byte)kind;
+        _names[node] = name;
+        _parents[node] = parent;
+        _nextSiblings[node] = -1;
+        _offsets[node] = offset;
+        _lengths[node] = length;
+
+        if (previousSibling != -1) {
+            _nextSiblings[previousSibling] = node;
+        }
+        return node;
+    }
+
+    void addAttribute(int name, int owner, String value) {
+        if (_attributeCount == _attributeNames.length) {
+            resizeAttributes(_attributeCount * 2);
+        }
+
+        _attributeNames[_attributeCount] = name;
+        _attributeOwners[_attributeCount] = owner;
+        _attributeOffsets[_attributeCount] = _charactersLength;
+        _attributeLengths[_attributeCount] = value.length();
+        _attributeCount++;
+        addCharacters(value);
+    }
+
+    int addName(String namespaceName, String prefix, String localName, String qName) {
+        if (_nameCount == _qNames.length) {
+            resizeNames(_nameCount * 2);
+        }
+
+        // DOM uses null for no namespace and no prefix
+        _namespaceNames[_nameCount] = (namespaceName != null && namespaceName.length() > 0) ? namespaceName : null;
+        _prefixes[_nameCount] = (prefix != null && prefix.length() > 0) ? prefix : null;
+        _localNames[_nameCount] = localName;
+        _qNames[_nameCount] = qName;
+        return _nameCount++;
+    }
+
+    void addCharacters(char[] ch, int start, int length) {
+        ensureCharacters(length);
+        System.arraycopy(ch, start, _characters, _charactersLength, length);
+        _charactersLength += length;
+    }
+
+    void addCharacters(String s) {
+        final int length = s.length();
+        ensureCharacters(length);
+        s.getChars(0, length, _characters, _charactersLength);
+        _charactersLength += length;
+    }
+
+    private void ensureCharacters(int length) {
+        if (_charactersLength + length > _characters.length) {
+            final char[] characters = new char[Math.max(_characters.length * 2, _charactersLength + length)];
+            System.arraycopy(_characters, 0, characters, 0, _charactersLength);
+            _characters = characters;
+        }
+    }
+
+    /**
+     * Trim the arrays of the store to their content once the document
+     * has been parsed.
+     */
+    void trim() {
+        resizeNodes(_nodeCount);
+        resizeAttributes(_attributeCount);
+        resizeNames(_nameCount);
+        if (_charactersLength < _characters.length) {
+            final char[] characters = new char[_charactersLength];
+            System.arraycopy(_characters, 0, characters, 0, _charactersLength);
+            _characters = characters;
+        }
+    }
+
+    private void resizeNodes(int capacity) {
+        _kinds = resize(_kinds, _nodeCount, capacity);
+        _names = resize(_names, _nodeCount, capacity);
+        _parents = resize(_parents, _nodeCount, capacity);
+        _nextSiblings = resize(_nextSiblings, _nodeCount, capacity);
+        _offsets = resize(_offsets, _nodeCount, capacity);
+        _lengths = resize(_lengths, _nodeCount, capacity);
+    }
+
+    private void resizeAttributes(int capacity) {
+        _attributeNames = resize(_attributeNames, _attributeCount, capacity);
+        _attributeOffsets = resize(_attributeOffsets, _attributeCount, capacity);
+        _attributeLengths = resize(_attributeLengths, _attributeCount, capacity);
+        _attributeOwners = resize(_attributeOwners, _attributeCount, capacity);
+    }
+
+    private void resizeNames(int capacity) {
+        _namespaceNames = resize(_namespaceNames, _nameCount, capacity);
+        _prefixes = resize(_prefixes, _nameCount, capacity);
+        _localNames = resize(_localNames, _nameCount, capacity);
+        _qNames = resize(_qNames, _nameCount, capacity);
+    }
+
+    private static byte[] resize(byte[] a, int length, int capacity) {
+        if (a.length == capacity) return a;
+        final byte[] b = new byte[capacity];
+        System.arraycopy(a, 0, b, 0, length);
+        return b;
+    }
+
+    private static int[] resize(int[] a, int length, int capacity) {
+        if (a.length == capacity) return a;
+        final int[] b = new int[capacity];
+        System.arraycopy(a, 0, b, 0, length);
+        return b;
+    }
+
+    private static String[] resize(String[] a, int length, int capacity) {
+        if (a.length == capacity) return a;
+        final String[] b = new String[capacity];
+        System.arraycopy(a, 0, b, 0, length);
+        return b;
+    }
+
+    // Navigation
+
+    Node getNode(int index) {
+        if (index <= 0) {
+            return (index == 0) ? this : null;
+        }
+
+        if (_nodes == null) {
+            _nodes = new Node[_nodeCount];
+        }
+        Node n = _nodes[index];
+        if (n == null) {
+            switch (_kinds[index]) {
+                case ELEMENT_NODE:
+                    n = new DeferredElement(this, index);
+                    break;
+                case TEXT_NODE:
+                    n = new DeferredText(this, index);
+                    break;
+                case COMMENT_NODE:
+                    n = new DeferredComment(this, index);
+                    break;
+                default:
+                    n = new DeferredProcessingInstruction(this, index);
+                    break;
+            }
+            _nodes[index] = n;
+        }
+        return n;
+    }
+
+    DeferredAttr getAttributeNode(int attribute) {
+        if (_attributeNodes == null) {
+            _attributeNodes = new Node[_attributeCount];
+        }
+        Node n = _attributeNodes[attribute];
+        if (n == null) {
+            n = _attributeNodes[attribute] = new DeferredAttr(this, attribute);
+        }
+        return (DeferredAttr)n;
+    }
+
+    String getString(int offset, int length) {
+        return new String(_characters, offset, length);
+    }
+
+    String getAttributeValue(int attribute) {
+        return new String(_characters, _attributeOffsets[attribute], _attributeLengths[attribute]);
+    }
+
+    int getFirstChild(int node) {
+        // The first child of a node, if any, immediately follows the node
+        final int child = node + 1;
+        return (child < _nodeCount && _parents[child] == node) ? child : -1;
+    }
+
+    int getLastChild(int node) {
+        int child = getFirstChild(node);
+        if (child != -1) {
+            int next;
+            while ((next = _nextSiblings[child]) != -1) {
+                child = next;
+            }
+        }
+        return child;
+    }
+
+    int getPreviousSibling(int node) {
+        final int parent = _parents[node];
+        if (parent == -1) {
+            return -1;
+        }
+
+        int previous = -1;
+        for (int child = getFirstChild(parent); child != node; child = _nextSiblings[child]) {
+            previous = child;
+        }
+        return previous;
+    }
+
+    /**
+     * Get the index following the last descendant of a node, the nodes
+     * being in document order.
+     */
+    int getSubtreeEnd(int node) {
+        while (node != -1) {
+            final int next = _nextSiblings[node];
+            if (next != -1) {
+                return next;
+            }
+            node = _parents[node];
+        }
+        return _nodeCount;
+    }
+
+    boolean isAncestor(int ancestor, DeferredNode node) {
+        if (ancestor == -1) {
+            return false;
+        }
+        for (int n = node.getContainerIndex(); n != -1; n = _parents[n]) {
+            if (n == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    NodeList getChildNodes(int node) {
+        int length = 0;
+        for (int child = getFirstChild(node); child != -1; child = _nextSiblings[child]) {
+            length++;
+        }
+
+        final int[] children = new int[length];
+        length = 0;
+        for (int child = getFirstChild(node); child != -1; child = _nextSiblings[child]) {
+            children[length++] = child;
+        }
+        return new DeferredNodeList(this, children, length);
+    }
+
+    NodeList getElementsByTagName(int node, String name) {
+        final boolean any = "*".equals(name);
+        final int end = getSubtreeEnd(node);
+        int[] elements = new int[16];
+        int length = 0;
+        for (int i = node + 1; i < end; i++) {
+            if (_kinds[i] == ELEMENT_NODE && (any || name.equals(_qNames[_names[i]]))) {
+                if (length == elements.length) {
+                    elements = resize(elements, length, length * 2);
+                }
+                elements[length++] = i;
+            }
+        }
+        return new DeferredNodeList(this, elements, length);
+    }
+
+    NodeList getElementsByTagNameNS(int node, String namespaceURI, String localName) {
+        final boolean anyNamespace = "*".equals(namespaceURI);
+        final boolean anyLocalName = "*".equals(localName);
+        if (namespaceURI != null && namespaceURI.length() == 0) {
+            namespaceURI = null;
+        }
+
+        final int end = getSubtreeEnd(node);
+        int[] elements = new int[16];
+        int length = 0;
+        for (int i = node + 1; i < end; i++) {
+            if (_kinds[i] == ELEMENT_NODE) {
+                final int name = _names[i];
+                if ((anyLocalName || localName.equals(_localNames[name])) &&
+                        (anyNamespace || equals(namespaceURI, _namespaceNames[name]))) {
+                    if (length == elements.length) {
+                        elements = resize(elements, length, length * 2);
+                    }
+                    elements[length++] = i;
+                }
+            }
+        }
+        return new DeferredNodeList(this, elements, length);
+    }
+
+    /**
+     * Get the text content of a node, the characters of the text nodes
+     * that are descendants of the node.
+     */
+    String getTextContent(int node) {
+        final int end = getSubtreeEnd(node);
+        int length = 0;
+        int text = -1;
+        for (int i = node + 1; i < end; i++) {
+            if (_kinds[i] == TEXT_NODE) {
+                length += _lengths[i];
+                text = (text == -1) ? i : -2;
+            }
+        }
+
+        if (text == -1) {
+            return "";
+        } else if (text >= 0) {
+            return getString(_offsets[text], _lengths[text]);
+        }
+
+        final StringBuilder b = new StringBuilder(length);
+        for (int i = node + 1; i < end; i++) {
+            if (_kinds[i] == TEXT_NODE) {
+                b.append(_characters, _offsets[i], _lengths[i]);
+            }
+        }
+        return b.toString();
+    }
+
+    // Node
+
+    public String getNodeName() {
+        return "#document";
+    }
+
+    public short getNodeType() {
+        return DOCUMENT_NODE;
+    }
+
+    @Override
+    public Document getOwnerDocument() {
+        return null;
+    }
+
+    @Override
+    public String getTextContent() {
+        return null;
+    }
+
+    @Override
+    DeferredElement getContainingElement() {
+        return (DeferredElement)getDocumentElement();
+    }
+
+    // Document
+
+    public DocumentType getDoctype() {
+        return null;
+    }
+
+    public DOMImplementation getImplementation() {
+        return null;
+    }
+
+    public Element getDocumentElement() {
+        for (int child = getFirstChild(0); child != -1; child = _nextSiblings[child]) {
+            if (_kinds[child] == ELEMENT_NODE) {
+                return (Element)getNode(child);
+            }
+        }
+        return null;
+    }
+
+    public Element createElement(String tagName) {
+        throw notSupported();
+    }
+
+    public DocumentFragment createDocumentFragment() {
+        throw notSupported();
+    }
+
+    public Text createTextNode(String data) {
+        throw notSupported();
+    }
+
+    public Comment createComment(String data) {
+        throw notSupported();
+    }
+
+    public CDATASection createCDATASection(String data) {
+        throw notSupported();
+    }
+
+    public ProcessingInstruction createProcessingInstruction(String target, String data) {
+        throw notSupported();
+    }
+
+    public Attr createAttribute(String name) {
+        throw notSupported();
+    }
+
+    public EntityReference createEntityReference(String name) {
+        throw notSupported();
+    }
+
+    public NodeList getElementsByTagName(String tagname) {
+        return getElementsByTagName(0, tagname);
+    }
+
+    public Node importNode(Node importedNode, boolean deep) {
+        throw notSupported();
+    }
+
+    public Element createElementNS(String namespaceURI, String qualifiedName) {
+        throw notSupported();
+    }
+
+    public Attr createAttributeNS(String namespaceURI, String qualifiedName) {
+        throw notSupported();
+    }
+
+    public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+        return getElementsByTagNameNS(0, namespaceURI, localName);
+    }
+
+    public Element getElementById(String elementId) {
+        // There are no attributes of type ID without a DTD or schema
+        return null;
+    }
+
+    public String getInputEncoding() {
+        return null;
+    }
+
+    public String getXmlEncoding() {
+        return null;
+    }
+
+    public boolean getXmlStandalone() {
+        return false;
+    }
+
+    public void setXmlStandalone(boolean xmlStandalone) {
+        throw readOnly();
+    }
+
+    public String getXmlVersion() {
+        return "1.0";
+    }
+
+    public void setXmlVersion(String xmlVersion) {
+        throw readOnly();
+    }
+
+    public boolean getStrictErrorChecking() {
+        return true;
+    }
+
+    public void setStrictErrorChecking(boolean strictErrorChecking) {
+    }
+
+    public String getDocumentURI() {
+        return null;
+    }
+
+    public void setDocumentURI(String documentURI) {
+        throw readOnly();
+    }
+
+    public Node adoptNode(Node source) {
+        throw notSupported();
+    }
+
+    public DOMConfiguration getDomConfig() {
+        return null;
+    }
+
+    public void normalizeDocument() {
+    }
+
+    public Node renameNode(Node n, String namespaceURI, String qualifiedName) {
+        throw readOnly();
+    }
+}
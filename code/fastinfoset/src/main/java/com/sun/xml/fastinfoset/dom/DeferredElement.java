@@ -0,0 +1,302 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.dom;
+
+import com.sun.xml.fastinfoset.EncodingConstants;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * A read-only element of a {@link DeferredDocument}.
+ */
+final class DeferredElement extends DeferredNode implements Element {
+
+    DeferredElement(DeferredDocument document, int index) {
+        super(document, index);
+    }
+
+    private int getNameIndex() {
+        return _document._names[_index];
+    }
+
+    private int getFirstAttribute() {
+        return _document._offsets[_index];
+    }
+
+    private int getAttributeEnd() {
+        return _document._offsets[_index] + _document._lengths[_index];
+    }
+
+    private int findAttribute(String name) {
+        final DeferredDocument d = _document;
+        for (int i = getFirstAttribute(), end = getAttributeEnd(); i < end; i++) {
+            if (name.equals(d._qNames[d._attributeNames[i]])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int findAttribute(String namespaceURI, String localName) {
+        if (namespaceURI != null && namespaceURI.length() == 0) {
+            namespaceURI = null;
+        }
+
+        final DeferredDocument d = _document;
+        for (int i = getFirstAttribute(), end = getAttributeEnd(); i < end; i++) {
+            final int name = d._attributeNames[i];
+            if (localName.equals(d._localNames[name]) && equals(namespaceURI, d._namespaceNames[name])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Node
+
+    public String getNodeName() {
+        return _document._qNames[getNameIndex()];
+    }
+
+    public short getNodeType() {
+        return ELEMENT_NODE;
+    }
+
+    @Override
+    public String getNamespaceURI() {
+        return _document._namespaceNames[getNameIndex()];
+    }
+
+    @Override
+    public String getPrefix() {
+        return _document._prefixes[getNameIndex()];
+    }
+
+    @Override
+    public String getLocalName() {
+        return _document._localNames[getNameIndex()];
+    }
+
+    @Override
+    public NamedNodeMap getAttributes() {
+        return new Attributes();
+    }
+
+    @Override
+    public boolean hasAttributes() {
+        return _document._lengths[_index] > 0;
+    }
+
+    @Override
+    public String getTextContent() {
+        return _document.getTextContent(_index);
+    }
+
+    @Override
+    DeferredElement getContainingElement() {
+        return this;
+    }
+
+    @Override
+    public String lookupNamespaceURI(String prefix) {
+        if (prefix != null && prefix.length() == 0) {
+            prefix = null;
+        }
+
+        final DeferredDocument d = _document;
+        for (int e = _index; e > 0 && d._kinds[e] == ELEMENT_NODE; e = d._parents[e]) {
+            final int name = d._names[e];
+            if (d._namespaceNames[name] != null && equals(prefix, d._prefixes[name])) {
+                return d._namespaceNames[name];
+            }
+
+            final int end = d._offsets[e] + d._lengths[e];
+            for (int i = d._offsets[e]; i < end; i++) {
+                final int a = d._attributeNames[i];
+                if (!EncodingConstants.XMLNS_NAMESPACE_NAME.equals(d._namespaceNames[a])) {
+                    // Namespace declarations precede the other attributes
+                    break;
+                }
+                if ((prefix == null) ? d._prefixes[a] == null :
+                        (d._prefixes[a] != null && prefix.equals(d._localNames[a]))) {
+                    return (d._attributeLengths[i] > 0) ? d.getAttributeValue(i) : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String lookupPrefix(String namespaceURI) {
+        if (namespaceURI == null || namespaceURI.length() == 0) {
+            return null;
+        }
+
+        final DeferredDocument d = _document;
+        for (int e = _index; e > 0 && d._kinds[e] == ELEMENT_NODE; e = d._parents[e]) {
+            final int name = d._names[e];
+            if (namespaceURI.equals(d._namespaceNames[name]) && d._prefixes[name] != null &&
+                    namespaceURI.equals(lookupNamespaceURI(d._prefixes[name]))) {
+                return d._prefixes[name];
+            }
+
+            final int end = d._offsets[e] + d._lengths[e];
+            for (int i = d._offsets[e]; i < end; i++) {
+                final int a = d._attributeNames[i];
+                if (!EncodingConstants.XMLNS_NAMESPACE_NAME.equals(d._namespaceNames[a])) {
+                    break;
+                }
+                if (d._prefixes[a] != null && namespaceURI.equals(d.getAttributeValue(i)) &&
+                        namespaceURI.equals(lookupNamespaceURI(d._localNames[a]))) {
+                    return d._localNames[a];
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isDefaultNamespace(String namespaceURI) {
+        return equals(namespaceURI, lookupNamespaceURI(null));
+    }
+
+    // Element
+
+    public String getTagName() {
+        return getNodeName();
+    }
+
+    public String getAttribute(String name) {
+        final int i = findAttribute(name);
+        return (i != -1) ? _document.getAttributeValue(i) : "";
+    }
+
+    public void setAttribute(String name, String value) {
+        throw readOnly();
+    }
+
+    public void removeAttribute(String name) {
+        throw readOnly();
+    }
+
+    public Attr getAttributeNode(String name) {
+        final int i = findAttribute(name);
+        return (i != -1) ? _document.getAttributeNode(i) : null;
+    }
+
+    public Attr setAttributeNode(Attr newAttr) {
+        throw readOnly();
+    }
+
+    public Attr removeAttributeNode(Attr oldAttr) {
+        throw readOnly();
+    }
+
+    public NodeList getElementsByTagName(String name) {
+        return _document.getElementsByTagName(_index, name);
+    }
+
+    public String getAttributeNS(String namespaceURI, String localName) {
+        final int i = findAttribute(namespaceURI, localName);
+        return (i != -1) ? _document.getAttributeValue(i) : "";
+    }
+
+    public void setAttributeNS(String namespaceURI, String qualifiedName, String value) {
+        throw readOnly();
+    }
+
+    public void removeAttributeNS(String namespaceURI, String localName) {
+        throw readOnly();
+    }
+
+    public Attr getAttributeNodeNS(String namespaceURI, String localName) {
+        final int i = findAttribute(namespaceURI, localName);
+        return (i != -1) ? _document.getAttributeNode(i) : null;
+    }
+
+    public Attr setAttributeNodeNS(Attr newAttr) {
+        throw readOnly();
+    }
+
+    public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+        return _document.getElementsByTagNameNS(_index, namespaceURI, localName);
+    }
+
+    public boolean hasAttribute(String name) {
+        return findAttribute(name) != -1;
+    }
+
+    public boolean hasAttributeNS(String namespaceURI, String localName) {
+        return findAttribute(namespaceURI, localName) != -1;
+    }
+
+    public TypeInfo getSchemaTypeInfo() {
+        return null;
+    }
+
+    public void setIdAttribute(String name, boolean isId) {
+        throw readOnly();
+    }
+
+    public void setIdAttributeNS(String namespaceURI, String localName, boolean isId) {
+        throw readOnly();
+    }
+
+    public void setIdAttributeNode(Attr idAttr, boolean isId) {
+        throw readOnly();
+    }
+
+    private final class Attributes implements NamedNodeMap {
+        public Node getNamedItem(String name) {
+            return getAttributeNode(name);
+        }
+
+        public Node setNamedItem(Node arg) {
+            throw readOnly();
+        }
+
+        public Node removeNamedItem(String name) {
+            throw readOnly();
+        }
+
+        public Node item(int index) {
+            return (index >= 0 && index < getLength()) ?
+                _document.getAttributeNode(getFirstAttribute() + index) : null;
+        }
+
+        public int getLength() {
+            return _document._lengths[_index];
+        }
+
+        public Node getNamedItemNS(String namespaceURI, String localName) {
+            return getAttributeNodeNS(namespaceURI, localName);
+        }
+
+        public Node setNamedItemNS(Node arg) {
+            throw readOnly();
+        }
+
+        public Node removeNamedItemNS(String namespaceURI, String localName) {
+            throw readOnly();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.dom;
+
+import com.sun.xml.fastinfoset.CommonResourceBundle;
+import java.util.HashMap;
+import java.util.Map;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.UserDataHandler;
+
+/**
+ * A read-only node of a {@link DeferredDocument}, which is a view of the
+ * node at an index of the node store of the document.
+ */
+abstract class DeferredNode implements Node {
+    final DeferredDocument _document;
+
+    final int _index;
+
+    private Map _userData;
+
+    DeferredNode(DeferredDocument document, int index) {
+        _document = (document != null) ? document : (DeferredDocument)this;
+        _index = index;
+    }
+
+    static DOMException readOnly() {
+        return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR,
+                CommonResourceBundle.getInstance().getString("message.deferredDocumentReadOnly"));
+    }
+
+    static DOMException notSupported() {
+        return new DOMException(DOMException.NOT_SUPPORTED_ERR,
+                CommonResourceBundle.getInstance().getString("message.deferredDocumentNotSupported"));
+    }
+
+    /**
+     * The index of the node in the store from which the containing
+     * element is obtained, for the namespace lookups and the document
+     * position of the node.
+     */
+    int getContainerIndex() {
+        return _document._parents[_index];
+    }
+
+    public String getNodeValue() {
+        return null;
+    }
+
+    public void setNodeValue(String nodeValue) {
+        throw readOnly();
+    }
+
+    public Node getParentNode() {
+        return _document.getNode(_document._parents[_index]);
+    }
+
+    public NodeList getChildNodes() {
+        return _document.getChildNodes(_index);
+    }
+
+    public Node getFirstChild() {
+        return _document.getNode(_document.getFirstChild(_index));
+    }
+
+    public Node getLastChild() {
+        return _document.getNode(_document.getLastChild(_index));
+    }
+
+    public Node getPreviousSibling() {
+        return _document.getNode(_document.getPreviousSibling(_index));
+    }
+
+    public Node getNextSibling() {
+        return _document.getNode(_document._nextSiblings[_index]);
+    }
+
+    public NamedNodeMap getAttributes() {
+        return null;
+    }
+
+    public Document getOwnerDocument() {
+        return _document;
+    }
+
+    public Node insertBefore(Node newChild, Node refChild) {
+        throw readOnly();
+    }
+
+    public Node replaceChild(Node newChild, Node oldChild) {
+        throw readOnly();
+    }
+
+    public Node removeChild(Node oldChild) {
+        throw readOnly();
+    }
+
+    public Node appendChild(Node newChild) {
+        throw readOnly();
+    }
+
+    public boolean hasChildNodes() {
+        return _document.getFirstChild(_index) != -1;
+    }
+
+    public Node cloneNode(boolean deep) {
+        throw notSupported();
+    }
+
+    public void normalize() {
+        // Adjacent text is merged when the document is parsed
+    }
+
+    public boolean isSupported(String feature, String version) {
+        return ("Core".equalsIgnoreCase(feature) || "XML".equalsIgnoreCase(feature)) &&
+                (version == null || version.length() == 0 ||
+                "1.0".equals(version) || "2.0".equals(version) || "3.0".equals(version));
+    }
+
+    public String getNamespaceURI() {
+        return null;
+    }
+
+    public String getPrefix() {
+        return null;
+    }
+
+    public void setPrefix(String prefix) {
+        throw readOnly();
+    }
+
+    public String getLocalName() {
+        return null;
+    }
+
+    public boolean hasAttributes() {
+        return false;
+    }
+
+    public String getBaseURI() {
+        return null;
+    }
+
+    public short compareDocumentPosition(Node other) {
+        if (other == this) {
+            return 0;
+        }
+        if (!(other instanceof DeferredNode) || ((DeferredNode)other)._document != _document) {
+            return (short)(DOCUMENT_POSITION_DISCONNECTED | DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC |
+                    ((System.identityHashCode(this) < System.identityHashCode(other)) ?
+                        DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING));
+        }
+
+        final DeferredNode o = (DeferredNode)other;
+        if (_document.isAncestor(getTreeIndex(), o)) {
+            return DOCUMENT_POSITION_CONTAINED_BY | DOCUMENT_POSITION_FOLLOWING;
+        } else if (_document.isAncestor(o.getTreeIndex(), this)) {
+            return DOCUMENT_POSITION_CONTAINS | DOCUMENT_POSITION_PRECEDING;
+        }
+
+        // Attributes follow their element and precede its children
+        final int treeIndex = (this instanceof DeferredAttr) ? getContainerIndex() : _index;
+        final int otherTreeIndex = (o instanceof DeferredAttr) ? o.getContainerIndex() : o._index;
+        if (treeIndex == otherTreeIndex) {
+            if (!(this instanceof DeferredAttr)) {
+                return DOCUMENT_POSITION_FOLLOWING;
+            } else if (!(o instanceof DeferredAttr)) {
+                return DOCUMENT_POSITION_PRECEDING;
+            }
+            return (short)(DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC |
+                    ((_index < o._index) ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING));
+        }
+        return (treeIndex < otherTreeIndex) ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING;
+    }
+
+    /**
+     * The index of the node in the store that may contain other nodes, or
+     * -1 if the node is an attribute.
+     */
+    int getTreeIndex() {
+        return _index;
+    }
+
+    public String getTextContent() {
+        return getNodeValue();
+    }
+
+    public void setTextContent(String textContent) {
+        throw readOnly();
+    }
+
+    public boolean isSameNode(Node other) {
+        return this == other;
+    }
+
+    public String lookupPrefix(String namespaceURI) {
+        final DeferredElement e = getContainingElement();
+        return (e != null) ? e.lookupPrefix(namespaceURI) : null;
+    }
+
+    public boolean isDefaultNamespace(String namespaceURI) {
+        final DeferredElement e = getContainingElement();
+        return (e != null) ? e.isDefaultNamespace(namespaceURI) : false;
+    }
+
+    public String lookupNamespaceURI(String prefix) {
+        final DeferredElement e = getContainingElement();
+        return (e != null) ? e.lookupNamespaceURI(prefix) : null;
+    }
+
+    DeferredElement getContainingElement() {
+        final Node n = _document.getNode(getContainerIndex());
+        return (n instanceof DeferredElement) ? (DeferredElement)n : null;
+    }
+
+    public boolean isEqualNode(Node arg) {
+        if (arg == this) {
+            return true;
+        } else if (arg == null || arg.getNodeType() != getNodeType() ||
+                !equals(getNodeName(), arg.getNodeName()) ||
+                !equals(getLocalName(), arg.getLocalName()) ||
+                !equals(getNamespaceURI(), arg.getNamespaceURI()) ||
+                !equals(getPrefix(), arg.getPrefix()) ||
+                !equals(getNodeValue(), arg.getNodeValue())) {
+            return false;
+        }
+
+        final NamedNodeMap attributes = getAttributes();
+        final NamedNodeMap argAttributes = arg.getAttributes();
+        if (attributes != null || argAttributes != null) {
+            if (attributes == null || argAttributes == null ||
+                    attributes.getLength() != argAttributes.getLength()) {
+                return false;
+            }
+            for (int i = 0; i < attributes.getLength(); i++) {
+                final Node a = attributes.item(i);
+                final Node b = (a.getLocalName() != null) ?
+                    argAttributes.getNamedItemNS(a.getNamespaceURI(), a.getLocalName()) :
+                    argAttributes.getNamedItem(a.getNodeName());
+                if (!a.isEqualNode(b)) {
+                    return false;
+                }
+            }
+        }
+
+        final NodeList children = getChildNodes();
+        final NodeList argChildren = arg.getChildNodes();
+        if (children.getLength() != argChildren.getLength()) {
+            return false;
+        }
+        for (int i = 0; i < children.getLength(); i++) {
+            if (!children.item(i).isEqualNode(argChildren.item(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean equals(String a, String b) {
+        return (a == null) ? b == null : a.equals(b);
+    }
+
+    public Object getFeature(String feature, String version) {
+        return isSupported(feature, version) ? this : null;
+    }
+
+    public Object setUserData(String key, Object data, UserDataHandler handler) {
+        if (_userData == null) {
+            if (data == null) {
+                return null;
+            }
+            _userData = new HashMap();
+        }
+        return (data != null) ? _userData.put(key, data) : _userData.remove(key);
+    }
+
+    public Object getUserData(String key) {
+        return (_userData != null) ? _userData.get(key) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getNodeName() + ": " + getNodeValue() + "]";
+    }
+}
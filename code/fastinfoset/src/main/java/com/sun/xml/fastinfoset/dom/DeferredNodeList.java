@@ -0,0 +1,47 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.dom;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A list of the nodes at indexes of the node store of a
+ * {@link DeferredDocument}.
+ */
+final class DeferredNodeList implements NodeList {
+    private final DeferredDocument _document;
+
+    private final int[] _nodes;
+
+    private final int _length;
+
+    DeferredNodeList(DeferredDocument document, int[] nodes, int length) {
+        _document = document;
+        _nodes = nodes;
+        _length = length;
+    }
+
+    public Node item(int index) {
+        return (index >= 0 && index < _length) ? _document.getNode(_nodes[index]) : null;
+    }
+
+    public int getLength() {
+        return _length;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.dom;
+
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * A read-only processing instruction of a {@link DeferredDocument}, whose
+ * target is held in the name table and data in the character array of the
+ * store.
+ */
+final class DeferredProcessingInstruction extends DeferredNode implements ProcessingInstruction {
+
+    DeferredProcessingInstruction(DeferredDocument document, int index) {
+        super(document, index);
+    }
+
+    public String getNodeName() {
+        return getTarget();
+    }
+
+    public short getNodeType() {
+        return PROCESSING_INSTRUCTION_NODE;
+    }
+
+    @Override
+    public String getNodeValue() {
+        return getData();
+    }
+
+    // ProcessingInstruction
+
+    public String getTarget() {
+        return _document._qNames[_document._names[_index]];
+    }
+
+    public String getData() {
+        return _document.getString(_document._offsets[_index], _document._lengths[_index]);
+    }
+
+    public void setData(String data) {
+        throw readOnly();
+    }
+}
@@ -210,6 +210,10 @@ public class AttributesHolder implements EncodingAlgorithmAttributes {
         _values[_attributeCount++] = value;
     }
 
+    public final void setValue(int index, String value) {
+        _values[index] = value;
+    }
+
     public final void addAttributeWithAlgorithmData(QualifiedName name, String URI, int id, Object data) {
         if (_attributeCount == _names.length) {
             resize();
@@ -25,12 +25,15 @@ import com.sun.xml.fastinfoset.algorithm.BuiltInEncodingAlgorithmFactory;
 import com.sun.xml.fastinfoset.algorithm.BuiltInEncodingAlgorithmState;
 import org.jvnet.fastinfoset.sax.EncodingAlgorithmContentHandler;
 import org.jvnet.fastinfoset.sax.FastInfosetReader;
+import org.jvnet.fastinfoset.sax.OctetStreamContentHandler;
 import org.jvnet.fastinfoset.sax.PrimitiveTypeContentHandler;
 import com.sun.xml.fastinfoset.util.CharArray;
 import com.sun.xml.fastinfoset.util.CharArrayString;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Map;
 import org.jvnet.fastinfoset.EncodingAlgorithm;
 import org.jvnet.fastinfoset.EncodingAlgorithmException;
@@ -142,6 +145,8 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
     
     protected PrimitiveTypeContentHandler _primitiveHandler;
     
+    protected OctetStreamContentHandler _octetStreamHandler;
+    
     protected BuiltInEncodingAlgorithmState builtInAlgorithmState =
             new BuiltInEncodingAlgorithmState();
     
@@ -153,6 +158,11 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
     
     protected boolean _clearAttributes = false;
     
+    /**
+     * The name of the element whose start or end is being reported.
+     */
+    protected QualifiedName _elementName;
+    
     /** Creates a new instance of DocumetParser2 */
     public SAXDocumentParser() {
         DefaultHandler handler = new DefaultHandler();
@@ -225,6 +235,8 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
             return getEncodingAlgorithmContentHandler();
         } else if (name.equals(FastInfosetReader.PRIMITIVE_TYPE_CONTENT_HANDLER_PROPERTY)) {
             return getPrimitiveTypeContentHandler();
+        } else if (name.equals(FastInfosetReader.OCTET_STREAM_CONTENT_HANDLER_PROPERTY)) {
+            return getOctetStreamContentHandler();
         } else {
             throw new SAXNotRecognizedException(CommonResourceBundle.getInstance().
                     getString("message.propertyNotRecognized", new Object[]{name}));
@@ -269,6 +281,12 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
             } else {
                 throw new SAXNotSupportedException(FastInfosetReader.PRIMITIVE_TYPE_CONTENT_HANDLER_PROPERTY);
             }
+        } else if (name.equals(FastInfosetReader.OCTET_STREAM_CONTENT_HANDLER_PROPERTY)) {
+            if (value instanceof OctetStreamContentHandler) {
+                setOctetStreamContentHandler((OctetStreamContentHandler)value);
+            } else {
+                throw new SAXNotSupportedException(FastInfosetReader.OCTET_STREAM_CONTENT_HANDLER_PROPERTY);
+            }
         } else if (name.equals(FastInfosetReader.BUFFER_SIZE_PROPERTY)) {
             if (value instanceof Integer) {
                 setBufferSize(((Integer)value).intValue());
@@ -350,6 +368,42 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
         parse();
     }
     
+    /**
+     * Parse a fast infoset document held in the remaining bytes of a
+     * {@link ByteBuffer}.
+     * <p>
+     * Only a buffer backed by an accessible array is decoded without 
+     * copying, see {@link #setInputBuffer}.
+     *
+     * @param b the byte buffer containing the fast infoset document.
+     */
+    public final void parse(ByteBuffer b) throws IOException, FastInfosetException, SAXException {
+        setInputBuffer(b);
+        try {
+            parse();
+        } finally {
+            releaseInput();
+        }
+    }
+    
+    /**
+     * Parse a fast infoset document held in a {@link FileChannel}, from the
+     * current position of the channel to the end of the channel.
+     * <p>
+     * The document is copied in bulk from the mapped channel, see 
+     * {@link #setInputChannel(FileChannel, long, long)}.
+     *
+     * @param channel the file channel containing the fast infoset document.
+     */
+    public final void parse(FileChannel channel) throws IOException, FastInfosetException, SAXException {
+        setInputChannel(channel);
+        try {
+            parse();
+        } finally {
+            releaseInput();
+        }
+    }
+    
     public void setLexicalHandler(LexicalHandler handler) {
         _lexicalHandler = handler;
     }
@@ -382,11 +436,33 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
         return _primitiveHandler;
     }
     
+    public void setOctetStreamContentHandler(OctetStreamContentHandler handler) {
+        _octetStreamHandler = handler;
+    }
+    
+    public OctetStreamContentHandler getOctetStreamContentHandler() {
+        return _octetStreamHandler;
+    }
+    
+    public final int getNameHandle() {
+        if (_elementName == null) {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.invalidCallingGetNameHandle"));
+        }
+        return getElementNameHandle(_elementName);
+    }
+    
+    public final int getAttributeNameHandle(int index) {
+        if (_elementName == null) {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.invalidCallingGetNameHandle"));
+        }
+        return getAttributeNameHandle(_attributes.getQualifiedName(index));
+    }
+    
     
     
     
     public final void parse() throws FastInfosetException, IOException {
-        if (_octetBuffer.length < _bufferSize) {
+        if (!_octetBufferIsInput && _octetBuffer.length < _bufferSize) {
             _octetBuffer = new byte[_bufferSize];
         }
         
@@ -690,9 +766,13 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
                     _b = read();
                     _identifier |= (_b & 0xFC) >> 2;
                     
-                    decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit(_b);
-                    
-                    processCIIEncodingAlgorithm(addToTable);
+                    if (!addToTable && isCIIEncodingAlgorithmStreamed()) {
+                        decodeOctetsLengthOnSeventhBitOfNonIdentifyingStringOnThirdBit(_b);
+                        processCIIEncodingAlgorithmAsStream();
+                    } else {
+                        decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit(_b);
+                        processCIIEncodingAlgorithm(addToTable);
+                    }
                     break;
                 }
                 case DecoderStateTables.CII_INDEX_SMALL:
@@ -874,10 +954,13 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
         }
         
         try {
+            _elementName = name;
             _contentHandler.startElement(name.namespaceName, name.localName, name.qName, _attributes);
         } catch (SAXException e) {
             logger.log(Level.FINE, "processEII error", e);
             throw new FastInfosetException("processEII", e);
+        } finally {
+            _elementName = null;
         }
         
         if (_clearAttributes) {
@@ -1005,9 +1088,13 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
                     _b = read();
                     _identifier |= (_b & 0xFC) >> 2;
                     
-                    decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit(_b);
-                    
-                    processCIIEncodingAlgorithm(addToTable);
+                    if (!addToTable && isCIIEncodingAlgorithmStreamed()) {
+                        decodeOctetsLengthOnSeventhBitOfNonIdentifyingStringOnThirdBit(_b);
+                        processCIIEncodingAlgorithmAsStream();
+                    } else {
+                        decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit(_b);
+                        processCIIEncodingAlgorithm(addToTable);
+                    }
                     break;
                 }
                 case DecoderStateTables.CII_INDEX_SMALL:
@@ -1110,9 +1197,12 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
         _doubleTerminate = false;
         
         try {
+            _elementName = name;
             _contentHandler.endElement(name.namespaceName, name.localName, name.qName);
         } catch (SAXException e) {
             throw new FastInfosetException("processEII", e);
+        } finally {
+            _elementName = null;
         }
     }
     
@@ -1264,9 +1354,7 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
         
         _clearAttributes = true;
         
-        if (++_duplicateAttributeVerifier._currentIteration == Integer.MAX_VALUE) {
-            _duplicateAttributeVerifier.clear();
-        }
+        _duplicateAttributeVerifier.startElement();
         
         do {
             // AII qualified name
@@ -1310,7 +1398,9 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
                 throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.AIIqNameNotInScope"));
             }
             
-            _duplicateAttributeVerifier.checkForDuplicateAttribute(name.attributeHash, name.attributeId);
+            if (_duplicateAttributeChecking) {
+                _duplicateAttributeVerifier.checkForDuplicateAttribute(name.attributeId);
+            }
             
             // [normalized value] of AII
             
@@ -1440,9 +1530,6 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
             
         } while (!_terminate);
         
-        // Reset duplication attribute verfifier
-        _duplicateAttributeVerifier._poolCurrent = _duplicateAttributeVerifier._poolHead;
-        
         _terminate = _doubleTerminate;
         _doubleTerminate = false;
     }
@@ -1596,6 +1683,38 @@ public class SAXDocumentParser extends Decoder implements FastInfosetReader {
         }
     }
     
+    /**
+     * Ascertain if the encoding algorithm data of a character information
+     * item is reported as a stream of octets.
+     */
+    private boolean isCIIEncodingAlgorithmStreamed() {
+        if (_octetStreamHandler == null) {
+            return false;
+        } else if (_identifier == EncodingAlgorithmIndexes.BASE64 ||
+                _identifier == EncodingAlgorithmIndexes.HEXADECIMAL) {
+            return true;
+        } else if (_identifier >= EncodingConstants.ENCODING_ALGORITHM_APPLICATION_START) {
+            final String URI = _v.encodingAlgorithm.get(_identifier - EncodingConstants.ENCODING_ALGORITHM_APPLICATION_START);
+            return URI != null && _registeredEncodingAlgorithms.get(URI) == null;
+        } else {
+            return false;
+        }
+    }
+    
+    protected final void processCIIEncodingAlgorithmAsStream() throws FastInfosetException, IOException {
+        final String URI = (_identifier >= EncodingConstants.ENCODING_ALGORITHM_APPLICATION_START) ?
+            _v.encodingAlgorithm.get(_identifier - EncodingConstants.ENCODING_ALGORITHM_APPLICATION_START) : null;
+        final int length = _octetBufferLength;
+        
+        try {
+            _octetStreamHandler.octets(URI, _identifier, decodeOctetsAsInputStream(), length);
+        } catch (SAXException e) {
+            throw new FastInfosetException(e);
+        }
+        
+        skipOctetsOfInputStream();
+    }
+    
     protected final void processCIIBuiltInEncodingAlgorithmAsPrimitive() throws FastInfosetException, IOException {
         try {
             int length;
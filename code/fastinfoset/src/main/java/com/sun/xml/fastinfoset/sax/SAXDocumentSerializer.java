@@ -21,8 +21,10 @@ import com.sun.xml.fastinfoset.Encoder;
 import com.sun.xml.fastinfoset.EncodingConstants;
 import com.sun.xml.fastinfoset.QualifiedName;
 import org.jvnet.fastinfoset.sax.FastInfosetWriter;
+import org.jvnet.fastinfoset.sax.OctetStreamContentHandler;
 import com.sun.xml.fastinfoset.util.LocalNameQualifiedNamesMap;
 import java.io.IOException;
+import java.io.InputStream;
 import org.jvnet.fastinfoset.EncodingAlgorithmIndexes;
 import org.jvnet.fastinfoset.FastInfosetException;
 import org.jvnet.fastinfoset.RestrictedAlphabet;
@@ -47,7 +49,8 @@ import com.sun.xml.fastinfoset.CommonResourceBundle;
  * More than one fast infoset document may be encoded to the 
  * {@link java.io.OutputStream}.
  */
-public class SAXDocumentSerializer extends Encoder implements FastInfosetWriter {
+public class SAXDocumentSerializer extends Encoder implements FastInfosetWriter,
+        OctetStreamContentHandler {
     protected boolean _elementHasNamespaces = false;
 
     protected boolean _charactersAsCDATA = false;
@@ -116,7 +119,7 @@ public class SAXDocumentSerializer extends Encoder implements FastInfosetWriter
 
                 if (attributeCount > 0) {
                     // Flag the marked byte with attributes
-                    _octetBuffer[_markIndex] |= EncodingConstants.ELEMENT_ATTRIBUTE_FLAG;
+                    setMarkedOctetBits(EncodingConstants.ELEMENT_ATTRIBUTE_FLAG);
                 }
                 resetMark();
 
@@ -281,6 +284,25 @@ public class SAXDocumentSerializer extends Encoder implements FastInfosetWriter
     }
 
 
+    // OctetStreamContentHandler
+
+    public final void octets(String URI, int id, InputStream s, int length)  throws SAXException {
+        if (length <= 0) {
+            return;
+        }
+
+        try {
+            encodeTermination();
+
+            encodeNonIdentifyingStringOnThirdBit(URI, id, s, length);
+        } catch (IOException e) {
+            throw new SAXException(e);
+        } catch (FastInfosetException e) {
+            throw new SAXException(e);
+        }
+    }
+
+
     // PrimitiveTypeContentHandler
 
     public final void bytes(byte[] b, int start, int length) throws SAXException {
@@ -559,7 +581,7 @@ public class SAXDocumentSerializer extends Encoder implements FastInfosetWriter
             for (int i = 0; i < entry._valueIndex; i++) {
                 final QualifiedName n = names[i];
                 if ((namespaceURI == n.namespaceName || namespaceURI.equals(n.namespaceName))) {
-                    encodeNonZeroIntegerOnThirdBit(names[i].index);
+                    encodeElementQualifiedNameIndexOnThirdBit(names[i]);
                     return;
                 }
             }
@@ -575,7 +597,7 @@ public class SAXDocumentSerializer extends Encoder implements FastInfosetWriter
             QualifiedName[] names = entry._value;
             for (int i = 0; i < entry._valueIndex; i++) {
                 if ((namespaceURI == names[i].namespaceName || namespaceURI.equals(names[i].namespaceName))) {
-                    encodeNonZeroIntegerOnSecondBitFirstBitZero(names[i].index);
+                    encodeAttributeQualifiedNameIndexOnSecondBit(names[i]);
                     return true;
                 }
             }
@@ -128,7 +128,7 @@ public class SAXDocumentSerializerWithPrefixMapping extends SAXDocumentSerialize
         QualifiedName[] names = entry._value;
         for (int i = 0; i < entry._valueIndex; i++) {
             if ((namespaceURI == names[i].namespaceName || namespaceURI.equals(names[i].namespaceName))) {
-                encodeNonZeroIntegerOnThirdBit(names[i].index);
+                encodeElementQualifiedNameIndexOnThirdBit(names[i]);
                 return true;
             }
         }
@@ -235,7 +235,7 @@ public class SAXDocumentSerializerWithPrefixMapping extends SAXDocumentSerialize
         QualifiedName[] names = entry._value;
         for (int i = 0; i < entry._valueIndex; i++) {
             if ((namespaceURI == names[i].namespaceName || namespaceURI.equals(names[i].namespaceName))) {
-                encodeNonZeroIntegerOnSecondBitFirstBitZero(names[i].index);
+                encodeAttributeQualifiedNameIndexOnSecondBit(names[i]);
                 return true;
             }
         }
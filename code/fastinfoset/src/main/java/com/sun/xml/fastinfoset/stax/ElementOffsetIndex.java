@@ -0,0 +1,635 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.stax;
+
+import com.sun.xml.fastinfoset.CommonResourceBundle;
+import com.sun.xml.fastinfoset.EncodingConstants;
+import com.sun.xml.fastinfoset.QualifiedName;
+import com.sun.xml.fastinfoset.util.CharArray;
+import com.sun.xml.fastinfoset.util.ContiguousCharArrayArray;
+import com.sun.xml.fastinfoset.util.DuplicateAttributeVerifier;
+import com.sun.xml.fastinfoset.util.QualifiedNameArray;
+import com.sun.xml.fastinfoset.util.StringArray;
+import com.sun.xml.fastinfoset.vocab.ParserVocabulary;
+import com.sun.xml.fastinfoset.vocab.Vocabulary;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * An index of the positions of elements in a fast infoset document, with
+ * which parsing can start at an indexed element.
+ *
+ * <p>The decoding of an element depends on the vocabulary tables built up
+ * by the preceding part of the document. For each indexed element the index
+ * records the position of the element, the sizes of the tables and the
+ * namespaces in scope at that position. The entries added to the tables up
+ * to the last indexed element are recorded once. Parsing starts at an
+ * indexed element by decoding the header of the document, restoring the
+ * tables to their sizes at the element and skipping the input up to the
+ * element, so the time taken does not depend on the position of the
+ * element in the document.</p>
+ *
+ * <p>An index is created by parsing the first document of the input once,
+ * and may be written to, and read from, a stream such as a file kept
+ * alongside the document.</p>
+ */
+public class ElementOffsetIndex {
+
+    private static final int MAGIC = 0x46494549;
+
+    private static final int VERSION = 1;
+
+    /**
+     * The tables that may grow after the header, from PREFIX to
+     * ATTRIBUTE_NAME.
+     */
+    private static final int TABLE_COUNT = Vocabulary.ATTRIBUTE_NAME - Vocabulary.PREFIX + 1;
+
+    private final QName[] _names;
+
+    private int[] _headerSizes;
+
+    /**
+     * The entries added to the tables after the header, as strings, or as
+     * prefix, namespace name and local name indexes for the name tables.
+     */
+    private final String[][] _values = new String[TABLE_COUNT][];
+    private final int[][] _qualifiedNames = new int[TABLE_COUNT][];
+
+    /**
+     * The characters of the character content chunks added to the table
+     * after the header, and the offset of each chunk.
+     */
+    private char[] _characters;
+    private int[] _characterOffsets;
+
+    private int _size;
+    private int[] _nameIndexes = new int[16];
+    private long[] _positions = new long[16];
+    private int[][] _sizes = new int[16][];
+    private int[][] _namespaces = new int[16][];
+
+    private ElementOffsetIndex(QName[] names) {
+        _names = names;
+    }
+
+    /**
+     * Create an index of the elements, of the first document of the input
+     * of a parser, that have one of a set of names.
+     * <p>
+     * The input of the parser must be at the start of the document. The
+     * names are registered with the parser.
+     *
+     * @param parser the parser.
+     * @param names the names of the elements to index.
+     * @return the index.
+     * @throws XMLStreamException if there is an error decoding the document.
+     */
+    public static ElementOffsetIndex create(StAXDocumentParser parser, QName[] names)
+            throws XMLStreamException {
+        final ElementOffsetIndex index = new ElementOffsetIndex(names.clone());
+
+        final boolean isValueDecodingDeferred = parser.isValueDecodingDeferred();
+        parser.setValueDecodingDeferred(true);
+        try {
+            index.build(parser);
+        } finally {
+            parser.setValueDecodingDeferred(isValueDecodingDeferred);
+        }
+        return index;
+    }
+
+    /**
+     * Read an index that has been written by {@link #write}.
+     *
+     * @param s the input stream.
+     * @return the index.
+     * @throws IOException if the index cannot be read.
+     */
+    public static ElementOffsetIndex read(InputStream s) throws IOException {
+        final DataInputStream in = new DataInputStream(s);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException(CommonResourceBundle.getInstance().
+                    getString("message.invalidElementOffsetIndex"));
+        }
+
+        final QName[] names = new QName[readInt(in)];
+        for (int i = 0; i < names.length; i++) {
+            final String namespaceURI = readString(in);
+            names[i] = new QName(namespaceURI, readString(in));
+        }
+
+        final ElementOffsetIndex index = new ElementOffsetIndex(names);
+        final int[] headerSizes = index._headerSizes = new int[TABLE_COUNT];
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            headerSizes[t] = readInt(in);
+        }
+
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            final int count = readInt(in);
+            if (isNameTable(t)) {
+                final int[] qualifiedNames = index._qualifiedNames[t] = new int[count * 3];
+                for (int i = 0; i < qualifiedNames.length; i++) {
+                    qualifiedNames[i] = readInt(in);
+                }
+            } else if (Vocabulary.PREFIX + t == Vocabulary.CHARACTER_CONTENT_CHUNK) {
+                final StringBuilder b = new StringBuilder();
+                final int[] offsets = index._characterOffsets = new int[count + 1];
+                for (int i = 0; i < count; i++) {
+                    b.append(readString(in));
+                    offsets[i + 1] = b.length();
+                }
+                index._characters = new char[b.length()];
+                b.getChars(0, b.length(), index._characters, 0);
+            } else {
+                final String[] values = index._values[t] = new String[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = readString(in);
+                }
+            }
+        }
+
+        final int size = readInt(in);
+        long position = 0;
+        int[] sizes = headerSizes;
+        int[] namespaces = null;
+        for (int i = 0; i < size; i++) {
+            final int name = readInt(in);
+            position += readLong(in);
+
+            final int[] entrySizes = new int[TABLE_COUNT];
+            for (int t = 0; t < TABLE_COUNT; t++) {
+                entrySizes[t] = sizes[t] + readInt(in);
+            }
+            sizes = entrySizes;
+
+            // Zero if the namespaces are those of the previous element
+            final int length = readInt(in);
+            if (length > 0) {
+                namespaces = new int[length - 1];
+                for (int j = 0; j < namespaces.length; j++) {
+                    namespaces[j] = readInt(in) - 1;
+                }
+            } else if (namespaces == null) {
+                throw new IOException(CommonResourceBundle.getInstance().
+                        getString("message.invalidElementOffsetIndex"));
+            }
+            index.addEntry(name, position, sizes, namespaces);
+        }
+        return index;
+    }
+
+    /**
+     * Write the index.
+     * <p>
+     * Positions and table sizes are written as differences from those of
+     * the previous element, using a variable number of octets.
+     *
+     * @param s the output stream.
+     * @throws IOException if the index cannot be written.
+     */
+    public void write(OutputStream s) throws IOException {
+        final DataOutputStream out = new DataOutputStream(s);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        writeInt(out, _names.length);
+        for (int i = 0; i < _names.length; i++) {
+            writeString(out, _names[i].getNamespaceURI());
+            writeString(out, _names[i].getLocalPart());
+        }
+
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            writeInt(out, _headerSizes[t]);
+        }
+
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            if (isNameTable(t)) {
+                final int[] qualifiedNames = _qualifiedNames[t];
+                writeInt(out, qualifiedNames.length / 3);
+                for (int i = 0; i < qualifiedNames.length; i++) {
+                    writeInt(out, qualifiedNames[i]);
+                }
+            } else if (Vocabulary.PREFIX + t == Vocabulary.CHARACTER_CONTENT_CHUNK) {
+                final int count = _characterOffsets.length - 1;
+                writeInt(out, count);
+                for (int i = 0; i < count; i++) {
+                    writeString(out, new String(_characters, _characterOffsets[i],
+                            _characterOffsets[i + 1] - _characterOffsets[i]));
+                }
+            } else {
+                final String[] values = _values[t];
+                writeInt(out, values.length);
+                for (int i = 0; i < values.length; i++) {
+                    writeString(out, values[i]);
+                }
+            }
+        }
+
+        writeInt(out, _size);
+        long position = 0;
+        int[] sizes = _headerSizes;
+        for (int i = 0; i < _size; i++) {
+            writeInt(out, _nameIndexes[i]);
+            writeLong(out, _positions[i] - position);
+            position = _positions[i];
+
+            for (int t = 0; t < TABLE_COUNT; t++) {
+                writeInt(out, _sizes[i][t] - sizes[t]);
+            }
+            sizes = _sizes[i];
+
+            final int[] namespaces = _namespaces[i];
+            if (i > 0 && namespaces == _namespaces[i - 1]) {
+                writeInt(out, 0);
+            } else {
+                writeInt(out, namespaces.length + 1);
+                for (int j = 0; j < namespaces.length; j++) {
+                    writeInt(out, namespaces[j] + 1);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Get the number of indexed elements.
+     *
+     * @return the number of indexed elements.
+     */
+    public int getEntryCount() {
+        return _size;
+    }
+
+    /**
+     * Get the name of an indexed element.
+     *
+     * @param entry the index of the element, in document order.
+     * @return the name of the element.
+     */
+    public QName getName(int entry) {
+        checkEntry(entry);
+        return _names[_nameIndexes[entry]];
+    }
+
+    /**
+     * Get the position of an indexed element.
+     *
+     * @param entry the index of the element, in document order.
+     * @return the position, in octets from the start of the document, of
+     *         the element.
+     */
+    public long getPosition(int entry) {
+        checkEntry(entry);
+        return _positions[entry];
+    }
+
+    /**
+     * Start parsing an indexed element.
+     * <p>
+     * The input of the parser must be at the start of the indexed document.
+     * The next event of the parser is the START_ELEMENT of the element, and
+     * END_DOCUMENT is returned after the END_ELEMENT of the element.
+     *
+     * @param parser the parser.
+     * @param entry the index of the element, in document order.
+     * @throws XMLStreamException if there is an error decoding the document,
+     *         or the document is not the indexed document.
+     */
+    public void seek(StAXDocumentParser parser, int entry) throws XMLStreamException {
+        checkEntry(entry);
+
+        parser.decodeDocumentStart();
+        final ParserVocabulary v = parser.getParserVocabulary();
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            if (v.tables[Vocabulary.PREFIX + t].getSize() != _headerSizes[t]) {
+                throw new XMLStreamException(CommonResourceBundle.getInstance().
+                        getString("message.elementOffsetIndexMismatch"));
+            }
+        }
+        restoreTables(v, _sizes[entry]);
+
+        parser.startElementFragment(_positions[entry], _namespaces[entry]);
+    }
+
+    private void build(StAXDocumentParser parser) throws XMLStreamException {
+        final int[] handles = new int[_names.length];
+        for (int i = 0; i < _names.length; i++) {
+            handles[i] = parser.registerNameHandle(_names[i].getNamespaceURI(), _names[i].getLocalPart());
+        }
+
+        parser.decodeDocumentStart();
+        final ParserVocabulary v = parser.getParserVocabulary();
+        _headerSizes = getTableSizes(v);
+
+        // The namespace declarations of the open elements, as pairs of
+        // prefix and namespace name indexes
+        int[] declarations = new int[32];
+        int declarationCount = 0;
+        int[] declarationStarts = new int[16];
+        int depth = 0;
+
+        // The sizes of the tables before the next event is decoded, which
+        // are those at the position of an element before its name,
+        // attributes and namespace declarations add to the tables
+        final int[] sizes = _headerSizes.clone();
+
+        while (parser.hasNext()) {
+            getTableSizes(v, sizes);
+            switch (parser.next()) {
+                case XMLStreamReader.START_ELEMENT:
+                {
+                    final int handle = parser.getNameHandle();
+                    for (int i = 0; i < handles.length; i++) {
+                        if (handles[i] == handle) {
+                            int[] namespaces = getInScopeNamespaces(declarations, declarationCount);
+                            if (_size > 0 && Arrays.equals(namespaces, _namespaces[_size - 1])) {
+                                namespaces = _namespaces[_size - 1];
+                            }
+                            addEntry(i, parser._eventPosition, sizes.clone(), namespaces);
+                            break;
+                        }
+                    }
+
+                    if (depth == declarationStarts.length) {
+                        final int[] a = new int[depth * 2];
+                        System.arraycopy(declarationStarts, 0, a, 0, depth);
+                        declarationStarts = a;
+                    }
+                    declarationStarts[depth++] = declarationCount;
+
+                    for (int i = parser._currentNamespaceAIIsStart; i < parser._currentNamespaceAIIsEnd; i++) {
+                        if (declarationCount + 2 > declarations.length) {
+                            final int[] a = new int[declarations.length * 2];
+                            System.arraycopy(declarations, 0, a, 0, declarationCount);
+                            declarations = a;
+                        }
+                        final int prefixIndex = parser._namespaceAIIsPrefixIndex[i];
+                        declarations[declarationCount++] = prefixIndex;
+                        declarations[declarationCount++] = v.prefix._currentInScope[prefixIndex + 1] - 1;
+                    }
+                    break;
+                }
+                case XMLStreamReader.END_ELEMENT:
+                    declarationCount = declarationStarts[--depth];
+                    break;
+            }
+        }
+
+        // Record the entries added to the tables up to the last element
+        final int[] lastSizes = (_size > 0) ? _sizes[_size - 1] : _headerSizes;
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            final int start = _headerSizes[t];
+            final int count = lastSizes[t] - start;
+            switch (Vocabulary.PREFIX + t) {
+                case Vocabulary.PREFIX:
+                    _values[t] = new String[count];
+                    for (int i = 0; i < count; i++) {
+                        _values[t][i] = v.prefix.get(start + i);
+                    }
+                    break;
+                case Vocabulary.OTHER_STRING:
+                    _values[t] = new String[count];
+                    for (int i = 0; i < count; i++) {
+                        _values[t][i] = v.otherString.get(start + i).toString();
+                    }
+                    break;
+                case Vocabulary.CHARACTER_CONTENT_CHUNK:
+                {
+                    final ContiguousCharArrayArray a = v.characterContentChunk;
+                    _characterOffsets = new int[count + 1];
+                    for (int i = 0; i < count; i++) {
+                        _characterOffsets[i + 1] = _characterOffsets[i] + a._length[start + i];
+                    }
+                    _characters = new char[_characterOffsets[count]];
+                    for (int i = 0; i < count; i++) {
+                        System.arraycopy(a._array, a._offset[start + i], _characters, _characterOffsets[i],
+                                a._length[start + i]);
+                    }
+                    break;
+                }
+                case Vocabulary.ELEMENT_NAME:
+                case Vocabulary.ATTRIBUTE_NAME:
+                {
+                    final QualifiedName[] a = ((QualifiedNameArray)v.tables[Vocabulary.PREFIX + t])._array;
+                    final int[] qualifiedNames = _qualifiedNames[t] = new int[count * 3];
+                    for (int i = 0, j = 0; i < count; i++) {
+                        final QualifiedName name = a[start + i];
+                        qualifiedNames[j++] = name.prefixIndex;
+                        qualifiedNames[j++] = name.namespaceNameIndex;
+                        qualifiedNames[j++] = name.localNameIndex;
+                    }
+                    break;
+                }
+                default:
+                {
+                    final StringArray a = (StringArray)v.tables[Vocabulary.PREFIX + t];
+                    _values[t] = new String[count];
+                    for (int i = 0; i < count; i++) {
+                        _values[t][i] = a.get(start + i);
+                    }
+                }
+            }
+        }
+    }
+
+    private void restoreTables(ParserVocabulary v, int[] sizes) {
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            final int count = sizes[t] - _headerSizes[t];
+            switch (Vocabulary.PREFIX + t) {
+                case Vocabulary.PREFIX:
+                    for (int i = 0; i < count; i++) {
+                        v.prefix.add(_values[t][i]);
+                    }
+                    break;
+                case Vocabulary.OTHER_STRING:
+                    for (int i = 0; i < count; i++) {
+                        final String s = _values[t][i];
+                        v.otherString.add(new CharArray(s.toCharArray(), 0, s.length(), false));
+                    }
+                    break;
+                case Vocabulary.CHARACTER_CONTENT_CHUNK:
+                {
+                    // Copy the characters of the chunks at once
+                    final ContiguousCharArrayArray a = v.characterContentChunk;
+                    final int length = _characterOffsets[count];
+                    a.ensureSize(length);
+                    System.arraycopy(_characters, 0, a._array, a._arrayIndex, length);
+                    for (int i = 0; i < count; i++) {
+                        a.add(_characterOffsets[i + 1] - _characterOffsets[i]);
+                    }
+                    break;
+                }
+                case Vocabulary.ELEMENT_NAME:
+                case Vocabulary.ATTRIBUTE_NAME:
+                {
+                    final boolean isAttributeName = (Vocabulary.PREFIX + t == Vocabulary.ATTRIBUTE_NAME);
+                    final QualifiedNameArray a = (QualifiedNameArray)v.tables[Vocabulary.PREFIX + t];
+                    final int[] qualifiedNames = _qualifiedNames[t];
+                    for (int i = 0, j = 0; i < count; i++) {
+                        final int prefixIndex = qualifiedNames[j++] - 1;
+                        final int namespaceNameIndex = qualifiedNames[j++] - 1;
+                        final int localNameIndex = qualifiedNames[j++];
+                        final QualifiedName name = new QualifiedName(
+                                (prefixIndex > 0) ? v.prefix.get(prefixIndex - 1) :
+                                    (prefixIndex == 0) ? EncodingConstants.XML_NAMESPACE_PREFIX : "",
+                                (namespaceNameIndex > 0) ? v.namespaceName.get(namespaceNameIndex - 1) :
+                                    (namespaceNameIndex == 0) ? EncodingConstants.XML_NAMESPACE_NAME : "",
+                                v.localName.get(localNameIndex),
+                                0,
+                                prefixIndex,
+                                namespaceNameIndex,
+                                localNameIndex);
+                        if (isAttributeName) {
+                            name.createAttributeValues(DuplicateAttributeVerifier.MAP_SIZE);
+                        }
+                        a.add(name);
+                    }
+                    break;
+                }
+                default:
+                {
+                    final StringArray a = (StringArray)v.tables[Vocabulary.PREFIX + t];
+                    for (int i = 0; i < count; i++) {
+                        a.add(_values[t][i]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addEntry(int name, long position, int[] sizes, int[] namespaces) {
+        if (_size == _positions.length) {
+            final int length = _size * 3 / 2 + 1;
+
+            final int[] nameIndexes = new int[length];
+            System.arraycopy(_nameIndexes, 0, nameIndexes, 0, _size);
+            _nameIndexes = nameIndexes;
+
+            final long[] positions = new long[length];
+            System.arraycopy(_positions, 0, positions, 0, _size);
+            _positions = positions;
+
+            final int[][] a = new int[length][];
+            System.arraycopy(_sizes, 0, a, 0, _size);
+            _sizes = a;
+
+            final int[][] b = new int[length][];
+            System.arraycopy(_namespaces, 0, b, 0, _size);
+            _namespaces = b;
+        }
+
+        _nameIndexes[_size] = name;
+        _positions[_size] = position;
+        _sizes[_size] = sizes;
+        _namespaces[_size++] = namespaces;
+    }
+
+    private void checkEntry(int entry) {
+        if (entry < 0 || entry >= _size) {
+            throw new IndexOutOfBoundsException(Integer.toString(entry));
+        }
+    }
+
+    /**
+     * Get the namespaces in scope from the namespace declarations of the
+     * open elements, the last declaration of a prefix being in scope.
+     */
+    private static int[] getInScopeNamespaces(int[] declarations, int count) {
+        int inScopeCount = 0;
+        final int[] inScope = new int[count];
+        for (int i = count - 2; i >= 0; i -= 2) {
+            boolean isDeclared = false;
+            for (int j = 0; j < inScopeCount; j += 2) {
+                if (inScope[j] == declarations[i]) {
+                    isDeclared = true;
+                    break;
+                }
+            }
+            if (!isDeclared) {
+                inScope[inScopeCount++] = declarations[i];
+                inScope[inScopeCount++] = declarations[i + 1];
+            }
+        }
+
+        final int[] namespaces = new int[inScopeCount];
+        System.arraycopy(inScope, 0, namespaces, 0, inScopeCount);
+        return namespaces;
+    }
+
+    private static int[] getTableSizes(ParserVocabulary v) {
+        return getTableSizes(v, new int[TABLE_COUNT]);
+    }
+
+    private static int[] getTableSizes(ParserVocabulary v, int[] sizes) {
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            sizes[t] = v.tables[Vocabulary.PREFIX + t].getSize();
+        }
+        return sizes;
+    }
+
+    private static boolean isNameTable(int t) {
+        return Vocabulary.PREFIX + t >= Vocabulary.ELEMENT_NAME;
+    }
+
+    private static int readInt(DataInputStream in) throws IOException {
+        return (int)readLong(in);
+    }
+
+    private static long readLong(DataInputStream in) throws IOException {
+        long l = 0;
+        for (int shift = 0; ; shift += 7) {
+            final int b = in.readUnsignedByte();
+            l |= (long)(b & 0x7F) << shift;
+            if (b < 0x80) {
+                return l;
+            }
+        }
+    }
+
+    private static void writeInt(DataOutputStream out, int i) throws IOException {
+        writeLong(out, i & 0xFFFFFFFFL);
+    }
+
+    private static void writeLong(DataOutputStream out, long l) throws IOException {
+        while ((l & ~0x7FL) != 0) {
+            out.writeByte((int)(l & 0x7F) | 0x80);
+            l >>>= 7;
+        }
+        out.writeByte((int)l);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] b = new byte[readInt(in)];
+        in.readFully(b);
+        return new String(b, "UTF-8");
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        final byte[] b = s.getBytes("UTF-8");
+        writeInt(out, b.length);
+        out.write(b);
+    }
+}
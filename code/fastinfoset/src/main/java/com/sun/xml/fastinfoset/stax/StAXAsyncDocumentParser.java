@@ -0,0 +1,285 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.stax;
+
+import com.sun.xml.fastinfoset.CommonResourceBundle;
+import com.sun.xml.fastinfoset.DecoderStateTables;
+import com.sun.xml.fastinfoset.InformationItemScanner;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import javax.xml.stream.XMLStreamException;
+import org.jvnet.fastinfoset.FastInfosetException;
+
+/**
+ * The Fast Infoset non-blocking StAX parser.
+ * <p>
+ * Instead of reading from an {@link java.io.InputStream} the octets of a
+ * fast infoset document are fed to the parser, in chunks of any size, as
+ * they arrive using {@link #feed(ByteBuffer)}, and {@link #endOfInput()} is
+ * called when there are no more octets. {@link #next()} never blocks
+ * waiting for octets. It returns the next event when the octets of the
+ * event have been fed, otherwise it returns {@link #EVENT_INCOMPLETE}, the
+ * parser's position is unchanged and the current event remains valid:
+ * <pre>
+ *   parser.feed(chunk);
+ *   int event;
+ *   while ((event = parser.next()) != StAXAsyncDocumentParser.EVENT_INCOMPLETE) {
+ *       ...
+ *       if (event == XMLStreamConstants.END_DOCUMENT) break;
+ *   }
+ * </pre>
+ * <p>
+ * The octets that are fed are retained until the information item they
+ * contain is complete. Methods that read ahead more than one event,
+ * {@link #nextTag()}, {@link #getElementText()} and {@link #peekNext()},
+ * require the octets of those events to have been fed.
+ */
+public class StAXAsyncDocumentParser extends StAXDocumentParser {
+    /**
+     * Value returned by {@link #next()} when the octets of the next event
+     * have not all been fed.
+     */
+    public static final int EVENT_INCOMPLETE = 257;
+
+    private static final int INITIAL_FEED_BUFFER_SIZE = 1024;
+
+    private final InformationItemScanner _scanner = new InformationItemScanner();
+
+    /**
+     * Octets that have been fed and not yet read by the decoder.
+     */
+    private byte[] _feedBuffer = new byte[INITIAL_FEED_BUFFER_SIZE];
+
+    /**
+     * Offset of the next octet to be read by the decoder.
+     */
+    private int _feedOffset;
+
+    /**
+     * Offset of the end of the octets that have been fed.
+     */
+    private int _feedEnd;
+
+    /**
+     * Offset of the start of the next unit to be scanned.
+     */
+    private int _scanOffset;
+
+    /**
+     * Offset of the end of the complete information items. The decoder
+     * reads no further than this offset.
+     */
+    private int _completeEnd;
+
+    /**
+     * Offset of the end of the header and document information item
+     * properties.
+     */
+    private int _headerEnd;
+
+    private boolean _isEndOfInput;
+
+    private final InputStream _feedStream = new InputStream() {
+        @Override
+        public int read() {
+            if (_feedOffset == _completeEnd) {
+                return -1;
+            }
+            return _feedBuffer[_feedOffset++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int offset, int length) {
+            final int n = Math.min(length, _completeEnd - _feedOffset);
+            if (n <= 0) {
+                return -1;
+            }
+            System.arraycopy(_feedBuffer, _feedOffset, b, offset, n);
+            _feedOffset += n;
+            return n;
+        }
+    };
+
+    public StAXAsyncDocumentParser() {
+        resetInput();
+    }
+
+    public StAXAsyncDocumentParser(StAXManager manager) {
+        this();
+        _manager = manager;
+    }
+
+    /**
+     * Discard the octets that have been fed, and reset the parser, to parse
+     * a new document.
+     */
+    public void resetInput() {
+        setInputStream(_feedStream);
+
+        _scanner.reset();
+        _feedOffset = _feedEnd = _scanOffset = _completeEnd = _headerEnd = 0;
+        _isEndOfInput = false;
+    }
+
+    /**
+     * Feed octets of the document to the parser.
+     * <p>
+     * The remaining octets of the buffer are copied, and the position of the
+     * buffer is set to its limit.
+     *
+     * @param b the buffer of octets.
+     * @throws XMLStreamException if the octets are not a valid encoding of
+     *         a fast infoset document.
+     */
+    public void feed(ByteBuffer b) throws XMLStreamException {
+        if (_isEndOfInput) {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.feedAfterEndOfInput"));
+        }
+
+        final int length = b.remaining();
+        ensureFeedBufferCapacity(length);
+        b.get(_feedBuffer, _feedEnd, length);
+        _feedEnd += length;
+
+        scan();
+    }
+
+    /**
+     * Feed octets of the document to the parser.
+     *
+     * @param b the array of octets.
+     * @param offset the offset of the first octet.
+     * @param length the number of octets.
+     * @throws XMLStreamException if the octets are not a valid encoding of
+     *         a fast infoset document.
+     */
+    public void feed(byte[] b, int offset, int length) throws XMLStreamException {
+        feed(ByteBuffer.wrap(b, offset, length));
+    }
+
+    /**
+     * Signal that all the octets of the document have been fed.
+     * <p>
+     * Subsequent calls to {@link #next()} will report an error, rather than
+     * return {@link #EVENT_INCOMPLETE}, if the document is incomplete.
+     */
+    public void endOfInput() {
+        _isEndOfInput = true;
+        // Allow the decoder to read the octets of an incomplete item
+        _completeEnd = _feedEnd;
+    }
+
+    /**
+     * Ascertain if the octets of the next event have been fed.
+     *
+     * @return true if {@link #next()} will return an event rather than
+     *         {@link #EVENT_INCOMPLETE}.
+     */
+    public boolean isNextAvailable() {
+        if (_isEndOfInput) {
+            return true;
+        }
+
+        switch (_internalState) {
+            case INTERNAL_STATE_START_DOCUMENT:
+                // The header and the first information item are decoded
+                return _scanner.getState() != InformationItemScanner.STATE_HEADER &&
+                        _headerEnd < _completeEnd;
+            case INTERNAL_STATE_VOID:
+            case INTERNAL_STATE_SINGLE_TERMINATE_ELEMENT_WITH_NAMESPACES:
+                // Octets read by the decoder but not yet decoded remain in
+                // the octet buffer, and octets of algorithm data that have
+                // not been read from its stream are skipped
+                return _feedOffset - (_octetBufferEnd - _octetBufferOffset) + 
+                        getOctetsInputStreamRemaining() < _completeEnd;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        if (!isNextAvailable()) {
+            return EVENT_INCOMPLETE;
+        }
+        return super.next();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The children can be skipped only when all the octets of the document
+     * have been fed, see {@link #endOfInput}.
+     */
+    @Override
+    public int skipElement() throws XMLStreamException {
+        if (!_isEndOfInput) {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.skipElementBeforeEndOfInput"));
+        }
+        return super.skipElement();
+    }
+
+    private void scan() throws XMLStreamException {
+        try {
+            while (_scanner.getState() != InformationItemScanner.STATE_END &&
+                    _feedEnd - _scanOffset >= _scanner.getRequiredLength()) {
+                final boolean isHeader = _scanner.getState() == InformationItemScanner.STATE_HEADER;
+                final int end = _scanner.scan(_feedBuffer, _scanOffset, _feedEnd);
+                if (end == InformationItemScanner.INCOMPLETE) {
+                    break;
+                }
+
+                _scanOffset = end;
+                if (isHeader) {
+                    _headerEnd = _completeEnd = end;
+                    continue;
+                }
+
+                // An unexpanded entity reference is skipped by the parser
+                // and so is complete only with the information item after it
+                if (_scanner.getItemType() != DecoderStateTables.UNEXPANDED_ENTITY_REFERENCE_II) {
+                    _completeEnd = end;
+                }
+            }
+        } catch (FastInfosetException e) {
+            throw new XMLStreamException(e);
+        }
+    }
+
+    private void ensureFeedBufferCapacity(int length) {
+        if (_feedBuffer.length - _feedEnd >= length) {
+            return;
+        }
+
+        // Discard the octets that have been read by the decoder
+        final int discard = _feedOffset;
+        final int retained = _feedEnd - discard;
+        byte[] buffer = _feedBuffer;
+        if (buffer.length - retained < length) {
+            buffer = new byte[Math.max(buffer.length * 2, retained + length)];
+        }
+        System.arraycopy(_feedBuffer, discard, buffer, 0, retained);
+        _feedBuffer = buffer;
+
+        _feedOffset = 0;
+        _feedEnd -= discard;
+        _scanOffset -= discard;
+        _completeEnd -= discard;
+        _headerEnd -= discard;
+    }
+}
@@ -26,8 +26,11 @@ import com.sun.xml.fastinfoset.algorithm.BuiltInEncodingAlgorithmFactory;
 import com.sun.xml.fastinfoset.sax.AttributesHolder;
 import com.sun.xml.fastinfoset.util.CharArray;
 import com.sun.xml.fastinfoset.util.CharArrayString;
+import com.sun.xml.fastinfoset.vocab.ParserVocabulary;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import javax.xml.namespace.NamespaceContext;
@@ -118,6 +121,66 @@ public class StAXDocumentParser extends Decoder
     protected int _algorithmDataOffset;
     protected int _algorithmDataLength;
     
+    /**
+     * True if the octets of base64, hexadecimal and application-defined 
+     * encoding algorithm data are read as a stream.
+     */
+    protected boolean _isAlgorithmDataStreamed;
+    
+    /**
+     * The stream of the octets of the encoding algorithm data of the 
+     * current event, or null if the octets are not read as a stream.
+     */
+    protected InputStream _algorithmDataStream;
+    
+    /**
+     * True if the decoding of UTF-8 and UTF-16 encoded character content 
+     * and attribute values is deferred until they are accessed.
+     */
+    protected boolean _isValueDecodingDeferred;
+    
+    /**
+     * The octets of the deferred character content of the current event.
+     * The octets are in the array, or in <code>_deferredOctets</code> if
+     * the array is null.
+     */
+    private boolean _isTextDeferred;
+    private boolean _isDeferredTextUtf8;
+    private byte[] _deferredTextOctets;
+    private int _deferredTextOffset;
+    private int _deferredTextLength;
+    
+    /**
+     * The octets of the deferred attribute values, indexed by attribute,
+     * of the current event. The value of an attribute is deferred if the 
+     * length is greater than zero.
+     */
+    private int _deferredAttributeCount;
+    private boolean[] _isDeferredAttributeUtf8 = new boolean[0];
+    private byte[][] _deferredAttributeOctets = new byte[0][];
+    private int[] _deferredAttributeOffsets = new int[0];
+    private int[] _deferredAttributeLengths = new int[0];
+    
+    /**
+     * The deferred octets that have been copied from the buffer before
+     * the buffer was overwritten.
+     */
+    private byte[] _deferredOctets;
+    private int _deferredOctetsLength;
+    
+    /**
+     * The position in the input of the first octet of the information 
+     * item of the current event.
+     */
+    long _eventPosition;
+    
+    /**
+     * True if an element, started at a position of the document by 
+     * {@link ElementOffsetIndex}, is being parsed as if it were the 
+     * document element.
+     */
+    private boolean _isElementFragment;
+    
     /**
      * State for processing instruction
      */
@@ -152,6 +215,18 @@ public class StAXDocumentParser extends Decoder
         reset();
     }
     
+    @Override
+    public void setInputBuffer(ByteBuffer b) {
+        super.setInputBuffer(b);
+        reset();
+    }
+    
+    @Override
+    public void setInputChannel(FileChannel channel, long position, long size) {
+        super.setInputChannel(channel, position, size);
+        reset();
+    }
+    
     @Override
     public void reset() {
         super.reset();
@@ -167,8 +242,11 @@ public class StAXDocumentParser extends Decoder
             _namespaceAIIsIndex = 0;
             _characters = null;
             _algorithmData = null;
+            _algorithmDataStream = null;
+            clearDeferredValues();
         }
         
+        _isElementFragment = false;
         _characterEncodingScheme = "UTF-8";
         _eventType = START_DOCUMENT;
         _internalState = INTERNAL_STATE_START_DOCUMENT;
@@ -187,7 +265,10 @@ public class StAXDocumentParser extends Decoder
         _namespaceAIIsIndex = 0;
         _characters = null;
         _algorithmData = null;
+        _algorithmDataStream = null;
+        clearDeferredValues();
         
+        _isElementFragment = false;
         _eventType = START_DOCUMENT;
         _internalState = INTERNAL_STATE_START_DOCUMENT;
     }
@@ -204,6 +285,13 @@ public class StAXDocumentParser extends Decoder
     
     public int next() throws XMLStreamException {
         try {
+            if (_algorithmDataStream != null) {
+                skipAlgorithmDataStream();
+            }
+            if (_isValueDecodingDeferred) {
+                clearDeferredValues();
+            }
+            
             if (_internalState != INTERNAL_STATE_VOID) {
                 switch (_internalState) {
                     case INTERNAL_STATE_START_DOCUMENT:
@@ -243,6 +331,9 @@ public class StAXDocumentParser extends Decoder
                         }
                         
                         if (_stackCount == -1) {
+                            if (_isElementFragment) {
+                                return endElementFragment();
+                            }
                             _internalState = INTERNAL_STATE_END_DOCUMENT;
                             return _eventType = END_DOCUMENT;
                         }
@@ -259,12 +350,17 @@ public class StAXDocumentParser extends Decoder
                 }
             }
             
+            if (_stackCount == -1 && _eventType == END_ELEMENT && _isElementFragment) {
+                return endElementFragment();
+            }
+            
             // Reset internal state
             _characters = null;
             _algorithmData = null;
             _currentNamespaceAIIsEnd = 0;
             
             // Process information item
+            _eventPosition = getInputPosition();
             final int b = read();
             switch(DecoderStateTables.EII(b)) {
                 case DecoderStateTables.EII_NO_AIIS_INDEX_SMALL:
@@ -354,8 +450,13 @@ public class StAXDocumentParser extends Decoder
                     final int b2 = read();
                     _algorithmId |= (b2 & 0xFC) >> 2;
                     
-                    decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit(b2);
-                    processCIIEncodingAlgorithm(addToTable);
+                    if (!addToTable && isCIIEncodingAlgorithmStreamed()) {
+                        decodeOctetsLengthOnSeventhBitOfNonIdentifyingStringOnThirdBit(b2);
+                        processCIIEncodingAlgorithmAsStream();
+                    } else {
+                        decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit(b2);
+                        processCIIEncodingAlgorithm(addToTable);
+                    }
                     
                     if (_algorithmId == EncodingAlgorithmIndexes.CDATA) {
                         return _eventType = CDATA;
@@ -423,29 +524,9 @@ public class StAXDocumentParser extends Decoder
                     return next();
                 }
                 case DecoderStateTables.TERMINATOR_DOUBLE:
-                    if (_stackCount != -1) {
-                        // Pop information off the stack
-                        popStack();
-                        
-                        _internalState = INTERNAL_STATE_DOUBLE_TERMINATE_ELEMENT;
-                        return _eventType = END_ELEMENT;
-                    }
-                    
-                    _internalState = INTERNAL_STATE_END_DOCUMENT;
-                    return _eventType = END_DOCUMENT;
+                    return processTerminatorDouble();
                 case DecoderStateTables.TERMINATOR_SINGLE:
-                    if (_stackCount != -1) {
-                        // Pop information off the stack
-                        popStack();
-                        
-                        if (_currentNamespaceAIIsEnd > 0) {
-                            _internalState = INTERNAL_STATE_SINGLE_TERMINATE_ELEMENT_WITH_NAMESPACES;
-                        }
-                        return _eventType = END_ELEMENT;
-                    }
-                    
-                    _internalState = INTERNAL_STATE_END_DOCUMENT;
-                    return _eventType = END_DOCUMENT;
+                    return processTerminatorSingle();
                 default:
                     throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.IllegalStateDecodingEII"));
             }
@@ -464,6 +545,34 @@ public class StAXDocumentParser extends Decoder
         }
     }
     
+    private int processTerminatorDouble() {
+        if (_stackCount != -1) {
+            // Pop information off the stack
+            popStack();
+            
+            _internalState = INTERNAL_STATE_DOUBLE_TERMINATE_ELEMENT;
+            return _eventType = END_ELEMENT;
+        }
+        
+        _internalState = INTERNAL_STATE_END_DOCUMENT;
+        return _eventType = END_DOCUMENT;
+    }
+    
+    private int processTerminatorSingle() {
+        if (_stackCount != -1) {
+            // Pop information off the stack
+            popStack();
+            
+            if (_currentNamespaceAIIsEnd > 0) {
+                _internalState = INTERNAL_STATE_SINGLE_TERMINATE_ELEMENT_WITH_NAMESPACES;
+            }
+            return _eventType = END_ELEMENT;
+        }
+        
+        _internalState = INTERNAL_STATE_END_DOCUMENT;
+        return _eventType = END_DOCUMENT;
+    }
+    
     private final void processUtf8CharacterString(final int b) throws IOException {
         if ((b & EncodingConstants.CHARACTER_CHUNK_ADD_TO_TABLE_FLAG) > 0) {
             _characterContentChunkTable.ensureSize(_octetBufferLength);
@@ -471,6 +580,8 @@ public class StAXDocumentParser extends Decoder
             _charactersOffset = _characterContentChunkTable._arrayIndex;
             decodeUtf8StringAsCharBuffer(_characterContentChunkTable._array, _charactersOffset);
             _characterContentChunkTable.add(_charBufferLength);
+        } else if (_isValueDecodingDeferred) {
+            deferCharacterString(true);
         } else {
             decodeUtf8StringAsCharBuffer();
             _characters = _charBuffer;
@@ -479,6 +590,11 @@ public class StAXDocumentParser extends Decoder
     }
     
     private final void processUtf16CharacterString(final int b) throws IOException {
+        if ((b & EncodingConstants.CHARACTER_CHUNK_ADD_TO_TABLE_FLAG) == 0 && _isValueDecodingDeferred) {
+            deferCharacterString(false);
+            return;
+        }
+        
         decodeUtf16StringAsCharBuffer();
         if ((b & EncodingConstants.CHARACTER_CHUNK_ADD_TO_TABLE_FLAG) > 0) {
             _charactersOffset = _characterContentChunkTable.add(_charBuffer, _charBufferLength);
@@ -489,6 +605,15 @@ public class StAXDocumentParser extends Decoder
         }
     }
     
+    private void deferCharacterString(boolean isUtf8) throws IOException {
+        skipStringOctets();
+        _isTextDeferred = true;
+        _isDeferredTextUtf8 = isUtf8;
+        _deferredTextOctets = _octetBuffer;
+        _deferredTextOffset = _octetBufferStart;
+        _deferredTextLength = _octetBufferLength;
+    }
+    
     private final void popStack() {
         // Pop information off the stack
         _qualifiedName = _qNameStack[_stackCount];
@@ -612,6 +737,7 @@ public class StAXDocumentParser extends Decoder
             super.closeIfRequired();
         } catch (IOException ex) {
         }
+        releaseInput();
     }
     
     public final String getNamespaceURI(String prefix) {
@@ -671,13 +797,13 @@ public class StAXDocumentParser extends Decoder
             for (int i = 0; i < _attributes.getLength(); i++) {
                 if (_attributes.getLocalName(i).equals(localName) &&
                         _attributes.getURI(i).equals(namespaceURI)) {
-                    return _attributes.getValue(i);
+                    return getAttributeValueOfIndex(i);
                 }
             }
         } else {
             for (int i = 0; i < _attributes.getLength(); i++) {
                 if (_attributes.getLocalName(i).equals(localName)) {
-                    return _attributes.getValue(i);
+                    return getAttributeValueOfIndex(i);
                 }
             }
         }
@@ -700,6 +826,13 @@ public class StAXDocumentParser extends Decoder
         return _attributes.getQualifiedName(index).getQName();
     }
     
+    public final int getAttributeNameHandle(int index) {
+        if (_eventType != START_ELEMENT) {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.invalidCallingGetAttributeValue"));
+        }
+        return getAttributeNameHandle(_attributes.getQualifiedName(index));
+    }
+    
     public final String getAttributeNamespace(int index) {
         if (_eventType != START_ELEMENT) {
             throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.invalidCallingGetAttributeValue"));
@@ -733,6 +866,14 @@ public class StAXDocumentParser extends Decoder
         if (_eventType != START_ELEMENT) {
             throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.invalidCallingGetAttributeValue"));
         }
+        return getAttributeValueOfIndex(index);
+    }
+    
+    private String getAttributeValueOfIndex(int index) {
+        if (_deferredAttributeCount > 0 && index < _deferredAttributeLengths.length &&
+                _deferredAttributeLengths[index] > 0) {
+            decodeDeferredAttributeValue(index);
+        }
         return _attributes.getValue(index);
     }
     
@@ -825,6 +966,13 @@ public class StAXDocumentParser extends Decoder
     }
     
     protected final void checkTextState() {
+        if (_isTextDeferred) {
+            decodeDeferredText();
+            return;
+        }
+        if (_algorithmDataStream != null) {
+            decodeAlgorithmDataStream();
+        }
         if (_algorithmData == null) {
             throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.InvalidStateForText"));
         }
@@ -841,7 +989,7 @@ public class StAXDocumentParser extends Decoder
     }
     
     public final boolean hasText() {
-        return (_characters != null);
+        return (_characters != null || _isTextDeferred);
     }
     
     public final Location getLocation() {
@@ -866,6 +1014,14 @@ public class StAXDocumentParser extends Decoder
         }
     }
     
+    public final int getNameHandle() {
+        if (_eventType == START_ELEMENT || _eventType == END_ELEMENT) {
+            return getElementNameHandle(_qualifiedName);
+        } else {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.invalidCallingGetNameHandle"));
+        }
+    }
+    
     public final boolean hasName() {
         return (_eventType == START_ELEMENT || _eventType == END_ELEMENT);
     }
@@ -946,7 +1102,91 @@ public class StAXDocumentParser extends Decoder
     }
     
     public final boolean hasTextAlgorithmBytes() {
-        return _algorithmData != null;
+        return _algorithmData != null || _algorithmDataStream != null;
+    }
+    
+    /**
+     * Set if the octets of encoding algorithm data are read as a stream.
+     * <p>
+     * If true then the octets of character content that is encoded using 
+     * the base64, hexadecimal or an application-defined encoding algorithm,
+     * that is not registered with the parser, are not buffered when the 
+     * event is returned. The octets may be read using 
+     * {@link #getTextAlgorithmStream}, and the octets that are not read are
+     * skipped by {@link #next}, so the parser never buffers all the octets
+     * however large they are. If the octets, or text, are 
+     * obtained by any other method before the stream is read then the 
+     * octets are buffered.
+     * <p>
+     * Character content that is to be added to the character content chunk
+     * table of the vocabulary is always buffered.
+     *
+     * @param isAlgorithmDataStreamed true if the octets are read as a stream.
+     */
+    public void setAlgorithmDataStreamed(boolean isAlgorithmDataStreamed) {
+        _isAlgorithmDataStreamed = isAlgorithmDataStreamed;
+    }
+    
+    /**
+     * Ascertain if the octets of encoding algorithm data are read as a 
+     * stream.
+     *
+     * @return true if the octets are read as a stream.
+     */
+    public boolean isAlgorithmDataStreamed() {
+        return _isAlgorithmDataStreamed;
+    }
+    
+    /**
+     * Set if the decoding of character content and attribute values is
+     * deferred until they are accessed.
+     * <p>
+     * If true then the octets of UTF-8 and UTF-16 encoded character 
+     * content and attribute values are not decoded when the event is 
+     * returned. The octets are decoded when the text or value is obtained,
+     * so the values that are skipped are never decoded. An error decoding
+     * a deferred value results in an IllegalStateException when the value
+     * is obtained.
+     * <p>
+     * Character content and attribute values that are to be added to the
+     * vocabulary are always decoded. Deferred attribute values that have 
+     * not been obtained when {@link #next} is called are not decoded and 
+     * are not available from the {@link AttributesHolder} of the parser.
+     *
+     * @param isValueDecodingDeferred true if the decoding of values is 
+     *        deferred.
+     */
+    public void setValueDecodingDeferred(boolean isValueDecodingDeferred) {
+        if (!isValueDecodingDeferred) {
+            decodeDeferredValues();
+        }
+        _isValueDecodingDeferred = isValueDecodingDeferred;
+        _octetBufferListener = (isValueDecodingDeferred) ? this : null;
+    }
+    
+    /**
+     * Ascertain if the decoding of character content and attribute values
+     * is deferred until they are accessed.
+     *
+     * @return true if the decoding of values is deferred.
+     */
+    public boolean isValueDecodingDeferred() {
+        return _isValueDecodingDeferred;
+    }
+    
+    /**
+     * Get the stream of the octets of the encoding algorithm data of the 
+     * current event.
+     * <p>
+     * The stream is valid until {@link #next} or {@link #peekNext} is 
+     * called.
+     *
+     * @return the stream of octets, or null if the octets are not read as
+     *         a stream or have been buffered.
+     * @see #setAlgorithmDataStreamed
+     */
+    public final InputStream getTextAlgorithmStream() {
+        return _algorithmDataStream;
     }
     
     
@@ -959,6 +1199,9 @@ public class StAXDocumentParser extends Decoder
     public final byte[] getTextAlgorithmBytes() {
         // Do not return the actual _algorithmData due to security reasons
 //        return _algorithmData;
+        if (_algorithmDataStream != null) {
+            decodeAlgorithmDataStream();
+        }
         if (_algorithmData == null) {
             return null;
         }
@@ -969,6 +1212,9 @@ public class StAXDocumentParser extends Decoder
     }
     
     public final byte[] getTextAlgorithmBytesClone() {
+        if (_algorithmDataStream != null) {
+            decodeAlgorithmDataStream();
+        }
         if (_algorithmData == null) {
             return null;
         }
@@ -979,6 +1225,9 @@ public class StAXDocumentParser extends Decoder
     }
     
     public final int getTextAlgorithmStart() {
+        if (_algorithmDataStream != null) {
+            decodeAlgorithmDataStream();
+        }
         return _algorithmDataOffset;
     }
     
@@ -988,6 +1237,9 @@ public class StAXDocumentParser extends Decoder
     
     public final int getTextAlgorithmBytes(int sourceStart, byte[] target,
             int targetStart, int length) throws XMLStreamException {
+        if (_algorithmDataStream != null) {
+            decodeAlgorithmDataStream();
+        }
         try {
             System.arraycopy(_algorithmData, sourceStart, target,
                     targetStart, length);
@@ -1001,6 +1253,13 @@ public class StAXDocumentParser extends Decoder
     
     public final int peekNext() throws XMLStreamException {
         try {
+            if (_algorithmDataStream != null) {
+                skipAlgorithmDataStream();
+            }
+            if (_stackCount == -1 && _eventType == END_ELEMENT && _isElementFragment) {
+                return END_DOCUMENT;
+            }
+            
             switch(DecoderStateTables.EII(peek(this))) {
                 case DecoderStateTables.EII_NO_AIIS_INDEX_SMALL:
                 case DecoderStateTables.EII_AIIS_INDEX_SMALL:
@@ -1042,12 +1301,565 @@ public class StAXDocumentParser extends Decoder
         }
     }
     
+    public int skipElement() throws XMLStreamException {
+        if (_eventType != START_ELEMENT) {
+            throw new XMLStreamException(
+                    CommonResourceBundle.getInstance().getString("message.mustBeOnSTARTELEMENT"), getLocation());
+        }
+        
+        if (_internalState != INTERNAL_STATE_VOID) {
+            // The element has no children
+            return next();
+        }
+        
+        try {
+            if (_isValueDecodingDeferred) {
+                clearDeferredValues();
+            }
+            _clearAttributes = true;
+            _currentNamespaceAIIsEnd = 0;
+            
+            // The number of descendants of the element that are open
+            int depth = 0;
+            while (true) {
+                final int b = read();
+                switch(DecoderStateTables.EII(b)) {
+                    case DecoderStateTables.EII_NO_AIIS_INDEX_SMALL:
+                    case DecoderStateTables.EII_AIIS_INDEX_SMALL:
+                    case DecoderStateTables.EII_INDEX_MEDIUM:
+                    case DecoderStateTables.EII_INDEX_LARGE:
+                    case DecoderStateTables.EII_LITERAL:
+                        depth += skipEII(b, (b & EncodingConstants.ELEMENT_ATTRIBUTE_FLAG) > 0);
+                        break;
+                    case DecoderStateTables.EII_NAMESPACES:
+                    {
+                        skipNamespaceAIIs();
+                        final int b2 = read();
+                        if (DecoderStateTables.EII(b2) == DecoderStateTables.EII_AIIS_INDEX_SMALL) {
+                            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.IllegalStateDecodingEIIAfterAIIs"));
+                        }
+                        depth += skipEII(b2, (b & EncodingConstants.ELEMENT_ATTRIBUTE_FLAG) > 0);
+                        break;
+                    }
+                    case DecoderStateTables.CII_UTF8_SMALL_LENGTH:
+                    case DecoderStateTables.CII_UTF16_SMALL_LENGTH:
+                        _octetBufferLength = (b & EncodingConstants.OCTET_STRING_LENGTH_7TH_BIT_SMALL_MASK)
+                        + 1;
+                        skipCharacterString(b);
+                        break;
+                    case DecoderStateTables.CII_UTF8_MEDIUM_LENGTH:
+                    case DecoderStateTables.CII_UTF16_MEDIUM_LENGTH:
+                        _octetBufferLength = read() + EncodingConstants.OCTET_STRING_LENGTH_7TH_BIT_SMALL_LIMIT;
+                        skipCharacterString(b);
+                        break;
+                    case DecoderStateTables.CII_UTF8_LARGE_LENGTH:
+                    case DecoderStateTables.CII_UTF16_LARGE_LENGTH:
+                        _octetBufferLength = ((read() << 24) |
+                                (read() << 16) |
+                                (read() << 8) |
+                                read())
+                                + EncodingConstants.OCTET_STRING_LENGTH_7TH_BIT_MEDIUM_LIMIT;
+                        skipCharacterString(b);
+                        break;
+                    case DecoderStateTables.CII_RA:
+                    {
+                        final boolean addToTable = (b & EncodingConstants.CHARACTER_CHUNK_ADD_TO_TABLE_FLAG) > 0;
+                        
+                        _identifier = (b & 0x02) << 6;
+                        final int b2 = read();
+                        _identifier |= (b2 & 0xFC) >> 2;
+                        
+                        if (addToTable) {
+                            decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit(b2);
+                            decodeRestrictedAlphabetAsCharBuffer();
+                            _characterContentChunkTable.add(_charBuffer, _charBufferLength);
+                        } else {
+                            decodeOctetsLengthOnSeventhBitOfNonIdentifyingStringOnThirdBit(b2);
+                            skipOctets();
+                        }
+                        break;
+                    }
+                    case DecoderStateTables.CII_EA:
+                    {
+                        final boolean addToTable = (b & EncodingConstants.CHARACTER_CHUNK_ADD_TO_TABLE_FLAG) > 0;
+                        
+                        _algorithmId = (b & 0x02) << 6;
+                        final int b2 = read();
+                        _algorithmId |= (b2 & 0xFC) >> 2;
+                        
+                        if (addToTable) {
+                            decodeOctetsOnSeventhBitOfNonIdentifyingStringOnThirdBit(b2);
+                            processCIIEncodingAlgorithm(true);
+                            _characters = null;
+                            _algorithmData = null;
+                        } else {
+                            decodeOctetsLengthOnSeventhBitOfNonIdentifyingStringOnThirdBit(b2);
+                            skipOctets();
+                        }
+                        break;
+                    }
+                    case DecoderStateTables.CII_INDEX_SMALL:
+                        break;
+                    case DecoderStateTables.CII_INDEX_MEDIUM:
+                        read();
+                        break;
+                    case DecoderStateTables.CII_INDEX_LARGE:
+                        read();
+                        read();
+                        break;
+                    case DecoderStateTables.CII_INDEX_LARGE_LARGE:
+                        read();
+                        read();
+                        read();
+                        break;
+                    case DecoderStateTables.COMMENT_II:
+                    {
+                        final int type = decodeNonIdentifyingStringOnFirstBit();
+                        if (type == NISTRING_ENCODING_ALGORITHM) {
+                            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.commentIIAlgorithmNotSupported"));
+                        }
+                        skipOtherString(type);
+                        break;
+                    }
+                    case DecoderStateTables.PROCESSING_INSTRUCTION_II:
+                    {
+                        decodeIdentifyingNonEmptyStringOnFirstBit(_v.otherNCName);
+                        final int type = decodeNonIdentifyingStringOnFirstBit();
+                        if (type == NISTRING_ENCODING_ALGORITHM) {
+                            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.processingIIWithEncodingAlgorithm"));
+                        }
+                        skipOtherString(type);
+                        break;
+                    }
+                    case DecoderStateTables.UNEXPANDED_ENTITY_REFERENCE_II:
+                        decodeIdentifyingNonEmptyStringOnFirstBit(_v.otherNCName);
+                        if ((b & EncodingConstants.UNEXPANDED_ENTITY_SYSTEM_IDENTIFIER_FLAG) > 0) {
+                            decodeIdentifyingNonEmptyStringOnFirstBit(_v.otherURI);
+                        }
+                        if ((b & EncodingConstants.UNEXPANDED_ENTITY_PUBLIC_IDENTIFIER_FLAG) > 0) {
+                            decodeIdentifyingNonEmptyStringOnFirstBit(_v.otherURI);
+                        }
+                        break;
+                    case DecoderStateTables.TERMINATOR_DOUBLE:
+                        if (depth == 0) {
+                            // Terminates the element and its parent
+                            return processTerminatorDouble();
+                        } else if (depth == 1) {
+                            // Terminates a child and the element
+                            return processTerminatorSingle();
+                        }
+                        depth -= 2;
+                        break;
+                    case DecoderStateTables.TERMINATOR_SINGLE:
+                        if (depth == 0) {
+                            return processTerminatorSingle();
+                        }
+                        depth--;
+                        break;
+                    default:
+                        throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.IllegalStateDecodingEII"));
+                }
+            }
+        } catch (IOException e) {
+            resetOnError();
+            logger.log(Level.FINE, "skipElement() exception", e);
+            throw new XMLStreamException(e);
+        } catch (FastInfosetException e) {
+            resetOnError();
+            logger.log(Level.FINE, "skipElement() exception", e);
+            throw new XMLStreamException(e);
+        } catch (RuntimeException e) {
+            resetOnError();
+            logger.log(Level.FINE, "skipElement() exception", e);
+            throw e;
+        }
+    }
+    
+    // -- Element offset index and document splitter support ---------------
+    
+    /**
+     * Get the position in the input of the next octet to be decoded.
+     */
+    final long getNextInputPosition() {
+        return getInputPosition();
+    }
+    
+    /**
+     * Decode the header and the document properties, so that the next event
+     * is the first child of the document.
+     */
+    final void decodeDocumentStart() throws XMLStreamException {
+        if (_internalState != INTERNAL_STATE_START_DOCUMENT) {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().
+                    getString("message.notAtStartOfDocument"));
+        }
+        
+        try {
+            decodeHeader();
+            processDII();
+            _internalState = INTERNAL_STATE_VOID;
+        } catch (IOException e) {
+            resetOnError();
+            throw new XMLStreamException(e);
+        } catch (FastInfosetException e) {
+            resetOnError();
+            throw new XMLStreamException(e);
+        }
+    }
+    
+    final ParserVocabulary getParserVocabulary() {
+        return _v;
+    }
+    
+    /**
+     * Start parsing an element at a position of the document, after the 
+     * document start has been decoded and the tables have been restored to
+     * their state at that position. The element is parsed as if it were the 
+     * document element, so END_DOCUMENT is returned after its END_ELEMENT.
+     *
+     * @param position the position of the element.
+     * @param namespaces the prefix and namespace name table indexes of 
+     *        each namespace that is in scope for the element, excluding
+     *        those declared by the element.
+     */
+    final void startElementFragment(long position, int[] namespaces) throws XMLStreamException {
+        try {
+            if (++_prefixTable._declarationId == Integer.MAX_VALUE) {
+                _prefixTable.clearDeclarationIds();
+            }
+            
+            for (int i = 0; i < namespaces.length; i += 2) {
+                final int prefixIndex = namespaces[i];
+                final int namespaceNameIndex = namespaces[i + 1];
+                // Index zero is the xml prefix and namespace name
+                final String prefix = (prefixIndex > 0) ? _prefixTable.get(prefixIndex - 1) : 
+                    (prefixIndex == 0) ? EncodingConstants.XML_NAMESPACE_PREFIX : "";
+                final String namespaceName = (namespaceNameIndex > 0) ? 
+                    _v.namespaceName.get(namespaceNameIndex - 1) : 
+                    (namespaceNameIndex == 0) ? EncodingConstants.XML_NAMESPACE_NAME : "";
+                
+                if (_namespaceAIIsIndex == _namespaceAIIsPrefix.length) {
+                    resizeNamespaceAIIs();
+                }
+                _namespaceAIIsPrefix[_namespaceAIIsIndex] = prefix;
+                _namespaceAIIsNamespaceName[_namespaceAIIsIndex] = namespaceName;
+                _namespaceAIIsPrefixIndex[_namespaceAIIsIndex++] = prefixIndex;
+                _prefixTable.pushScopeWithPrefixEntry(prefix, namespaceName, 
+                        prefixIndex, namespaceNameIndex);
+            }
+            
+            skipInputTo(position);
+            _isElementFragment = true;
+        } catch (IOException e) {
+            resetOnError();
+            throw new XMLStreamException(e);
+        } catch (FastInfosetException e) {
+            resetOnError();
+            throw new XMLStreamException(e);
+        }
+    }
+    
+    private int endElementFragment() {
+        // Undeclare the namespaces in scope of the element
+        for (int i = _namespaceAIIsIndex - 1; i >= 0; i--) {
+            _prefixTable.popScopeWithPrefixEntry(_namespaceAIIsPrefixIndex[i]);
+        }
+        _namespaceAIIsIndex = 0;
+        _isElementFragment = false;
+        
+        _internalState = INTERNAL_STATE_END_DOCUMENT;
+        return _eventType = END_DOCUMENT;
+    }
+    
+    /**
+     * Skip the name and attributes of an element that is a descendant of 
+     * the element being skipped.
+     *
+     * @return 1 if the element has children, otherwise 0.
+     */
+    private int skipEII(int b, boolean hasAttributes) throws FastInfosetException, IOException {
+        switch(DecoderStateTables.EII(b)) {
+            case DecoderStateTables.EII_NO_AIIS_INDEX_SMALL:
+            case DecoderStateTables.EII_AIIS_INDEX_SMALL:
+                break;
+            case DecoderStateTables.EII_INDEX_MEDIUM:
+                processEIIIndexMedium(b);
+                break;
+            case DecoderStateTables.EII_INDEX_LARGE:
+                processEIIIndexLarge(b);
+                break;
+            case DecoderStateTables.EII_LITERAL:
+                _elementNameTable.add(processLiteralQualifiedName(
+                        b & EncodingConstants.LITERAL_QNAME_PREFIX_NAMESPACE_NAME_MASK,
+                        _elementNameTable.getNext()));
+                break;
+            default:
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.IllegalStateDecodingEIIAfterAIIs"));
+        }
+        
+        return (hasAttributes && skipAIIs()) ? 0 : 1;
+    }
+    
+    private void skipNamespaceAIIs() throws FastInfosetException, IOException {
+        // The declarations are added to the vocabulary but are not in scope, 
+        // since the names of skipped elements are not checked
+        int b = read();
+        while ((b & EncodingConstants.NAMESPACE_ATTRIBUTE_MASK) == EncodingConstants.NAMESPACE_ATTRIBUTE) {
+            switch (b & EncodingConstants.NAMESPACE_ATTRIBUTE_PREFIX_NAME_MASK) {
+                case 1:
+                    decodeIdentifyingNonEmptyStringOnFirstBitAsNamespaceName(false);
+                    break;
+                case 2:
+                    decodeIdentifyingNonEmptyStringOnFirstBitAsPrefix(false);
+                    break;
+                case 3:
+                    decodeIdentifyingNonEmptyStringOnFirstBitAsPrefix(true);
+                    decodeIdentifyingNonEmptyStringOnFirstBitAsNamespaceName(true);
+                    break;
+            }
+            b = read();
+        }
+        if (b != EncodingConstants.TERMINATOR) {
+            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.EIInamespaceNameNotTerminatedCorrectly"));
+        }
+    }
+    
+    /**
+     * Skip the attributes of an element that is a descendant of the element
+     * being skipped.
+     *
+     * @return true if the attributes are terminated by a double terminator,
+     *         which also terminates the element.
+     */
+    private boolean skipAIIs() throws FastInfosetException, IOException {
+        while (true) {
+            final int b = read();
+            QualifiedName name;
+            switch (DecoderStateTables.AII(b)) {
+                case DecoderStateTables.AII_INDEX_SMALL:
+                    name = _attributeNameTable._array[b];
+                    break;
+                case DecoderStateTables.AII_INDEX_MEDIUM:
+                {
+                    final int i = (((b & EncodingConstants.INTEGER_2ND_BIT_MEDIUM_MASK) << 8) | read())
+                    + EncodingConstants.INTEGER_2ND_BIT_SMALL_LIMIT;
+                    name = _attributeNameTable._array[i];
+                    break;
+                }
+                case DecoderStateTables.AII_INDEX_LARGE:
+                {
+                    final int i = (((b & EncodingConstants.INTEGER_2ND_BIT_LARGE_MASK) << 16) | (read() << 8) | read())
+                    + EncodingConstants.INTEGER_2ND_BIT_MEDIUM_LIMIT;
+                    name = _attributeNameTable._array[i];
+                    break;
+                }
+                case DecoderStateTables.AII_LITERAL:
+                    name = processLiteralQualifiedName(
+                            b & EncodingConstants.LITERAL_QNAME_PREFIX_NAMESPACE_NAME_MASK,
+                            _attributeNameTable.getNext());
+                    name.createAttributeValues(DuplicateAttributeVerifier.MAP_SIZE);
+                    _attributeNameTable.add(name);
+                    break;
+                case DecoderStateTables.AII_TERMINATOR_DOUBLE:
+                    return true;
+                case DecoderStateTables.AII_TERMINATOR_SINGLE:
+                    return false;
+                default:
+                    throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.decodingAIIs"));
+            }
+            
+            skipAttributeValue(name);
+        }
+    }
+    
+    private void skipAttributeValue(QualifiedName name) throws FastInfosetException, IOException {
+        final int b = read();
+        switch(DecoderStateTables.NISTRING(b)) {
+            case DecoderStateTables.NISTRING_UTF8_SMALL_LENGTH:
+            case DecoderStateTables.NISTRING_UTF16_SMALL_LENGTH:
+                _octetBufferLength = (b & EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_SMALL_MASK) + 1;
+                break;
+            case DecoderStateTables.NISTRING_UTF8_MEDIUM_LENGTH:
+            case DecoderStateTables.NISTRING_UTF16_MEDIUM_LENGTH:
+                _octetBufferLength = read() + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_SMALL_LIMIT;
+                break;
+            case DecoderStateTables.NISTRING_UTF8_LARGE_LENGTH:
+            case DecoderStateTables.NISTRING_UTF16_LARGE_LENGTH:
+                _octetBufferLength = ((read() << 24) |
+                        (read() << 16) |
+                        (read() << 8) |
+                        read())
+                        + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_MEDIUM_LIMIT;
+                break;
+            case DecoderStateTables.NISTRING_RA:
+            {
+                _identifier = (b & 0x0F) << 4;
+                final int b2 = read();
+                _identifier |= (b2 & 0xF0) >> 4;
+                
+                decodeOctetsOnFifthBitOfNonIdentifyingStringOnFirstBit(b2);
+                if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
+                    _attributeValueTable.add(decodeRestrictedAlphabetAsString());
+                }
+                return;
+            }
+            case DecoderStateTables.NISTRING_EA:
+            {
+                _identifier = (b & 0x0F) << 4;
+                final int b2 = read();
+                _identifier |= (b2 & 0xF0) >> 4;
+                
+                decodeOctetsOnFifthBitOfNonIdentifyingStringOnFirstBit(b2);
+                if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
+                    // The attributes of the skipped element are cleared by
+                    // the next element
+                    processAIIEncodingAlgorithm(name, true);
+                }
+                return;
+            }
+            case DecoderStateTables.NISTRING_INDEX_SMALL:
+                return;
+            case DecoderStateTables.NISTRING_INDEX_MEDIUM:
+                read();
+                return;
+            case DecoderStateTables.NISTRING_INDEX_LARGE:
+                read();
+                read();
+                return;
+            case DecoderStateTables.NISTRING_EMPTY:
+                return;
+            default:
+                throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.decodingAIIValue"));
+        }
+        
+        if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
+            _attributeValueTable.add(((b & EncodingConstants.NISTRING_UTF_16_FLAG) == 0) ? 
+                decodeUtf8StringAsString() : decodeUtf16StringAsString());
+        } else {
+            skipOctets();
+        }
+    }
+    
+    private void skipCharacterString(int b) throws IOException {
+        if ((b & EncodingConstants.CHARACTER_CHUNK_ADD_TO_TABLE_FLAG) > 0) {
+            if ((b & EncodingConstants.CHARACTER_CHUNK_UTF_16_FLAG) == 0) {
+                processUtf8CharacterString(b);
+            } else {
+                processUtf16CharacterString(b);
+            }
+            _characters = null;
+        } else {
+            skipOctets();
+        }
+    }
+    
+    private void skipOtherString(int type) {
+        if (type == NISTRING_STRING && _addToTable) {
+            _v.otherString.add(new CharArray(_charBuffer, 0, _charBufferLength, true));
+        }
+    }
+    
     public void onBeforeOctetBufferOverwrite() {
-        if (_algorithmData != null) {
+        if (_algorithmData != null && !_isAlgorithmDataCloned) {
             _algorithmData = getTextAlgorithmBytesClone();
             _algorithmDataOffset = 0;
             _isAlgorithmDataCloned = true;
         }
+        if (_isTextDeferred || _deferredAttributeCount > 0) {
+            preserveDeferredValues();
+        }
+    }
+    
+    /**
+     * Copy the deferred octets that are in the buffer, which is about to be
+     * overwritten.
+     */
+    private void preserveDeferredValues() {
+        final byte[] octetBuffer = _octetBuffer;
+        if (_isTextDeferred && _deferredTextOctets == octetBuffer) {
+            _deferredTextOffset = preserveDeferredOctets(_deferredTextOffset, _deferredTextLength);
+            _deferredTextOctets = null;
+        }
+        
+        final int count = Math.min(_attributes.getLength(), _deferredAttributeLengths.length);
+        for (int i = 0; _deferredAttributeCount > 0 && i < count; i++) {
+            if (_deferredAttributeLengths[i] > 0 && _deferredAttributeOctets[i] == octetBuffer) {
+                _deferredAttributeOffsets[i] = preserveDeferredOctets(
+                        _deferredAttributeOffsets[i], _deferredAttributeLengths[i]);
+                _deferredAttributeOctets[i] = null;
+            }
+        }
+    }
+    
+    private int preserveDeferredOctets(int offset, int length) {
+        if (_deferredOctets == null || _deferredOctets.length - _deferredOctetsLength < length) {
+            final byte[] deferredOctets = new byte[Math.max(
+                    _deferredOctetsLength + length, (_deferredOctetsLength + 256) * 2)];
+            if (_deferredOctetsLength > 0) {
+                System.arraycopy(_deferredOctets, 0, deferredOctets, 0, _deferredOctetsLength);
+            }
+            _deferredOctets = deferredOctets;
+        }
+        
+        System.arraycopy(_octetBuffer, offset, _deferredOctets, _deferredOctetsLength, length);
+        final int deferredOffset = _deferredOctetsLength;
+        _deferredOctetsLength += length;
+        return deferredOffset;
+    }
+    
+    private void decodeDeferredText() {
+        _isTextDeferred = false;
+        try {
+            decodeStringOctetsAsCharBuffer(
+                    (_deferredTextOctets != null) ? _deferredTextOctets : _deferredOctets,
+                    _deferredTextOffset, _deferredTextLength, _isDeferredTextUtf8);
+        } catch (IOException e) {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.decodingDeferredValue"), e);
+        }
+        _characters = _charBuffer;
+        _charactersOffset = 0;
+    }
+    
+    private void decodeDeferredAttributeValue(int index) {
+        final int length = _deferredAttributeLengths[index];
+        _deferredAttributeLengths[index] = 0;
+        _deferredAttributeCount--;
+        try {
+            _attributes.setValue(index, decodeStringOctetsAsString(
+                    (_deferredAttributeOctets[index] != null) ? _deferredAttributeOctets[index] : _deferredOctets,
+                    _deferredAttributeOffsets[index], length, _isDeferredAttributeUtf8[index]));
+        } catch (IOException e) {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.decodingDeferredValue"), e);
+        }
+        _deferredAttributeOctets[index] = null;
+    }
+    
+    private void decodeDeferredValues() {
+        if (_isTextDeferred) {
+            decodeDeferredText();
+        }
+        
+        final int count = Math.min(_attributes.getLength(), _deferredAttributeLengths.length);
+        for (int i = 0; _deferredAttributeCount > 0 && i < count; i++) {
+            if (_deferredAttributeLengths[i] > 0) {
+                decodeDeferredAttributeValue(i);
+            }
+        }
+    }
+    
+    private void clearDeferredValues() {
+        _isTextDeferred = false;
+        _deferredTextOctets = null;
+        
+        if (_deferredAttributeCount > 0) {
+            final int count = Math.min(_attributes.getLength(), _deferredAttributeLengths.length);
+            for (int i = 0; i < count; i++) {
+                _deferredAttributeLengths[i] = 0;
+                _deferredAttributeOctets[i] = null;
+            }
+            _deferredAttributeCount = 0;
+        }
+        _deferredOctetsLength = 0;
     }
     
     // Faster access methods without checks
@@ -1069,6 +1881,9 @@ public class StAXDocumentParser extends Decoder
     }
     
     public final char[] accessTextCharacters() {
+        if (_isTextDeferred) {
+            decodeDeferredText();
+        }
         if (_characters == null) return null;
         
         // we return a cloned version of _characters
@@ -1078,10 +1893,16 @@ public class StAXDocumentParser extends Decoder
     }
     
     public final int accessTextStart() {
+        if (_isTextDeferred) {
+            decodeDeferredText();
+        }
         return _charactersOffset;
     }
     
     public final int accessTextLength() {
+        if (_isTextDeferred) {
+            decodeDeferredText();
+        }
         return _charBufferLength;
     }
     
@@ -1302,9 +2123,7 @@ public class StAXDocumentParser extends Decoder
         int b;
         String value;
         
-        if (++_duplicateAttributeVerifier._currentIteration == Integer.MAX_VALUE) {
-            _duplicateAttributeVerifier.clear();
-        }
+        _duplicateAttributeVerifier.startElement();
         
         _clearAttributes = true;
         boolean terminate = false;
@@ -1352,27 +2171,19 @@ public class StAXDocumentParser extends Decoder
                 throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.AIIqNameNotInScope"));
             }
             
-            _duplicateAttributeVerifier.checkForDuplicateAttribute(name.attributeHash, name.attributeId);
+            if (_duplicateAttributeChecking) {
+                _duplicateAttributeVerifier.checkForDuplicateAttribute(name.attributeId);
+            }
             
             b = read();
             switch(DecoderStateTables.NISTRING(b)) {
                 case DecoderStateTables.NISTRING_UTF8_SMALL_LENGTH:
                     _octetBufferLength = (b & EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_SMALL_MASK) + 1;
-                    value = decodeUtf8StringAsString();
-                    if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
-                        _attributeValueTable.add(value);
-                    }
-                    
-                    _attributes.addAttribute(name, value);
+                    processUtf8AttributeValue(name, b);
                     break;
                 case DecoderStateTables.NISTRING_UTF8_MEDIUM_LENGTH:
                     _octetBufferLength = read() + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_SMALL_LIMIT;
-                    value = decodeUtf8StringAsString();
-                    if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
-                        _attributeValueTable.add(value);
-                    }
-                    
-                    _attributes.addAttribute(name, value);
+                    processUtf8AttributeValue(name, b);
                     break;
                 case DecoderStateTables.NISTRING_UTF8_LARGE_LENGTH:
                     _octetBufferLength = ((read() << 24) |
@@ -1380,30 +2191,15 @@ public class StAXDocumentParser extends Decoder
                             (read() << 8) |
                             read())
                             + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_MEDIUM_LIMIT;
-                    value = decodeUtf8StringAsString();
-                    if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
-                        _attributeValueTable.add(value);
-                    }
-                    
-                    _attributes.addAttribute(name, value);
+                    processUtf8AttributeValue(name, b);
                     break;
                 case DecoderStateTables.NISTRING_UTF16_SMALL_LENGTH:
                     _octetBufferLength = (b & EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_SMALL_MASK) + 1;
-                    value = decodeUtf16StringAsString();
-                    if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
-                        _attributeValueTable.add(value);
-                    }
-                    
-                    _attributes.addAttribute(name, value);
+                    processUtf16AttributeValue(name, b);
                     break;
                 case DecoderStateTables.NISTRING_UTF16_MEDIUM_LENGTH:
                     _octetBufferLength = read() + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_SMALL_LIMIT;
-                    value = decodeUtf16StringAsString();
-                    if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
-                        _attributeValueTable.add(value);
-                    }
-                    
-                    _attributes.addAttribute(name, value);
+                    processUtf16AttributeValue(name, b);
                     break;
                 case DecoderStateTables.NISTRING_UTF16_LARGE_LENGTH:
                     _octetBufferLength = ((read() << 24) |
@@ -1411,12 +2207,7 @@ public class StAXDocumentParser extends Decoder
                             (read() << 8) |
                             read())
                             + EncodingConstants.OCTET_STRING_LENGTH_5TH_BIT_MEDIUM_LIMIT;
-                    value = decodeUtf16StringAsString();
-                    if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
-                        _attributeValueTable.add(value);
-                    }
-                    
-                    _attributes.addAttribute(name, value);
+                    processUtf16AttributeValue(name, b);
                     break;
                 case DecoderStateTables.NISTRING_RA:
                 {
@@ -1478,9 +2269,6 @@ public class StAXDocumentParser extends Decoder
             }
             
         } while (!terminate);
-        
-        // Reset duplication attribute verfifier
-        _duplicateAttributeVerifier._poolCurrent = _duplicateAttributeVerifier._poolHead;
     }
     
     protected final QualifiedName processEIIIndexMedium(int b) throws FastInfosetException, IOException {
@@ -1627,6 +2415,48 @@ public class StAXDocumentParser extends Decoder
         _algorithmDataLength = _octetBufferLength;
         _isAlgorithmDataCloned = false;
         
+        processCIIEncodingAlgorithmURI();
+        
+        if (addToTable) {
+            convertEncodingAlgorithmDataToCharacters();
+            _characterContentChunkTable.add(_characters, _characters.length);
+        }
+    }
+    
+    /**
+     * Ascertain if the octets of the encoding algorithm data of a character
+     * information item are read as a stream.
+     * <p>
+     * The octets of an application-defined encoding algorithm that is 
+     * registered are buffered, so that they may be decoded by the 
+     * algorithm.
+     */
+    private boolean isCIIEncodingAlgorithmStreamed() {
+        if (!_isAlgorithmDataStreamed) {
+            return false;
+        } else if (_algorithmId == EncodingAlgorithmIndexes.BASE64 ||
+                _algorithmId == EncodingAlgorithmIndexes.HEXADECIMAL) {
+            return true;
+        } else if (_algorithmId >= EncodingConstants.ENCODING_ALGORITHM_APPLICATION_START) {
+            final String URI = _v.encodingAlgorithm.get(_algorithmId - EncodingConstants.ENCODING_ALGORITHM_APPLICATION_START);
+            return URI != null && _registeredEncodingAlgorithms.get(URI) == null;
+        } else {
+            return false;
+        }
+    }
+    
+    protected final void processCIIEncodingAlgorithmAsStream() throws FastInfosetException, IOException {
+        _algorithmData = null;
+        _algorithmDataOffset = 0;
+        _algorithmDataLength = _octetBufferLength;
+        _isAlgorithmDataCloned = false;
+        
+        processCIIEncodingAlgorithmURI();
+        
+        _algorithmDataStream = decodeOctetsAsInputStream();
+    }
+    
+    private void processCIIEncodingAlgorithmURI() throws FastInfosetException {
         if (_algorithmId >= EncodingConstants.ENCODING_ALGORITHM_APPLICATION_START) {
             _algorithmURI = _v.encodingAlgorithm.get(_algorithmId - EncodingConstants.ENCODING_ALGORITHM_APPLICATION_START);
             if (_algorithmURI == null) {
@@ -1638,11 +2468,34 @@ public class StAXDocumentParser extends Decoder
             // reported, allows for support through handler if required.
             throw new EncodingAlgorithmException(CommonResourceBundle.getInstance().getString("message.identifiers10to31Reserved"));
         }
+    }
+    
+    /**
+     * Skip the octets of the stream of encoding algorithm data that have
+     * not been read.
+     */
+    private void skipAlgorithmDataStream() throws IOException {
+        _algorithmDataStream = null;
+        skipOctetsOfInputStream();
+    }
+    
+    /**
+     * Buffer the octets of the stream of encoding algorithm data, as if
+     * the stream had not been used, if none of the octets have been read.
+     */
+    private void decodeAlgorithmDataStream() {
+        if (getOctetsInputStreamRemaining() != _algorithmDataLength) {
+            throw new IllegalStateException(CommonResourceBundle.getInstance().getString("message.algorithmDataStreamRead"));
+        }
         
-        if (addToTable) {
-            convertEncodingAlgorithmDataToCharacters();
-            _characterContentChunkTable.add(_characters, _characters.length);
+        try {
+            decodeOctetsOfInputStream();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
         }
+        _algorithmDataStream = null;
+        _algorithmData = _octetBuffer;
+        _algorithmDataOffset = _octetBufferStart;
     }
     
     protected final void processAIIEncodingAlgorithm(QualifiedName name, boolean addToTable) throws FastInfosetException, IOException {
@@ -1824,6 +2677,63 @@ public class StAXDocumentParser extends Decoder
         return _prefixTable.getNamespaceFromPrefix(prefix);
     }
     
+    private void processUtf8AttributeValue(QualifiedName name, int b) throws IOException {
+        if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
+            final String value = decodeUtf8StringAsString();
+            _attributeValueTable.add(value);
+            _attributes.addAttribute(name, value);
+        } else if (_isValueDecodingDeferred) {
+            deferAttributeValue(name, true);
+        } else {
+            _attributes.addAttribute(name, decodeUtf8StringAsString());
+        }
+    }
+    
+    private void processUtf16AttributeValue(QualifiedName name, int b) throws IOException {
+        if ((b & EncodingConstants.NISTRING_ADD_TO_TABLE_FLAG) > 0) {
+            final String value = decodeUtf16StringAsString();
+            _attributeValueTable.add(value);
+            _attributes.addAttribute(name, value);
+        } else if (_isValueDecodingDeferred) {
+            deferAttributeValue(name, false);
+        } else {
+            _attributes.addAttribute(name, decodeUtf16StringAsString());
+        }
+    }
+    
+    private void deferAttributeValue(QualifiedName name, boolean isUtf8) throws IOException {
+        skipStringOctets();
+        
+        final int index = _attributes.getLength();
+        if (index >= _deferredAttributeLengths.length) {
+            final int newLength = index * 3 / 2 + 8;
+            
+            final boolean[] isDeferredAttributeUtf8 = new boolean[newLength];
+            System.arraycopy(_isDeferredAttributeUtf8, 0, isDeferredAttributeUtf8, 0, _isDeferredAttributeUtf8.length);
+            _isDeferredAttributeUtf8 = isDeferredAttributeUtf8;
+            
+            final byte[][] deferredAttributeOctets = new byte[newLength][];
+            System.arraycopy(_deferredAttributeOctets, 0, deferredAttributeOctets, 0, _deferredAttributeOctets.length);
+            _deferredAttributeOctets = deferredAttributeOctets;
+            
+            final int[] deferredAttributeOffsets = new int[newLength];
+            System.arraycopy(_deferredAttributeOffsets, 0, deferredAttributeOffsets, 0, _deferredAttributeOffsets.length);
+            _deferredAttributeOffsets = deferredAttributeOffsets;
+            
+            final int[] deferredAttributeLengths = new int[newLength];
+            System.arraycopy(_deferredAttributeLengths, 0, deferredAttributeLengths, 0, _deferredAttributeLengths.length);
+            _deferredAttributeLengths = deferredAttributeLengths;
+        }
+        
+        _isDeferredAttributeUtf8[index] = isUtf8;
+        _deferredAttributeOctets[index] = _octetBuffer;
+        _deferredAttributeOffsets[index] = _octetBufferStart;
+        _deferredAttributeLengths[index] = _octetBufferLength;
+        _deferredAttributeCount++;
+        
+        _attributes.addAttribute(name, null);
+    }
+    
     public final String getURI(String prefix) {
         return getNamespaceDecl(prefix);
     }
@@ -1833,6 +2743,9 @@ public class StAXDocumentParser extends Decoder
     }
     
     public final AttributesHolder getAttributesHolder() {
+        if (_deferredAttributeCount > 0) {
+            decodeDeferredValues();
+        }
         return _attributes;
     }
     
@@ -21,6 +21,7 @@ import com.sun.xml.fastinfoset.Encoder;
 import com.sun.xml.fastinfoset.EncodingConstants;
 import com.sun.xml.fastinfoset.util.NamespaceContextImplementation;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.EmptyStackException;
 import javax.xml.namespace.NamespaceContext;
@@ -170,7 +171,7 @@ public class StAXDocumentSerializer extends Encoder
     
     public void flush() throws XMLStreamException {
         try {
-            _s.flush();
+            flushOutput();
         }
         catch (IOException e) {
             throw new XMLStreamException(e);
@@ -572,6 +573,32 @@ public class StAXDocumentSerializer extends Encoder
             throw new XMLStreamException(e);
         }
     }
+
+    /**
+     * Write octets, read from a stream, as base64 encoded character content.
+     * <p>
+     * The octets are read as they are written, so they are never buffered
+     * as a whole.
+     *
+     * @param s the stream of octets.
+     * @param len the number of octets to read from the stream.
+     */
+    public void writeOctets(InputStream s, int len)
+        throws XMLStreamException
+    {
+         try {
+            if (len == 0) {
+                return;
+            }
+
+            encodeTerminationAndCurrentElement(true);
+
+            encodeCIIOctetAlgorithmData(EncodingAlgorithmIndexes.BASE64, s, len);
+        }
+        catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+    }
     
     protected void encodeTerminationAndCurrentElement(boolean terminateAfter) throws XMLStreamException {
         try {
@@ -703,7 +730,7 @@ public class StAXDocumentSerializer extends Encoder
     
     public final void writeLowLevelStartAttributes() throws IOException {
         if (hasMark()) {
-            _octetBuffer[_markIndex] |= EncodingConstants.ELEMENT_ATTRIBUTE_FLAG;
+            setMarkedOctetBits(EncodingConstants.ELEMENT_ATTRIBUTE_FLAG);
             resetMark();
         }
     }
@@ -796,12 +823,12 @@ public class StAXDocumentSerializer extends Encoder
             if ((prefix == name.prefix || prefix.equals(name.prefix))
                     && (namespaceURI == name.namespaceName || namespaceURI.equals(name.namespaceName))) {
                 _b = type;
-                encodeNonZeroIntegerOnThirdBit(name.index);
+                encodeElementQualifiedNameIndexOnThirdBit(name);
                 return true;
             }
         }
 
-        entry.addQualifiedName(new QualifiedName(prefix, namespaceURI, localName, "", _v.elementName.getNextIndex()));
+        _v.elementName.addQualifiedName(entry, new QualifiedName(prefix, namespaceURI, localName, "", _v.elementName.getNextIndex()));
         return false;
     }
         
@@ -811,12 +838,12 @@ public class StAXDocumentSerializer extends Encoder
             final QualifiedName name = entry._value[i];
             if ((prefix == name.prefix || prefix.equals(name.prefix))
                     && (namespaceURI == name.namespaceName || namespaceURI.equals(name.namespaceName))) {
-                encodeNonZeroIntegerOnSecondBitFirstBitZero(name.index);
+                encodeAttributeQualifiedNameIndexOnSecondBit(name);
                 return true;
             }
         }
 
-        entry.addQualifiedName(new QualifiedName(prefix, namespaceURI, localName, "", _v.attributeName.getNextIndex()));
+        _v.attributeName.addQualifiedName(entry, new QualifiedName(prefix, namespaceURI, localName, "", _v.attributeName.getNextIndex()));
         return false;
     }
 
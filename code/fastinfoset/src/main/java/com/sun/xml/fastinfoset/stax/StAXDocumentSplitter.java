@@ -0,0 +1,232 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.stax;
+
+import com.sun.xml.fastinfoset.CommonResourceBundle;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Splits a stream of fast infoset documents into the octets of each
+ * document.
+ *
+ * <p>The documents are either concatenated, in which case the end of each
+ * document is found by scanning its structure, or each document is
+ * preceded by its length as written by {@link #writeLengthPrefixedDocument}.
+ * A scan decodes the names and attributes of the children of the document,
+ * but not of the descendants of the document element, whose octets are
+ * skipped using {@link StAXDocumentParser#skipElement}.</p>
+ */
+public class StAXDocumentSplitter {
+
+    private final InputStream _s;
+
+    private final boolean _isLengthPrefixed;
+
+    private final StAXDocumentParser _parser;
+
+    /**
+     * The octets read from the stream that are not part of a previous
+     * document, from <code>_start</code> to <code>_end</code>.
+     */
+    private byte[] _buffer = new byte[8192];
+    private int _start;
+    private int _end;
+
+    /**
+     * The position in the buffer of the next octet to be read by the
+     * parser scanning a document.
+     */
+    private int _position;
+
+    private final InputStream _scanStream = new InputStream() {
+        public int read() throws IOException {
+            if (_position == _end && !fill()) {
+                return -1;
+            }
+            return _buffer[_position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            } else if (_position == _end && !fill()) {
+                return -1;
+            }
+
+            final int n = Math.min(len, _end - _position);
+            System.arraycopy(_buffer, _position, b, off, n);
+            _position += n;
+            return n;
+        }
+    };
+
+    /**
+     * Creates a new instance of StAXDocumentSplitter that scans the
+     * concatenated documents of a stream.
+     *
+     * @param s the input stream of the documents.
+     */
+    public StAXDocumentSplitter(InputStream s) {
+        this(s, false);
+    }
+
+    /**
+     * Creates a new instance of StAXDocumentSplitter.
+     *
+     * @param s the input stream of the documents.
+     * @param isLengthPrefixed true if each document is preceded by its
+     *        length, otherwise the documents are concatenated.
+     */
+    public StAXDocumentSplitter(InputStream s, boolean isLengthPrefixed) {
+        this(s, isLengthPrefixed, new StAXDocumentParser());
+    }
+
+    /**
+     * Creates a new instance of StAXDocumentSplitter that scans the
+     * concatenated documents of a stream using a parser.
+     * <p>
+     * The parser must be able to decode the headers of the documents, for
+     * example any external vocabularies referenced must be registered.
+     *
+     * @param s the input stream of the documents.
+     * @param isLengthPrefixed true if each document is preceded by its
+     *        length, otherwise the documents are concatenated.
+     * @param parser the parser used to scan the documents.
+     */
+    public StAXDocumentSplitter(InputStream s, boolean isLengthPrefixed, StAXDocumentParser parser) {
+        _s = s;
+        _isLengthPrefixed = isLengthPrefixed;
+        _parser = parser;
+    }
+
+    /**
+     * Write a document preceded by its length.
+     *
+     * @param s the output stream.
+     * @param b the octets of the document.
+     * @param offset the offset of the document.
+     * @param length the length of the document.
+     * @throws IOException if the document cannot be written.
+     */
+    public static void writeLengthPrefixedDocument(OutputStream s, byte[] b, int offset, int length)
+            throws IOException {
+        s.write(length >>> 24);
+        s.write(length >>> 16);
+        s.write(length >>> 8);
+        s.write(length);
+        s.write(b, offset, length);
+    }
+
+    /**
+     * Read the next document.
+     *
+     * @return the octets of the document, or null if there are no more
+     *         documents.
+     * @throws IOException if there is an error reading the stream.
+     * @throws XMLStreamException if there is an error scanning the document.
+     */
+    public byte[] nextDocument() throws IOException, XMLStreamException {
+        return (_isLengthPrefixed) ? readLengthPrefixedDocument() : scanDocument();
+    }
+
+    private byte[] readLengthPrefixedDocument() throws IOException {
+        final int b = _s.read();
+        if (b == -1) {
+            return null;
+        }
+
+        final DataInputStream in = new DataInputStream(_s);
+        final int length = (b << 24) | (in.readUnsignedByte() << 16) |
+                (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+        if (length < 0) {
+            throw new IOException(CommonResourceBundle.getInstance().
+                    getString("message.invalidDocumentLength", new Object[]{Integer.valueOf(length)}));
+        }
+
+        final byte[] document = new byte[length];
+        in.readFully(document);
+        return document;
+    }
+
+    private byte[] scanDocument() throws IOException, XMLStreamException {
+        _position = _start;
+        if (_position == _end && !fill()) {
+            return null;
+        }
+
+        _parser.setInputStream(_scanStream);
+        final boolean isValueDecodingDeferred = _parser.isValueDecodingDeferred();
+        _parser.setValueDecodingDeferred(true);
+        try {
+            int eventType;
+            while ((eventType = _parser.next()) != XMLStreamReader.END_DOCUMENT) {
+                if (eventType == XMLStreamReader.START_ELEMENT) {
+                    _parser.skipElement();
+                }
+            }
+        } finally {
+            _parser.setValueDecodingDeferred(isValueDecodingDeferred);
+        }
+
+        // The parser may have read octets of the next document
+        final int length = (int)_parser.getNextInputPosition();
+        final byte[] document = new byte[length];
+        System.arraycopy(_buffer, _start, document, 0, length);
+        _start += length;
+        return document;
+    }
+
+    /**
+     * Read octets from the stream to the end of the buffer, moving the
+     * octets from the start of the current document to the start of the
+     * buffer, or resizing the buffer, if the buffer is full.
+     *
+     * @return false if there are no more octets.
+     */
+    private boolean fill() throws IOException {
+        if (_end == _buffer.length) {
+            final int length = _end - _start;
+            if (length > _buffer.length / 2) {
+                final byte[] buffer = new byte[_buffer.length * 2];
+                System.arraycopy(_buffer, _start, buffer, 0, length);
+                _buffer = buffer;
+            } else {
+                System.arraycopy(_buffer, _start, _buffer, 0, length);
+            }
+            _position -= _start;
+            _start = 0;
+            _end = length;
+        }
+
+        int n;
+        do {
+            n = _s.read(_buffer, _end, _buffer.length - _end);
+        } while (n == 0);
+        if (n == -1) {
+            return false;
+        }
+        _end += n;
+        return true;
+    }
+}
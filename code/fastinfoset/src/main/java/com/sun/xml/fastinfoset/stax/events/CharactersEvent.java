@@ -106,6 +106,22 @@ public class CharactersEvent extends EventBase implements Characters {
         return isSpace;
     }
     
+    /**
+     * Set the character data of an event that is reused, clearing the
+     * whitespace state.
+     *
+     * @param data Character Data.
+     * @param isCData true if is CData
+     */
+    void reset(String data, boolean isCData) {
+        setEventType(CHARACTERS);
+        _text = data;
+        this.isCData = isCData;
+        isSpace = false;
+        isIgnorable = false;
+        needtoCheck = true;
+    }
+    
     public void setSpace(boolean isSpace) {
         this.isSpace = isSpace;
         needtoCheck = false;
@@ -77,6 +77,20 @@ public class NamespaceBase extends AttributeBase implements Namespace{
         return getValue();
     }
     
+  /**
+   * Set the prefix and the uri reference of a namespace that is reused.
+   * @param prefix prefix of a namespace is the local name for an attribute
+   * @param namespaceURI the uri reference of a namespace is the value for an attribute
+   */
+    void set(String prefix, String namespaceURI) {
+        if (prefix == null) prefix = "";
+        if (!prefix.equals(getLocalName())) {
+            setName(new QName(null, prefix, XMLNS_ATTRIBUTE));
+        }
+        setValue(namespaceURI);
+        defaultDeclaration = Util.isEmptyString(prefix);
+    }
+    
 
     public boolean isNamespace(){
         return true;
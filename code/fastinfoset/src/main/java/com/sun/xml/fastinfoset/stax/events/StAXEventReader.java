@@ -39,10 +39,30 @@ public class StAXEventReader implements javax.xml.stream.XMLEventReader{
     
     //only constructor will do because we delegate everything to underlying XMLStreamReader
     public StAXEventReader(XMLStreamReader reader) throws  XMLStreamException {
+        this(reader, false);
+    }
+    
+    /**
+     * Creates a new instance of StAXEventReader that may reuse events.
+     * <p>
+     * If events are reused, using a {@link StAXRecyclingEventAllocator},
+     * an event returned by {@link #nextEvent} or {@link #peek} is only
+     * valid until the next call to {@link #nextEvent}, and must be copied
+     * to be kept.
+     *
+     * @param reader the reader of the events.
+     * @param isRecyclingEvents true if events are reused, otherwise the
+     *        events are allocated by the allocator of the reader, if any.
+     */
+    public StAXEventReader(XMLStreamReader reader, boolean isRecyclingEvents) throws  XMLStreamException {
         _streamReader = reader ;
-        _eventAllocator = (XMLEventAllocator)reader.getProperty(XMLInputFactory.ALLOCATOR);
-        if(_eventAllocator == null){
-            _eventAllocator = new StAXEventAllocatorBase();
+        if (isRecyclingEvents) {
+            _eventAllocator = new StAXRecyclingEventAllocator();
+        } else {
+            _eventAllocator = (XMLEventAllocator)reader.getProperty(XMLInputFactory.ALLOCATOR);
+            if(_eventAllocator == null){
+                _eventAllocator = new StAXEventAllocatorBase();
+            }
         }
         //initialize
         if (_streamReader.hasNext())
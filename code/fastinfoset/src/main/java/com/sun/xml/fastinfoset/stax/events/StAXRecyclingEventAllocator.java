@@ -0,0 +1,325 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.stax.events;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.XMLEventAllocator;
+
+import com.sun.xml.fastinfoset.CommonResourceBundle;
+
+/**
+ * An XMLEventAllocator that reuses the events it allocates, for consumers
+ * that do not keep events.
+ *
+ * StartElement, EndElement, Characters, Comment and ProcessingInstruction
+ * events, and the Attribute and Namespace objects and iterators of the
+ * StartElement and EndElement events, are taken from a small pool per type
+ * of event. An event is reused once POOL_SIZE further events of the same
+ * type have been allocated, and the iterator of the attributes or
+ * namespaces of an event is reused by the next call to getAttributes or
+ * getNamespaces of the event. Other events are allocated as by
+ * StAXEventAllocatorBase.
+ *
+ * When used by StAXEventReader an event returned by nextEvent is only valid
+ * until the next call to nextEvent, and must be copied, for example using
+ * XMLEventFactory, to be kept.
+ */
+public class StAXRecyclingEventAllocator extends StAXEventAllocatorBase {
+    /**
+     * The number of events of each type that are allocated before an
+     * event is reused. StAXEventReader holds the event returned by
+     * nextEvent and the event that follows it.
+     */
+    public static final int POOL_SIZE = 3;
+    
+    private final RecycledStartElementEvent[] _startElements = new RecycledStartElementEvent[POOL_SIZE];
+    private int _startElementIndex;
+    
+    private final RecycledEndElementEvent[] _endElements = new RecycledEndElementEvent[POOL_SIZE];
+    private int _endElementIndex;
+    
+    private final CharactersEvent[] _characters = new CharactersEvent[POOL_SIZE];
+    private int _charactersIndex;
+    
+    private final CommentEvent[] _comments = new CommentEvent[POOL_SIZE];
+    private int _commentIndex;
+    
+    private final ProcessingInstructionEvent[] _processingInstructions = new ProcessingInstructionEvent[POOL_SIZE];
+    private int _processingInstructionIndex;
+    
+    /** Creates a new instance of StAXRecyclingEventAllocator */
+    public StAXRecyclingEventAllocator() {
+    }
+    
+    public XMLEventAllocator newInstance() {
+        return new StAXRecyclingEventAllocator();
+    }
+    
+    XMLEvent getXMLEvent(XMLStreamReader reader) {
+        final Location location = reader.getLocation();
+        final EventBase event;
+        switch (reader.getEventType()) {
+            case XMLEvent.START_ELEMENT:
+            {
+                if (++_startElementIndex == POOL_SIZE) _startElementIndex = 0;
+                RecycledStartElementEvent startElement = _startElements[_startElementIndex];
+                if (startElement == null) {
+                    startElement = _startElements[_startElementIndex] = new RecycledStartElementEvent();
+                }
+                startElement.set(reader, location);
+                event = startElement;
+                break;
+            }
+            case XMLEvent.END_ELEMENT:
+            {
+                if (++_endElementIndex == POOL_SIZE) _endElementIndex = 0;
+                RecycledEndElementEvent endElement = _endElements[_endElementIndex];
+                if (endElement == null) {
+                    endElement = _endElements[_endElementIndex] = new RecycledEndElementEvent();
+                }
+                endElement.setName(reader.getName());
+                setNamespaces(endElement._recycledNamespaces, reader);
+                event = endElement;
+                break;
+            }
+            case XMLEvent.CHARACTERS:
+            case XMLEvent.CDATA:
+            case XMLEvent.SPACE:
+            {
+                if (++_charactersIndex == POOL_SIZE) _charactersIndex = 0;
+                CharactersEvent characters = _characters[_charactersIndex];
+                if (characters == null) {
+                    characters = _characters[_charactersIndex] = new CharactersEvent();
+                }
+                final int eventType = reader.getEventType();
+                characters.reset(reader.getText(), eventType == XMLEvent.CDATA);
+                if (eventType == XMLEvent.SPACE ||
+                        (eventType == XMLEvent.CHARACTERS && reader.isWhiteSpace())) {
+                    characters.setSpace(true);
+                }
+                event = characters;
+                break;
+            }
+            case XMLEvent.COMMENT:
+            {
+                if (++_commentIndex == POOL_SIZE) _commentIndex = 0;
+                CommentEvent comment = _comments[_commentIndex];
+                if (comment == null) {
+                    comment = _comments[_commentIndex] = new CommentEvent();
+                }
+                comment.setText(reader.getText());
+                event = comment;
+                break;
+            }
+            case XMLEvent.PROCESSING_INSTRUCTION:
+            {
+                if (++_processingInstructionIndex == POOL_SIZE) _processingInstructionIndex = 0;
+                ProcessingInstructionEvent pi = _processingInstructions[_processingInstructionIndex];
+                if (pi == null) {
+                    pi = _processingInstructions[_processingInstructionIndex] = new ProcessingInstructionEvent();
+                }
+                pi.setTarget(reader.getPITarget());
+                pi.setData(reader.getPIData());
+                event = pi;
+                break;
+            }
+            default:
+                return super.getXMLEvent(reader);
+        }
+        event.setLocation(location);
+        return event;
+    }
+    
+    static void setNamespaces(Items namespaces, XMLStreamReader reader) {
+        namespaces.clear();
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            NamespaceBase namespace = (NamespaceBase)namespaces.reuse();
+            if (namespace == null) {
+                namespace = new NamespaceBase("", "");
+                namespaces.add(namespace);
+            }
+            namespace.set(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+        }
+    }
+    
+    /**
+     * A list of the reused attributes or namespaces of an event, which is
+     * also the read-only iterator over the list.
+     */
+    static final class Items implements Iterator {
+        private Object[] _items = new Object[4];
+        private int _size;
+        private int _index;
+        
+        void clear() {
+            _size = 0;
+        }
+        
+        /**
+         * Get the item following the last item of the list, and include it
+         * in the list.
+         * @return the item, or null if there is no item to reuse, in which
+         * case the item must be added.
+         */
+        Object reuse() {
+            if (_size == _items.length) {
+                final Object[] items = new Object[_size * 2];
+                System.arraycopy(_items, 0, items, 0, _size);
+                _items = items;
+            }
+            return (_items[_size] != null) ? _items[_size++] : null;
+        }
+        
+        void add(Object item) {
+            _items[_size++] = item;
+        }
+        
+        int size() {
+            return _size;
+        }
+        
+        Object get(int index) {
+            return _items[index];
+        }
+        
+        Iterator iterator() {
+            _index = 0;
+            return this;
+        }
+        
+        public boolean hasNext() {
+            return _index < _size;
+        }
+        
+        public Object next() {
+            if (_index == _size) {
+                throw new NoSuchElementException();
+            }
+            return _items[_index++];
+        }
+        
+        public void remove() {
+            throw new UnsupportedOperationException(CommonResourceBundle.getInstance().getString("message.readonlyList"));
+        }
+    }
+    
+    static final class RecycledStartElementEvent extends StartElementEvent {
+        final Items _recycledAttributes = new Items();
+        final Items _recycledNamespaces = new Items();
+        
+        protected void init() {
+            setEventType(START_ELEMENT);
+        }
+        
+        void set(XMLStreamReader reader, Location location) {
+            setName(reader.getName());
+            
+            _recycledAttributes.clear();
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                AttributeBase attribute = (AttributeBase)_recycledAttributes.reuse();
+                if (attribute == null) {
+                    attribute = new AttributeBase();
+                    _recycledAttributes.add(attribute);
+                }
+                attribute.setName(reader.getAttributeName(i));
+                attribute.setValue(reader.getAttributeValue(i));
+                attribute.setAttributeType(reader.getAttributeType(i));
+                attribute.setSpecified(reader.isAttributeSpecified(i));
+                attribute.setLocation(location);
+            }
+            setNamespaces(_recycledNamespaces, reader);
+        }
+        
+        public void reset() {
+            _recycledAttributes.clear();
+            _recycledNamespaces.clear();
+        }
+        
+        public Iterator getAttributes() {
+            return _recycledAttributes.iterator();
+        }
+        
+        public Iterator getNamespaces() {
+            return _recycledNamespaces.iterator();
+        }
+        
+        public Attribute getAttributeByName(QName qname) {
+            if (qname == null)
+                return null;
+            for (int i = 0; i < _recycledAttributes.size(); i++) {
+                final Attribute attribute = (Attribute)_recycledAttributes.get(i);
+                if (qname.equals(attribute.getName())) {
+                    return attribute;
+                }
+            }
+            return null;
+        }
+        
+        public void addAttribute(Attribute attr) {
+            throw new UnsupportedOperationException(CommonResourceBundle.getInstance().getString("message.readonlyList"));
+        }
+        
+        public void addAttributes(Iterator attrs) {
+            throw new UnsupportedOperationException(CommonResourceBundle.getInstance().getString("message.readonlyList"));
+        }
+        
+        public void addNamespace(Namespace namespace) {
+            throw new UnsupportedOperationException(CommonResourceBundle.getInstance().getString("message.readonlyList"));
+        }
+        
+        public void addNamespaces(Iterator namespaces) {
+            throw new UnsupportedOperationException(CommonResourceBundle.getInstance().getString("message.readonlyList"));
+        }
+        
+        public String toString() {
+            final StringBuilder sb = new StringBuilder(64);
+            sb.append('<').append(nameAsString());
+            for (int i = 0; i < _recycledAttributes.size(); i++) {
+                sb.append(' ').append(_recycledAttributes.get(i).toString());
+            }
+            for (int i = 0; i < _recycledNamespaces.size(); i++) {
+                sb.append(' ').append(_recycledNamespaces.get(i).toString());
+            }
+            sb.append('>');
+            return sb.toString();
+        }
+    }
+    
+    static final class RecycledEndElementEvent extends EndElementEvent {
+        final Items _recycledNamespaces = new Items();
+        
+        public void reset() {
+            _recycledNamespaces.clear();
+        }
+        
+        public Iterator getNamespaces() {
+            return _recycledNamespaces.iterator();
+        }
+        
+        public void addNamespace(Namespace namespace) {
+            throw new UnsupportedOperationException(CommonResourceBundle.getInstance().getString("message.readonlyList"));
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.stax.util;
+
+import com.sun.xml.fastinfoset.CommonResourceBundle;
+import com.sun.xml.fastinfoset.DecoderPool;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSplitter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Parses the documents obtained from a {@link StAXDocumentSplitter}
+ * concurrently using an {@link Executor}.
+ *
+ * <p>Each document is parsed by a task of the executor using a parser
+ * borrowed from a {@link DecoderPool} of parsers that are reused between
+ * documents, a parser that fails to close is not reused. The
+ * results of the tasks are delivered to a {@link ResultHandler} on the
+ * thread that calls {@link #dispatch}, either in the order of the
+ * documents or in the order the tasks complete. At most
+ * <code>maximumPendingDocuments</code> documents are read from the splitter
+ * and not yet delivered at any time, further reading waits until a result
+ * is delivered.</p>
+ */
+public class StAXDocumentDispatcher {
+
+    /**
+     * Handles a document on a thread of the executor.
+     */
+    public interface DocumentHandler {
+        /**
+         * Handle a document.
+         *
+         * @param reader the reader positioned at the start of the document.
+         * @param index the index of the document in the stream.
+         * @return the result delivered to the {@link ResultHandler}.
+         * @throws Exception if the document cannot be handled, the
+         *         exception is delivered to the {@link ResultHandler}.
+         */
+        Object handleDocument(XMLStreamReader reader, int index) throws Exception;
+    }
+
+    /**
+     * Receives the results of the documents on the thread that calls
+     * {@link StAXDocumentDispatcher#dispatch}.
+     */
+    public interface ResultHandler {
+        /**
+         * Receive the result of a document.
+         *
+         * @param index the index of the document in the stream.
+         * @param result the result returned by the {@link DocumentHandler}.
+         */
+        void handleResult(int index, Object result);
+
+        /**
+         * Receive the exception thrown when handling a document.
+         *
+         * @param index the index of the document in the stream.
+         * @param e the exception.
+         */
+        void handleError(int index, Exception e);
+    }
+
+    private static final class Completion {
+        final int index;
+
+        Object result;
+
+        Throwable error;
+
+        Completion(int index) {
+            this.index = index;
+        }
+    }
+
+    private final Executor _executor;
+
+    private final int _maximumPendingDocuments;
+
+    private final boolean _isOrdered;
+
+    private final DecoderPool<StAXDocumentParser> _parsers;
+
+    /**
+     * Creates a new instance of StAXDocumentDispatcher.
+     *
+     * @param executor the executor of the tasks that parse the documents.
+     * @param maximumPendingDocuments the maximum number of documents that
+     *        are read and whose results are not yet delivered.
+     * @param isOrdered true if the results are delivered in the order of
+     *        the documents, otherwise in the order the documents are parsed.
+     */
+    public StAXDocumentDispatcher(Executor executor, int maximumPendingDocuments, boolean isOrdered) {
+        if (maximumPendingDocuments <= 0) {
+            throw new IllegalArgumentException(CommonResourceBundle.getInstance().
+                    getString("message.invalidMaximumPendingDocuments"));
+        }
+
+        _executor = executor;
+        _maximumPendingDocuments = maximumPendingDocuments;
+        _isOrdered = isOrdered;
+        _parsers = new ParserPool(Math.min(maximumPendingDocuments, 
+                DecoderPool.DEFAULT_MAXIMUM_IDLE_INSTANCES));
+    }
+
+    /**
+     * Parse all the documents of a splitter.
+     * <p>
+     * If an exception is thrown the results of the documents that are
+     * being parsed are not delivered.
+     *
+     * @param splitter the splitter of the documents.
+     * @param documentHandler the handler of each document.
+     * @param resultHandler the receiver of the results.
+     * @return the number of documents.
+     * @throws IOException if there is an error reading the documents.
+     * @throws XMLStreamException if there is an error splitting the documents.
+     * @throws InterruptedException if interrupted while waiting for a
+     *         result.
+     */
+    public int dispatch(StAXDocumentSplitter splitter, DocumentHandler documentHandler,
+            ResultHandler resultHandler) throws IOException, XMLStreamException, InterruptedException {
+        final BlockingQueue completions = new LinkedBlockingQueue();
+        final Delivery delivery = new Delivery(resultHandler);
+
+        int submitted = 0;
+        while (true) {
+            while (submitted - delivery.delivered >= _maximumPendingDocuments) {
+                delivery.receive((Completion)completions.take());
+            }
+
+            final byte[] document = splitter.nextDocument();
+            if (document == null) {
+                break;
+            }
+            _executor.execute(new Task(document, submitted++, documentHandler, completions));
+
+            Completion c;
+            while ((c = (Completion)completions.poll()) != null) {
+                delivery.receive(c);
+            }
+        }
+
+        while (delivery.delivered < submitted) {
+            delivery.receive((Completion)completions.take());
+        }
+        return submitted;
+    }
+
+    /**
+     * Create a parser.
+     * <p>
+     * The parsers are reused for many documents. This method may be
+     * overridden to configure the parsers, for example to register
+     * external vocabularies.
+     *
+     * @return the parser.
+     */
+    protected StAXDocumentParser createParser() {
+        return new StAXDocumentParser();
+    }
+
+    private final class ParserPool extends DecoderPool<StAXDocumentParser> {
+        ParserPool(int maximumIdleInstances) {
+            super(StAXDocumentParser.class, maximumIdleInstances, DEFAULT_MAXIMUM_IDLE_FOOTPRINT);
+        }
+        
+        protected StAXDocumentParser create() {
+            return createParser();
+        }
+    }
+
+    private final class Delivery {
+        final ResultHandler handler;
+
+        /**
+         * The completions received out of order, indexed by the index of
+         * the document.
+         */
+        final Map received = new HashMap();
+
+        int delivered;
+
+        Delivery(ResultHandler handler) {
+            this.handler = handler;
+        }
+
+        void receive(Completion c) {
+            if (!_isOrdered) {
+                deliver(c);
+            } else if (c.index != delivered) {
+                received.put(Integer.valueOf(c.index), c);
+            } else {
+                deliver(c);
+                while ((c = (Completion)received.remove(Integer.valueOf(delivered))) != null) {
+                    deliver(c);
+                }
+            }
+        }
+
+        void deliver(Completion c) {
+            delivered++;
+            if (c.error == null) {
+                handler.handleResult(c.index, c.result);
+            } else if (c.error instanceof Exception) {
+                handler.handleError(c.index, (Exception)c.error);
+            } else {
+                throw (Error)c.error;
+            }
+        }
+    }
+
+    private final class Task implements Runnable {
+        final byte[] document;
+
+        final int index;
+
+        final DocumentHandler handler;
+
+        final BlockingQueue completions;
+
+        Task(byte[] document, int index, DocumentHandler handler, BlockingQueue completions) {
+            this.document = document;
+            this.index = index;
+            this.handler = handler;
+            this.completions = completions;
+        }
+
+        public void run() {
+            final Completion c = new Completion(index);
+            StAXDocumentParser parser = null;
+            try {
+                parser = _parsers.borrow();
+                parser.setInputBuffer(ByteBuffer.wrap(document));
+                c.result = handler.handleDocument(parser, index);
+            } catch (Throwable t) {
+                c.error = t;
+            } finally {
+                if (parser != null) {
+                    // Release the document before the parser is reused,
+                    // a parser that fails to close is discarded
+                    try {
+                        parser.close();
+                        _parsers.release(parser);
+                    } catch (XMLStreamException e) {
+                        if (c.error == null) {
+                            c.error = e;
+                        }
+                    }
+                }
+                completions.add(c);
+            }
+        }
+    }
+}
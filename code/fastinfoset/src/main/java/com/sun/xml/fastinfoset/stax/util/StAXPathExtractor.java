@@ -0,0 +1,370 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.stax.util;
+
+import com.sun.xml.fastinfoset.CommonResourceBundle;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jvnet.fastinfoset.FastInfosetParser;
+
+/**
+ * Extracts the values identified by simple paths from fast infoset
+ * documents.
+ *
+ * <p>A path is a sequence of element name steps, optionally followed by an
+ * attribute name step, such as <code>/Envelope/Header/MessageID</code>,
+ * <code>//Invoice/ID</code> or <code>/Envelope/Header/@id</code>. A path
+ * starting with <code>//</code> matches elements at any depth. A name is
+ * either a local name, a <code>prefix:localName</code> whose prefix has
+ * been declared using {@link #declareNamespace}, or a
+ * <code>{namespaceURI}localName</code>. An element name without a prefix is
+ * in the namespace declared for the empty prefix, which is no namespace
+ * unless declared otherwise. An attribute name without a prefix is in no
+ * namespace.</p>
+ *
+ * <p>The value of a path is the value of the attribute, or the
+ * concatenation of the character content of the element and its
+ * descendants, of the first match of the path in document order, or null
+ * if the path does not match.</p>
+ *
+ * <p>The names of the paths are compared using the name handles of the
+ * {@link StAXDocumentParser}, character content and attribute values that
+ * are not part of a value are not decoded, elements that cannot contain a
+ * match are skipped, and the document is read only until the values of all
+ * the paths are obtained. Elements can only be skipped while a path starting
+ * with <code>//</code> does not have a value.</p>
+ */
+public class StAXPathExtractor {
+
+    private static final class Path {
+        final String path;
+
+        final boolean isDescendant;
+
+        final int[] steps;
+
+        final int attribute;
+
+        /**
+         * The number of steps matched by the open elements, for a path that
+         * does not start with "//".
+         */
+        int matchedDepth;
+
+        /**
+         * The depth of the element whose character content is being
+         * concatenated, or zero.
+         */
+        int valueDepth;
+
+        final StringBuilder value = new StringBuilder();
+
+        boolean isResolved;
+
+        Path(String path, boolean isDescendant, int[] steps, int attribute) {
+            this.path = path;
+            this.isDescendant = isDescendant;
+            this.steps = steps;
+            this.attribute = attribute;
+        }
+    }
+
+    private final StAXDocumentParser _parser;
+
+    private final Map _namespaces = new HashMap();
+
+    private final List _paths = new ArrayList();
+
+    private int[] _elementHandles = new int[16];
+
+    /** Creates a new instance of StAXPathExtractor */
+    public StAXPathExtractor() {
+        this(new StAXDocumentParser());
+    }
+
+    /**
+     * Creates a new instance of StAXPathExtractor that extracts values
+     * using a parser.
+     * <p>
+     * The names of the paths are registered with the parser.
+     *
+     * @param parser the parser.
+     */
+    public StAXPathExtractor(StAXDocumentParser parser) {
+        _parser = parser;
+        _namespaces.put("", "");
+    }
+
+    /**
+     * Declare the namespace of a prefix used by the names of paths that are
+     * subsequently added.
+     *
+     * @param prefix the prefix, or the empty string for the namespace of
+     *        element names without a prefix.
+     * @param namespaceURI the namespace name.
+     */
+    public void declareNamespace(String prefix, String namespaceURI) {
+        _namespaces.put(prefix, namespaceURI);
+    }
+
+    /**
+     * Add a path.
+     *
+     * @param path the path.
+     * @return the index of the value of the path in the array of values
+     *         returned by {@link #extract}.
+     * @throws IllegalArgumentException if the path is not valid.
+     */
+    public int addPath(String path) {
+        if (!path.startsWith("/") || path.endsWith("/")) {
+            throw new IllegalArgumentException(CommonResourceBundle.getInstance().
+                    getString("message.invalidPath", new Object[]{path}));
+        }
+
+        final boolean isDescendant = path.startsWith("//");
+        final String[] names = path.substring(isDescendant ? 2 : 1).split("/", -1);
+
+        int stepCount = names.length;
+        int attribute = FastInfosetParser.NO_NAME_HANDLE;
+        if (names[stepCount - 1].startsWith("@")) {
+            attribute = registerName(path, names[--stepCount].substring(1), "");
+        }
+        if (stepCount == 0 && !isDescendant) {
+            throw new IllegalArgumentException(CommonResourceBundle.getInstance().
+                    getString("message.invalidPath", new Object[]{path}));
+        }
+
+        final int[] steps = new int[stepCount];
+        for (int i = 0; i < stepCount; i++) {
+            steps[i] = registerName(path, names[i], (String)_namespaces.get(""));
+        }
+
+        _paths.add(new Path(path, isDescendant, steps, attribute));
+        return _paths.size() - 1;
+    }
+
+    /**
+     * Get the number of paths.
+     *
+     * @return the number of paths.
+     */
+    public int getPathCount() {
+        return _paths.size();
+    }
+
+    /**
+     * Get a path.
+     *
+     * @param index the index of the path.
+     * @return the path.
+     */
+    public String getPath(int index) {
+        return ((Path)_paths.get(index)).path;
+    }
+
+    /**
+     * Extract the values of the paths from a fast infoset document.
+     *
+     * @param s the input stream of the document.
+     * @return the values of the paths, in the order the paths were added,
+     *         a value being null if the path does not match.
+     * @throws XMLStreamException if there is an error decoding the document.
+     */
+    public String[] extract(InputStream s) throws XMLStreamException {
+        final Path[] paths = (Path[])_paths.toArray(new Path[_paths.size()]);
+        for (int i = 0; i < paths.length; i++) {
+            final Path p = paths[i];
+            p.matchedDepth = 0;
+            p.valueDepth = 0;
+            p.value.setLength(0);
+            p.isResolved = false;
+        }
+
+        final boolean isValueDecodingDeferred = _parser.isValueDecodingDeferred();
+        _parser.setValueDecodingDeferred(true);
+        try {
+            _parser.setInputStream(s);
+            extract(paths);
+        } finally {
+            _parser.setValueDecodingDeferred(isValueDecodingDeferred);
+        }
+
+        final String[] values = new String[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i].isResolved) {
+                values[i] = paths[i].value.toString();
+            }
+        }
+        return values;
+    }
+
+    private void extract(Path[] paths) throws XMLStreamException {
+        int unresolved = paths.length;
+        int collecting = 0;
+        int depth = 0;
+
+        while (unresolved > 0 && _parser.hasNext()) {
+            switch (_parser.next()) {
+                case XMLStreamReader.START_ELEMENT:
+                {
+                    final int handle = _parser.getNameHandle();
+                    if (depth == _elementHandles.length) {
+                        final int[] elementHandles = new int[depth * 3 / 2 + 1];
+                        System.arraycopy(_elementHandles, 0, elementHandles, 0, depth);
+                        _elementHandles = elementHandles;
+                    }
+                    _elementHandles[depth++] = handle;
+
+                    boolean isOpen = collecting > 0;
+                    for (int i = 0; i < paths.length; i++) {
+                        final Path p = paths[i];
+                        if (p.isResolved || p.valueDepth > 0) {
+                            continue;
+                        }
+
+                        boolean isMatch = false;
+                        if (p.isDescendant) {
+                            isOpen = true;
+                            isMatch = matchesOpenElements(p.steps, depth);
+                        } else if (p.matchedDepth == depth - 1 && depth <= p.steps.length &&
+                                p.steps[depth - 1] == handle) {
+                            p.matchedDepth = depth;
+                            isMatch = (depth == p.steps.length);
+                            isOpen |= !isMatch;
+                        }
+
+                        if (!isMatch) {
+                            continue;
+                        } else if (p.attribute != FastInfosetParser.NO_NAME_HANDLE) {
+                            final String value = getAttributeValue(p.attribute);
+                            if (value != null) {
+                                p.value.append(value);
+                                p.isResolved = true;
+                                unresolved--;
+                            }
+                        } else {
+                            p.valueDepth = depth;
+                            collecting++;
+                            isOpen = true;
+                        }
+                    }
+
+                    if (!isOpen) {
+                        _parser.skipElement();
+                        for (int i = 0; i < paths.length; i++) {
+                            if (paths[i].matchedDepth == depth) {
+                                paths[i].matchedDepth--;
+                            }
+                        }
+                        depth--;
+                    }
+                    break;
+                }
+                case XMLStreamReader.END_ELEMENT:
+                    for (int i = 0; i < paths.length; i++) {
+                        final Path p = paths[i];
+                        if (p.valueDepth == depth) {
+                            p.valueDepth = 0;
+                            p.isResolved = true;
+                            collecting--;
+                            unresolved--;
+                        }
+                        if (p.matchedDepth == depth) {
+                            p.matchedDepth--;
+                        }
+                    }
+                    depth--;
+                    break;
+                case XMLStreamReader.CHARACTERS:
+                case XMLStreamReader.CDATA:
+                case XMLStreamReader.SPACE:
+                    if (collecting > 0) {
+                        final char[] ch = _parser.getTextCharacters();
+                        final int start = _parser.getTextStart();
+                        final int length = _parser.getTextLength();
+                        for (int i = 0; i < paths.length; i++) {
+                            final Path p = paths[i];
+                            if (p.valueDepth > 0) {
+                                p.value.append(ch, start, length);
+                            }
+                        }
+                    }
+                    break;
+            }
+        }
+    }
+
+    private boolean matchesOpenElements(int[] steps, int depth) {
+        if (steps.length > depth) {
+            return false;
+        }
+
+        for (int i = steps.length - 1, j = depth - 1; i >= 0; i--, j--) {
+            if (steps[i] != _elementHandles[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getAttributeValue(int handle) {
+        final int count = _parser.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            if (_parser.getAttributeNameHandle(i) == handle) {
+                return _parser.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private int registerName(String path, String name, String defaultNamespaceURI) {
+        String namespaceURI = defaultNamespaceURI;
+        String localName = name;
+        if (name.startsWith("{")) {
+            final int end = name.indexOf('}');
+            if (end != -1) {
+                namespaceURI = name.substring(1, end);
+                localName = name.substring(end + 1);
+            }
+        } else {
+            final int colon = name.indexOf(':');
+            if (colon != -1) {
+                namespaceURI = (String)_namespaces.get(name.substring(0, colon));
+                if (namespaceURI == null) {
+                    throw new IllegalArgumentException(CommonResourceBundle.getInstance().
+                            getString("message.pathPrefixNotDeclared",
+                            new Object[]{name.substring(0, colon), path}));
+                }
+                localName = name.substring(colon + 1);
+            }
+        }
+
+        if (localName.length() == 0 || localName.indexOf('{') != -1 || localName.indexOf('}') != -1 ||
+                localName.indexOf(':') != -1 || localName.indexOf('@') != -1) {
+            throw new IllegalArgumentException(CommonResourceBundle.getInstance().
+                    getString("message.invalidPath", new Object[]{path}));
+        }
+        return _parser.registerNameHandle(namespaceURI, localName);
+    }
+}
@@ -34,6 +34,10 @@ public class CharArrayArray extends ValueArray {
         this(DEFAULT_CAPACITY, MAXIMUM_CAPACITY);
     }
     
+    public int getFootprint() {
+        return _array.length * REFERENCE_FOOTPRINT;
+    }
+    
     public final void clear() {
         for (int i = 0; i < _size; i++) {
             _array[i] = null;
@@ -26,43 +26,32 @@ public class CharArrayIntMap extends KeyIntMap {
     // Total character count of Map
     protected int _totalCharacterCount;
     
-    static class Entry extends BaseEntry {
-        final char[] _ch;
-        final int _start;
-        final int _length;
-        Entry _next;
-        
-        public Entry(char[] ch, int start, int length, int hash, int value, Entry next) {
-            super(hash, value);
-            _ch = ch;
-            _start = start;
-            _length = length;
-            _next = next;
-        }
-        
-        public final boolean equalsCharArray(char[] ch, int start, int length) {
-            if (_length == length) {
-                int n = _length;
-                int i = _start;
-                int j = start;
-                while (n-- != 0) {
-                    if (_ch[i++] != ch[j++])
-                        return false;
-                }
-                return true;
-            }
-
-            return false;
-        }
-        
-    }
+    /**
+     * The characters of the keys, packed one after the other in the order
+     * the entries were added.
+     */
+    private char[] _chars;
     
-    private Entry[] _table;
+    /**
+     * The number of characters of the keys up to which the array of 
+     * characters of a map that is cleared is retained.
+     */
+    private static final int RETAINED_CHARACTER_COUNT = RETAINED_CAPACITY * 8;
+    
+    /**
+     * The offsets in the packed characters, lengths and values of the entries.
+     */
+    private int[] _starts;
+    private int[] _lengths;
+    private int[] _values;
     
     public CharArrayIntMap(int initialCapacity, float loadFactor) {
         super(initialCapacity, loadFactor);
 
-        _table = new Entry[_capacity];        
+        _starts = new int[_hashes.length];
+        _lengths = new int[_hashes.length];
+        _values = new int[_hashes.length];
+        _chars = new char[_hashes.length * 8];
     }
     
     public CharArrayIntMap(int initialCapacity) {
@@ -73,9 +62,20 @@ public class CharArrayIntMap extends KeyIntMap {
         this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
     }
 
+    public int getFootprint() {
+        return super.getFootprint() + (_starts.length + _lengths.length + _values.length) * 4 +
+                _chars.length * 2;
+    }
+
     public final void clear() {
-        for (int i = 0; i < _table.length; i++) {
-            _table[i] = null;
+        checkNotFrozen();
+        if (clearSlotsAndShrink()) {
+            _starts = new int[_hashes.length];
+            _lengths = new int[_hashes.length];
+            _values = new int[_hashes.length];
+        }
+        if (_chars.length > Math.max(_hashes.length * 8, RETAINED_CHARACTER_COUNT)) {
+            _chars = new char[_hashes.length * 8];
         }
         _size = 0;
         _totalCharacterCount = 0;
@@ -91,6 +91,7 @@ public class CharArrayIntMap extends KeyIntMap {
     }
     
     public final void setReadOnlyMap(CharArrayIntMap readOnlyMap, boolean clear) {
+        checkNotFrozen();
         _readOnlyMap = readOnlyMap;
         if (_readOnlyMap != null) {
             _readOnlyMapSize = _readOnlyMap.size();
@@ -119,6 +120,9 @@ public class CharArrayIntMap extends KeyIntMap {
      * Method returns an index of the passed character buffer in 
      * <code>CharArrayIntMap</code>. If character buffer is not in 
      * <code>CharArrayIntMap</code> - it will be added.
+     * <p>
+     * The characters of an added entry are always copied, the clone
+     * parameter is retained for compatibility.
      * 
      * @return index of character buffer in <code>CharArrayIntMap</code>, or
      * NOT_PRESENT if character buffer was just added.
@@ -133,22 +137,12 @@ public class CharArrayIntMap extends KeyIntMap {
             }
         }
         
-        final int tableIndex = indexFor(hash, _table.length);
-        for (Entry e = _table[tableIndex]; e != null; e = e._next) {
-            if (e._hash == hash && e.equalsCharArray(ch, start, length)) {
-                return e._value;
-            }
+        final int e = find(ch, start, length, hash);
+        if (e >= 0) {
+            return _values[e];
         }
 
-        if (clone) {
-            char[] chClone = new char[length];
-            System.arraycopy(ch, start, chClone, 0, length);
-
-            ch = chClone;
-            start = 0;
-        }
-        
-        addEntry(ch, start, length, hash, _size + _readOnlyMapSize, tableIndex);        
+        addEntry(ch, start, length, hash, _size + _readOnlyMapSize);        
         return NOT_PRESENT;
     }
     
@@ -164,55 +158,77 @@ public class CharArrayIntMap extends KeyIntMap {
             }
         }
 
-        final int tableIndex = indexFor(hash, _table.length);
-        for (Entry e = _table[tableIndex]; e != null; e = e._next) {
-            if (e._hash == hash && e.equalsCharArray(ch, start, length)) {
-                return e._value;
+        final int e = find(ch, start, length, hash);
+        return (e >= 0) ? _values[e] : NOT_PRESENT;
+    }
+
+    /**
+     * Find the position of the entry of a key.
+     *
+     * @return the position of the entry, otherwise -1.
+     */
+    private final int find(char[] ch, int start, int length, int hash) {
+        final int[] slots = _slots;
+        final int mask = slots.length - 2;
+        for (int i = (hash << 1) & mask; ; i = (i + 2) & mask) {
+            final int e = slots[i] - 1;
+            if (e < 0 || (slots[i + 1] == hash && equalsCharArray(e, ch, start, length))) {
+                return e;
             }
         }
-                
-        return NOT_PRESENT;
     }
 
-    private final void addEntry(char[] ch, int start, int length, int hash, int value, int bucketIndex) {
-	Entry e = _table[bucketIndex];
-        _table[bucketIndex] = new Entry(ch, start, length, hash, value, e);
-        _totalCharacterCount += length;
-                if (_size++ >= _threshold) {
-            resize(2 * _table.length);
-        }        
+    private final boolean equalsCharArray(int e, char[] ch, int start, int length) {
+        if (_lengths[e] == length) {
+            final char[] chars = _chars;
+            int i = _starts[e];
+            int j = start;
+            int n = length;
+            while (n-- != 0) {
+                if (chars[i++] != ch[j++])
+                    return false;
+            }
+            return true;
+        }
+
+        return false;
     }
     
-    private final void resize(int newCapacity) {
-        _capacity = newCapacity;
-        Entry[] oldTable = _table;
-        int oldCapacity = oldTable.length;
-        if (oldCapacity == MAXIMUM_CAPACITY) {
-            _threshold = Integer.MAX_VALUE;
+    private final void addEntry(char[] ch, int start, int length, int hash, int value) {
+        checkNotFrozen();
+        if (isFull()) {
             return;
         }
-
-        Entry[] newTable = new Entry[_capacity];
-        transfer(newTable);
-        _table = newTable;
-        _threshold = (int)(_capacity * _loadFactor);        
-    }
-
-    private final void transfer(Entry[] newTable) {
-        Entry[] src = _table;
-        int newCapacity = newTable.length;
-        for (int j = 0; j < src.length; j++) {
-            Entry e = src[j];
-            if (e != null) {
-                src[j] = null;
-                do {
-                    Entry next = e._next;
-                    int i = indexFor(e._hash, newCapacity);  
-                    e._next = newTable[i];
-                    newTable[i] = e;
-                    e = next;
-                } while (e != null);
-            }
+        final int capacity = ensureEntryCapacity();
+        if (capacity > 0) {
+            final int[] starts = new int[capacity];
+            System.arraycopy(_starts, 0, starts, 0, _size);
+            _starts = starts;
+            final int[] lengths = new int[capacity];
+            System.arraycopy(_lengths, 0, lengths, 0, _size);
+            _lengths = lengths;
+            final int[] values = new int[capacity];
+            System.arraycopy(_values, 0, values, 0, _size);
+            _values = values;
         }
-    }        
+        
+        // The entries are packed in the order they were added and so the
+        // characters of the new entry follow those of the last entry
+        final int offset = (_size > 0) ? _starts[_size - 1] + _lengths[_size - 1] : 0;
+        if (_chars.length - offset < length) {
+            final char[] chars = new char[Math.max(_chars.length * 2, offset + length)];
+            System.arraycopy(_chars, 0, chars, 0, offset);
+            _chars = chars;
+        }
+        System.arraycopy(ch, start, _chars, offset, length);
+        
+        _starts[_size] = offset;
+        _lengths[_size] = length;
+        _values[_size] = value;
+        _hashes[_size] = hash;
+        addSlot(hash);
+        _size++;
+        _totalCharacterCount += length;
+        resizeIfRequired();
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.util;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe {@link StringInterner} that caches interned strings.
+ * <p>
+ * The strings are weakly referenced from a fixed number of slots, grouped
+ * into buckets of four slots selected by the hash of the characters. A
+ * string is looked up by comparing its characters with those of the strings
+ * in its bucket, so a string is created only if it is not cached. The slots
+ * are read and written using atomic operations and are never locked. When
+ * the bucket of a string that is not cached is full, the string replaces
+ * one of the cached strings of the bucket.
+ * <p>
+ * By default the cache holds the canonical instances of the strings, and
+ * the JVM string table is never consulted, so interned strings are 
+ * collected when no longer referenced. Strings of equal characters
+ * interned at different times may only be different instances if the
+ * string was replaced in the cache in between, and are not identical to
+ * string literals.
+ * <p>
+ * Optionally the strings that are not cached are interned using
+ * {@link String#intern()}, so the interned strings are identical to
+ * string literals, as the SAX string interning feature describes, while 
+ * the JVM string table is only consulted the first time a string is 
+ * cached.
+ */
+public class ConcurrentStringInterner implements StringInterner {
+    /**
+     * The default number of cached strings.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+    
+    private static final int BUCKET_SIZE = 4;
+    
+    private static final ConcurrentStringInterner _instance = new ConcurrentStringInterner();
+    
+    private static final class Entry extends WeakReference<String> {
+        final int hash;
+        
+        Entry(String s, int hash) {
+            super(s);
+            this.hash = hash;
+        }
+    }
+    
+    private final AtomicReferenceArray<Entry> _slots;
+    
+    private final int _bucketMask;
+    
+    private final boolean _useStringIntern;
+    
+    /**
+     * @return the interner shared by the parsers.
+     */
+    public static ConcurrentStringInterner getInstance() {
+        return _instance;
+    }
+    
+    public ConcurrentStringInterner() {
+        this(DEFAULT_CAPACITY, false);
+    }
+    
+    /**
+     * @param capacity the number of cached strings, rounded up to a power
+     *        of two.
+     * @param useStringIntern true if the strings that are not cached are
+     *        interned using {@link String#intern()}.
+     */
+    public ConcurrentStringInterner(int capacity, boolean useStringIntern) {
+        int n = BUCKET_SIZE;
+        while (n < capacity) {
+            n <<= 1;
+        }
+        _slots = new AtomicReferenceArray<Entry>(n);
+        _bucketMask = n - BUCKET_SIZE;
+        _useStringIntern = useStringIntern;
+    }
+    
+    public final String intern(char[] ch, int start, int length) {
+        int hash = 0;
+        final int end = start + length;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + ch[i];
+        }
+        
+        final int bucket = bucket(hash);
+        for (int slot = bucket; slot < bucket + BUCKET_SIZE; slot++) {
+            final Entry e = _slots.get(slot);
+            if (e != null && e.hash == hash) {
+                final String s = e.get();
+                if (s != null && equals(s, ch, start, length)) {
+                    return s;
+                }
+            }
+        }
+        
+        return add(new String(ch, start, length), hash, bucket);
+    }
+    
+    public final String intern(byte[] octets, int start, int length) {
+        int hash = 0;
+        final int end = start + length;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + octets[i];
+        }
+        
+        final int bucket = bucket(hash);
+        for (int slot = bucket; slot < bucket + BUCKET_SIZE; slot++) {
+            final Entry e = _slots.get(slot);
+            if (e != null && e.hash == hash) {
+                final String s = e.get();
+                if (s != null && equals(s, octets, start, length)) {
+                    return s;
+                }
+            }
+        }
+        
+        return add(toString(octets, start, length), hash, bucket);
+    }
+    
+    /**
+     * Remove all the cached strings.
+     */
+    public final void clear() {
+        for (int i = 0; i < _slots.length(); i++) {
+            _slots.set(i, null);
+        }
+    }
+    
+    private int bucket(int hash) {
+        // Spread the high bits of the hash to the bits of the bucket
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return hash & _bucketMask;
+    }
+    
+    private String add(String s, int hash, int bucket) {
+        if (_useStringIntern) {
+            s = s.intern();
+        }
+        
+        // Use an empty slot or the slot of a collected string, otherwise
+        // replace a string in the bucket
+        int replaced = bucket + ((hash >>> 28) & (BUCKET_SIZE - 1));
+        for (int slot = bucket; slot < bucket + BUCKET_SIZE; slot++) {
+            final Entry e = _slots.get(slot);
+            if (e == null || e.get() == null) {
+                replaced = slot;
+                break;
+            }
+        }
+        _slots.set(replaced, new Entry(s, hash));
+        return s;
+    }
+    
+    private static String toString(byte[] octets, int start, int length) {
+        try {
+            // US-ASCII octets are ISO-8859-1 characters
+            return new String(octets, start, length, "ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            // Every implementation of the Java platform supports ISO-8859-1
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static boolean equals(String s, char[] ch, int start, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != ch[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean equals(String s, byte[] octets, int start, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != octets[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -51,6 +51,14 @@ public class ContiguousCharArrayArray extends ValueArray {
                 INITIAL_CHARACTER_SIZE, MAXIMUM_CHARACTER_SIZE);
     }
     
+    public int getFootprint() {
+        int footprint = _array.length * 2 + (_offset.length + _length.length) * 4;
+        if (_cachedStrings != null) {
+            footprint += _cachedStrings.length * REFERENCE_FOOTPRINT;
+        }
+        return footprint;
+    }
+    
     public final void clear() {
         _arrayIndex = _readOnlyArrayIndex;
         _size = _readOnlyArraySize;
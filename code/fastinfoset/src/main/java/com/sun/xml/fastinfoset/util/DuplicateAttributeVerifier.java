@@ -17,98 +17,129 @@
  */
 package com.sun.xml.fastinfoset.util;
 
+import java.util.Arrays;
 import org.jvnet.fastinfoset.FastInfosetException;
 import com.sun.xml.fastinfoset.CommonResourceBundle;
 
-
+/**
+ * Verifies that the attributes of an element have different qualified
+ * names.
+ * <p>
+ * The attribute identifiers of the current element are held in an open
+ * addressed table of int pairs, the identifier and the iteration,
+ * incremented for each element, in which the slot was filled. The slots of
+ * previous elements are free without clearing the table. The table is
+ * doubled when it is half full, so its size follows the largest attribute
+ * count seen.
+ */
 public class DuplicateAttributeVerifier {
+    /**
+     * The modulus of the attribute hash of a {@link QualifiedName}.
+     */
     public static final int MAP_SIZE = 256;
     
-    public int _currentIteration;
+    private static final int INITIAL_CAPACITY = 32;
     
-    public static class Entry {
-        private int iteration;
-        private int value;
-        
-        private Entry hashNext;
-        
-        private Entry poolNext;
-    }
+    public int _currentIteration;
     
-    private Entry[] _map;
-       
-    public final Entry _poolHead;
-    public Entry _poolCurrent;
-    private Entry _poolTail;
+    /**
+     * The identifier and iteration of each slot.
+     */
+    private int[] _slots = new int[INITIAL_CAPACITY * 2];
     
+    /**
+     * The number of identifiers of the current iteration.
+     */
+    private int _count;
     
     public DuplicateAttributeVerifier() {
-        _poolTail = _poolHead = new Entry();
     }
     
     public final void clear() {
         _currentIteration = 0;
-
-        Entry e = _poolHead;
-        while (e != null) {
-            e.iteration = 0;
-            e = e.poolNext;
-        }
-        
+        Arrays.fill(_slots, 0);
         reset();
     }
     
     public final void reset() {
-        _poolCurrent = _poolHead;
-        if (_map == null) {
-            _map = new Entry[MAP_SIZE];
-        }
+        _count = 0;
     }
     
-    private final void increasePool(int capacity) {
-        if (_map == null) {
-            _map = new Entry[MAP_SIZE];
-            _poolCurrent = _poolHead;
-        } else {
-            final Entry tail = _poolTail;
-            for (int i = 0; i < capacity; i++) {
-                final Entry e = new Entry();
-                _poolTail.poolNext = e;
-                _poolTail = e;
-            }
-
-            _poolCurrent = tail.poolNext;
+    /**
+     * Start verifying the attributes of an element.
+     */
+    public final void startElement() {
+        if (++_currentIteration == Integer.MAX_VALUE) {
+            clear();
+            _currentIteration = 1;
         }
+        _count = 0;
     }
     
+    /**
+     * Check that an attribute identifier has not been checked for the
+     * current element.
+     *
+     * @param hash the attribute hash, unused.
+     * @param value the attribute identifier.
+     * @throws FastInfosetException if the attribute identifier has been
+     *         checked.
+     */
     public final void checkForDuplicateAttribute(int hash, int value) throws FastInfosetException {
-        if (_poolCurrent == null) {
-            increasePool(16);
+        checkForDuplicateAttribute(value);
+    }
+    
+    /**
+     * Check that an attribute identifier has not been checked for the
+     * current element, see {@link #startElement}.
+     *
+     * @param value the attribute identifier.
+     * @throws FastInfosetException if the attribute identifier has been
+     *         checked.
+     */
+    public final void checkForDuplicateAttribute(int value) throws FastInfosetException {
+        if (_count >= _slots.length >> 2) {
+            increaseCapacity();
         }
         
-        // Get next free entry
-        final Entry newEntry = _poolCurrent;
-        _poolCurrent = _poolCurrent.poolNext;
-
-        final Entry head = _map[hash];
-        if (head == null || head.iteration < _currentIteration) {
-            newEntry.hashNext = null;
-            _map[hash] = newEntry;
-            newEntry.iteration = _currentIteration;
-            newEntry.value = value;
-        } else {
-            Entry e = head;
-            do {
-                if (e.value == value) {
-                    reset();
-                    throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.duplicateAttribute"));
-                }
-            } while ((e = e.hashNext) != null);
-            
-            newEntry.hashNext = head;
-            _map[hash] = newEntry;
-            newEntry.iteration = _currentIteration;
-            newEntry.value = value;
-        }        
+        if (!add(_slots, value)) {
+            throw new FastInfosetException(CommonResourceBundle.getInstance().getString("message.duplicateAttribute"));
+        }
+        _count++;
+    }
+    
+    /**
+     * Add an identifier to the slots.
+     *
+     * @return false if the identifier is present.
+     */
+    private boolean add(int[] slots, int value) {
+        final int iteration = _currentIteration;
+        final int mask = slots.length - 2;
+        // The low bits of an identifier are the local name index and the
+        // high bits the namespace name index
+        int slot = ((value ^ (value >>> 20)) << 1) & mask;
+        while (slots[slot + 1] == iteration) {
+            if (slots[slot] == value) {
+                return false;
+            }
+            slot = (slot + 2) & mask;
+        }
+        
+        slots[slot] = value;
+        slots[slot + 1] = iteration;
+        return true;
+    }
+    
+    private void increaseCapacity() {
+        final int[] slots = _slots;
+        final int iteration = _currentIteration;
+        
+        _slots = new int[slots.length << 1];
+        for (int slot = 0; slot < slots.length; slot += 2) {
+            if (slots[slot + 1] == iteration) {
+                add(_slots, slots[slot]);
+            }
+        }
     }
 }
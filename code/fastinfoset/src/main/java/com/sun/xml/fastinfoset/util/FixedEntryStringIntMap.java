@@ -21,18 +21,18 @@ import com.sun.xml.fastinfoset.CommonResourceBundle;
 
 public class FixedEntryStringIntMap extends StringIntMap {
     
-    private Entry _fixedEntry;
+    /**
+     * The fixed entry, which is always the first entry, or null if the
+     * entry has been removed.
+     */
+    private String _fixedEntry;
 
     public FixedEntryStringIntMap(String fixedEntry, int initialCapacity, float loadFactor) {
         super(initialCapacity, loadFactor);
         
         // Add the fixed entry
-        final int hash = hashHash(fixedEntry.hashCode());
-        final int tableIndex = indexFor(hash, _table.length);
-        _table[tableIndex] = _fixedEntry = new Entry(fixedEntry, hash, _index++, null);
-        if (_size++ >= _threshold) {
-            resize(2 * _table.length);
-        }
+        _fixedEntry = fixedEntry;
+        addFixedEntry();
     }
     
     public FixedEntryStringIntMap(String fixedEntry, int initialCapacity) {
@@ -44,23 +44,21 @@ public class FixedEntryStringIntMap extends StringIntMap {
     }
 
     public final void clear() {
-        for (int i = 0; i < _table.length; i++) {
-            _table[i] = null;
-        }
-        _lastEntry = NULL_ENTRY;
+        super.clear();
         
         if (_fixedEntry != null) {
-            final int tableIndex = indexFor(_fixedEntry._hash, _table.length);
-            _table[tableIndex] = _fixedEntry;
-            _fixedEntry._next = null;
-            _size = 1;
-            _index = _readOnlyMapSize + 1;
-        } else {
-            _size = 0;
-            _index = _readOnlyMapSize;
+            addFixedEntry();
         }
     }
 
+    private void addFixedEntry() {
+        // The fixed entry has the first index, and its characters are not
+        // counted
+        addEntry(_fixedEntry, hashHash(_fixedEntry.hashCode()), 0);
+        _index++;
+        _totalCharacterCount -= _fixedEntry.length();
+    }
+
     public final void setReadOnlyMap(KeyIntMap readOnlyMap, boolean clear) {
         if (!(readOnlyMap instanceof FixedEntryStringIntMap)) {
             throw new IllegalArgumentException(CommonResourceBundle.getInstance().
@@ -71,6 +69,8 @@ public class FixedEntryStringIntMap extends StringIntMap {
     }
     
     public final void setReadOnlyMap(FixedEntryStringIntMap readOnlyMap, boolean clear) {
+        checkNotFrozen();
+        clearCache();
         _readOnlyMap = readOnlyMap;
         if (_readOnlyMap != null) {
             readOnlyMap.removeFixedEntry();
@@ -84,22 +84,21 @@ public class FixedEntryStringIntMap extends StringIntMap {
         }     
     }
     
+    /**
+     * Freeze the map. The fixed entry is removed, as it is when the map is
+     * set as a read-only map.
+     */
+    public final void freeze() {
+        if (!_isFrozen) {
+            removeFixedEntry();
+            super.freeze();
+        }
+    }
+    
     private final void removeFixedEntry() {
         if (_fixedEntry != null) {
-            final int tableIndex = indexFor(_fixedEntry._hash, _table.length);
-            final Entry firstEntry = _table[tableIndex];
-            if (firstEntry == _fixedEntry) {
-                _table[tableIndex] = _fixedEntry._next;
-            } else {
-                Entry previousEntry = firstEntry;
-                while (previousEntry._next != _fixedEntry) {
-                    previousEntry = previousEntry._next;
-                }
-                previousEntry._next = _fixedEntry._next;
-            }
-            
+            removeFirstEntry();
             _fixedEntry = null;
-            _size--;
         }
     }    
 }
@@ -0,0 +1,230 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe pool of reusable instances.
+ * <p>
+ * Idle instances are held in a fixed number of slots that are claimed and
+ * released using atomic operations, so borrowing and releasing never block.
+ * The slot that is probed first is derived from the identity of the current
+ * thread, which spreads concurrent platform or virtual threads over 
+ * different slots.
+ * <p>
+ * The memory held by idle instances is capped by the maximum number of 
+ * idle instances and by the maximum footprint of an idle instance. An 
+ * instance whose footprint is larger than the maximum is discarded when
+ * released.
+ */
+public abstract class InstancePool<T> {
+    /**
+     * The default maximum number of idle instances.
+     */
+    public static final int DEFAULT_MAXIMUM_IDLE_INSTANCES = 
+            2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The default maximum footprint, in bytes, of an idle instance.
+     */
+    public static final int DEFAULT_MAXIMUM_IDLE_FOOTPRINT = 1024 * 1024;
+    
+    private final AtomicReferenceArray<T> _idle;
+    
+    private final int _maximumIdleFootprint;
+
+    private final AtomicLong _idleFootprint = new AtomicLong();
+
+    private final AtomicLong _borrowCount = new AtomicLong();
+    
+    private final AtomicLong _hitCount = new AtomicLong();
+    
+    private final AtomicLong _discardCount = new AtomicLong();
+    
+    protected InstancePool() {
+        this(DEFAULT_MAXIMUM_IDLE_INSTANCES, DEFAULT_MAXIMUM_IDLE_FOOTPRINT);
+    }
+    
+    /**
+     * @param maximumIdleInstances the maximum number of idle instances.
+     * @param maximumIdleFootprint the maximum footprint, in bytes, of an
+     *        idle instance.
+     */
+    protected InstancePool(int maximumIdleInstances, int maximumIdleFootprint) {
+        if (maximumIdleInstances < 0) {
+            maximumIdleInstances = 0;
+        }
+        _idle = new AtomicReferenceArray<T>(maximumIdleInstances);
+        _maximumIdleFootprint = maximumIdleFootprint;
+    }
+    
+    /**
+     * Borrow an instance from the pool.
+     * <p>
+     * An idle instance is returned if present, otherwise a new instance
+     * is created.
+     *
+     * @return the instance.
+     */
+    public final T borrow() {
+        _borrowCount.incrementAndGet();
+        
+        final int length = _idle.length();
+        int slot = probe(length);
+        for (int i = 0; i < length; i++) {
+            if (_idle.get(slot) != null) {
+                final T t = _idle.getAndSet(slot, null);
+                if (t != null) {
+                    _hitCount.incrementAndGet();
+                    _idleFootprint.addAndGet(-getFootprint(t));
+                    return t;
+                }
+            }
+            if (++slot == length) {
+                slot = 0;
+            }
+        }
+        
+        return create();
+    }
+    
+    /**
+     * Release an instance, previously borrowed from the pool, back to the 
+     * pool.
+     * <p>
+     * The instance is reset. It is discarded if the maximum number of 
+     * idle instances is reached or if its footprint is larger than the
+     * maximum footprint of an idle instance.
+     *
+     * @param t the instance.
+     */
+    public final void release(T t) {
+        reset(t);
+        
+        final int footprint = getFootprint(t);
+        if (footprint <= _maximumIdleFootprint) {
+            final int length = _idle.length();
+            int slot = probe(length);
+            for (int i = 0; i < length; i++) {
+                if (_idle.get(slot) == null && _idle.compareAndSet(slot, null, t)) {
+                    _idleFootprint.addAndGet(footprint);
+                    return;
+                }
+                if (++slot == length) {
+                    slot = 0;
+                }
+            }
+        }
+        
+        _discardCount.incrementAndGet();
+    }
+    
+    /**
+     * @return the number of instances borrowed from the pool.
+     */
+    public final long getBorrowCount() {
+        return _borrowCount.get();
+    }
+    
+    /**
+     * @return the number of borrowed instances that were idle instances.
+     */
+    public final long getHitCount() {
+        return _hitCount.get();
+    }
+    
+    /**
+     * @return the ratio of borrowed instances that were idle instances,
+     *         or 0 if no instances have been borrowed.
+     */
+    public final double getHitRate() {
+        final long borrowCount = _borrowCount.get();
+        return (borrowCount == 0) ? 0 : (double)_hitCount.get() / borrowCount;
+    }
+
+    /**
+     * @return the number of released instances that were discarded.
+     */
+    public final long getDiscardCount() {
+        return _discardCount.get();
+    }
+    
+    /**
+     * @return the number of idle instances.
+     */
+    public final int getIdleCount() {
+        int count = 0;
+        for (int i = 0; i < _idle.length(); i++) {
+            if (_idle.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * @return the sum of the footprints, in bytes, of the idle instances.
+     */
+    public final long getIdleFootprint() {
+        return _idleFootprint.get();
+    }
+    
+    /**
+     * Discard all idle instances.
+     */
+    public final void clear() {
+        for (int i = 0; i < _idle.length(); i++) {
+            final T t = _idle.getAndSet(i, null);
+            if (t != null) {
+                _idleFootprint.addAndGet(-getFootprint(t));
+            }
+        }
+    }
+    
+    private int probe(int length) {
+        if (length == 0) {
+            return 0;
+        }
+        final int h = (int)Thread.currentThread().getId() * 0x9E3779B9;
+        return (h >>> 1) % length;
+    }
+    
+    /**
+     * Create a new instance.
+     *
+     * @return the instance.
+     */
+    protected abstract T create();
+    
+    /**
+     * Reset an instance before it becomes idle.
+     *
+     * @param t the instance.
+     */
+    protected abstract void reset(T t);
+    
+    /**
+     * Get the footprint of an instance.
+     *
+     * @param t the instance.
+     * @return the approximate number of bytes retained by the instance.
+     */
+    protected abstract int getFootprint(T t);
+}
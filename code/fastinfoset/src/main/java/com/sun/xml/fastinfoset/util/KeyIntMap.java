@@ -33,6 +33,13 @@ public abstract class KeyIntMap {
      */
     static final int MAXIMUM_CAPACITY = 1 << 20;
 
+    /**
+     * The capacity up to which the table of a map that is cleared is
+     * retained. The table of a larger map is shrunk to its initial
+     * capacity.
+     */
+    static final int RETAINED_CAPACITY = 1 << 12;
+
     /**
      * The load factor used when none specified in constructor.
      **/
@@ -47,6 +54,11 @@ public abstract class KeyIntMap {
   
     int _capacity;
     
+    /**
+     * The capacity of the table when the map was created.
+     */
+    final int _initialCapacity;
+    
     /**
      * The next size value at which to resize (capacity * load factor).
      */
@@ -57,16 +69,26 @@ public abstract class KeyIntMap {
      */
     final float _loadFactor;
 
-    static class BaseEntry {
-        final int _hash;
-        final int _value;
+    /**
+     * The open-addressed hash table, with linear probing. A slot is a pair 
+     * of the position of an entry plus one, or zero if the slot is empty, 
+     * and the hash of the entry, so that probing compares hashes without 
+     * referring to the entries. The entries are held, in the order in which 
+     * they are added, in parallel arrays of the sub-class.
+     */
+    int[] _slots;
 
-        public BaseEntry(int hash, int value) {
-            _hash = hash;
-            _value = value;
-        }
-    }
+    /**
+     * The hashes of the entries.
+     */
+    int[] _hashes;
  
+    /**
+     * True if the map is frozen.
+     */
+    boolean _isFrozen;
+    
+
     public KeyIntMap(int initialCapacity, float loadFactor) {
         if (initialCapacity < 0)
             throw new IllegalArgumentException(CommonResourceBundle.getInstance().
@@ -90,6 +112,8 @@ public abstract class KeyIntMap {
             _loadFactor = DEFAULT_LOAD_FACTOR;
             _threshold = (int)(DEFAULT_INITIAL_CAPACITY * DEFAULT_LOAD_FACTOR);        
         }
+        _initialCapacity = _capacity;
+        initSlots();
     }
     
     public KeyIntMap(int initialCapacity) {
@@ -97,20 +121,204 @@ public abstract class KeyIntMap {
     }
 
     public KeyIntMap() {
-        _capacity = DEFAULT_INITIAL_CAPACITY;
+        _capacity = _initialCapacity = DEFAULT_INITIAL_CAPACITY;
         _loadFactor = DEFAULT_LOAD_FACTOR;
         _threshold = (int)(DEFAULT_INITIAL_CAPACITY * DEFAULT_LOAD_FACTOR);
+        initSlots();
     }
 
     public final int size() {
         return _size + _readOnlyMapSize;
     }
 
+    /**
+     * The approximate number of bytes of a reference held in an array.
+     */
+    static final int REFERENCE_FOOTPRINT = 8;
+    
+    /**
+     * Get the approximate number of bytes held by the arrays of the map,
+     * at their capacity rather than their size.
+     *
+     * @return the footprint in bytes.
+     */
+    public int getFootprint() {
+        return (_slots.length + _hashes.length) * 4;
+    }
+
     public abstract void clear();
     
     public abstract void setReadOnlyMap(KeyIntMap readOnlyMap, boolean clear);
 
     
+    private void initSlots() {
+        // At least one slot must always be empty to terminate probing
+        if (_threshold >= _capacity) {
+            _threshold = _capacity - 1;
+        }
+        _slots = new int[_capacity * 2];
+        _hashes = new int[_threshold + 1];
+    }
+
+    /**
+     * Add the hash of a new entry, at position {@link #_size}, to the table.
+     * The sub-class has stored the entry and increments the size.
+     */
+    final void addSlot(int hash) {
+        final int[] slots = _slots;
+        final int mask = slots.length - 2;
+        int i = (hash << 1) & mask;
+        while (slots[i] != 0) {
+            i = (i + 2) & mask;
+        }
+        slots[i] = _size + 1;
+        slots[i + 1] = hash;
+    }
+
+    /**
+     * Ascertain if the map is full, the table being at its maximum
+     * capacity and threshold. An entry is not added to a full map, it is
+     * treated as if it were added but is not found by later lookups.
+     */
+    final boolean isFull() {
+        return _size >= _threshold && _capacity >= MAXIMUM_CAPACITY;
+    }
+
+    /**
+     * Get the capacity required of the arrays of entries to add a new entry.
+     *
+     * @return the new capacity, or zero if the arrays have sufficient capacity.
+     */
+    final int ensureEntryCapacity() {
+        if (_size < _hashes.length) {
+            return 0;
+        }
+        
+        final int capacity = _hashes.length * 2;
+        final int[] hashes = new int[capacity];
+        System.arraycopy(_hashes, 0, hashes, 0, _size);
+        _hashes = hashes;
+        return capacity;
+    }
+    
+    /**
+     * Double the size of the table if the threshold is exceeded. Entries are
+     * re-inserted from the array of hashes, they are not moved. The table
+     * does not grow beyond {@link #MAXIMUM_CAPACITY}.
+     */
+    final void resizeIfRequired() {
+        if (_size <= _threshold || _capacity >= MAXIMUM_CAPACITY) {
+            return;
+        }
+        
+        _capacity *= 2;
+        _threshold = Math.min((int)(_capacity * _loadFactor), _capacity - 1);
+        rehash(_capacity);
+    }
+
+    /**
+     * Rebuild the table from the entries, for example after entries are 
+     * removed.
+     */
+    final void rehash(int capacity) {
+        final int[] slots = new int[capacity * 2];
+        final int mask = slots.length - 2;
+        for (int e = 0; e < _size; e++) {
+            final int hash = _hashes[e];
+            int i = (hash << 1) & mask;
+            while (slots[i] != 0) {
+                i = (i + 2) & mask;
+            }
+            slots[i] = e + 1;
+            slots[i + 1] = hash;
+        }
+        _slots = slots;
+    }
+
+    /**
+     * Freeze the map so that it may be used only as a read-only map.
+     * <p>
+     * A frozen map may not be modified. Its hash table is rebuilt with a 
+     * low load, the capacity being increased until no entry is more than one
+     * slot from the start of its probe sequence (or the load is 1/16), so 
+     * that a lookup of a key, present or not, examines one or two slots.
+     */
+    public void freeze() {
+        if (_isFrozen) {
+            return;
+        }
+        
+        int capacity = 1;
+        while (capacity < _size * 4) {
+            capacity <<= 1;
+        }
+        rehash(capacity);
+        while (maximumDisplacement() > 1 && capacity < _size * 16) {
+            capacity <<= 1;
+            rehash(capacity);
+        }
+        _capacity = capacity;
+        _isFrozen = true;
+    }
+
+    /**
+     * Ascertain if the map is frozen.
+     */
+    public final boolean isFrozen() {
+        return _isFrozen;
+    }
+
+    final void checkNotFrozen() {
+        if (_isFrozen) {
+            throw new UnsupportedOperationException(CommonResourceBundle.getInstance().
+                    getString("message.frozenMap"));
+        }
+    }
+    
+    private int maximumDisplacement() {
+        final int[] slots = _slots;
+        final int mask = slots.length - 2;
+        int maximum = 0;
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != 0) {
+                final int displacement = ((i - (slots[i + 1] << 1)) & mask) >> 1;
+                if (displacement > maximum) {
+                    maximum = displacement;
+                }
+            }
+        }
+        return maximum;
+    }
+    
+    final void clearSlots() {
+        final int[] slots = _slots;
+        for (int i = 0; i < slots.length; i += 2) {
+            slots[i] = 0;
+        }
+    }
+    
+    /**
+     * Clear the table, shrinking it to its initial capacity if it has grown
+     * beyond {@link #RETAINED_CAPACITY}, so that a map that is reused, for
+     * example by a pooled encoder, does not keep the table of the largest
+     * vocabulary it has held.
+     *
+     * @return true if the table was shrunk, in which case the sub-class 
+     *         creates its arrays of entries with the length of the array
+     *         of hashes.
+     */
+    final boolean clearSlotsAndShrink() {
+        if (_capacity <= Math.max(_initialCapacity, RETAINED_CAPACITY)) {
+            clearSlots();
+            return false;
+        }
+        
+        _capacity = _initialCapacity;
+        _threshold = (int)(_capacity * _loadFactor);
+        initSlots();
+        return true;
+    }
+    
     public static final int hashHash(int h) {
         h += ~(h << 9);
         h ^=  (h >>> 14);
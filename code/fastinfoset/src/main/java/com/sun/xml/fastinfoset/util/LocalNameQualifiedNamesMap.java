@@ -31,16 +31,35 @@ public class LocalNameQualifiedNamesMap extends KeyIntMap {
         final int _hash;
         public QualifiedName[] _value;
         public int _valueIndex;
-        Entry _next;
         
-        public Entry(String key, int hash, Entry next) {
+        /**
+         * True if the entry is a member of a frozen map.
+         */
+        boolean _isFrozen;
+        
+        public Entry(String key, int hash) {
             _key = key;
             _hash = hash;
-            _next = next;
             _value = new QualifiedName[1];
         }
         
+        /**
+         * Create an entry holding the qualified names of another entry.
+         */
+        Entry(Entry entry) {
+            _key = entry._key;
+            _hash = entry._hash;
+            _value = new QualifiedName[entry._valueIndex + 1];
+            System.arraycopy(entry._value, 0, _value, 0, entry._valueIndex);
+            _valueIndex = entry._valueIndex;
+        }
+        
         public void addQualifiedName(QualifiedName name) {
+            if (_isFrozen) {
+                throw new UnsupportedOperationException(CommonResourceBundle.getInstance().
+                        getString("message.frozenMap"));
+            }
+            
             if (_valueIndex < _value.length) {
                 _value[_valueIndex++] = name;
             } else if (_valueIndex == _value.length) {
@@ -52,12 +71,17 @@ public class LocalNameQualifiedNamesMap extends KeyIntMap {
         }
     }
     
-    private Entry[] _table;
+    /**
+     * The keys and entries, in the order they were added.
+     */
+    private String[] _keys;
+    private Entry[] _entries;
     
     public LocalNameQualifiedNamesMap(int initialCapacity, float loadFactor) {
         super(initialCapacity, loadFactor);
 
-        _table = new Entry[_capacity];        
+        _keys = new String[_hashes.length];
+        _entries = new Entry[_hashes.length];
     }
     
     public LocalNameQualifiedNamesMap(int initialCapacity) {
@@ -68,9 +92,20 @@ public class LocalNameQualifiedNamesMap extends KeyIntMap {
         this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
     }
         
+    public int getFootprint() {
+        return super.getFootprint() + (_keys.length + _entries.length) * REFERENCE_FOOTPRINT;
+    }
+
     public final void clear() {
-        for (int i = 0; i < _table.length; i++) {
-            _table[i] = null;
+        checkNotFrozen();
+        if (clearSlotsAndShrink()) {
+            _keys = new String[_hashes.length];
+            _entries = new Entry[_hashes.length];
+        } else {
+            for (int i = 0; i < _size; i++) {
+                _keys[i] = null;
+                _entries[i] = null;
+            }
         }
         _size = 0;
         
@@ -91,6 +126,7 @@ public class LocalNameQualifiedNamesMap extends KeyIntMap {
     }
     
     public final void setReadOnlyMap(LocalNameQualifiedNamesMap readOnlyMap, boolean clear) {
+        checkNotFrozen();
         _readOnlyMap = readOnlyMap;
         if (_readOnlyMap != null) {
             _readOnlyMapSize = _readOnlyMap.size();
@@ -109,6 +145,7 @@ public class LocalNameQualifiedNamesMap extends KeyIntMap {
     }
     
     public final int getNextIndex() {
+        checkNotFrozen();
         return _index++;
     }
 
@@ -119,6 +156,18 @@ public class LocalNameQualifiedNamesMap extends KeyIntMap {
     public final Entry obtainEntry(String key) {
         final int hash = hashHash(key.hashCode());
         
+        if (_readOnlyMap != null && _readOnlyMap._isFrozen) {
+            // An entry of the frozen map may be superseded by an entry of
+            // this map, see addQualifiedName
+            final int e = find(key, hash);
+            if (e >= 0) {
+                return _entries[e];
+            }
+            
+            final Entry entry = _readOnlyMap.getEntry(key, hash);
+            return (entry != null) ? entry : addEntry(key, hash);
+        }
+        
         if (_readOnlyMap != null) {
             final Entry entry = _readOnlyMap.getEntry(key, hash);
             if (entry != null) {
@@ -126,27 +175,64 @@ public class LocalNameQualifiedNamesMap extends KeyIntMap {
             }
         }
         
-        final int tableIndex = indexFor(hash, _table.length);
-        for (Entry e = _table[tableIndex]; e != null; e = e._next) {
-            if (e._hash == hash && eq(key, e._key)) {
-                return e;
-            }
+        final int e = find(key, hash);
+        if (e >= 0) {
+            return _entries[e];
         }
 
-        return addEntry(key, hash, tableIndex);        
+        return addEntry(key, hash);        
     }
     
     public final Entry obtainDynamicEntry(String key) {
         final int hash = hashHash(key.hashCode());
         
-        final int tableIndex = indexFor(hash, _table.length);
-        for (Entry e = _table[tableIndex]; e != null; e = e._next) {
-            if (e._hash == hash && eq(key, e._key)) {
-                return e;
+        final int e = find(key, hash);
+        if (e >= 0) {
+            return _entries[e];
+        }
+
+        if (_readOnlyMap != null && _readOnlyMap._isFrozen) {
+            final Entry entry = _readOnlyMap.getEntry(key, hash);
+            if (entry != null) {
+                return addEntry(new Entry(entry));
             }
         }
+        
+        return addEntry(key, hash);        
+    }
 
-        return addEntry(key, hash, tableIndex);        
+    /**
+     * Add a qualified name to an entry obtained from this map.
+     * <p>
+     * If the entry is a member of a frozen read-only map then the entry is
+     * not modified. Instead an entry of this map, holding the qualified names
+     * of the entry and the qualified name, supersedes it.
+     *
+     * @param entry the entry.
+     * @param name the qualified name.
+     */
+    public final void addQualifiedName(Entry entry, QualifiedName name) {
+        if (entry._isFrozen) {
+            entry = addEntry(new Entry(entry));
+        }
+        entry.addQualifiedName(name);
+    }
+
+    /**
+     * Freeze the map, and its entries.
+     * <p>
+     * The encoded indexes of the qualified names are created, so that the 
+     * names are not modified when they are encoded.
+     */
+    public final void freeze() {
+        for (int i = 0; i < _size; i++) {
+            final Entry entry = _entries[i];
+            entry._isFrozen = true;
+            for (int j = 0; j < entry._valueIndex; j++) {
+                entry._value[j].createIndexOctets();
+            }
+        }
+        super.freeze();
     }
 
     private final Entry getEntry(String key, int hash) {
@@ -157,59 +243,54 @@ public class LocalNameQualifiedNamesMap extends KeyIntMap {
             }
         }
 
-        final int tableIndex = indexFor(hash, _table.length);
-        for (Entry e = _table[tableIndex]; e != null; e = e._next) {
-            if (e._hash == hash && eq(key, e._key)) {
+        final int e = find(key, hash);
+        return (e >= 0) ? _entries[e] : null;
+    }
+
+    /**
+     * Find the position of the entry of a key.
+     *
+     * @return the position of the entry, otherwise -1.
+     */
+    private final int find(String key, int hash) {
+        final int[] slots = _slots;
+        final int mask = slots.length - 2;
+        for (int i = (hash << 1) & mask; ; i = (i + 2) & mask) {
+            final int e = slots[i] - 1;
+            if (e < 0 || (slots[i + 1] == hash && eq(key, _keys[e]))) {
                 return e;
             }
         }
-                
-        return null;
     }
 
-
-    private final Entry addEntry(String key, int hash, int bucketIndex) {
-	Entry e = _table[bucketIndex];
-        _table[bucketIndex] = new Entry(key, hash, e);
-        e = _table[bucketIndex];
-        if (_size++ >= _threshold) {
-            resize(2 * _table.length);
-        }
-        
-        return e;
+    private final Entry addEntry(String key, int hash) {
+        return addEntry(new Entry(key, hash));
     }
     
-    private final void resize(int newCapacity) {
-        _capacity = newCapacity;
-        Entry[] oldTable = _table;
-        int oldCapacity = oldTable.length;
-        if (oldCapacity == MAXIMUM_CAPACITY) {
-            _threshold = Integer.MAX_VALUE;
-            return;
-        }
-
-        Entry[] newTable = new Entry[_capacity];
-        transfer(newTable);
-        _table = newTable;
-        _threshold = (int)(_capacity * _loadFactor);        
-    }
-
-    private final void transfer(Entry[] newTable) {
-        Entry[] src = _table;
-        int newCapacity = newTable.length;
-        for (int j = 0; j < src.length; j++) {
-            Entry e = src[j];
-            if (e != null) {
-                src[j] = null;
-                do {
-                    Entry next = e._next;
-                    int i = indexFor(e._hash, newCapacity);  
-                    e._next = newTable[i];
-                    newTable[i] = e;
-                    e = next;
-                } while (e != null);
-            }
+    private final Entry addEntry(Entry e) {
+        checkNotFrozen();
+        if (isFull()) {
+            // The entry is used but is not found again
+            return e;
         }
+        final int capacity = ensureEntryCapacity();
+        if (capacity > 0) {
+            final String[] keys = new String[capacity];
+            System.arraycopy(_keys, 0, keys, 0, _size);
+            _keys = keys;
+            final Entry[] entries = new Entry[capacity];
+            System.arraycopy(_entries, 0, entries, 0, _size);
+            _entries = entries;
+        }
+        
+        _keys[_size] = e._key;
+        _entries[_size] = e;
+        _hashes[_size] = e._hash;
+        addSlot(e._hash);
+        _size++;
+        resizeIfRequired();
+        
+        return e;
     }
         
     private final boolean eq(String x, String y) {
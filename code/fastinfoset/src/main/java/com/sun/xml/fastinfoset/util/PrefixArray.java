@@ -160,6 +160,11 @@ public class PrefixArray extends ValueArray {
         return i;
     }
     
+    public int getFootprint() {
+        return (_array.length + _inScopeNamespaces.length) * REFERENCE_FOOTPRINT + 
+                _currentInScope.length * 4;
+    }
+    
     public final void clear() {
         for (int i = _readOnlyArraySize; i < _size; i++) {
             _array[i] = null;
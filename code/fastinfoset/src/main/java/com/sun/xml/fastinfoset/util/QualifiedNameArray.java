@@ -35,6 +35,10 @@ public class QualifiedNameArray extends ValueArray {
         this(DEFAULT_CAPACITY, MAXIMUM_CAPACITY);
     }
     
+    public int getFootprint() {
+        return _array.length * REFERENCE_FOOTPRINT;
+    }
+    
     public final void clear() {
         _size = _readOnlyArraySize;
     }
@@ -96,6 +100,7 @@ public class QualifiedNameArray extends ValueArray {
             resize();
         }
             
+       s.index = _size;
        _array[_size++] = s;
     }
 
@@ -36,6 +36,10 @@ public class StringArray extends ValueArray {
         this(DEFAULT_CAPACITY, MAXIMUM_CAPACITY, false);
     }
 
+    public int getFootprint() {
+        return _array.length * REFERENCE_FOOTPRINT;
+    }
+    
     public final void clear() {
         if (_clear) for (int i = _readOnlyArraySize; i < _size; i++) {
             _array[i] = null;
@@ -20,24 +20,23 @@ package com.sun.xml.fastinfoset.util;
 import com.sun.xml.fastinfoset.CommonResourceBundle;
 
 public class StringIntMap extends KeyIntMap {
-    protected static final Entry NULL_ENTRY = new Entry(null, 0, -1, null);
-    
     protected StringIntMap _readOnlyMap;
     
-    protected static class Entry extends BaseEntry {
-        final String _key;
-        Entry _next;
-        
-        public Entry(String key, int hash, int value, Entry next) {
-            super(hash, value);
-            _key = key;
-            _next = next;
-        }
-    }
+    /**
+     * The keys and values of the entries, in the order they were added.
+     */
+    protected String[] _keys;
+    protected int[] _values;
     
-    protected Entry _lastEntry = NULL_ENTRY;
-    
-    protected Entry[] _table;
+    /**
+     * Direct-mapped cache, indexed by the hash code of a key, of the keys 
+     * and values last found in this map or the read-only map. A key is
+     * compared by identity, as callers usually pass the same String
+     * instances, so a hit avoids probing either map.
+     */
+    private static final int CACHE_SIZE = 32;
+    private final String[] _cacheKeys = new String[CACHE_SIZE];
+    private final int[] _cacheValues = new int[CACHE_SIZE];
     
     protected int _index;
     
@@ -47,7 +46,8 @@ public class StringIntMap extends KeyIntMap {
     public StringIntMap(int initialCapacity, float loadFactor) {
         super(initialCapacity, loadFactor);
 
-        _table = new Entry[_capacity];
+        _keys = new String[_hashes.length];
+        _values = new int[_hashes.length];
     }
     
     public StringIntMap(int initialCapacity) {
@@ -58,11 +58,21 @@ public class StringIntMap extends KeyIntMap {
         this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
     }
 
+    public int getFootprint() {
+        return super.getFootprint() + _keys.length * REFERENCE_FOOTPRINT + _values.length * 4;
+    }
+
     public void clear() {
-        for (int i = 0; i < _table.length; i++) {
-            _table[i] = null;
+        checkNotFrozen();
+        if (clearSlotsAndShrink()) {
+            _keys = new String[_hashes.length];
+            _values = new int[_hashes.length];
+        } else {
+            for (int i = 0; i < _size; i++) {
+                _keys[i] = null;
+            }
         }
-        _lastEntry = NULL_ENTRY;
+        clearCache();
         _size = 0;
         _index = _readOnlyMapSize;
         _totalCharacterCount = 0;
@@ -78,6 +88,8 @@ public class StringIntMap extends KeyIntMap {
     }
     
     public final void setReadOnlyMap(StringIntMap readOnlyMap, boolean clear) {
+        checkNotFrozen();
+        clearCache();
         _readOnlyMap = readOnlyMap;
         if (_readOnlyMap != null) {
             _readOnlyMapSize = _readOnlyMap.size();
@@ -93,6 +105,7 @@ public class StringIntMap extends KeyIntMap {
     }
     
     public final int getNextIndex() {
+        checkNotFrozen();
         return _index++;
     }
     
@@ -101,37 +114,43 @@ public class StringIntMap extends KeyIntMap {
     }
     
     public final int obtainIndex(String key) {
-        final int hash = hashHash(key.hashCode());
+        final int h = key.hashCode();
+        final int c = h & (CACHE_SIZE - 1);
+        if (_cacheKeys[c] == key) {
+            return _cacheValues[c];
+        }
+        
+        final int hash = hashHash(h);
         
         if (_readOnlyMap != null) {
             final int index = _readOnlyMap.get(key, hash);
             if (index != -1) {
-                return index;
+                return cache(c, key, index);
             }
         }
         
-        final int tableIndex = indexFor(hash, _table.length);
-        for (Entry e = _table[tableIndex]; e != null; e = e._next) {
-            if (e._hash == hash && eq(key, e._key)) {
-                return e._value;
-            }
+        final int e = find(key, hash);
+        if (e >= 0) {
+            return cache(c, key, _values[e]);
         }
 
-        addEntry(key, hash, tableIndex);        
+        addEntry(key, hash, _index++);        
         return NOT_PRESENT;
     }
 
     public final void add(String key) {
-        final int hash = hashHash(key.hashCode());
-        final int tableIndex = indexFor(hash, _table.length);
-        addEntry(key, hash, tableIndex);
+        addEntry(key, hashHash(key.hashCode()), _index++);
     }
 
     public final int get(String key) {
-        if (key == _lastEntry._key)
-            return _lastEntry._value;
+        final int h = key.hashCode();
+        final int c = h & (CACHE_SIZE - 1);
+        if (_cacheKeys[c] == key) {
+            return _cacheValues[c];
+        }
         
-        return get(key, hashHash(key.hashCode()));
+        final int index = get(key, hashHash(h));
+        return (index != NOT_PRESENT) ? cache(c, key, index) : NOT_PRESENT;
     }
     
     public final int getTotalCharacterCount() {
@@ -146,60 +165,78 @@ public class StringIntMap extends KeyIntMap {
             }
         }
 
-        final int tableIndex = indexFor(hash, _table.length);
-        for (Entry e = _table[tableIndex]; e != null; e = e._next) {
-            if (e._hash == hash && eq(key, e._key)) {
-                _lastEntry = e;
-                return e._value;
-            }
-        }
-                
-        return NOT_PRESENT;
+        final int e = find(key, hash);
+        return (e >= 0) ? _values[e] : NOT_PRESENT;
     }
 
-
-    private final void addEntry(String key, int hash, int bucketIndex) {
-	Entry e = _table[bucketIndex];
-        _table[bucketIndex] = new Entry(key, hash, _index++, e);
-        _totalCharacterCount += key.length();
-        if (_size++ >= _threshold) {
-            resize(2 * _table.length);
+    private int cache(int c, String key, int value) {
+        // A frozen map may be shared and so is not modified
+        if (!_isFrozen) {
+            _cacheKeys[c] = key;
+            _cacheValues[c] = value;
         }
+        return value;
     }
     
-    protected final void resize(int newCapacity) {
-        _capacity = newCapacity;
-        Entry[] oldTable = _table;
-        int oldCapacity = oldTable.length;
-        if (oldCapacity == MAXIMUM_CAPACITY) {
-            _threshold = Integer.MAX_VALUE;
-            return;
+    final void clearCache() {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            _cacheKeys[i] = null;
         }
-
-        Entry[] newTable = new Entry[_capacity];
-        transfer(newTable);
-        _table = newTable;
-        _threshold = (int)(_capacity * _loadFactor);        
     }
 
-    private final void transfer(Entry[] newTable) {
-        Entry[] src = _table;
-        int newCapacity = newTable.length;
-        for (int j = 0; j < src.length; j++) {
-            Entry e = src[j];
-            if (e != null) {
-                src[j] = null;
-                do {
-                    Entry next = e._next;
-                    int i = indexFor(e._hash, newCapacity);  
-                    e._next = newTable[i];
-                    newTable[i] = e;
-                    e = next;
-                } while (e != null);
+    /**
+     * Find the position of the entry of a key.
+     *
+     * @return the position of the entry, otherwise -1.
+     */
+    private final int find(String key, int hash) {
+        final int[] slots = _slots;
+        final int mask = slots.length - 2;
+        for (int i = (hash << 1) & mask; ; i = (i + 2) & mask) {
+            final int e = slots[i] - 1;
+            if (e < 0 || (slots[i + 1] == hash && eq(key, _keys[e]))) {
+                return e;
             }
         }
     }
+
+    protected final void addEntry(String key, int hash, int value) {
+        checkNotFrozen();
+        if (isFull()) {
+            return;
+        }
+        final int capacity = ensureEntryCapacity();
+        if (capacity > 0) {
+            final String[] keys = new String[capacity];
+            System.arraycopy(_keys, 0, keys, 0, _size);
+            _keys = keys;
+            final int[] values = new int[capacity];
+            System.arraycopy(_values, 0, values, 0, _size);
+            _values = values;
+        }
         
+        _keys[_size] = key;
+        _values[_size] = value;
+        _hashes[_size] = hash;
+        addSlot(hash);
+        _size++;
+        _totalCharacterCount += key.length();
+        resizeIfRequired();
+    }
+    
+    /**
+     * Remove the first entry.
+     */
+    protected final void removeFirstEntry() {
+        _size--;
+        System.arraycopy(_keys, 1, _keys, 0, _size);
+        System.arraycopy(_values, 1, _values, 0, _size);
+        System.arraycopy(_hashes, 1, _hashes, 0, _size);
+        _keys[_size] = null;
+        clearCache();
+        rehash(_capacity);
+    }
+    
     private final boolean eq(String x, String y) {
         return x == y || x.equals(y);
     }
@@ -0,0 +1,49 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.util;
+
+/**
+ * A strategy for interning the strings of names, namespace names and
+ * prefixes decoded by a parser when string interning is enabled.
+ * <p>
+ * An implementation returns the same String instance for strings of equal
+ * characters, and must be thread-safe if shared between parsers.
+ *
+ * @see com.sun.xml.fastinfoset.Decoder#setStringInterner
+ */
+public interface StringInterner {
+    /**
+     * Intern a string of characters.
+     *
+     * @param ch the array of characters.
+     * @param start the start of the string in the array.
+     * @param length the length of the string.
+     * @return the interned string.
+     */
+    String intern(char[] ch, int start, int length);
+
+    /**
+     * Intern a string of US-ASCII characters, each encoded as one octet.
+     *
+     * @param octets the array of octets, each less than 0x80.
+     * @param start the start of the string in the array.
+     * @param length the length of the string.
+     * @return the interned string.
+     */
+    String intern(byte[] octets, int start, int length);
+}
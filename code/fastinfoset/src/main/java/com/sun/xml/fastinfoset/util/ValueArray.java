@@ -39,6 +39,24 @@ public abstract class ValueArray {
         _maximumCapacity = maximumCapacity;
     }
     
+    /**
+     * The approximate number of bytes of a reference held in an array.
+     */
+    protected static final int REFERENCE_FOOTPRINT = 8;
+
+    /**
+     * Get the approximate number of bytes held by the arrays of this 
+     * array, at their capacity rather than their size, as the arrays are
+     * not shrunk when the array is cleared.
+     * <p>
+     * This implementation counts a reference for each value.
+     *
+     * @return the footprint in bytes.
+     */
+    public int getFootprint() {
+        return _size * REFERENCE_FOOTPRINT;
+    }
+    
     public abstract void setReadOnlyArray(ValueArray array, boolean clear);
     
     public abstract void clear();
@@ -17,6 +17,7 @@
  */
 package com.sun.xml.fastinfoset.vocab;
 
+import com.sun.xml.fastinfoset.CommonResourceBundle;
 import com.sun.xml.fastinfoset.EncodingConstants;
 import com.sun.xml.fastinfoset.QualifiedName;
 import com.sun.xml.fastinfoset.util.CharArray;
@@ -81,6 +82,8 @@ public class ParserVocabulary extends Vocabulary {
     
     protected SerializerVocabulary _readOnlyVocabulary;
     
+    protected boolean _isFrozen;
+    
     /** Creates a new instance of ParserVocabulary */
     public ParserVocabulary() {
         namespaceName = new StringArray(ValueArray.DEFAULT_CAPACITY, IDENTIFYING_STRING_TABLE_MAXIMUM_ITEMS, false);
@@ -127,12 +130,14 @@ public class ParserVocabulary extends Vocabulary {
     }
     
     public void setInitialVocabulary(ParserVocabulary initialVocabulary, boolean clear) {
+        checkNotFrozen();
         setExternalVocabularyURI(null);
         setInitialReadOnlyVocabulary(true);
         setReadOnlyVocabulary(initialVocabulary, clear);
     }
     
     public void setReferencedVocabulary(String referencedVocabularyURI, ParserVocabulary referencedVocabulary, boolean clear) {
+        checkNotFrozen();
         if (!referencedVocabularyURI.equals(getExternalVocabularyURI())) {
             setInitialReadOnlyVocabulary(false);
             setExternalVocabularyURI(referencedVocabularyURI);
@@ -141,11 +146,61 @@ public class ParserVocabulary extends Vocabulary {
     }
     
     public void clear() {
+        checkNotFrozen();
         for (int i = 0; i < tables.length; i++) {
             tables[i].clear();
         }        
     }
     
+    /**
+     * @return the approximate number of bytes held by the tables of the
+     *         vocabulary, excluding any read-only vocabulary they reference.
+     */
+    public int getFootprint() {
+        int footprint = 0;
+        for (int i = 0; i < tables.length; i++) {
+            footprint += tables[i].getFootprint();
+        }
+        return footprint;
+    }
+    
+    /**
+     * Freeze the vocabulary so that it may be shared, as the initial or
+     * external vocabulary of other vocabularies, by parsers in many threads.
+     * <p>
+     * The qualified names of a frozen vocabulary are fully initialized, so
+     * that reading them does not modify them, and the vocabulary may not be
+     * cleared or reference another vocabulary. The tables of a frozen
+     * vocabulary must not be modified directly.
+     */
+    public void freeze() {
+        freezeNames(elementName, false);
+        freezeNames(attributeName, true);
+        _isFrozen = true;
+    }
+    
+    public boolean isFrozen() {
+        return _isFrozen;
+    }
+    
+    private void freezeNames(QualifiedNameArray a, boolean isAttribute) {
+        for (int i = 0; i < a.getSize(); i++) {
+            final QualifiedName name = a._array[i];
+            name.getQName();
+            name.getQNameString();
+            if (isAttribute) {
+                name.createAttributeValues(DuplicateAttributeVerifier.MAP_SIZE);
+            }
+        }
+    }
+    
+    private void checkNotFrozen() {
+        if (_isFrozen) {
+            throw new UnsupportedOperationException(CommonResourceBundle.getInstance().
+                    getString("message.frozenVocabulary"));
+        }
+    }
+    
     private void convertVocabulary(org.jvnet.fastinfoset.Vocabulary v) {
         final StringIntMap prefixMap = new FixedEntryStringIntMap(
                 EncodingConstants.XML_NAMESPACE_PREFIX, 8);
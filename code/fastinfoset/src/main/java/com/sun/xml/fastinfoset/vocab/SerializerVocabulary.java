@@ -104,6 +104,37 @@ public class SerializerVocabulary extends Vocabulary {
         }
     }
     
+    /**
+     * @return the approximate number of bytes held by the tables of the
+     *         vocabulary, excluding any read-only vocabulary they reference.
+     */
+    public int getFootprint() {
+        int footprint = 0;
+        for (int i = 0; i < tables.length; i++) {
+            footprint += tables[i].getFootprint();
+        }
+        return footprint;
+    }
+    
+    /**
+     * Freeze the vocabulary so that it may be used only as the initial or
+     * external vocabulary of other vocabularies.
+     * <p>
+     * The tables of a frozen vocabulary may not be modified, and are compiled
+     * for fast lookup, see {@link KeyIntMap#freeze}. Qualified names that are 
+     * encoded literally, and whose local names are present in the frozen
+     * vocabulary, are added to the vocabulary that references it.
+     */
+    public void freeze() {
+        for (int i = 0; i < tables.length; i++) {
+            tables[i].freeze();
+        }
+    }
+    
+    public boolean isFrozen() {
+        return tables[LOCAL_NAME].isFrozen();
+    }
+    
     private void convertVocabulary(org.jvnet.fastinfoset.Vocabulary v) {
         addToTable(v.restrictedAlphabets.iterator(), restrictedAlphabet);
         addToTable(v.encodingAlgorithms.iterator(), encodingAlgorithm);
@@ -0,0 +1,88 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sun.xml.fastinfoset.vocab;
+
+import org.jvnet.fastinfoset.ExternalVocabulary;
+import org.jvnet.fastinfoset.Vocabulary;
+
+/**
+ * An external vocabulary that is converted once and shared, without
+ * copying or locking, by serializers and parsers in many threads.
+ * <p>
+ * The serializer and parser vocabularies are converted from the vocabulary
+ * and frozen, see {@link SerializerVocabulary#freeze} and
+ * {@link ParserVocabulary#freeze}. A serializer whose external vocabulary
+ * is set to a shared external vocabulary, and a parser whose map of
+ * external vocabularies contains it, reference these vocabularies as the
+ * read-only layer of their own vocabulary instead of converting the
+ * vocabulary.
+ * <p>
+ * The vocabulary must not be modified after the shared external
+ * vocabulary is created.
+ */
+public class SharedExternalVocabulary extends ExternalVocabulary {
+    private final ParserVocabulary _parserVocabulary;
+
+    private final SerializerVocabulary _serializerVocabulary;
+
+    private volatile SerializerVocabulary _localNameSerializerVocabulary;
+
+    public SharedExternalVocabulary(String URI, Vocabulary vocabulary) {
+        super(URI, vocabulary);
+
+        _parserVocabulary = new ParserVocabulary(vocabulary);
+        _parserVocabulary.freeze();
+        _serializerVocabulary = createSerializerVocabulary(false);
+    }
+
+    /**
+     * Get the frozen parser vocabulary.
+     *
+     * @return the parser vocabulary.
+     */
+    public ParserVocabulary getParserVocabulary() {
+        return _parserVocabulary;
+    }
+
+    /**
+     * Get the frozen serializer vocabulary.
+     *
+     * @param useLocalNameAsKey true if the qualified names are keyed by
+     *        local name, otherwise they are keyed by qualified name.
+     * @return the serializer vocabulary.
+     */
+    public SerializerVocabulary getSerializerVocabulary(boolean useLocalNameAsKey) {
+        if (!useLocalNameAsKey) {
+            return _serializerVocabulary;
+        }
+
+        // Converted on first use, a race converts it more than once but
+        // every thread obtains a complete frozen vocabulary
+        SerializerVocabulary v = _localNameSerializerVocabulary;
+        if (v == null) {
+            _localNameSerializerVocabulary = v = createSerializerVocabulary(true);
+        }
+        return v;
+    }
+
+    private SerializerVocabulary createSerializerVocabulary(boolean useLocalNameAsKey) {
+        final SerializerVocabulary v = new SerializerVocabulary(vocabulary, useLocalNameAsKey);
+        v.freeze();
+        return v;
+    }
+}
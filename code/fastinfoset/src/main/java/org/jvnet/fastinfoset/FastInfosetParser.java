@@ -67,14 +67,22 @@ public interface FastInfosetParser {
      */    
     public static final String FORCE_STREAM_CLOSE_PROPERTY =
         "http://jvnet.org/fastinfoset/parser/properties/force-stream-close";
+
+    /**
+     * The name handle returned for a qualified name that is not registered.
+     *
+     * @see #registerNameHandle
+     */
+    public static final int NO_NAME_HANDLE = -1;
    
     /**
      * Set the string interning property.
      *
      * <p>If the string interning property is set to true then 
      * <code>String</code> objects instantiated for [namespace name], [prefix] 
-     * and [local name] infoset properties will be interned using the method 
-     * {@link String#intern()}.
+     * and [local name] infoset properties will be interned, either using 
+     * the method {@link String#intern()} or using a cache of canonical 
+     * instances, as documented by the implementation.
      *
      * @param stringInterning The string interning property.
      */
@@ -174,5 +182,37 @@ public interface FastInfosetParser {
      * @return The force stream close property.
      */
     public boolean getForceStreamClose();
+
+    /**
+     * Register a qualified name and obtain its handle.
+     *
+     * <p>The handles of registered names are reported for elements and
+     * attributes by the parser, for example using
+     * {@link org.jvnet.fastinfoset.stax.FastInfosetStreamReader#getNameHandle},
+     * so that an application may dispatch on element and attribute names
+     * using integer comparison rather than string comparison. The handle of
+     * a name is obtained once for each entry of the element and attribute
+     * name tables of the vocabulary rather than for each element or
+     * attribute.
+     *
+     * <p>Handles are allocated in registration order starting at zero.
+     * A name is matched on its namespace name and local name, the prefix is
+     * not significant.
+     *
+     * @param namespaceURI the namespace name, or null or the empty string
+     *        for no namespace name.
+     * @param localName the local name.
+     * @return the handle of the name, which is the same handle if the name
+     *         is already registered.
+     */
+    public int registerNameHandle(String namespaceURI, String localName);
+
+    /**
+     * Clear the registered qualified names.
+     *
+     * <p>The handles of elements and attributes will be
+     * {@link #NO_NAME_HANDLE} until names are registered again.
+     */
+    public void clearNameHandles();
     
 }
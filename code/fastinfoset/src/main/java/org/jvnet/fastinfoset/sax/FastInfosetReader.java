@@ -79,6 +79,12 @@ import org.xml.sax.ext.LexicalHandler;
  *        {@link EncodingAlgorithmContentHandler#object(String, int, Object)}.</li>
  * </ul>
  * </p>
+ * <p>If an {@link OctetStreamContentHandler} is registered then the octets 
+ *    of element content for the base64 and hexadecimal built-in algorithms, 
+ *    and for application-defined algorithms that would be reported as an 
+ *    array of octets, are instead reported as a stream of octets using
+ *    {@link OctetStreamContentHandler#octets(String, int, InputStream, int)}.
+ * </p>
  * 
  * <p>The reporting of attribute values for encoding algorithms is achieved using
  * {@link EncodingAlgorithmAttributes} that extends {@link org.xml.sax.Attributes}.
@@ -136,6 +142,14 @@ public interface FastInfosetReader extends XMLReader, FastInfosetParser {
     public static final String PRIMITIVE_TYPE_CONTENT_HANDLER_PROPERTY =
             "http://jvnet.org/fastinfoset/sax/properties/primitive-type-content-handler";
     
+    /**
+     * The property name to be used for getting and setting the 
+     * OctetStreamContentHandler.
+     *
+     */    
+    public static final String OCTET_STREAM_CONTENT_HANDLER_PROPERTY =
+            "http://jvnet.org/fastinfoset/sax/properties/octet-stream-content-handler";
+    
     /**
      * Parse a fast infoset document from an InputStream.
      *
@@ -242,4 +256,61 @@ public interface FastInfosetReader extends XMLReader, FastInfosetParser {
      * @see #setPrimitiveTypeContentHandler
      */
     public PrimitiveTypeContentHandler getPrimitiveTypeContentHandler();
+
+    /**
+     * Allow an application to register an octet stream handler.
+     *
+     * <p>Applications may register a new or different handler in the
+     * middle of a parse, and the SAX parser must begin using the new
+     * handler immediately.</p>
+     *
+     * @param handler The octet stream handler.
+     * @see #getOctetStreamContentHandler
+     */
+    public void setOctetStreamContentHandler(OctetStreamContentHandler handler);
+
+    /**
+     * Return the current octet stream handler.
+     *
+     * @return The current octet stream handler, or null if none
+     *         has been registered.
+     * @see #setOctetStreamContentHandler
+     */
+    public OctetStreamContentHandler getOctetStreamContentHandler();
+
+    /**
+     * Get the handle of the name of the element whose start or end is
+     * being reported.
+     *
+     * <p>This method may only be called from the
+     * {@link org.xml.sax.ContentHandler#startElement startElement} and
+     * {@link org.xml.sax.ContentHandler#endElement endElement} methods of
+     * the content handler.</p>
+     *
+     * @return the handle of the element name, or 
+     *         {@link org.jvnet.fastinfoset.FastInfosetParser#NO_NAME_HANDLE}
+     *         if the name is not registered.
+     * @throws IllegalStateException if the start or end of an element is
+     *         not being reported.
+     * @see org.jvnet.fastinfoset.FastInfosetParser#registerNameHandle
+     */
+    public int getNameHandle();
+
+    /**
+     * Get the handle of the name of an attribute of the element whose start
+     * is being reported.
+     *
+     * <p>This method may only be called from the
+     * {@link org.xml.sax.ContentHandler#startElement startElement} method
+     * of the content handler.</p>
+     *
+     * @param index the index of the attribute.
+     * @return the handle of the attribute name, or 
+     *         {@link org.jvnet.fastinfoset.FastInfosetParser#NO_NAME_HANDLE}
+     *         if the name is not registered.
+     * @throws IllegalStateException if the start of an element is not
+     *         being reported.
+     * @see org.jvnet.fastinfoset.FastInfosetParser#registerNameHandle
+     */
+    public int getAttributeNameHandle(int index);
 }
@@ -0,0 +1,67 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jvnet.fastinfoset.sax;
+
+import java.io.InputStream;
+import org.xml.sax.SAXException;
+
+/**
+ * SAX2 extention handler to receive notification of encoding algorithm data
+ * as a stream of octets.
+ *
+ * <p>This is an optional extension handler for SAX2. When registered with
+ * a Fast Infoset SAX parser the octets of character content encoded using
+ * the built-in base64 or hexadecimal encoding algorithms, or an
+ * application-defined encoding algorithm for which there is no registered
+ * {@link org.jvnet.fastinfoset.EncodingAlgorithm}, are reported using this
+ * handler rather than the {@link PrimitiveTypeContentHandler} or the
+ * {@link EncodingAlgorithmContentHandler}. The octets are read from the
+ * fast infoset document as the stream is read, so the parser never buffers
+ * all the octets, however large they are.</p>
+ *
+ * <p>Character content that is to be added to the character content chunk
+ * table of the vocabulary is not reported using this handler.</p>
+ *
+ * <p>To set the OctetStreamContentHandler for an Fast Infoset reader, use
+ * {@link org.jvnet.fastinfoset.sax.FastInfosetReader#setOctetStreamContentHandler
+ *  setOctetStreamContentHandler} method.<p>
+ *
+ * @see org.jvnet.fastinfoset.sax.EncodingAlgorithmContentHandler
+ * @see org.jvnet.fastinfoset.sax.FastInfosetReader
+ */
+public interface OctetStreamContentHandler {
+    /**
+     * Receive notification of encoding algorithm data as a stream of
+     * octets.
+     *
+     * <p>The stream is valid only until this method returns. The octets of
+     * the stream that have not been read when this method returns are
+     * skipped by the parser.</p>
+     *
+     * @param URI the URI of the encoding algorithm, or null for a built-in
+     *        encoding algorithm.
+     * @param algorithm the encoding algorithm index
+     * @param s the stream of octets
+     * @param length the number of octets of the stream
+     * @throws org.xml.sax.SAXException any SAX exception, possibly
+     *            wrapping another exception
+     * @see org.jvnet.fastinfoset.EncodingAlgorithmIndexes
+     */
+    public void octets(String URI, int algorithm, InputStream s, int length) throws SAXException;
+}
@@ -34,6 +34,53 @@ public interface FastInfosetStreamReader {
      */
     public int peekNext() throws XMLStreamException;
     
+    /**
+     * Skip the children of the current element.
+     * <p>
+     * Precondition: the current event is START_ELEMENT.
+     * Postcondition: the current event is the corresponding END_ELEMENT.
+     * <p>
+     * The children are not reported and their names, text and attribute 
+     * values are not decoded, except for strings that are added to the
+     * vocabulary of the document, so skipping an element is much faster
+     * than calling {@link #next} until the end of the element.
+     * The namespace declarations of the children are not validated.
+     * 
+     * @return END_ELEMENT, the event of the end of the element.
+     * @throws XMLStreamException if the current event is not START_ELEMENT
+     *         or if there is an error decoding the children.
+     */
+    public int skipElement() throws XMLStreamException;
+    
+    /**
+     * Get the handle of the name of the current element.
+     * <p>
+     * Precondition: the current event is START_ELEMENT or END_ELEMENT.
+     * 
+     * @return the handle of the element name, or
+     *         {@link org.jvnet.fastinfoset.FastInfosetParser#NO_NAME_HANDLE}
+     *         if the name is not registered.
+     * @throws IllegalStateException if the current event is not 
+     *         START_ELEMENT or END_ELEMENT.
+     * @see org.jvnet.fastinfoset.FastInfosetParser#registerNameHandle
+     */
+    public int getNameHandle();
+    
+    /**
+     * Get the handle of the name of an attribute of the current element.
+     * <p>
+     * Precondition: the current event is START_ELEMENT.
+     * 
+     * @param index the index of the attribute.
+     * @return the handle of the attribute name, or
+     *         {@link org.jvnet.fastinfoset.FastInfosetParser#NO_NAME_HANDLE}
+     *         if the name is not registered.
+     * @throws IllegalStateException if the current event is not 
+     *         START_ELEMENT.
+     * @see org.jvnet.fastinfoset.FastInfosetParser#registerNameHandle
+     */
+    public int getAttributeNameHandle(int index);
+    
     // Faster access methods without checks
     
     public int accessNamespaceCount();
@@ -35,7 +35,9 @@ import com.sun.xml.fastinfoset.vocab.ParserVocabulary;
 import com.sun.xml.fastinfoset.vocab.SerializerVocabulary;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import javax.xml.parsers.DocumentBuilder;
@@ -296,6 +298,55 @@ public class AlgorithmTest extends TestCase {
         }
     }
 
+    public void testInputStreamAlgorithms() throws Exception {
+        final int size = 5000;
+        createArrayValues(size);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DoubleEncodingAlgorithm dea = new DoubleEncodingAlgorithm();
+        dea.encodeToOutputStream(_doubleArray, baos);
+        double[] d = (double[])dea.decodeFromInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(size, d.length);
+        for (int is = 0; is < size; is++) {
+            assertEquals(_doubleArray[is], d[is], 0.0);
+        }
+
+        // A stream that reports fewer octets available than it has
+        InputStream s = new FilterInputStream(new ByteArrayInputStream(baos.toByteArray())) {
+            public int available() {
+                return 3;
+            }
+        };
+        d = (double[])dea.decodeFromInputStream(s);
+        assertEquals(size, d.length);
+        for (int is = 0; is < size; is++) {
+            assertEquals(_doubleArray[is], d[is], 0.0);
+        }
+
+        // Decode in to a caller provided array with a limited length
+        int[] i = new int[size + 1];
+        IntEncodingAlgorithm iea = new IntEncodingAlgorithm();
+        baos.reset();
+        iea.encodeToOutputStream(_intArray, baos);
+        ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
+        assertEquals(size - 1, iea.decodeFromInputStreamToIntArray(bais, i, 1, size - 1));
+        assertEquals(1, iea.decodeFromInputStreamToIntArray(bais, i, size, 2));
+        for (int is = 0; is < size; is++) {
+            assertEquals(_intArray[is], i[is + 1]);
+        }
+
+        BooleanEncodingAlgorithm bea = new BooleanEncodingAlgorithm();
+        for (int bsize = 0; bsize < 20; bsize++) {
+            boolean[] data = new boolean[bsize];
+            System.arraycopy(_booleanArray, 0, data, 0, bsize);
+            baos.reset();
+            bea.encodeToOutputStream(data, baos);
+            assertEquals((bsize + 4 + 7) / 8, baos.size());
+            boolean[] b = (boolean[])bea.decodeFromInputStream(new ByteArrayInputStream(baos.toByteArray()));
+            assertTrue(Arrays.equals(data, b));
+        }
+    }
+
     public void testBuiltInAlgorithmsSize1() throws Exception {
         _testBuiltInAlgorithms(1);
     }
@@ -914,6 +965,48 @@ public class AlgorithmTest extends TestCase {
         }
     }
 
+    public void testStAXRegisteredAlgorithmsNotStreamed() throws Exception {
+        createArrayValues(ARRAY_SIZE);
+
+        byte[] b = createRegisteredTestFastInfosetDocument();
+
+        Map algorithms = new HashMap();
+        algorithms.put(APPLICATION_DEFINED_ALGORITHM_URI, new FloatEncodingAlgorithm());
+
+        // The octets of a registered algorithm are buffered
+        StAXDocumentParser dp = createStreamedStAXDocumentParser(b);
+        dp.setRegisteredEncodingAlgorithms(algorithms);
+        assertEquals(XMLStreamReader.CHARACTERS, nextCharacters(dp));
+        assertEquals(APPLICATION_DEFINED_ALGORITHM_ID, dp.getTextAlgorithmIndex());
+        assertNull(dp.getTextAlgorithmStream());
+        assertEquals(ARRAY_SIZE * 4, dp.getTextAlgorithmLength());
+
+        // The octets of an unregistered algorithm are streamed
+        dp = createStreamedStAXDocumentParser(b);
+        assertEquals(XMLStreamReader.CHARACTERS, nextCharacters(dp));
+        assertEquals(APPLICATION_DEFINED_ALGORITHM_ID, dp.getTextAlgorithmIndex());
+        assertNotNull(dp.getTextAlgorithmStream());
+    }
+
+    private StAXDocumentParser createStreamedStAXDocumentParser(byte[] b) {
+        StAXDocumentParser dp = new StAXDocumentParser(new ByteArrayInputStream(b));
+
+        ParserVocabulary externalVocabulary = new ParserVocabulary();
+        externalVocabulary.encodingAlgorithm.add(APPLICATION_DEFINED_ALGORITHM_URI);
+
+        Map externalVocabularies = new HashMap();
+        externalVocabularies.put(EXTERNAL_VOCABULARY_URI_STRING, externalVocabulary);
+        dp.setExternalVocabularies(externalVocabularies);
+        dp.setAlgorithmDataStreamed(true);
+        return dp;
+    }
+
+    private int nextCharacters(StAXDocumentParser dp) throws Exception {
+        int e;
+        while ((e = dp.next()) != XMLStreamReader.CHARACTERS && e != XMLStreamReader.END_DOCUMENT);
+        return e;
+    }
+
     public void testDOMBase64EncodingAlgorithm() throws Exception {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         StAXDocumentSerializer ds = new StAXDocumentSerializer(baos);
@@ -188,6 +188,44 @@ public class AlphabetTest extends TestCase {
         _testApplicationAlphabet("0123456789ABCDEF", "0123456789ABCDEF0123456789ABCDEF0123456789ABCDEF");
     }
     
+    public void testApplicationAlphabetLengths() throws Exception {
+        // Alphabets of 5, 7, 9 and 12 bit characters, the last with 
+        // characters outside of the table indexed by character
+        final String[] alphabets = {
+            alphabet('a', 20), alphabet('!', 90), alphabet('\u0100', 300), alphabet('\u3000', 2100)};
+        for (int i = 0; i < alphabets.length; i++) {
+            final String a = alphabets[i];
+            final StringBuilder b = new StringBuilder();
+            for (int length = 1; length <= 40; length++) {
+                b.append(a.charAt((length * 7) % a.length()));
+                _testApplicationAlphabet(a, b.toString());
+            }
+            _testApplicationAlphabet(a, a);
+        }
+    }
+    
+    public void testCharacterNotInAlphabet() throws Exception {
+        try {
+            createApplicationFastInfosetDocument("01X", "01Y");
+            fail();
+        } catch (SAXException e) {
+        }
+        
+        try {
+            createBuiltInFastInfosetDocument("12,4", "2012-01-01T");
+            fail();
+        } catch (SAXException e) {
+        }
+    }
+    
+    private static String alphabet(char first, int length) {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            b.append((char)(first + i));
+        }
+        return b.toString();
+    }
+    
     public void _testApplicationAlphabet(String a, String s) throws Exception {
         byte[] b = createApplicationFastInfosetDocument(a, s);
         InputStream bais = new ByteArrayInputStream(b);
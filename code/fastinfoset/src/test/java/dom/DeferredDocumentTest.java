@@ -0,0 +1,173 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dom;
+
+import com.sun.xml.fastinfoset.dom.DOMDocumentParser;
+import com.sun.xml.fastinfoset.dom.DeferredDOMDocumentParser;
+import com.sun.xml.fastinfoset.dom.DeferredDocument;
+import com.sun.xml.fastinfoset.tools.XML_SAX_FI;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import junit.framework.TestCase;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+public class DeferredDocumentTest extends TestCase {
+
+    private static final String XML =
+            "<?xml version='1.0'?>" +
+            "<!-- before -->" +
+            "<p:root xmlns:p='urn:p' xmlns='urn:default' a='1' p:b='2'>" +
+            "<?target some data?>" +
+            "<child>text &amp; more <![CDATA[<cdata>]]> text</child>" +
+            "<p:child id='x'><e xmlns=''/><!-- inside --></p:child>" +
+            "mixed" +
+            "<child xmlns:q='urn:q' q:c='3'><q:leaf>leaf</q:leaf></child>" +
+            "</p:root>" +
+            "<?after?>";
+
+    public void testEquivalentToDOMDocument() throws Exception {
+        final byte[] fi = toFI(XML);
+
+        final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        new DOMDocumentParser().parse(document, new ByteArrayInputStream(fi));
+        final DeferredDocument deferred = new DeferredDOMDocumentParser().parse(new ByteArrayInputStream(fi));
+
+        assertEquivalent(document, deferred);
+        assertEquals(document.getDocumentElement().getTextContent(),
+                deferred.getDocumentElement().getTextContent());
+    }
+
+    public void testLargeDocument() throws Exception {
+        final StringBuilder b = new StringBuilder("<root xmlns:n='urn:n'>");
+        for (int i = 0; i < 2000; i++) {
+            b.append("<item n:i='").append(i).append("'><value>").append(i * 7).append("</value>");
+            for (int j = 0; j < i % 5; j++) {
+                b.append("<n:nested>").append(j).append("</n:nested>");
+            }
+            b.append("</item>");
+        }
+        b.append("</root>");
+        final byte[] fi = toFI(b.toString());
+
+        final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        new DOMDocumentParser().parse(document, new ByteArrayInputStream(fi));
+        final DeferredDocument deferred = new DeferredDOMDocumentParser().parse(new ByteArrayInputStream(fi));
+
+        assertEquivalent(document, deferred);
+        assertEquals(2000, deferred.getElementsByTagName("item").getLength());
+        assertEquals(document.getElementsByTagNameNS("urn:n", "nested").getLength(),
+                deferred.getElementsByTagNameNS("urn:n", "nested").getLength());
+        assertEquals(document.getElementsByTagNameNS("*", "*").getLength(),
+                deferred.getElementsByTagNameNS("*", "*").getLength());
+    }
+
+    public void testNavigation() throws Exception {
+        final DeferredDocument d = new DeferredDOMDocumentParser().parse(new ByteArrayInputStream(toFI(XML)));
+        final Element root = d.getDocumentElement();
+
+        assertSame(root, d.getDocumentElement());
+        assertSame(d, root.getParentNode());
+        assertSame(d, root.getOwnerDocument());
+        assertNull(d.getOwnerDocument());
+        assertEquals(Node.COMMENT_NODE, root.getPreviousSibling().getNodeType());
+        assertEquals(Node.PROCESSING_INSTRUCTION_NODE, root.getNextSibling().getNodeType());
+
+        final NodeList children = root.getChildNodes();
+        for (int i = 1; i < children.getLength(); i++) {
+            assertSame(children.item(i - 1), children.item(i).getPreviousSibling());
+            assertSame(children.item(i), children.item(i - 1).getNextSibling());
+            assertEquals(Node.DOCUMENT_POSITION_FOLLOWING,
+                    children.item(i - 1).compareDocumentPosition(children.item(i)));
+        }
+        assertSame(children.item(children.getLength() - 1), root.getLastChild());
+
+        final Element leaf = (Element)d.getElementsByTagNameNS("urn:q", "leaf").item(0);
+        assertEquals("leaf", leaf.getTextContent());
+        assertEquals("urn:q", leaf.lookupNamespaceURI("q"));
+        assertEquals("urn:p", leaf.lookupNamespaceURI("p"));
+        assertEquals("urn:default", leaf.lookupNamespaceURI(null));
+        assertEquals("q", leaf.lookupPrefix("urn:q"));
+        assertEquals(Node.DOCUMENT_POSITION_CONTAINS | Node.DOCUMENT_POSITION_PRECEDING,
+                leaf.compareDocumentPosition(root));
+
+        final Element e = (Element)d.getElementsByTagName("e").item(0);
+        assertNull(e.getNamespaceURI());
+        assertNull(e.lookupNamespaceURI(null));
+
+        assertEquals("2", root.getAttributeNS("urn:p", "b"));
+        assertEquals("1", root.getAttribute("a"));
+        assertEquals("", root.getAttribute("missing"));
+        assertSame(root, root.getAttributeNode("a").getOwnerElement());
+        assertSame(root.getAttributeNode("a"), root.getAttributes().getNamedItem("a"));
+
+        try {
+            root.setAttribute("a", "2");
+            fail();
+        } catch (DOMException ex) {
+            assertEquals(DOMException.NO_MODIFICATION_ALLOWED_ERR, ex.code);
+        }
+        try {
+            d.createElement("e");
+            fail();
+        } catch (DOMException ex) {
+            assertEquals(DOMException.NOT_SUPPORTED_ERR, ex.code);
+        }
+    }
+
+    private static void assertEquivalent(Node expected, Node actual) {
+        assertEquals(expected.getNodeType(), actual.getNodeType());
+        assertEquals(expected.getNodeName(), actual.getNodeName());
+        assertEquals(expected.getNamespaceURI(), actual.getNamespaceURI());
+        assertEquals(expected.getLocalName(), actual.getLocalName());
+        assertEquals(expected.getPrefix(), actual.getPrefix());
+        assertEquals(expected.getNodeValue(), actual.getNodeValue());
+
+        final NamedNodeMap expectedAttributes = expected.getAttributes();
+        final NamedNodeMap actualAttributes = actual.getAttributes();
+        if (expectedAttributes != null) {
+            assertEquals(expectedAttributes.getLength(), actualAttributes.getLength());
+            for (int i = 0; i < expectedAttributes.getLength(); i++) {
+                final Node a = expectedAttributes.item(i);
+                assertEquivalent(a, actualAttributes.getNamedItemNS(a.getNamespaceURI(), a.getLocalName()));
+            }
+        } else {
+            assertNull(actualAttributes);
+        }
+
+        if (expected.getNodeType() != Node.ATTRIBUTE_NODE) {
+            final NodeList expectedChildren = expected.getChildNodes();
+            final NodeList actualChildren = actual.getChildNodes();
+            assertEquals(expectedChildren.getLength(), actualChildren.getLength());
+            for (int i = 0; i < expectedChildren.getLength(); i++) {
+                assertEquivalent(expectedChildren.item(i), actualChildren.item(i));
+            }
+        }
+    }
+
+    private static byte[] toFI(String xml) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new XML_SAX_FI().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")), out);
+        return out.toByteArray();
+    }
+}
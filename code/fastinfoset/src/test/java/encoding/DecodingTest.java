@@ -23,6 +23,7 @@ import com.sun.xml.fastinfoset.sax.SAXDocumentSerializer;
 import com.sun.xml.fastinfoset.tools.VocabularyGenerator;
 import com.sun.xml.fastinfoset.vocab.ParserVocabulary;
 import com.sun.xml.fastinfoset.vocab.SerializerVocabulary;
+import com.sun.xml.fastinfoset.vocab.SharedExternalVocabulary;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
@@ -124,6 +125,53 @@ public class DecodingTest extends TestCase {
         compare(finfDocument, obtainBytesFromStream(_finfRefVocabDocumentURL.openStream()));
     }
 
+    public void testDecodeWithFrozenVocabulary() throws Exception {
+        SerializerVocabulary serializerExternalVocabulary = new SerializerVocabulary();
+        ParserVocabulary parserExternalVocabulary = new ParserVocabulary();
+        
+        VocabularyGenerator vocabularyGenerator = new VocabularyGenerator(serializerExternalVocabulary, parserExternalVocabulary);
+        vocabularyGenerator.setCharacterContentChunkSizeLimit(0);
+        vocabularyGenerator.setAttributeValueSizeLimit(0);
+        _saxParser.parse(_xmlDocumentURL.openStream(), vocabularyGenerator);
+        serializerExternalVocabulary.freeze();
+
+        Map externalVocabularies = new HashMap();
+        externalVocabularies.put(EXTERNAL_VOCABULARY_URI_STRING, parserExternalVocabulary);
+        
+        byte[] specFiDocument = obtainBytesFromStream(_finfRefVocabDocumentURL.openStream());
+        
+        SAXDocumentSerializer documentSerializer = new SAXDocumentSerializer();
+        documentSerializer.setMaxCharacterContentChunkSize(6);
+        documentSerializer.setMaxAttributeValueSize(6);
+        
+        SAXDocumentParser documentParser = new SAXDocumentParser();
+        documentParser.setProperty(FastInfosetParser.EXTERNAL_VOCABULARIES_PROPERTY, externalVocabularies);
+        documentParser.setContentHandler(documentSerializer);
+        
+        // Encode twice, the frozen vocabulary is not modified by the first 
+        // document
+        for (int i = 0; i < 2; i++) {
+            SerializerVocabulary initialVocabulary = new SerializerVocabulary();
+            initialVocabulary.setExternalVocabulary(
+                    EXTERNAL_VOCABULARY_URI_STRING,
+                    serializerExternalVocabulary, false);
+            documentSerializer.setVocabulary(initialVocabulary);        
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            documentSerializer.setOutputStream(baos);
+            
+            documentParser.parse(_finfRefVocabDocumentURL.openStream());        
+            compare(baos.toByteArray(), specFiDocument);
+        }
+        
+        boolean exceptionThrown = false;
+        try {
+            serializerExternalVocabulary.localName.obtainIndex("notPresent");
+        } catch (UnsupportedOperationException e) {
+            exceptionThrown = true;
+        }
+        assertTrue(exceptionThrown);
+    }
+
     public void testDecodeWithJVNETVocabulary() throws Exception {
         VocabularyGenerator vocabularyGenerator = new VocabularyGenerator();
         vocabularyGenerator.setCharacterContentChunkSizeLimit(0);
@@ -154,6 +202,63 @@ public class DecodingTest extends TestCase {
         compare(finfDocument, obtainBytesFromStream(_finfRefVocabDocumentURL.openStream()));
     }
     
+    public void testDecodeWithSharedVocabulary() throws Exception {
+        VocabularyGenerator vocabularyGenerator = new VocabularyGenerator();
+        vocabularyGenerator.setCharacterContentChunkSizeLimit(0);
+        vocabularyGenerator.setAttributeValueSizeLimit(0);
+        _saxParser.parse(_xmlDocumentURL.openStream(), vocabularyGenerator);
+
+        final SharedExternalVocabulary ev = new SharedExternalVocabulary(
+                EXTERNAL_VOCABULARY_URI_STRING,
+                vocabularyGenerator.getVocabulary());
+        final byte[] specFiDocument = obtainBytesFromStream(_finfRefVocabDocumentURL.openStream());
+
+        // Each thread encodes the document many times, with its own 
+        // serializer and parser, referencing the same vocabulary
+        final Throwable[] failures = new Throwable[4];
+        Thread[] threads = new Thread[failures.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int thread = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        Map externalVocabularies = new HashMap();
+                        externalVocabularies.put(ev.URI, ev);
+
+                        SAXDocumentSerializer documentSerializer = new SAXDocumentSerializer();
+                        documentSerializer.setMaxCharacterContentChunkSize(6);
+                        documentSerializer.setMaxAttributeValueSize(6);
+
+                        SAXDocumentParser documentParser = new SAXDocumentParser();
+                        documentParser.setProperty(FastInfosetParser.EXTERNAL_VOCABULARIES_PROPERTY, externalVocabularies);
+                        documentParser.setContentHandler(documentSerializer);
+
+                        for (int j = 0; j < 50; j++) {
+                            documentSerializer.setExternalVocabulary(ev);
+                            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                            documentSerializer.setOutputStream(baos);
+                            documentParser.parse(new ByteArrayInputStream(specFiDocument));
+                            compare(baos.toByteArray(), specFiDocument);
+                        }
+                    } catch (Throwable t) {
+                        failures[thread] = t;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            if (failures[i] != null) {
+                throw new Exception(failures[i]);
+            }
+        }
+
+        assertTrue(ev.getSerializerVocabulary(false).isFrozen());
+        assertTrue(ev.getParserVocabulary().isFrozen());
+    }
+    
     public void testDecodeWithoutVocabulary() throws Exception {
         SerializerVocabulary initialVocabulary = new SerializerVocabulary();
 
@@ -19,6 +19,7 @@ package encoding;
 
 import com.sun.xml.fastinfoset.sax.SAXDocumentParser;
 import com.sun.xml.fastinfoset.sax.SAXDocumentSerializer;
+import com.sun.xml.fastinfoset.util.DuplicateAttributeVerifier;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
@@ -109,6 +110,44 @@ public class DuplicateAttributesTest extends TestCase {
         assertEquals(false, exceptionThrown);
     }
     
+    public void testManyAttributes() throws Exception {
+        SAXDocumentParser sdp = new SAXDocumentParser();
+        parse(sdp, new ByteArrayInputStream(createDocumentWithAttributes(100, false)));
+        
+        try {
+            parse(sdp, new ByteArrayInputStream(createDocumentWithAttributes(100, true)));
+            fail();
+        } catch (FastInfosetException e) {
+        }
+        
+        parse(sdp, new ByteArrayInputStream(createDocumentWithAttributes(3, false)));
+    }
+    
+    public void testDuplicateAttributeCheckingDisabled() throws Exception {
+        SAXDocumentParser sdp = new SAXDocumentParser();
+        sdp.setDuplicateAttributeChecking(false);
+        assertFalse(sdp.getDuplicateAttributeChecking());
+        parse(sdp, new ByteArrayInputStream(createDocumentWithDuplicateAttributes()));
+        parse(sdp, new ByteArrayInputStream(createDocumentWithAttributes(100, true)));
+    }
+    
+    public void testVerifierIterations() throws Exception {
+        DuplicateAttributeVerifier v = new DuplicateAttributeVerifier();
+        v._currentIteration = Integer.MAX_VALUE - 2;
+        for (int i = 0; i < 4; i++) {
+            v.startElement();
+            for (int value = 0; value < 40; value++) {
+                v.checkForDuplicateAttribute(value * 31);
+            }
+            try {
+                v.checkForDuplicateAttribute(i * 31);
+                fail();
+            } catch (FastInfosetException e) {
+            }
+        }
+        assertTrue(v._currentIteration > 0);
+    }
+    
     void parse(SAXDocumentParser sdp, InputStream in) throws Exception {
         sdp.setInputStream(in);
         sdp.parse();
@@ -137,6 +176,32 @@ public class DuplicateAttributesTest extends TestCase {
         return baos.toByteArray();
     }
     
+    byte[] createDocumentWithAttributes(int count, boolean isDuplicateLast) throws Exception {
+        SAXDocumentSerializer sds = new SAXDocumentSerializer();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        AttributesImpl attributes = new AttributesImpl();
+        
+        sds.setOutputStream(baos);
+        
+        for (int i = 0; i < count; i++) {
+            attributes.addAttribute("", "a" + i, "a" + i, "PCDATA", "value" + i);
+        }
+        
+        sds.startDocument();
+            sds.startElement("", "e", "e", attributes);
+                sds.startElement("", "e", "e", attributes);
+                sds.endElement("", "e", "e");
+                if (isDuplicateLast) {
+                    attributes.addAttribute("", "a" + (count / 2), "a" + (count / 2), "PCDATA", "value");
+                }
+                sds.startElement("", "e", "e", attributes);
+                sds.endElement("", "e", "e");
+            sds.endElement("", "e", "e");
+        sds.endDocument();
+        
+        return baos.toByteArray();
+    }
+    
     byte[] createDocumentWithDuplicateNamespaceAttributes() throws Exception {
         SAXDocumentSerializer sds = new SAXDocumentSerializer();
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -0,0 +1,185 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package encoding;
+
+import com.sun.xml.fastinfoset.dom.DOMDocumentParser;
+import com.sun.xml.fastinfoset.sax.SAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamReader;
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class InputBufferTest extends TestCase {
+
+    public InputBufferTest() {
+    }
+
+    public void testHeapBuffer() throws Exception {
+        byte[] document = serialize();
+        String expected = readEvents(new StAXDocumentParser(new ByteArrayInputStream(document)));
+
+        // Place the document in the middle of a larger array
+        byte[] array = new byte[document.length + 20];
+        System.arraycopy(document, 0, array, 10, document.length);
+        byte[] copy = array.clone();
+        ByteBuffer bb = ByteBuffer.wrap(array, 10, document.length).slice();
+
+        StAXDocumentParser p = new StAXDocumentParser();
+        p.setInputBuffer(bb);
+        assertEquals(expected, readEvents(p));
+
+        assertEquals(0, bb.position());
+        assertTrue(Arrays.equals(copy, array));
+
+        // Check that the parser returns to its own buffer
+        p.setInputStream(new ByteArrayInputStream(document));
+        assertEquals(expected, readEvents(p));
+        assertTrue(Arrays.equals(copy, array));
+
+        // Closing the parser releases the buffer, the parser is reusable
+        p.setInputBuffer(bb);
+        p.close();
+        p.setInputBuffer(bb);
+        assertEquals(expected, readEvents(p));
+        p.close();
+        p.setInputStream(new ByteArrayInputStream(document));
+        assertEquals(expected, readEvents(p));
+    }
+
+    public void testDirectBuffer() throws Exception {
+        byte[] document = serialize();
+        String expected = readEvents(new StAXDocumentParser(new ByteArrayInputStream(document)));
+
+        ByteBuffer bb = ByteBuffer.allocateDirect(document.length);
+        bb.put(document).flip();
+
+        StAXDocumentParser p = new StAXDocumentParser();
+        p.setInputBuffer(bb);
+        assertEquals(expected, readEvents(p));
+    }
+
+    public void testFileChannel() throws Exception {
+        byte[] document = serialize();
+        String expected = readEvents(new StAXDocumentParser(new ByteArrayInputStream(document)));
+
+        File f = File.createTempFile("channel", ".finf");
+        f.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(f);
+        fos.write(new byte[7]);
+        fos.write(document);
+        fos.close();
+
+        FileInputStream fis = new FileInputStream(f);
+        FileChannel fc = fis.getChannel();
+        fc.position(7);
+        StAXDocumentParser p = new StAXDocumentParser();
+        p.setInputChannel(fc);
+        assertEquals(expected, readEvents(p));
+        fis.close();
+    }
+
+    public void testSAXAndDOM() throws Exception {
+        byte[] document = serialize();
+
+        final int[] count = new int[1];
+        SAXDocumentParser sp = new SAXDocumentParser();
+        sp.setContentHandler(new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                count[0]++;
+            }
+        });
+        sp.parse(ByteBuffer.wrap(document));
+        assertEquals(102, count[0]);
+
+        Document d = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        new DOMDocumentParser().parse(d, ByteBuffer.wrap(document));
+        assertEquals("root", d.getDocumentElement().getLocalName());
+        assertEquals(102, d.getElementsByTagName("*").getLength());
+    }
+
+    public void testTruncatedHeapBuffer() throws Exception {
+        byte[] document = serialize();
+        byte[] copy = document.clone();
+
+        StAXDocumentParser p = new StAXDocumentParser();
+        p.setInputBuffer(ByteBuffer.wrap(document, 0, document.length / 2));
+
+        boolean exceptionThrown = false;
+        try {
+            readEvents(p);
+        } catch (Exception e) {
+            exceptionThrown = true;
+        }
+
+        assertEquals(true, exceptionThrown);
+        assertTrue(Arrays.equals(copy, document));
+    }
+
+    private String readEvents(XMLStreamReader r) throws Exception {
+        StringBuilder b = new StringBuilder();
+        while (r.hasNext()) {
+            int event = r.next();
+            b.append(event);
+            if (r.isStartElement()) {
+                b.append(r.getLocalName());
+                for (int i = 0; i < r.getAttributeCount(); i++) {
+                    b.append(r.getAttributeLocalName(i)).append('=').append(r.getAttributeValue(i));
+                }
+            } else if (r.isCharacters()) {
+                b.append(r.getText());
+            }
+        }
+        return b.toString();
+    }
+
+    private byte[] serialize() throws Exception {
+        char[] large = new char[4096];
+        Arrays.fill(large, '\u00e9');
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StAXDocumentSerializer s = new StAXDocumentSerializer(out);
+        s.writeStartDocument();
+        s.writeStartElement("", "root", "");
+        for (int i = 0; i < 100; i++) {
+            s.writeStartElement("", "e" + i, "");
+            s.writeAttribute("a", "v" + i);
+            s.writeCharacters("text" + i);
+            s.writeEndElement();
+        }
+        s.writeStartElement("", "large", "");
+        s.writeCharacters(large, 0, large.length);
+        s.writeEndElement();
+        s.writeEndElement();
+        s.writeEndDocument();
+        s.flush();
+        return out.toByteArray();
+    }
+}
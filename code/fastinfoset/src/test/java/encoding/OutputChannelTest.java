@@ -0,0 +1,133 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package encoding;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+public class OutputChannelTest extends TestCase {
+    
+    public OutputChannelTest() {
+    }
+
+    public void testChannel() throws Exception {
+        byte[] expected = serializeToOutputStream();
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StAXDocumentSerializer s = new StAXDocumentSerializer();
+        s.setOutputChannel(Channels.newChannel(out));
+        serialize(s);
+        
+        assertTrue(Arrays.equals(expected, out.toByteArray()));
+    }
+
+    public void testGatheringChannel() throws Exception {
+        byte[] expected = serializeToOutputStream();
+        
+        File f = File.createTempFile("channel", ".finf");
+        f.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(f);
+        FileChannel fc = fos.getChannel();
+        StAXDocumentSerializer s = new StAXDocumentSerializer();
+        s.setOutputChannel(fc);
+        serialize(s);
+        fos.close();
+        
+        assertTrue(Arrays.equals(expected, readFile(f)));
+    }
+    
+    public void testDirectBuffer() throws Exception {
+        byte[] expected = serializeToOutputStream();
+        
+        ByteBuffer bb = ByteBuffer.allocateDirect(expected.length);
+        StAXDocumentSerializer s = new StAXDocumentSerializer();
+        s.setOutputBuffer(bb);
+        serialize(s);
+        
+        assertEquals(expected.length, bb.position());
+        bb.flip();
+        byte[] actual = new byte[bb.remaining()];
+        bb.get(actual);
+        assertTrue(Arrays.equals(expected, actual));
+    }
+    
+    public void testBufferOverflow() throws Exception {
+        byte[] expected = serializeToOutputStream();
+        
+        ByteBuffer bb = ByteBuffer.allocate(expected.length / 2);
+        StAXDocumentSerializer s = new StAXDocumentSerializer();
+        s.setOutputBuffer(bb);
+        
+        boolean exceptionThrown = false;
+        try {
+            serialize(s);
+        } catch (Exception e) {
+            exceptionThrown = true;
+        }
+        
+        assertEquals(true, exceptionThrown);
+    }
+    
+    private byte[] serializeToOutputStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StAXDocumentSerializer s = new StAXDocumentSerializer();
+        s.setOutputStream(out);
+        serialize(s);
+        return out.toByteArray();
+    }
+    
+    private void serialize(StAXDocumentSerializer s) throws Exception {
+        char[] large = new char[4096];
+        Arrays.fill(large, 'x');
+        
+        s.writeStartDocument();
+        s.writeStartElement("", "root", "");
+        for (int i = 0; i < 100; i++) {
+            s.writeStartElement("", "e" + i, "");
+            s.writeAttribute("a", "v" + i);
+            s.writeCharacters("text" + i);
+            s.writeEndElement();
+        }
+        s.writeStartElement("", "large", "");
+        s.writeCharacters(large, 0, large.length);
+        s.writeEndElement();
+        s.writeEndElement();
+        s.writeEndDocument();
+    }
+    
+    private byte[] readFile(File f) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileInputStream in = new FileInputStream(f);
+        byte[] b = new byte[1024];
+        int n;
+        while ((n = in.read(b)) != -1) {
+            out.write(b, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package encoding;
+
+import com.sun.xml.fastinfoset.DecoderPool;
+import com.sun.xml.fastinfoset.EncoderPool;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamConstants;
+import junit.framework.TestCase;
+
+public class PoolTest extends TestCase {
+    
+    public PoolTest() {
+    }
+
+    public void testBorrowRelease() throws Exception {
+        EncoderPool<StAXDocumentSerializer> pool = 
+                new EncoderPool<StAXDocumentSerializer>(StAXDocumentSerializer.class, 2, Integer.MAX_VALUE);
+        
+        StAXDocumentSerializer s1 = pool.borrow();
+        StAXDocumentSerializer s2 = pool.borrow();
+        StAXDocumentSerializer s3 = pool.borrow();
+        assertEquals(0, pool.getHitCount());
+        
+        pool.release(s1);
+        pool.release(s2);
+        pool.release(s3);
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(1, pool.getDiscardCount());
+        assertTrue(pool.getIdleFootprint() > 0);
+        
+        StAXDocumentSerializer s4 = pool.borrow();
+        assertTrue(s4 == s1 || s4 == s2);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(0.25, pool.getHitRate(), 0.0);
+        
+        pool.clear();
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(0, pool.getIdleFootprint());
+    }
+    
+    public void testMaximumIdleFootprint() throws Exception {
+        EncoderPool<StAXDocumentSerializer> pool = 
+                new EncoderPool<StAXDocumentSerializer>(StAXDocumentSerializer.class, 2, 0);
+        
+        pool.release(pool.borrow());
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, pool.getDiscardCount());
+    }
+    
+    public void testMaximumIdleFootprintWithLargeVocabulary() throws Exception {
+        final int maximumIdleFootprint = 256 * 1024;
+        EncoderPool<StAXDocumentSerializer> serializers = 
+                new EncoderPool<StAXDocumentSerializer>(StAXDocumentSerializer.class, 2, maximumIdleFootprint);
+        DecoderPool<StAXDocumentParser> parsers = 
+                new DecoderPool<StAXDocumentParser>(StAXDocumentParser.class, 2, maximumIdleFootprint);
+        
+        roundTrip(serializers, parsers, "small");
+        assertEquals(1, parsers.getIdleCount());
+        
+        final int names = 20000;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StAXDocumentSerializer s = serializers.borrow();
+        try {
+            s.setOutputStream(out);
+            s.writeStartDocument();
+            s.writeStartElement("", "root", "");
+            for (int i = 0; i < names; i++) {
+                s.writeStartElement("", "e" + i, "");
+                s.writeAttribute("a" + i, "v" + i);
+                s.writeEndElement();
+            }
+            s.writeEndElement();
+            s.writeEndDocument();
+        } finally {
+            serializers.release(s);
+        }
+        // The vocabulary of the encoder is cleared, and shrunk, on release
+        assertEquals(0, serializers.getDiscardCount());
+        assertTrue(serializers.getIdleFootprint() <= maximumIdleFootprint);
+        
+        StAXDocumentParser p = parsers.borrow();
+        try {
+            p.setInputStream(new ByteArrayInputStream(out.toByteArray()));
+            int elements = 0;
+            while (p.hasNext()) {
+                if (p.next() == XMLStreamConstants.START_ELEMENT) {
+                    elements++;
+                }
+            }
+            assertEquals(names + 1, elements);
+        } finally {
+            parsers.release(p);
+        }
+        
+        // The vocabulary tables of the decoder exceed the maximum footprint
+        assertEquals(1, parsers.getDiscardCount());
+        assertEquals(0, parsers.getIdleCount());
+    }
+    
+    public void testConcurrentReuse() throws Exception {
+        final EncoderPool<StAXDocumentSerializer> serializers = 
+                new EncoderPool<StAXDocumentSerializer>(StAXDocumentSerializer.class);
+        final DecoderPool<StAXDocumentParser> parsers = 
+                new DecoderPool<StAXDocumentParser>(StAXDocumentParser.class);
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            roundTrip(serializers, parsers, "e" + id + "_" + i);
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertTrue(serializers.getHitCount() > 0);
+        assertTrue(parsers.getHitCount() > 0);
+    }
+    
+    private void roundTrip(EncoderPool<StAXDocumentSerializer> serializers, 
+            DecoderPool<StAXDocumentParser> parsers, String name) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StAXDocumentSerializer s = serializers.borrow();
+        try {
+            s.setOutputStream(out);
+            s.writeStartDocument();
+            s.writeStartElement("", name, "");
+            s.writeAttribute("a", name);
+            s.writeCharacters(name);
+            s.writeEndElement();
+            s.writeEndDocument();
+        } finally {
+            serializers.release(s);
+        }
+        
+        StAXDocumentParser p = parsers.borrow();
+        try {
+            p.setInputStream(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(XMLStreamConstants.START_ELEMENT, p.next());
+            assertEquals(name, p.getLocalName());
+            assertEquals(name, p.getAttributeValue(0));
+            assertEquals(XMLStreamConstants.CHARACTERS, p.next());
+            assertEquals(name, p.getText());
+        } finally {
+            parsers.release(p);
+        }
+    }
+}
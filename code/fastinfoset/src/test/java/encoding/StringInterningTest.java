@@ -0,0 +1,202 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package encoding;
+
+import com.sun.xml.fastinfoset.sax.SAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import com.sun.xml.fastinfoset.util.ConcurrentStringInterner;
+import com.sun.xml.fastinfoset.util.StringInterner;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import junit.framework.TestCase;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class StringInterningTest extends TestCase {
+    
+    private static final String NS = "urn:interning";
+    
+    public void testInterner() throws Exception {
+        ConcurrentStringInterner interner = new ConcurrentStringInterner(8, false);
+        
+        final String s = interner.intern("xabcx".toCharArray(), 1, 3);
+        assertEquals("abc", s);
+        assertSame(s, interner.intern("abc".toCharArray(), 0, 3));
+        assertSame(s, interner.intern("-abc".getBytes("US-ASCII"), 1, 3));
+        assertNotSame("abc", s);
+        assertSame("", interner.intern(new char[0], 0, 0).intern());
+        
+        // More strings than the capacity replace cached strings
+        final List<String> strings = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            final char[] ch = ("s" + i).toCharArray();
+            strings.add(interner.intern(ch, 0, ch.length));
+        }
+        assertSame(strings.get(99), interner.intern("s99".toCharArray(), 0, 3));
+        for (int i = 0; i < 100; i++) {
+            final char[] ch = ("s" + i).toCharArray();
+            assertEquals(strings.get(i), interner.intern(ch, 0, ch.length));
+        }
+        
+        // The JVM string table is only used if requested
+        interner = new ConcurrentStringInterner();
+        final String t = interner.intern("xyz".toCharArray(), 0, 3);
+        assertNotSame("xyz", t);
+        assertSame(t, interner.intern("xyz".getBytes("US-ASCII"), 0, 3));
+        
+        interner = new ConcurrentStringInterner(ConcurrentStringInterner.DEFAULT_CAPACITY, true);
+        assertSame("abc", interner.intern("abc".toCharArray(), 0, 3));
+        assertSame("\u00e9t\u00e9", interner.intern("\u00e9t\u00e9".toCharArray(), 0, 3));
+    }
+    
+    public void testSAXStringInterning() throws Exception {
+        final byte[] document = createDocument();
+        
+        final List<String> names = new ArrayList<String>();
+        SAXDocumentParser parser = new SAXDocumentParser();
+        parser.setStringInterning(true);
+        parser.setStringInterner(new ConcurrentStringInterner(
+                ConcurrentStringInterner.DEFAULT_CAPACITY, true));
+        parser.setContentHandler(new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                names.add(uri);
+                names.add(localName);
+                for (int i = 0; i < atts.getLength(); i++) {
+                    names.add(atts.getLocalName(i));
+                }
+            }
+        });
+        parser.parse(new ByteArrayInputStream(document));
+        
+        // The names are identical to the string literals
+        final String[] expected = {NS, "root", "", "item", "id", 
+            "", "\u00e9l\u00e9ment", "\u00e9t\u00e9", "", "item"};
+        assertEquals(expected.length, names.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i], names.get(i));
+        }
+        
+        // With the default interner the names reported by different parsers
+        // are identical, but not identical to the string literals
+        names.clear();
+        parser.setStringInterner(null);
+        parser.parse(new ByteArrayInputStream(document));
+        final List<String> first = new ArrayList<String>(names);
+        names.clear();
+        SAXDocumentParser other = new SAXDocumentParser();
+        other.setStringInterning(true);
+        other.setContentHandler(parser.getContentHandler());
+        other.parse(new ByteArrayInputStream(document));
+        assertEquals(first.size(), names.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i), names.get(i));
+        }
+        assertNotSame("root", first.get(1));
+    }
+    
+    public void testStringInterner() throws Exception {
+        final byte[] document = createDocument();
+        final List<String> interned = new ArrayList<String>();
+        
+        StAXDocumentParser parser = new StAXDocumentParser();
+        parser.setStringInterning(true);
+        parser.setStringInterner(new StringInterner() {
+            public String intern(char[] ch, int start, int length) {
+                return add(new String(ch, start, length));
+            }
+            
+            public String intern(byte[] octets, int start, int length) {
+                return add(new String(octets, 0, start, length));
+            }
+            
+            private String add(String s) {
+                interned.add(s);
+                return s;
+            }
+        });
+        parser.setInputStream(new ByteArrayInputStream(document));
+        while (parser.next() != XMLStreamReader.END_DOCUMENT) {
+        }
+        
+        assertTrue(interned.contains("root"));
+        assertTrue(interned.contains("\u00e9l\u00e9ment"));
+        assertTrue(interned.contains(NS));
+        // Each name is interned when added to the vocabulary
+        assertEquals(interned.lastIndexOf("item"), interned.indexOf("item"));
+        
+        parser.setStringInterner(null);
+        assertSame(ConcurrentStringInterner.getInstance(), parser.getStringInterner());
+    }
+    
+    public void testConcurrentInterning() throws Exception {
+        final ConcurrentStringInterner interner = new ConcurrentStringInterner(64, true);
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 10000; i++) {
+                            final String s = "name" + (i % 200);
+                            final char[] ch = s.toCharArray();
+                            assertSame(s.intern(), interner.intern(ch, 0, ch.length));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+    
+    private byte[] createDocument() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XMLStreamWriter w = new StAXDocumentSerializer(baos);
+        
+        w.writeStartDocument();
+        w.writeStartElement("p", "root", NS);
+        w.writeNamespace("p", NS);
+            w.writeStartElement("item");
+            w.writeAttribute("id", "1");
+            w.writeEndElement();
+            w.writeStartElement("\u00e9l\u00e9ment");
+            w.writeAttribute("\u00e9t\u00e9", "2");
+            w.writeEndElement();
+            w.writeStartElement("item");
+            w.writeEndElement();
+        w.writeEndElement();
+        w.writeEndDocument();
+        w.close();
+        
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package encoding;
+
+import com.sun.xml.fastinfoset.QualifiedName;
+import com.sun.xml.fastinfoset.util.CharArrayIntMap;
+import com.sun.xml.fastinfoset.util.KeyIntMap;
+import com.sun.xml.fastinfoset.util.LocalNameQualifiedNamesMap;
+import com.sun.xml.fastinfoset.util.StringIntMap;
+import junit.framework.TestCase;
+
+public class VocabularyMapTest extends TestCase {
+    
+    public VocabularyMapTest() {
+    }
+
+    public void testClearAfterGrowth() throws Exception {
+        StringIntMap strings = new StringIntMap();
+        CharArrayIntMap chars = new CharArrayIntMap();
+        LocalNameQualifiedNamesMap names = new LocalNameQualifiedNamesMap();
+        for (int round = 0; round < 3; round++) {
+            // A large vocabulary followed by a small one
+            final int count = (round == 1) ? 10 : 50000;
+            for (int i = 0; i < count; i++) {
+                final String s = "value" + i;
+                assertEquals(KeyIntMap.NOT_PRESENT, strings.obtainIndex(s));
+                assertEquals(KeyIntMap.NOT_PRESENT, chars.obtainIndex(s.toCharArray(), 0, s.length(), false));
+                names.addQualifiedName(names.obtainEntry(s), new QualifiedName("", "", s, "", i));
+            }
+            for (int i = 0; i < count; i++) {
+                final String s = "value" + i;
+                assertEquals(i, strings.obtainIndex(s));
+                assertEquals(i, chars.get(s.toCharArray(), 0, s.length()));
+                final LocalNameQualifiedNamesMap.Entry entry = names.obtainEntry(s);
+                assertEquals(1, entry._valueIndex);
+                assertEquals(i, entry._value[0].index);
+            }
+            assertEquals(count, strings.size());
+            assertEquals(count, chars.size());
+            assertEquals(count, names.size());
+            
+            strings.clear();
+            chars.clear();
+            names.clear();
+            assertEquals(KeyIntMap.NOT_PRESENT, strings.get("value0"));
+            assertEquals(KeyIntMap.NOT_PRESENT, chars.get("value0".toCharArray(), 0, 6));
+            assertEquals(0, names.size());
+        }
+    }
+
+    public void testFull() throws Exception {
+        StringIntMap strings = new StringIntMap();
+        int count = 0;
+        while (true) {
+            final String s = Integer.toString(count++);
+            assertEquals(KeyIntMap.NOT_PRESENT, strings.obtainIndex(s));
+            if (strings.get(s) == KeyIntMap.NOT_PRESENT) {
+                break;
+            }
+        }
+        
+        // The indexes of the entries not added continue to be assigned
+        final int size = strings.size();
+        assertEquals(size + 1, count);
+        assertEquals(count, strings.getIndex());
+        assertEquals(0, strings.get("0"));
+        assertEquals(size - 1, strings.get(Integer.toString(size - 1)));
+        assertEquals(KeyIntMap.NOT_PRESENT, strings.obtainIndex("x"));
+        assertEquals(count + 1, strings.getIndex());
+        
+        strings.clear();
+        assertEquals(KeyIntMap.NOT_PRESENT, strings.obtainIndex("x"));
+        assertEquals(0, strings.get("x"));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package stax;
+
+import com.sun.xml.fastinfoset.stax.StAXAsyncDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import junit.framework.TestCase;
+
+public class AsyncParserTest extends TestCase {
+
+    public static final String FINF_SPEC_UBL_FINF_RESOURCE = "X.finf/UBL-example.finf";
+
+    public void testSingleOctets() throws Exception {
+        byte[] document = createDocument("UTF-8");
+        assertEquals(readEvents(document), feedEvents(document, new int[] {1}));
+    }
+
+    public void testRandomChunks() throws Exception {
+        Random r = new Random(7);
+        String[] schemes = {"UTF-8", "UTF-16BE"};
+        for (int i = 0; i < schemes.length; i++) {
+            byte[] document = createDocument(schemes[i]);
+            String expected = readEvents(document);
+            for (int j = 0; j < 20; j++) {
+                int[] chunks = new int[16];
+                for (int k = 0; k < chunks.length; k++) {
+                    chunks[k] = 1 + r.nextInt(600);
+                }
+                assertEquals(expected, feedEvents(document, chunks));
+            }
+        }
+    }
+
+    public void testSpecificationDocument() throws Exception {
+        byte[] document = readResource(FINF_SPEC_UBL_FINF_RESOURCE);
+        String expected = readEvents(document);
+        assertEquals(expected, feedEvents(document, new int[] {1}));
+        assertEquals(expected, feedEvents(document, new int[] {3, 17, 101}));
+    }
+
+    public void testIncompleteDocument() throws Exception {
+        byte[] document = createDocument("UTF-8");
+
+        StAXAsyncDocumentParser p = new StAXAsyncDocumentParser();
+        p.feed(document, 0, document.length - 1);
+        int event;
+        while ((event = p.next()) != StAXAsyncDocumentParser.EVENT_INCOMPLETE) {
+            assertTrue(event != XMLStreamConstants.END_DOCUMENT);
+        }
+        assertEquals(StAXAsyncDocumentParser.EVENT_INCOMPLETE, p.next());
+
+        p.endOfInput();
+        boolean exceptionThrown = false;
+        try {
+            while (p.next() != XMLStreamConstants.END_DOCUMENT) {
+            }
+        } catch (XMLStreamException e) {
+            exceptionThrown = true;
+        }
+        assertTrue(exceptionThrown);
+
+        // Parse the complete document with the same parser
+        p.resetInput();
+        p.feed(document, 0, document.length);
+        StringBuilder b = new StringBuilder();
+        while ((event = p.next()) != StAXAsyncDocumentParser.EVENT_INCOMPLETE) {
+            appendEvent(b, p, event);
+            if (event == XMLStreamConstants.END_DOCUMENT) {
+                break;
+            }
+        }
+        assertEquals(readEvents(document), b.toString());
+    }
+
+    private String feedEvents(byte[] document, int[] chunks) throws Exception {
+        StAXAsyncDocumentParser p = new StAXAsyncDocumentParser();
+        StringBuilder b = new StringBuilder();
+
+        int offset = 0;
+        int chunk = 0;
+        boolean isEndDocument = false;
+        while (!isEndDocument) {
+            assertTrue(offset < document.length);
+            int length = Math.min(chunks[chunk++ % chunks.length], document.length - offset);
+            p.feed(ByteBuffer.wrap(document, offset, length));
+            offset += length;
+
+            int event;
+            while ((event = p.next()) != StAXAsyncDocumentParser.EVENT_INCOMPLETE) {
+                appendEvent(b, p, event);
+                if (event == XMLStreamConstants.END_DOCUMENT) {
+                    isEndDocument = true;
+                    break;
+                }
+            }
+        }
+        assertEquals(document.length, offset);
+        return b.toString();
+    }
+
+    private String readEvents(byte[] document) throws Exception {
+        XMLStreamReader r = new StAXDocumentParser(new ByteArrayInputStream(document));
+        StringBuilder b = new StringBuilder();
+        while (r.hasNext()) {
+            appendEvent(b, r, r.next());
+        }
+        return b.toString();
+    }
+
+    private void appendEvent(StringBuilder b, XMLStreamReader r, int event) {
+        b.append('[').append(event);
+        switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                b.append(r.getName());
+                for (int i = 0; i < r.getNamespaceCount(); i++) {
+                    b.append(' ').append(r.getNamespacePrefix(i)).append('=').append(r.getNamespaceURI(i));
+                }
+                for (int i = 0; i < r.getAttributeCount(); i++) {
+                    b.append(' ').append(r.getAttributeName(i)).append('=').append(r.getAttributeValue(i));
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                b.append(r.getName());
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.COMMENT:
+                b.append(r.getText());
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                b.append(r.getPITarget()).append(' ').append(r.getPIData());
+                break;
+        }
+        b.append(']');
+    }
+
+    private byte[] createDocument(String characterEncodingScheme) throws Exception {
+        char[] large = new char[2000];
+        Arrays.fill(large, 'é');
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StAXDocumentSerializer s = new StAXDocumentSerializer(out);
+        s.setCharacterEncodingScheme(characterEncodingScheme);
+        s.writeStartDocument();
+        s.writeProcessingInstruction("target", "data");
+        s.writeStartElement("p", "root", "urn:root");
+        s.writeNamespace("p", "urn:root");
+        s.writeNamespace("q", "urn:q");
+        s.writeAttribute("q", "urn:q", "a", "value");
+        for (int i = 0; i < 40; i++) {
+            s.writeStartElement("", "e" + (i % 5), "");
+            if (i % 3 == 0) {
+                s.writeAttribute("a", "v" + (i % 4));
+                s.writeAttribute("b", "é中" + i);
+            }
+            s.writeCharacters("text" + (i % 7));
+            if (i % 10 == 0) {
+                s.writeComment("comment " + i);
+                s.writeStartElement("", "empty", "");
+                s.writeEndElement();
+                s.writeCharacters(large, 0, large.length - i);
+            }
+            s.writeEndElement();
+        }
+        s.writeStartElement("q", "ns", "urn:q");
+        s.writeNamespace("r", "urn:r");
+        s.writeEndElement();
+        s.writeCData("cdata");
+        s.writeEndElement();
+        s.writeComment("trailing");
+        s.writeEndDocument();
+        s.flush();
+        return out.toByteArray();
+    }
+
+    private byte[] readResource(String name) throws Exception {
+        InputStream in = getClass().getClassLoader().getResourceAsStream(name);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[1024];
+        int n;
+        while ((n = in.read(b)) != -1) {
+            out.write(b, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
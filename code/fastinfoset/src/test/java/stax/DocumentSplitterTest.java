@@ -0,0 +1,270 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package stax;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSplitter;
+import com.sun.xml.fastinfoset.stax.util.StAXDocumentDispatcher;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import junit.framework.TestCase;
+
+public class DocumentSplitterTest extends TestCase {
+
+    private static final int DOCUMENTS = 50;
+
+    public void testScan() throws Exception {
+        final List documents = createDocuments();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (int i = 0; i < documents.size(); i++) {
+            baos.write((byte[])documents.get(i));
+        }
+
+        // Read a few octets at a time so documents span many reads
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(baos.toByteArray())) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 97));
+            }
+        };
+        assertDocuments(documents, new StAXDocumentSplitter(in));
+    }
+
+    public void testLengthPrefixed() throws Exception {
+        final List documents = createDocuments();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (int i = 0; i < documents.size(); i++) {
+            final byte[] document = (byte[])documents.get(i);
+            StAXDocumentSplitter.writeLengthPrefixedDocument(baos, document, 0, document.length);
+        }
+
+        assertDocuments(documents, new StAXDocumentSplitter(new ByteArrayInputStream(baos.toByteArray()), true));
+    }
+
+    public void testOrderedDispatch() throws Exception {
+        dispatch(true);
+    }
+
+    public void testUnorderedDispatch() throws Exception {
+        dispatch(false);
+    }
+
+    public void testDispatchError() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final List errors = new ArrayList();
+            final int[] results = new int[1];
+            new StAXDocumentDispatcher(executor, 5, true).dispatch(createSplitter(),
+                    new StAXDocumentDispatcher.DocumentHandler() {
+                public Object handleDocument(XMLStreamReader reader, int index) throws Exception {
+                    if (index % 10 == 3) {
+                        throw new IllegalStateException();
+                    }
+                    return getId(reader);
+                }
+            }, new StAXDocumentDispatcher.ResultHandler() {
+                public void handleResult(int index, Object result) {
+                    results[0]++;
+                }
+
+                public void handleError(int index, Exception e) {
+                    assertTrue(e instanceof IllegalStateException);
+                    errors.add(Integer.valueOf(index));
+                }
+            });
+
+            assertEquals(Arrays.asList(new Integer[] {3, 13, 23, 33, 43}), errors);
+            assertEquals(DOCUMENTS - 5, results[0]);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testDispatchCloseError() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final AtomicInteger created = new AtomicInteger();
+            final List errors = new ArrayList();
+            new StAXDocumentDispatcher(executor, 5, true) {
+                protected StAXDocumentParser createParser() {
+                    created.incrementAndGet();
+                    return new StAXDocumentParser() {
+                        public void close() throws XMLStreamException {
+                            super.close();
+                            throw new XMLStreamException();
+                        }
+                    };
+                }
+            }.dispatch(createSplitter(),
+                    new StAXDocumentDispatcher.DocumentHandler() {
+                public Object handleDocument(XMLStreamReader reader, int index) throws Exception {
+                    return getId(reader);
+                }
+            }, new StAXDocumentDispatcher.ResultHandler() {
+                public void handleResult(int index, Object result) {
+                    fail();
+                }
+
+                public void handleError(int index, Exception e) {
+                    assertTrue(e instanceof XMLStreamException);
+                    errors.add(Integer.valueOf(index));
+                }
+            });
+
+            // A parser that fails to close is not reused
+            assertEquals(DOCUMENTS, errors.size());
+            assertEquals(DOCUMENTS, created.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void dispatch(final boolean isOrdered) throws Exception {
+        final int maximumPendingDocuments = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final AtomicInteger active = new AtomicInteger();
+            final AtomicInteger maximumActive = new AtomicInteger();
+            final int[] pending = new int[1];
+            final List indexes = new ArrayList();
+
+            final StAXDocumentSplitter splitter = new StAXDocumentSplitter(createStream()) {
+                @Override
+                public byte[] nextDocument() throws IOException, javax.xml.stream.XMLStreamException {
+                    final byte[] document = super.nextDocument();
+                    if (document != null) {
+                        pending[0]++;
+                        assertTrue(pending[0] <= maximumPendingDocuments);
+                    }
+                    return document;
+                }
+            };
+            final int count = new StAXDocumentDispatcher(executor, maximumPendingDocuments, isOrdered).dispatch(
+                    splitter, new StAXDocumentDispatcher.DocumentHandler() {
+                public Object handleDocument(XMLStreamReader reader, int index) throws Exception {
+                    final int n = active.incrementAndGet();
+                    int m;
+                    while ((m = maximumActive.get()) < n && !maximumActive.compareAndSet(m, n)) {
+                    }
+                    try {
+                        // Complete the documents out of order
+                        Thread.sleep((DOCUMENTS - index) % 3);
+                        return getId(reader);
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                }
+            }, new StAXDocumentDispatcher.ResultHandler() {
+                public void handleResult(int index, Object result) {
+                    pending[0]--;
+                    assertEquals(Integer.toString(index), result);
+                    indexes.add(Integer.valueOf(index));
+                }
+
+                public void handleError(int index, Exception e) {
+                    fail(e.toString());
+                }
+            });
+
+            assertEquals(DOCUMENTS, count);
+            assertEquals(DOCUMENTS, indexes.size());
+            assertTrue(maximumActive.get() <= maximumPendingDocuments);
+            if (isOrdered) {
+                for (int i = 0; i < DOCUMENTS; i++) {
+                    assertEquals(i, ((Integer)indexes.get(i)).intValue());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void assertDocuments(List documents, StAXDocumentSplitter splitter) throws Exception {
+        for (int i = 0; i < documents.size(); i++) {
+            assertTrue(Arrays.equals((byte[])documents.get(i), splitter.nextDocument()));
+        }
+        assertNull(splitter.nextDocument());
+    }
+
+    private StAXDocumentSplitter createSplitter() throws Exception {
+        return new StAXDocumentSplitter(createStream());
+    }
+
+    private InputStream createStream() throws Exception {
+        final List documents = createDocuments();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (int i = 0; i < documents.size(); i++) {
+            baos.write((byte[])documents.get(i));
+        }
+        return new ByteArrayInputStream(baos.toByteArray());
+    }
+
+    private static String getId(XMLStreamReader reader) throws Exception {
+        while (reader.next() != XMLStreamReader.START_ELEMENT) {
+        }
+        final String id = reader.getAttributeValue(null, "id");
+        while (reader.next() != XMLStreamReader.END_DOCUMENT) {
+        }
+        return id;
+    }
+
+    private List createDocuments() throws Exception {
+        final List documents = new ArrayList();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            XMLStreamWriter w = new StAXDocumentSerializer(baos);
+
+            w.writeStartDocument();
+            if (i % 2 == 0) {
+                w.writeComment("document " + i);
+            }
+            w.writeStartElement("p", "message", "urn:messages");
+            w.writeNamespace("p", "urn:messages");
+            w.writeAttribute("id", Integer.toString(i));
+            // Vary the size so some documents are larger than the buffer
+            for (int j = 0; j < (i % 7) * i * 10; j++) {
+                w.writeStartElement("item");
+                w.writeAttribute("n", Integer.toString(j));
+                w.writeCharacters("item " + j + " of " + i);
+                w.writeEndElement();
+            }
+            w.writeEndElement();
+            if (i % 3 == 0) {
+                w.writeProcessingInstruction("end", Integer.toString(i));
+            }
+            w.writeEndDocument();
+            w.close();
+
+            documents.add(baos.toByteArray());
+        }
+        return documents;
+    }
+}
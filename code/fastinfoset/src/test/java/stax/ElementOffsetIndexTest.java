@@ -0,0 +1,318 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package stax;
+
+import com.sun.xml.fastinfoset.stax.ElementOffsetIndex;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import junit.framework.TestCase;
+
+public class ElementOffsetIndexTest extends TestCase {
+
+    private static final String NS = "urn:records";
+
+    private static final String NS2 = "urn:records:v2";
+
+    private static final QName[] NAMES = {new QName(NS, "record"), new QName(NS2, "record"), new QName("", "note")};
+
+    public void testSeek() throws Exception {
+        final byte[] document = createDocument(200);
+        final List records = getElementEvents(document);
+
+        StAXDocumentParser r = new StAXDocumentParser();
+        r.setInputStream(new ByteArrayInputStream(document));
+        final ElementOffsetIndex index = ElementOffsetIndex.create(r, NAMES);
+        assertEquals(records.size(), index.getEntryCount());
+
+        final int[] entries = {records.size() - 1, 0, 157, 3, 100, 101, 42};
+        for (int i = 0; i < entries.length; i++) {
+            final int entry = entries[i];
+            r.setInputStream(new ByteArrayInputStream(document));
+            index.seek(r, entry);
+            assertEquals(records.get(entry), getEvents(r));
+            assertFalse(r.hasNext());
+
+            // The parser is reusable after the element
+            r.setInputBuffer(ByteBuffer.wrap(document));
+            index.seek(r, entry);
+            assertEquals(records.get(entry), getEvents(r));
+        }
+
+        // A full parse after seeking
+        r.setInputStream(new ByteArrayInputStream(document));
+        final List all = getElementEvents(r);
+        assertEquals(records, all);
+    }
+
+    public void testSeekWithReferencesToStartOfElement() throws Exception {
+        // Each record adds names and values to the tables that are
+        // referenced again by its descendants
+        final byte[] document = createReferencingDocument(30);
+        final List records = getElementEvents(document);
+
+        StAXDocumentParser r = new StAXDocumentParser();
+        r.setInputStream(new ByteArrayInputStream(document));
+        final ElementOffsetIndex index = ElementOffsetIndex.create(r, NAMES);
+        assertEquals(records.size(), index.getEntryCount());
+
+        for (int entry = 0; entry < index.getEntryCount(); entry++) {
+            r.setInputStream(new ByteArrayInputStream(document));
+            index.seek(r, entry);
+            assertEquals(records.get(entry), getEvents(r));
+        }
+    }
+
+    public void testWriteAndRead() throws Exception {
+        final byte[] document = createDocument(50);
+        final List records = getElementEvents(document);
+
+        StAXDocumentParser r = new StAXDocumentParser();
+        r.setInputStream(new ByteArrayInputStream(document));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ElementOffsetIndex.create(r, NAMES).write(baos);
+
+        final ElementOffsetIndex index = ElementOffsetIndex.read(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(records.size(), index.getEntryCount());
+        assertEquals(new QName(NS, "record"), index.getName(0));
+        assertEquals(new QName("", "note"), index.getName(1));
+        assertEquals(new QName(NS2, "record"), index.getName(2));
+
+        final File file = File.createTempFile("index", ".finf");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[7]);
+        out.write(document);
+        out.close();
+
+        RandomAccessFile f = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = f.getChannel();
+            for (int entry = index.getEntryCount() - 1; entry >= 0; entry -= 5) {
+                r = new StAXDocumentParser();
+                r.setInputChannel(channel, 7, document.length);
+                index.seek(r, entry);
+                assertEquals(records.get(entry), getEvents(r));
+            }
+        } finally {
+            f.close();
+        }
+
+        try {
+            ElementOffsetIndex.read(new ByteArrayInputStream(new byte[8]));
+            fail();
+        } catch (java.io.IOException e) {
+        }
+    }
+
+    public void testSeekNotAtStartOfDocument() throws Exception {
+        final byte[] document = createDocument(10);
+        StAXDocumentParser r = new StAXDocumentParser();
+        r.setInputStream(new ByteArrayInputStream(document));
+        final ElementOffsetIndex index = ElementOffsetIndex.create(r, NAMES);
+
+        r.setInputStream(new ByteArrayInputStream(document));
+        r.next();
+        try {
+            index.seek(r, 0);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        try {
+            index.seek(r, index.getEntryCount());
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    /**
+     * Get the events of each indexed element from a parse of the whole
+     * document.
+     */
+    private List getElementEvents(byte[] document) throws Exception {
+        StAXDocumentParser r = new StAXDocumentParser();
+        r.setInputStream(new ByteArrayInputStream(document));
+        return getElementEvents(r);
+    }
+
+    private List getElementEvents(StAXDocumentParser r) throws Exception {
+        final List records = new ArrayList();
+        final List open = new ArrayList();
+        final List depths = new ArrayList();
+        int depth = 0;
+        while (r.hasNext()) {
+            final int type = r.next();
+            if (type == XMLStreamReader.START_ELEMENT) {
+                depth++;
+                final QName name = r.getName();
+                for (int i = 0; i < NAMES.length; i++) {
+                    if (NAMES[i].equals(name)) {
+                        final List events = new ArrayList();
+                        records.add(events);
+                        open.add(events);
+                        depths.add(Integer.valueOf(depth));
+                        break;
+                    }
+                }
+            }
+
+            if (type != XMLStreamReader.START_DOCUMENT && type != XMLStreamReader.END_DOCUMENT) {
+                final String event = getEvent(r);
+                for (int i = 0; i < open.size(); i++) {
+                    ((List)open.get(i)).add(event);
+                }
+            }
+
+            if (type == XMLStreamReader.END_ELEMENT) {
+                if (!depths.isEmpty() && ((Integer)depths.get(depths.size() - 1)).intValue() == depth) {
+                    open.remove(open.size() - 1);
+                    depths.remove(depths.size() - 1);
+                }
+                depth--;
+            }
+        }
+        return records;
+    }
+
+    private List getEvents(XMLStreamReader r) throws Exception {
+        final List events = new ArrayList();
+        while (r.next() != XMLStreamReader.END_DOCUMENT) {
+            events.add(getEvent(r));
+        }
+        return events;
+    }
+
+    private String getEvent(XMLStreamReader r) {
+        final StringBuilder b = new StringBuilder();
+        b.append(r.getEventType());
+        switch (r.getEventType()) {
+            case XMLStreamReader.START_ELEMENT:
+                b.append(' ').append(r.getName()).append(' ').append(r.getPrefix());
+                for (int i = 0; i < r.getNamespaceCount(); i++) {
+                    b.append(" xmlns:").append(r.getNamespacePrefix(i)).append('=').append(r.getNamespaceURI(i));
+                }
+                for (int i = 0; i < r.getAttributeCount(); i++) {
+                    b.append(' ').append(r.getAttributeName(i)).append('=').append(r.getAttributeValue(i));
+                }
+                // The namespaces in scope
+                b.append(" r=").append(r.getNamespaceURI("r"));
+                b.append(" default=").append(r.getNamespaceURI(""));
+                break;
+            case XMLStreamReader.END_ELEMENT:
+                b.append(' ').append(r.getName());
+                break;
+            case XMLStreamReader.CHARACTERS:
+            case XMLStreamReader.COMMENT:
+                b.append(' ').append(r.getText());
+                break;
+        }
+        return b.toString();
+    }
+
+    private byte[] createDocument(int count) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XMLStreamWriter w = new StAXDocumentSerializer(baos);
+
+        w.writeStartDocument();
+        w.writeComment("records");
+        w.writeStartElement("r", "records", NS);
+        w.writeNamespace("r", NS);
+        w.writeDefaultNamespace(NS);
+        for (int i = 0; i < count; i++) {
+            final boolean isV2 = (i % 50 == 1);
+            if (isV2) {
+                // A group that redeclares the prefix and the default namespace
+                w.writeStartElement("r", "group", NS2);
+                w.writeNamespace("r", NS2);
+                w.writeDefaultNamespace("");
+                w.writeStartElement("r", "record", NS2);
+            } else {
+                w.writeStartElement("", "record", NS);
+            }
+            w.writeAttribute("id", Integer.toString(i));
+            w.writeAttribute("kind", "kind" + (i % 7));
+            w.writeAttribute("n" + (i % 13), "v" + (i % 3));
+                w.writeStartElement(isV2 ? "" : NS, "value" + (i % 11));
+                w.writeCharacters("v" + (i % 17));
+                w.writeEndElement();
+                w.writeStartElement("", "note", "");
+                w.writeNamespace("", "");
+                w.writeCharacters("note " + i);
+                w.writeEndElement();
+                if (i % 10 == 0) {
+                    w.writeComment("c" + (i % 4));
+                }
+            w.writeEndElement();
+            if (isV2) {
+                w.writeEndElement();
+            }
+        }
+        w.writeEndElement();
+        w.writeEndDocument();
+        w.close();
+
+        return baos.toByteArray();
+    }
+
+    private byte[] createReferencingDocument(int count) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XMLStreamWriter w = new StAXDocumentSerializer(baos);
+
+        w.writeStartDocument();
+        w.writeStartElement("r", "records", NS);
+        w.writeNamespace("r", NS);
+        for (int i = 0; i < count; i++) {
+            final String prefix = "p" + i;
+            final String namespaceName = "urn:p" + i;
+            final String localName = "a" + i;
+            final String value = "x" + i;
+
+            w.writeStartElement("r", "record", NS);
+            w.writeNamespace(prefix, namespaceName);
+            w.writeAttribute(prefix, namespaceName, localName, value);
+            w.writeAttribute("id", Integer.toString(i));
+                w.writeStartElement(prefix, localName, namespaceName);
+                w.writeAttribute(prefix, namespaceName, localName, value);
+                w.writeAttribute("id", Integer.toString(i));
+                w.writeCharacters(value);
+                    // A nested indexed element
+                    w.writeStartElement("r", "record", NS);
+                    w.writeAttribute("id", Integer.toString(i));
+                    w.writeEndElement();
+                w.writeEndElement();
+            w.writeEndElement();
+        }
+        w.writeEndElement();
+        w.writeEndDocument();
+        w.close();
+
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package stax;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import junit.framework.TestCase;
+
+public class LowLevelMarkTest extends TestCase implements XMLStreamConstants {
+    
+    private static final int NAMESPACE_COUNT = 200;
+    
+    public void testMarkedOctetAfterManySegments() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StAXDocumentSerializer serializer = new StAXDocumentSerializer(out);
+        serializer.writeStartDocument();
+        serializer.initiateLowLevelWriting();
+        
+        for (int e = 0; e < 3; e++) {
+            serializer.writeLowLevelTerminationAndMark();
+            serializer.writeLowLevelStartNamespaces();
+            for (int i = 0; i < NAMESPACE_COUNT; i++) {
+                serializer.writeLowLevelNamespace("p" + i, namespaceName(e, i));
+            }
+            serializer.writeLowLevelEndNamespaces();
+            serializer.writeLowLevelStartElement(0, "p0", "root", namespaceName(e, 0));
+            serializer.writeLowLevelStartAttributes();
+            serializer.writeLowLevelAttribute("", "", "a");
+            serializer.writeLowLevelAttributeValue("value" + e);
+            serializer.writeLowLevelEndStartElement();
+            serializer.writeLowLevelText("text" + e);
+            serializer.writeLowLevelEndElement();
+        }
+        serializer.writeEndDocument();
+        
+        XMLStreamReader reader = new StAXDocumentParser(new ByteArrayInputStream(out.toByteArray()));
+        for (int e = 0; e < 3; e++) {
+            assertEquals(START_ELEMENT, reader.next());
+            assertEquals("root", reader.getLocalName());
+            assertEquals(namespaceName(e, 0), reader.getNamespaceURI());
+            assertEquals(NAMESPACE_COUNT, reader.getNamespaceCount());
+            assertEquals(namespaceName(e, NAMESPACE_COUNT - 1), reader.getNamespaceURI(NAMESPACE_COUNT - 1));
+            assertEquals(1, reader.getAttributeCount());
+            assertEquals("value" + e, reader.getAttributeValue(0));
+            assertEquals(CHARACTERS, reader.next());
+            assertEquals("text" + e, reader.getText());
+            assertEquals(END_ELEMENT, reader.next());
+        }
+        assertEquals(END_DOCUMENT, reader.next());
+        reader.close();
+    }
+    
+    private String namespaceName(int e, int i) {
+        return "http://example.org/namespaces/with/a/reasonably/long/name/" + e + "/" + i;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package stax;
+
+import com.sun.xml.fastinfoset.sax.SAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import junit.framework.TestCase;
+import org.jvnet.fastinfoset.FastInfosetParser;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class NameHandleTest extends TestCase {
+
+    private static final String NS = "urn:test";
+
+    public void testStAXNameHandles() throws Exception {
+        StAXDocumentParser r = new StAXDocumentParser();
+        final int root = r.registerNameHandle(null, "root");
+        final int item = r.registerNameHandle(NS, "item");
+        final int id = r.registerNameHandle("", "id");
+        assertEquals(0, root);
+        assertEquals(1, item);
+        assertEquals(2, id);
+        assertEquals(item, r.registerNameHandle(NS, "item"));
+
+        // The second document has different names at the same table indexes
+        for (int d = 0; d < 2; d++) {
+            r.setInputStream(new ByteArrayInputStream(createDocument(d == 0)));
+            int items = 0;
+            int ids = 0;
+            while (r.hasNext()) {
+                switch (r.next()) {
+                    case XMLStreamReader.START_ELEMENT:
+                        assertEquals(expectedHandle(r.getNamespaceURI(), r.getLocalName(), root, item, id),
+                                r.getNameHandle());
+                        for (int i = 0; i < r.getAttributeCount(); i++) {
+                            final int h = r.getAttributeNameHandle(i);
+                            assertEquals(expectedHandle(r.getAttributeNamespace(i), r.getAttributeLocalName(i),
+                                    root, item, id), h);
+                            if (h == id) {
+                                ids++;
+                            }
+                        }
+                        break;
+                    case XMLStreamReader.END_ELEMENT:
+                        final int h = r.getNameHandle();
+                        assertEquals(expectedHandle(r.getNamespaceURI(), r.getLocalName(), root, item, id), h);
+                        if (h == item) {
+                            items++;
+                        }
+                        break;
+                    default:
+                        try {
+                            r.getNameHandle();
+                            fail();
+                        } catch (IllegalStateException e) {
+                        }
+                }
+            }
+            assertEquals(d == 0 ? 10 : 0, items);
+            assertEquals(d == 0 ? 10 : 0, ids);
+        }
+
+        r.clearNameHandles();
+        r.setInputStream(new ByteArrayInputStream(createDocument(true)));
+        r.nextTag();
+        assertEquals(FastInfosetParser.NO_NAME_HANDLE, r.getNameHandle());
+        // Registering after names have been obtained
+        assertEquals(0, r.registerNameHandle("", "root"));
+        assertEquals(0, r.getNameHandle());
+    }
+
+    public void testSAXNameHandles() throws Exception {
+        final SAXDocumentParser p = new SAXDocumentParser();
+        final int item = p.registerNameHandle(NS, "item");
+        final int id = p.registerNameHandle(null, "id");
+        final List handles = new ArrayList();
+        p.setContentHandler(new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                handles.add(Integer.valueOf(p.getNameHandle()));
+                for (int i = 0; i < atts.getLength(); i++) {
+                    handles.add(Integer.valueOf(p.getAttributeNameHandle(i)));
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                handles.add(Integer.valueOf(p.getNameHandle()));
+            }
+        });
+        p.parse(new ByteArrayInputStream(createDocument(true)));
+
+        final List expected = new ArrayList();
+        expected.add(Integer.valueOf(FastInfosetParser.NO_NAME_HANDLE));
+        for (int i = 0; i < 10; i++) {
+            expected.add(Integer.valueOf(item));
+            expected.add(Integer.valueOf(id));
+            expected.add(Integer.valueOf(FastInfosetParser.NO_NAME_HANDLE));
+            expected.add(Integer.valueOf(item));
+        }
+        expected.add(Integer.valueOf(FastInfosetParser.NO_NAME_HANDLE));
+        assertEquals(expected, handles);
+
+        try {
+            p.getNameHandle();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    private int expectedHandle(String namespaceURI, String localName, int root, int item, int id) {
+        if (namespaceURI == null) {
+            namespaceURI = "";
+        }
+        if (namespaceURI.equals("") && localName.equals("root")) {
+            return root;
+        } else if (namespaceURI.equals(NS) && localName.equals("item")) {
+            return item;
+        } else if (namespaceURI.equals("") && localName.equals("id")) {
+            return id;
+        } else {
+            return FastInfosetParser.NO_NAME_HANDLE;
+        }
+    }
+
+    private byte[] createDocument(boolean registeredNames) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XMLStreamWriter w = new StAXDocumentSerializer(baos);
+
+        w.writeStartDocument();
+        w.writeStartElement(registeredNames ? "root" : "other");
+        for (int i = 0; i < 10; i++) {
+            final String prefix = "p" + (i % 2);
+            w.writeStartElement(prefix, registeredNames ? "item" : "item2", NS);
+            w.writeNamespace(prefix, NS);
+            w.writeAttribute(registeredNames ? "id" : "key", Integer.toString(i));
+            w.writeAttribute(prefix, NS, "id", Integer.toString(i));
+            w.writeEndElement();
+        }
+        w.writeEndElement();
+        w.writeEndDocument();
+        w.close();
+
+        return baos.toByteArray();
+    }
+}
@@ -18,10 +18,14 @@
 package stax;
 
 import com.sun.xml.fastinfoset.algorithm.BASE64EncodingAlgorithm;
+import com.sun.xml.fastinfoset.sax.SAXDocumentParser;
+import com.sun.xml.fastinfoset.sax.SAXDocumentSerializer;
 import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
 import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Random;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamReader;
@@ -130,6 +134,78 @@ public class OctetEncodingTest extends TestCase implements
         in.close();
     }
     
+    public void testStreamedOctets() throws Exception {
+        byte[][] octets = new byte[3][];
+        Random random = new Random(11);
+        for (int i = 0; i < octets.length; i++) {
+            octets[i] = new byte[100000 + i];
+            random.nextBytes(octets[i]);
+        }
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StAXDocumentSerializer serializer = new StAXDocumentSerializer(out);
+        serializer.writeStartDocument();
+        serializer.writeStartElement("", "root", "");
+        for (int i = 0; i < octets.length; i++) {
+            serializer.writeStartElement("", "e", "");
+            serializer.writeOctets(new ByteArrayInputStream(octets[i]), octets[i].length);
+            serializer.writeEndElement();
+        }
+        serializer.writeEndElement();
+        serializer.writeEndDocument();
+        serializer.flush();
+        byte[] document = out.toByteArray();
+        
+        StAXDocumentParser parser = new StAXDocumentParser();
+        parser.setInputStream(new ByteArrayInputStream(document));
+        parser.setAlgorithmDataStreamed(true);
+        assertEquals(START_ELEMENT, parser.next());
+        
+        // Read the stream of the first, skip the second, and buffer the third
+        assertEquals(START_ELEMENT, parser.next());
+        assertEquals(CHARACTERS, parser.next());
+        assertEquals(octets[0].length, parser.getTextAlgorithmLength());
+        assertTrue(Arrays.equals(octets[0], readFully(parser.getTextAlgorithmStream())));
+        assertEquals(END_ELEMENT, parser.next());
+        
+        assertEquals(START_ELEMENT, parser.next());
+        assertEquals(CHARACTERS, parser.next());
+        InputStream s = parser.getTextAlgorithmStream();
+        assertEquals(octets[1][0] & 0xFF, s.read());
+        assertEquals(END_ELEMENT, parser.next());
+        assertNull(parser.getTextAlgorithmStream());
+        
+        assertEquals(START_ELEMENT, parser.next());
+        assertEquals(CHARACTERS, parser.next());
+        assertTrue(Arrays.equals(octets[2], parser.getTextAlgorithmBytesClone()));
+        assertNull(parser.getTextAlgorithmStream());
+        assertEquals(END_ELEMENT, parser.next());
+        assertEquals("e", parser.getLocalName());
+        assertEquals(END_ELEMENT, parser.next());
+        assertEquals("root", parser.getLocalName());
+        assertEquals(END_DOCUMENT, parser.next());
+        
+        // Stream the octets from the SAX parser to the SAX serializer
+        out.reset();
+        SAXDocumentSerializer saxSerializer = new SAXDocumentSerializer();
+        saxSerializer.setOutputStream(out);
+        SAXDocumentParser saxParser = new SAXDocumentParser();
+        saxParser.setContentHandler(saxSerializer);
+        saxParser.setOctetStreamContentHandler(saxSerializer);
+        saxParser.parse(new ByteArrayInputStream(document));
+        assertTrue(Arrays.equals(document, out.toByteArray()));
+    }
+    
+    private byte[] readFully(InputStream s) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[1000];
+        int n;
+        while ((n = s.read(b)) != -1) {
+            out.write(b, 0, n);
+        }
+        return out.toByteArray();
+    }
+    
     private String createRandomString(int length) {
         StringBuffer sb = new StringBuffer(length);
         Random random = new Random();
@@ -0,0 +1,131 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package stax;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import com.sun.xml.fastinfoset.stax.util.StAXPathExtractor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import junit.framework.TestCase;
+
+public class PathExtractorTest extends TestCase {
+
+    private static final String NS = "urn:envelope";
+
+    public void testExtract() throws Exception {
+        final byte[] document = createDocument();
+
+        StAXPathExtractor e = new StAXPathExtractor();
+        e.declareNamespace("e", NS);
+        final int messageId = e.addPath("/e:Envelope/e:Header/e:MessageID");
+        final int headerId = e.addPath("/e:Envelope/e:Header/@id");
+        final int total = e.addPath("/{" + NS + "}Envelope/{" + NS + "}Body/Invoice/Total");
+        final int missing = e.addPath("/e:Envelope/e:Header/Missing");
+        final int note = e.addPath("//Line/Note");
+        final int line = e.addPath("//Line");
+        final int lineNumber = e.addPath("//Line/@number");
+
+        for (int i = 0; i < 2; i++) {
+            String[] values = e.extract(new ByteArrayInputStream(document));
+            assertEquals(7, values.length);
+            assertEquals("message-1", values[messageId]);
+            assertEquals("h1", values[headerId]);
+            assertEquals("99.50", values[total]);
+            assertEquals(null, values[missing]);
+            assertEquals("second note", values[note]);
+            assertEquals("1first", values[line]);
+            assertEquals("1", values[lineNumber]);
+        }
+    }
+
+    public void testExtractStopsEarly() throws Exception {
+        final byte[] document = createDocument();
+
+        StAXPathExtractor e = new StAXPathExtractor();
+        e.declareNamespace("", NS);
+        e.addPath("/Envelope/Header/MessageID");
+
+        // The document is only read until the value is obtained
+        final byte[] truncated = new byte[document.length / 2];
+        System.arraycopy(document, 0, truncated, 0, truncated.length);
+        assertEquals("message-1", e.extract(new ByteArrayInputStream(truncated))[0]);
+
+        e.addPath("/Envelope/Body/Invoice/Total");
+        try {
+            e.extract(new ByteArrayInputStream(truncated));
+            fail();
+        } catch (XMLStreamException ex) {
+        }
+    }
+
+    public void testInvalidPaths() throws Exception {
+        StAXPathExtractor e = new StAXPathExtractor();
+        final String[] paths = {"a", "/", "//", "/a/", "/a//b", "/@a", "/a/@b/c", "/p:a", "/{urn}", "/a:"};
+        for (int i = 0; i < paths.length; i++) {
+            try {
+                e.addPath(paths[i]);
+                fail(paths[i]);
+            } catch (IllegalArgumentException ex) {
+            }
+        }
+        assertEquals(0, e.getPathCount());
+    }
+
+    private byte[] createDocument() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XMLStreamWriter w = new StAXDocumentSerializer(baos);
+
+        w.writeStartDocument();
+        w.writeStartElement("e", "Envelope", NS);
+        w.writeNamespace("e", NS);
+            w.writeStartElement("e", "Header", NS);
+            w.writeAttribute("id", "h1");
+                w.writeStartElement("e", "MessageID", NS);
+                w.writeCharacters("message-1");
+                w.writeEndElement();
+            w.writeEndElement();
+            w.writeStartElement("e", "Body", NS);
+                w.writeStartElement("Invoice");
+                for (int i = 0; i < 100; i++) {
+                    w.writeStartElement("Line");
+                    w.writeAttribute("number", Integer.toString(i + 1));
+                    w.writeCharacters(Integer.toString(i + 1));
+                        w.writeStartElement("Comment");
+                        w.writeCharacters(i == 0 ? "first" : "comment " + i);
+                        w.writeEndElement();
+                        if (i == 1) {
+                            w.writeStartElement("Note");
+                            w.writeCharacters("second note");
+                            w.writeEndElement();
+                        }
+                    w.writeEndElement();
+                }
+                    w.writeStartElement("Total");
+                    w.writeCharacters("99.50");
+                    w.writeEndElement();
+                w.writeEndElement();
+            w.writeEndElement();
+        w.writeEndElement();
+        w.writeEndDocument();
+        w.close();
+
+        return baos.toByteArray();
+    }
+}
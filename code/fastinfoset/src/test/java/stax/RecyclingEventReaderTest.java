@@ -0,0 +1,170 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package stax;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import com.sun.xml.fastinfoset.stax.events.StAXEventReader;
+import com.sun.xml.fastinfoset.stax.events.StAXRecyclingEventAllocator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import junit.framework.TestCase;
+
+public class RecyclingEventReaderTest extends TestCase {
+
+    public void testEquivalentEvents() throws Exception {
+        final byte[] document = createDocument();
+        final List expected = readEvents(new StAXEventReader(
+                new StAXDocumentParser(new ByteArrayInputStream(document)), false));
+        final List actual = readEvents(new StAXEventReader(
+                new StAXDocumentParser(new ByteArrayInputStream(document)), true));
+
+        assertEquals(expected, actual);
+    }
+
+    public void testEventsAreReused() throws Exception {
+        final StAXEventReader reader = new StAXEventReader(
+                new StAXDocumentParser(new ByteArrayInputStream(createDocument())), true);
+
+        final List startElements = new ArrayList();
+        while (reader.hasNext()) {
+            final XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                startElements.add(event);
+
+                final StartElement startElement = event.asStartElement();
+                assertSame(startElement.getAttributes(), startElement.getAttributes());
+                final Iterator attributes = startElement.getAttributes();
+                if (attributes.hasNext()) {
+                    attributes.next();
+                    try {
+                        attributes.remove();
+                        fail();
+                    } catch (UnsupportedOperationException e) {
+                    }
+                }
+            }
+        }
+
+        final int n = StAXRecyclingEventAllocator.POOL_SIZE;
+        assertTrue(startElements.size() > n * 2);
+        for (int i = n; i < startElements.size(); i++) {
+            assertSame(startElements.get(i - n), startElements.get(i));
+            assertNotSame(startElements.get(i - 1), startElements.get(i));
+        }
+    }
+
+    private static List readEvents(StAXEventReader reader) throws Exception {
+        final List events = new ArrayList();
+        while (reader.hasNext()) {
+            events.add(describe(reader.nextEvent()));
+        }
+        return events;
+    }
+
+    /**
+     * Describe an event while it is valid.
+     */
+    private static String describe(XMLEvent event) {
+        final StringBuilder b = new StringBuilder();
+        b.append(event.getEventType()).append(' ');
+        if (event.isStartElement()) {
+            final StartElement e = event.asStartElement();
+            b.append(e.getName());
+
+            final List items = new ArrayList();
+            for (Iterator i = e.getAttributes(); i.hasNext();) {
+                final Attribute a = (Attribute)i.next();
+                items.add(a.getName() + "=" + a.getValue() + " " + a.getDTDType());
+                assertSame(a, e.getAttributeByName(a.getName()));
+            }
+            for (Iterator i = e.getNamespaces(); i.hasNext();) {
+                final Namespace ns = (Namespace)i.next();
+                items.add("xmlns " + ns.getPrefix() + "=" + ns.getNamespaceURI() + " " +
+                        ns.isDefaultNamespaceDeclaration());
+            }
+            Collections.sort(items);
+            b.append(items);
+        } else if (event.isEndElement()) {
+            final EndElement e = event.asEndElement();
+            b.append(e.getName());
+            for (Iterator i = e.getNamespaces(); i.hasNext();) {
+                final Namespace ns = (Namespace)i.next();
+                b.append(' ').append(ns.getPrefix()).append('=').append(ns.getNamespaceURI());
+            }
+        } else if (event.isCharacters()) {
+            final Characters c = event.asCharacters();
+            b.append(c.getData()).append(' ').append(c.isWhiteSpace()).append(' ').append(c.isCData());
+        } else if (event.getEventType() == XMLEvent.COMMENT) {
+            b.append(((Comment)event).getText());
+        } else if (event.isProcessingInstruction()) {
+            final ProcessingInstruction pi = (ProcessingInstruction)event;
+            b.append(pi.getTarget()).append(' ').append(pi.getData());
+        }
+        return b.toString();
+    }
+
+    private static byte[] createDocument() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final XMLStreamWriter w = new StAXDocumentSerializer(baos);
+
+        w.writeStartDocument();
+        w.writeComment("document");
+        w.writeStartElement("p", "root", "urn:p");
+        w.writeNamespace("p", "urn:p");
+        w.writeDefaultNamespace("urn:default");
+        w.writeAttribute("version", "1");
+        for (int i = 0; i < 20; i++) {
+            w.writeCharacters("\n  ");
+            w.writeStartElement("urn:default", "item");
+            w.writeAttribute("id", Integer.toString(i));
+            if (i % 3 == 0) {
+                w.writeAttribute("p", "urn:p", "kind", "k" + i);
+            }
+            if (i % 4 == 0) {
+                w.writeStartElement("q", "nested", "urn:q");
+                w.writeNamespace("q", "urn:q");
+                w.writeCData("<" + i + ">");
+                w.writeEndElement();
+            }
+            w.writeCharacters("item " + i);
+            if (i % 5 == 0) {
+                w.writeProcessingInstruction("pi", Integer.toString(i));
+                w.writeComment("comment " + i);
+            }
+            w.writeEndElement();
+        }
+        w.writeEndElement();
+        w.writeEndDocument();
+        w.close();
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package stax;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import junit.framework.TestCase;
+
+public class SkipElementTest extends TestCase {
+
+    public void testSkipElement() throws Exception {
+        skipElement(createDocument("UTF-8"));
+        skipElement(createDocument(StAXDocumentSerializer.UTF_16BE));
+    }
+
+    public void testSkipElementNotOnStartElement() throws Exception {
+        StAXDocumentParser r = new StAXDocumentParser(new ByteArrayInputStream(createDocument("UTF-8")));
+        try {
+            r.skipElement();
+            fail();
+        } catch (XMLStreamException e) {
+        }
+    }
+
+    private void skipElement(byte[] document) throws Exception {
+        // The events of the document without the children of body elements
+        List expected = new ArrayList();
+        StAXDocumentParser r = new StAXDocumentParser(new ByteArrayInputStream(document));
+        int skipDepth = 0;
+        while (r.hasNext()) {
+            final int event = r.next();
+            if (skipDepth > 0) {
+                if (event == XMLStreamReader.START_ELEMENT) {
+                    skipDepth++;
+                    continue;
+                } else if (event == XMLStreamReader.END_ELEMENT && --skipDepth > 0) {
+                    continue;
+                } else if (skipDepth > 0) {
+                    continue;
+                }
+            }
+            expected.add(toString(r));
+            if (event == XMLStreamReader.START_ELEMENT && r.getLocalName().equals("body")) {
+                skipDepth = 1;
+            }
+        }
+
+        List actual = new ArrayList();
+        r = new StAXDocumentParser(new StringTest.TrickleInputStream(document));
+        while (r.hasNext()) {
+            final int event = r.next();
+            actual.add(toString(r));
+            if (event == XMLStreamReader.START_ELEMENT && r.getLocalName().equals("body")) {
+                assertEquals(XMLStreamReader.END_ELEMENT, r.skipElement());
+                assertEquals("body", r.getLocalName());
+                actual.add(toString(r));
+            }
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    private String toString(XMLStreamReader r) {
+        StringBuilder b = new StringBuilder();
+        b.append(r.getEventType());
+        switch (r.getEventType()) {
+            case XMLStreamReader.START_ELEMENT:
+                b.append(r.getName());
+                for (int i = 0; i < r.getAttributeCount(); i++) {
+                    b.append(' ').append(r.getAttributeName(i)).append('=').append(r.getAttributeValue(i));
+                }
+                for (int i = 0; i < r.getNamespaceCount(); i++) {
+                    b.append(' ').append(r.getNamespacePrefix(i)).append('=').append(r.getNamespaceURI(i));
+                }
+                break;
+            case XMLStreamReader.END_ELEMENT:
+                b.append(r.getName());
+                break;
+            case XMLStreamReader.CHARACTERS:
+                b.append(r.getText());
+                break;
+        }
+        return b.toString();
+    }
+
+    byte[] createDocument(String encoding) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        StAXDocumentSerializer s = new StAXDocumentSerializer(baos);
+        s.setCharacterEncodingScheme(encoding);
+        XMLStreamWriter w = s;
+
+        w.writeStartDocument();
+            w.writeStartElement("root");
+                for (int i = 0; i < 64; i++) {
+                    w.writeStartElement("message");
+                        w.writeStartElement("header");
+                            w.writeAttribute("id", Integer.toString(i));
+                            w.writeCharacters("header " + (i % 4));
+                        w.writeEndElement();
+                        w.writeStartElement("body");
+                        if (i % 8 == 7) {
+                            // Empty body
+                            w.writeEndElement();
+                            w.writeEndElement();
+                            continue;
+                        }
+                            // Names and values that are added to the
+                            // vocabulary in the body and referenced after it
+                            w.writeStartElement("p" + (i % 16), "item" + (i % 5), "urn:item:" + (i % 3));
+                                w.writeNamespace("p" + (i % 16), "urn:item:" + (i % 3));
+                                w.writeAttribute("value" + (i % 6), "v" + (i % 10));
+                                w.writeAttribute("long", "a long attribute value that is not indexed " + i);
+                                w.writeCharacters("t" + (i % 7));
+                                w.writeComment("comment " + (i % 2));
+                                w.writeProcessingInstruction("target" + (i % 3), "data " + (i % 2));
+                                w.writeStartElement("empty" + (i % 4));
+                                    w.writeAttribute("a", "b");
+                                w.writeEndElement();
+                                w.writeCharacters("a long character chunk that is not indexed " + i);
+                            w.writeEndElement();
+                            w.writeStartElement("nested");
+                                w.writeStartElement("nested");
+                                w.writeEndElement();
+                            w.writeEndElement();
+                        w.writeEndElement();
+                        w.writeStartElement("trailer");
+                            w.writeAttribute("value" + (i % 6), "v" + (i % 10));
+                            w.writeStartElement("item" + (i % 5));
+                                w.writeCharacters("t" + (i % 7));
+                            w.writeEndElement();
+                        w.writeEndElement();
+                    w.writeEndElement();
+                }
+                // A body that is the last child of its parent
+                w.writeStartElement("body");
+                    w.writeStartElement("empty");
+                    w.writeEndElement();
+                w.writeEndElement();
+            w.writeEndElement();
+        w.writeEndDocument();
+        w.flush();
+
+        return baos.toByteArray();
+    }
+}
@@ -64,6 +64,91 @@ public class StringTest extends TestCase {
         }
     }
     
+    public void testDeferredValueDecoding() throws Exception {
+        deferredValueDecoding(createDocumentWithAttributes("UTF-8"));
+        deferredValueDecoding(createDocumentWithAttributes(StAXDocumentSerializer.UTF_16BE));
+    }
+    
+    private void deferredValueDecoding(byte[] document) throws Exception {
+        StAXDocumentParser eager = new StAXDocumentParser(new ByteArrayInputStream(document));
+        StAXDocumentParser deferred = new StAXDocumentParser(new TrickleInputStream(document));
+        deferred.setValueDecodingDeferred(true);
+        
+        int event = 0;
+        while (eager.hasNext()) {
+            assertEquals(eager.next(), deferred.next());
+            event++;
+            
+            // Skip the values of some events, and preserve the values of
+            // others before the buffer is refilled
+            if (event % 3 == 0) {
+                continue;
+            } else if (event % 3 == 1 && deferred.hasNext()) {
+                deferred.peekNext();
+            }
+            
+            switch (eager.getEventType()) {
+                case XMLStreamReader.START_ELEMENT:
+                    assertEquals(eager.getAttributeCount(), deferred.getAttributeCount());
+                    for (int i = eager.getAttributeCount() - 1; i >= 0; i--) {
+                        assertEquals(eager.getAttributeValue(i), deferred.getAttributeValue(i));
+                    }
+                    assertEquals(eager.getAttributeValue(null, "b"), deferred.getAttributeValue(null, "b"));
+                    break;
+                case XMLStreamReader.CHARACTERS:
+                    assertTrue(deferred.hasText());
+                    assertEquals(eager.getText(), deferred.getText());
+                    assertEquals(eager.getText(), new String(
+                            deferred.getTextCharacters(),
+                            deferred.getTextStart(),
+                            deferred.getTextLength()));
+                    break;
+            }
+        }
+    }
+    
+    byte[] createDocumentWithAttributes(String encoding) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        StAXDocumentSerializer s = new StAXDocumentSerializer(baos);
+        s.setCharacterEncodingScheme(encoding);
+        XMLStreamWriter w = s;
+        
+        w.writeStartDocument();
+            w.writeStartElement("root");
+                for (int i = 0; i < 1024; i++) {
+                    w.writeStartElement("content");
+                        w.writeAttribute("a", Integer.toString(i % 16));
+                        w.writeAttribute("b", "ABCDEFGHIJKLMNOPQRSTUVWXYZ \u00e9\u4e2d " + Integer.toString(i));
+                        w.writeAttribute("c", "abcdefghijklmnopqrstuvwxyz" + Integer.toString(i));
+                        w.writeCharacters("ABCDEFGHIJKLMNOPQRSTUVWXYZ \u00e9\u4e2d " + Integer.toString(i));
+                        w.writeStartElement("empty");
+                            w.writeAttribute("d", "abcdefghijklmnopqrstuvwxyz" + Integer.toString(i));
+                        w.writeEndElement();
+                        w.writeCharacters(Integer.toString(i % 8));
+                    w.writeEndElement();
+                }
+            w.writeEndElement();
+        w.writeEndDocument();
+        w.flush();
+        
+        return baos.toByteArray();
+    }
+    
+    /**
+     * Returns a few octets from each read, so that the buffer of the 
+     * parser is refilled often.
+     */
+    static class TrickleInputStream extends ByteArrayInputStream {
+        TrickleInputStream(byte[] b) {
+            super(b);
+        }
+        
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 7));
+        }
+    }
+    
     InputStream createDocumentWithIndexedStrings() throws Exception {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         StAXDocumentSerializer s = new StAXDocumentSerializer(baos);
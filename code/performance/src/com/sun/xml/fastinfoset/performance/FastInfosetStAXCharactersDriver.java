@@ -0,0 +1,113 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sun.xml.fastinfoset.performance;
+
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A Japex driver that measures the encoding of strings by the fast infoset
+ * encoder.
+ * <p>
+ * The character content and the attribute values of the XML document of
+ * a test case are serialized as the character content of a single element
+ * using {@link StAXDocumentSerializer}. Character content chunks are not
+ * added to the vocabulary, so that every string is encoded as a literal
+ * UTF-8 string.
+ */
+public class FastInfosetStAXCharactersDriver extends JapexDriverBase {
+    private StAXDocumentSerializer _serializer;
+    
+    private ByteArrayOutputStream _out;
+    
+    private List _strings;
+    
+    public void initializeDriver() {
+        _serializer = new StAXDocumentSerializer();
+        _serializer.setMaxCharacterContentChunkSize(0);
+        _out = new ByteArrayOutputStream();
+    }
+    
+    public void prepare(TestCase testCase) {
+        _strings = new ArrayList();
+        try {
+            final InputStream in = new FileInputStream(testCase.getParam("xmlfile"));
+            try {
+                final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                                _strings.add(reader.getAttributeValue(i).toCharArray());
+                            }
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                            if (!reader.isWhiteSpace()) {
+                                _strings.add(reader.getText().toCharArray());
+                            }
+                            break;
+                    }
+                }
+                reader.close();
+            } finally {
+                in.close();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    public void warmup(TestCase testCase) {
+        run(testCase);
+    }
+    
+    public void run(TestCase testCase) {
+        try {
+            _out.reset();
+            _serializer.setOutputStream(_out);
+            _serializer.writeStartDocument();
+            _serializer.writeStartElement("strings");
+            for (int i = 0; i < _strings.size(); i++) {
+                final char[] s = (char[])_strings.get(i);
+                _serializer.writeCharacters(s, 0, s.length);
+            }
+            _serializer.writeEndElement();
+            _serializer.writeEndDocument();
+            _serializer.flush();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    public void finish(TestCase testCase) {
+    }
+    
+    public void terminateDriver() {
+    }
+}
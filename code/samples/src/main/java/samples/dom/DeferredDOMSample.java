@@ -0,0 +1,159 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2011 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.dom;
+
+import com.sun.xml.fastinfoset.dom.DOMDocumentParser;
+import com.sun.xml.fastinfoset.dom.DeferredDOMDocumentParser;
+import com.sun.xml.fastinfoset.dom.DeferredDocument;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/** <p>Compares the time taken to parse a FI document, and the heap used by
+ *  the parsed documents, using DOMDocumentParser and using
+ *  DeferredDOMDocumentParser.</p>
+ *  The time taken to parse the document and visit all of its nodes is also
+ *  compared, since the nodes of a DeferredDocument are created when they
+ *  are visited.
+ */
+public class DeferredDOMSample {
+
+    private static final int DOCUMENTS = 20;
+
+    /** Starts the sample.
+     *
+     * @param argv FI document filename
+     */
+    @SuppressWarnings("CallToThreadDumpStack")
+    public static void main(String argv[]) {
+        if (argv.length < 1) {
+            System.err.println("Usage: DeferredDOMSample filename");
+            System.exit(1);
+        }
+
+        try {
+            final File file = new File(argv[0]);
+            final byte[] document = read(file);
+            // Parse small documents more often so the parsers are compiled
+            final int iterations = Math.max(10, 2000000 / Math.max(document.length, 1));
+            final DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            final DOMDocumentParser domParser = new DOMDocumentParser();
+            final DeferredDOMDocumentParser deferredParser = new DeferredDOMDocumentParser();
+
+            final Document[] documents = new Document[DOCUMENTS];
+            final long[] times = new long[4];
+            final long[] heap = new long[2];
+            for (int i = 0; i < 4; i++) {
+                times[i] = Long.MAX_VALUE;
+            }
+
+            for (int i = 0; i < iterations; i++) {
+                for (int parser = 0; parser < 2; parser++) {
+                    for (int visit = 0; visit < 2; visit++) {
+                        final long start = System.nanoTime();
+                        for (int j = 0; j < DOCUMENTS; j++) {
+                            if (parser == 0) {
+                                documents[j] = builder.newDocument();
+                                domParser.parse(documents[j], new ByteArrayInputStream(document));
+                            } else {
+                                documents[j] = deferredParser.parse(new ByteArrayInputStream(document));
+                            }
+                            if (visit == 1) {
+                                visit(documents[j]);
+                            }
+                        }
+                        times[parser * 2 + visit] = Math.min(times[parser * 2 + visit],
+                                (System.nanoTime() - start) / DOCUMENTS);
+                    }
+                }
+            }
+
+            for (int parser = 0; parser < 2; parser++) {
+                for (int j = 0; j < DOCUMENTS; j++) {
+                    documents[j] = null;
+                }
+                final long before = usedMemory();
+                for (int j = 0; j < DOCUMENTS; j++) {
+                    if (parser == 0) {
+                        documents[j] = builder.newDocument();
+                        domParser.parse(documents[j], new ByteArrayInputStream(document));
+                    } else {
+                        documents[j] = deferredParser.parse(new ByteArrayInputStream(document));
+                    }
+                }
+                heap[parser] = (usedMemory() - before) / DOCUMENTS;
+            }
+
+            final DeferredDocument deferred = (DeferredDocument)documents[0];
+            System.out.println("Parsing " + file + " (" + document.length + " bytes, " +
+                    deferred.getNodeCount() + " nodes, " + deferred.getAttributeCount() + " attributes):\n");
+            System.out.println(" DOMDocumentParser         = " + (times[0] / 1000) + " us, " +
+                    (times[1] / 1000) + " us visiting all nodes, " + (heap[0] / 1024) + " KB");
+            System.out.println(" DeferredDOMDocumentParser = " + (times[2] / 1000) + " us, " +
+                    (times[3] / 1000) + " us visiting all nodes, " + (heap[1] / 1024) + " KB");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    private static int visit(Node node) {
+        int count = 1;
+        final NamedNodeMap attributes = node.getAttributes();
+        if (attributes != null) {
+            for (int i = 0; i < attributes.getLength(); i++) {
+                count += attributes.item(i).getNodeValue().length();
+            }
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            count += visit(child);
+        }
+        return count;
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static byte[] read(File file) throws Exception {
+        final byte[] document = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int n;
+            while (offset < document.length &&
+                    (n = in.read(document, offset, document.length - offset)) != -1) {
+                offset += n;
+            }
+        } finally {
+            in.close();
+        }
+        return document;
+    }
+}
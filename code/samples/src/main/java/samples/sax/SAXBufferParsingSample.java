@@ -0,0 +1,161 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.sax;
+
+import com.sun.xml.fastinfoset.sax.SAXDocumentParser;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.xml.sax.helpers.DefaultHandler;
+
+/** <p>Compares the time taken to parse a FI document using SAXDocumentParser
+ *  with each of the forms of input.</p>
+ *  The sample parses the FI document repeatedly from a buffered file input stream,
+ *  from an input stream over a byte array, from a byte buffer wrapping the same
+ *  byte array, from a direct byte buffer, and from a memory-mapped file channel,
+ *  and displays the average parsing time for each. Only the byte buffer wrapping
+ *  the byte array is decoded without copying, the document is copied in bulk
+ *  from the direct byte buffer and the mapped file channel.
+ */
+public class SAXBufferParsingSample {
+
+    private static final int WARMUP_ITERATIONS = 200;
+
+    private static final int ITERATIONS = 1000;
+
+    private final File file;
+
+    private final byte[] document;
+
+    private final SAXDocumentParser parser = new SAXDocumentParser();
+
+    /** Starts the sample. The sample takes a FI document and parses it using
+     * SAXDocumentParser in the fastinfoset package
+     *
+     * @param argv FI document filename
+     */
+    @SuppressWarnings("CallToThreadDumpStack")
+    public static void main(String argv[]) {
+        if (argv.length != 1) {
+            System.err.println("Usage: SAXBufferParsingSample filename");
+            System.exit(1);
+        }
+
+        try {
+            SAXBufferParsingSample sample = new SAXBufferParsingSample(new File(argv[0]));
+            sample.run();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    /** Creates a new instance of SAXBufferParsingSample
+     *
+     *  @param file FI document.
+     */
+    public SAXBufferParsingSample(File file) throws Exception {
+        this.file = file;
+        this.document = new byte[(int) file.length()];
+
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int n;
+            while (offset < document.length &&
+                    (n = in.read(document, offset, document.length - offset)) != -1) {
+                offset += n;
+            }
+        } finally {
+            in.close();
+        }
+
+        parser.setContentHandler(new DefaultHandler());
+    }
+
+    /** Parses the document with each form of input and displays the
+     *  average parsing time.
+     */
+    public void run() throws Exception {
+        final ByteBuffer direct = ByteBuffer.allocateDirect(document.length);
+        direct.put(document).flip();
+
+        System.out.println("Parsing " + file + " (" + document.length + " bytes):\n");
+
+        for (int mode = 0; mode < 5; mode++) {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                parse(mode, direct);
+            }
+
+            final long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                parse(mode, direct);
+            }
+            final long end = System.nanoTime();
+
+            System.out.println(" " + MODES[mode] + " = " +
+                    ((end - start) / ITERATIONS / 1000) + " us");
+        }
+    }
+
+    private static final String[] MODES = {
+        "FileInputStream     ",
+        "ByteArrayInputStream",
+        "Heap ByteBuffer     ",
+        "Direct ByteBuffer   ",
+        "Mapped FileChannel  "
+    };
+
+    private void parse(int mode, ByteBuffer direct) throws Exception {
+        switch (mode) {
+            case 0:
+            {
+                InputStream in = new BufferedInputStream(new FileInputStream(file));
+                try {
+                    parser.parse(in);
+                } finally {
+                    in.close();
+                }
+                break;
+            }
+            case 1:
+                parser.parse(new ByteArrayInputStream(document));
+                break;
+            case 2:
+                parser.parse(ByteBuffer.wrap(document));
+                break;
+            case 3:
+                parser.parse(direct);
+                break;
+            case 4:
+            {
+                FileInputStream in = new FileInputStream(file);
+                try {
+                    parser.parse(in.getChannel());
+                } finally {
+                    in.close();
+                }
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.sax;
+
+import com.sun.xml.fastinfoset.sax.SAXDocumentParser;
+import com.sun.xml.fastinfoset.sax.SAXDocumentSerializer;
+import com.sun.xml.fastinfoset.tools.VocabularyGenerator;
+import com.sun.xml.fastinfoset.vocab.SharedExternalVocabulary;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.jvnet.fastinfoset.ExternalVocabulary;
+import org.jvnet.fastinfoset.FastInfosetParser;
+
+/** <p>Compares the heap used, and the throughput, of many threads that
+ *  serialize and parse FI documents referencing an external vocabulary.</p>
+ *  A vocabulary is generated from an XML document and the document is
+ *  serialized to a FI document that references it. For an increasing number
+ *  of threads, each with its own serializer and parser, the sample displays
+ *  the heap used by the serializers and parsers and the number of documents
+ *  parsed and reserialized per second. Each thread either converts its own
+ *  copy of the vocabulary, from an ExternalVocabulary, or references one
+ *  SharedExternalVocabulary.
+ */
+public class SharedVocabularySample {
+
+    private static final String EXTERNAL_VOCABULARY_URI = "urn:samples:shared-vocabulary";
+
+    private static final long MEASURE_MILLIS = 2000;
+
+    private final ExternalVocabulary vocabulary;
+
+    private final SharedExternalVocabulary sharedVocabulary;
+
+    private final byte[] document;
+
+    private Worker[] measuredWorkers;
+
+    /** Starts the sample.
+     *
+     * @param argv XML document filename and optionally the maximum number
+     *        of threads
+     */
+    @SuppressWarnings("CallToThreadDumpStack")
+    public static void main(String argv[]) {
+        if (argv.length < 1 || argv.length > 2) {
+            System.err.println("Usage: SharedVocabularySample filename [maxThreads]");
+            System.exit(1);
+        }
+
+        try {
+            int maxThreads = (argv.length == 2)
+                    ? Integer.parseInt(argv[1])
+                    : Runtime.getRuntime().availableProcessors();
+            SharedVocabularySample sample = new SharedVocabularySample(new File(argv[0]));
+            sample.run(maxThreads);
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    /** Creates a new instance of SharedVocabularySample
+     *
+     *  @param file XML document.
+     */
+    public SharedVocabularySample(File file) throws Exception {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        SAXParser saxParser = factory.newSAXParser();
+
+        VocabularyGenerator generator = new VocabularyGenerator();
+        saxParser.parse(file, generator);
+        vocabulary = new ExternalVocabulary(EXTERNAL_VOCABULARY_URI, generator.getVocabulary());
+        sharedVocabulary = new SharedExternalVocabulary(EXTERNAL_VOCABULARY_URI, generator.getVocabulary());
+
+        SAXDocumentSerializer serializer = new SAXDocumentSerializer();
+        serializer.setExternalVocabulary(sharedVocabulary);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.setOutputStream(out);
+        saxParser.setProperty("http://xml.org/sax/properties/lexical-handler", serializer);
+        saxParser.parse(file, serializer);
+        document = out.toByteArray();
+    }
+
+    /** Measures the heap used and the throughput for 1 to maxThreads
+     *  threads.
+     */
+    public void run(int maxThreads) throws Exception {
+        System.out.println("Threads  Converted: heap (KB)  docs/s   Shared: heap (KB)  docs/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            System.out.println(pad(threads, 7) +
+                    pad(measureHeap(vocabulary, threads), 21) + pad(measureThroughput(vocabulary, threads), 8) +
+                    pad(measureHeap(sharedVocabulary, threads), 20) + pad(measureThroughput(sharedVocabulary, threads), 8));
+        }
+    }
+
+    /**
+     * A serializer and parser that are used by one thread.
+     */
+    private final class Worker extends Thread {
+        final SAXDocumentSerializer serializer = new SAXDocumentSerializer();
+        final SAXDocumentParser parser = new SAXDocumentParser();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        volatile boolean stop;
+        volatile long count;
+        Exception exception;
+
+        Worker(ExternalVocabulary v) throws Exception {
+            Map externalVocabularies = new HashMap();
+            externalVocabularies.put(v.URI, v);
+            parser.setProperty(FastInfosetParser.EXTERNAL_VOCABULARIES_PROPERTY, externalVocabularies);
+            parser.setContentHandler(serializer);
+            serializer.setExternalVocabulary(v);
+
+            // The parser converts or references the vocabulary when it
+            // parses the first document
+            parseAndSerialize();
+        }
+
+        void parseAndSerialize() throws Exception {
+            out.reset();
+            serializer.setOutputStream(out);
+            parser.parse(new ByteArrayInputStream(document));
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stop) {
+                    parseAndSerialize();
+                    count++;
+                }
+            } catch (Exception e) {
+                exception = e;
+            }
+        }
+    }
+
+    private long measureHeap(ExternalVocabulary v, int threads) throws Exception {
+        final long before = usedHeap();
+        measuredWorkers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            measuredWorkers[i] = new Worker(v);
+        }
+        final long after = usedHeap();
+        measuredWorkers = null;
+
+        return (after - before) / 1024;
+    }
+
+    private long measureThroughput(ExternalVocabulary v, int threads) throws Exception {
+        Worker[] workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(v);
+        }
+
+        // Warm up, then count the documents for a fixed period
+        for (int i = 0; i < threads; i++) {
+            workers[i].start();
+        }
+        Thread.sleep(MEASURE_MILLIS / 2);
+        long start = 0;
+        for (int i = 0; i < threads; i++) {
+            start += workers[i].count;
+        }
+        Thread.sleep(MEASURE_MILLIS);
+        long end = 0;
+        for (int i = 0; i < threads; i++) {
+            end += workers[i].count;
+        }
+
+        for (int i = 0; i < threads; i++) {
+            workers[i].stop = true;
+            workers[i].join();
+            if (workers[i].exception != null) {
+                throw workers[i].exception;
+            }
+        }
+        return (end - start) * 1000 / MEASURE_MILLIS;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        final Runtime r = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return r.totalMemory() - r.freeMemory();
+    }
+
+    private static String pad(long value, int width) {
+        StringBuilder b = new StringBuilder(Long.toString(value));
+        while (b.length() < width) {
+            b.insert(0, ' ');
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.stax;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import javax.xml.stream.XMLStreamReader;
+
+/** <p>Compares the time taken, and the heap allocated, to parse a FI document
+ *  using StAXDocumentParser when only some values are accessed, with the
+ *  decoding of values performed eagerly and deferred.</p>
+ *  The sample parses the FI document repeatedly, obtaining the local name
+ *  of every element but the attribute values and text of only the elements
+ *  with a given local name and their descendants, or of no elements if no
+ *  local name is given.
+ *  The average parsing time, and the average heap allocated if the JVM
+ *  supports measuring it, are displayed for each mode.
+ */
+public class DeferredValueDecodingSample {
+
+    private static final int WARMUP_ITERATIONS = 500;
+
+    private static final int ITERATIONS = 1000;
+
+    private final File file;
+
+    private final byte[] document;
+
+    private final String localName;
+
+    /** Starts the sample.
+     *
+     * @param argv FI document filename and optionally the local name of
+     *        the elements whose values are accessed
+     */
+    @SuppressWarnings("CallToThreadDumpStack")
+    public static void main(String argv[]) {
+        if (argv.length < 1 || argv.length > 2) {
+            System.err.println("Usage: DeferredValueDecodingSample filename [localName]");
+            System.exit(1);
+        }
+
+        try {
+            DeferredValueDecodingSample sample = new DeferredValueDecodingSample(
+                    new File(argv[0]), (argv.length == 2) ? argv[1] : null);
+            sample.run();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    /** Creates a new instance of DeferredValueDecodingSample
+     *
+     *  @param file FI document.
+     *  @param localName the local name of the elements whose values are
+     *         accessed, or null.
+     */
+    public DeferredValueDecodingSample(File file, String localName) throws Exception {
+        this.file = file;
+        this.localName = localName;
+        this.document = new byte[(int) file.length()];
+
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int n;
+            while (offset < document.length &&
+                    (n = in.read(document, offset, document.length - offset)) != -1) {
+                offset += n;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Parses the document with the decoding of values performed eagerly
+     *  and deferred, and displays the average parsing time and heap
+     *  allocated.
+     */
+    public void run() throws Exception {
+        System.out.println("Parsing " + file + " (" + document.length + " bytes), accessing the values of " +
+                ((localName != null) ? "'" + localName + "' elements" : "no elements") + ":\n");
+
+        final StAXDocumentParser parser = new StAXDocumentParser();
+        for (int mode = 0; mode < 2; mode++) {
+            parser.setValueDecodingDeferred(mode == 1);
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                parse(parser);
+            }
+
+            final long allocatedStart = allocatedBytes();
+            final long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                parse(parser);
+            }
+            final long end = System.nanoTime();
+            final long allocatedEnd = allocatedBytes();
+
+            System.out.println(" " + MODES[mode] + " = " +
+                    ((end - start) / ITERATIONS / 1000) + " us, " +
+                    ((allocatedStart >= 0) ? ((allocatedEnd - allocatedStart) / ITERATIONS) + " bytes" : "n/a"));
+        }
+    }
+
+    private static final String[] MODES = {
+        "Eager   ",
+        "Deferred"
+    };
+
+    private void parse(StAXDocumentParser parser) throws Exception {
+        parser.setInputStream(new ByteArrayInputStream(document));
+        // The depth of the element whose values, and the values of whose
+        // descendants, are accessed
+        int accessDepth = -1;
+        int depth = 0;
+        while (parser.hasNext()) {
+            switch (parser.next()) {
+                case XMLStreamReader.START_ELEMENT:
+                    depth++;
+                    if (accessDepth == -1 && parser.getLocalName().equals(localName)) {
+                        accessDepth = depth;
+                    }
+                    if (accessDepth != -1) {
+                        for (int i = 0; i < parser.getAttributeCount(); i++) {
+                            parser.getAttributeValue(i);
+                        }
+                    }
+                    break;
+                case XMLStreamReader.CHARACTERS:
+                    if (accessDepth != -1) {
+                        parser.getText();
+                    }
+                    break;
+                case XMLStreamReader.END_ELEMENT:
+                    if (depth == accessDepth) {
+                        accessDepth = -1;
+                    }
+                    depth--;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Get the heap allocated by the current thread, if the JVM supports
+     * measuring it.
+     *
+     * @return the number of bytes allocated, or -1.
+     */
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        try {
+            // Supported by the com.sun.management extension of the bean
+            final Method m = Class.forName("com.sun.management.ThreadMXBean").
+                    getMethod("getThreadAllocatedBytes", long.class);
+            return ((Long) m.invoke(bean, Thread.currentThread().getId())).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
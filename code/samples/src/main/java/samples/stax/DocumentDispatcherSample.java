@@ -0,0 +1,135 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.stax;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSplitter;
+import com.sun.xml.fastinfoset.stax.util.StAXDocumentDispatcher;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.xml.stream.XMLStreamReader;
+
+/** <p>Compares the time taken to parse a stream of concatenated FI
+ *  documents one by one on a single thread, with the time taken to parse
+ *  the documents on a pool of threads using StAXDocumentDispatcher.</p>
+ *  The stream consists of copies of a FI document, and the documents are
+ *  obtained from the stream using StAXDocumentSplitter.
+ */
+public class DocumentDispatcherSample {
+
+    private static final int ITERATIONS = 10;
+
+    /** Starts the sample.
+     *
+     * @param argv FI document filename, optionally followed by the number of
+     *        copies of the document in the stream
+     */
+    @SuppressWarnings("CallToThreadDumpStack")
+    public static void main(String argv[]) {
+        if (argv.length < 1) {
+            System.err.println("Usage: DocumentDispatcherSample filename [copies]");
+            System.exit(1);
+        }
+
+        try {
+            final File file = new File(argv[0]);
+            final byte[] document = read(file);
+            final int copies = (argv.length > 1) ? Integer.parseInt(argv[1]) : 1000;
+
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            for (int i = 0; i < copies; i++) {
+                baos.write(document);
+            }
+            final byte[] stream = baos.toByteArray();
+
+            final int threads = Runtime.getRuntime().availableProcessors();
+            System.out.println("Parsing " + copies + " copies of " + file +
+                    " (" + document.length + " bytes) using " + threads + " threads:\n");
+
+            final StAXDocumentDispatcher.DocumentHandler handler = new StAXDocumentDispatcher.DocumentHandler() {
+                public Object handleDocument(XMLStreamReader reader, int index) throws Exception {
+                    while (reader.next() != XMLStreamReader.END_DOCUMENT) {
+                    }
+                    return null;
+                }
+            };
+            final StAXDocumentDispatcher.ResultHandler results = new StAXDocumentDispatcher.ResultHandler() {
+                public void handleResult(int index, Object result) {
+                }
+
+                public void handleError(int index, Exception e) {
+                    e.printStackTrace();
+                }
+            };
+
+            final StAXDocumentParser parser = new StAXDocumentParser();
+            long sequential = Long.MAX_VALUE;
+            for (int i = 0; i < ITERATIONS; i++) {
+                final long start = System.nanoTime();
+                final StAXDocumentSplitter splitter = new StAXDocumentSplitter(new ByteArrayInputStream(stream));
+                byte[] d;
+                while ((d = splitter.nextDocument()) != null) {
+                    parser.setInputStream(new ByteArrayInputStream(d));
+                    handler.handleDocument(parser, 0);
+                }
+                sequential = Math.min(sequential, System.nanoTime() - start);
+            }
+
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            long parallel = Long.MAX_VALUE;
+            try {
+                final StAXDocumentDispatcher dispatcher = new StAXDocumentDispatcher(executor, threads * 4, false);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    final long start = System.nanoTime();
+                    dispatcher.dispatch(new StAXDocumentSplitter(new ByteArrayInputStream(stream)), handler, results);
+                    parallel = Math.min(parallel, System.nanoTime() - start);
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            System.out.println(" Single thread          = " + (sequential / 1000000) + " ms");
+            System.out.println(" StAXDocumentDispatcher = " + (parallel / 1000000) + " ms");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    private static byte[] read(File file) throws Exception {
+        final byte[] document = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int n;
+            while (offset < document.length &&
+                    (n = in.read(document, offset, document.length - offset)) != -1) {
+                offset += n;
+            }
+        } finally {
+            in.close();
+        }
+        return document;
+    }
+}
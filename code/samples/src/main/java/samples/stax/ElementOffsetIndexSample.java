@@ -0,0 +1,126 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.stax;
+
+import com.sun.xml.fastinfoset.stax.ElementOffsetIndex;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+
+/** <p>Creates an index of the elements of a FI document that have a name,
+ *  writes the index to a file alongside the document, and compares the time
+ *  taken to parse the last indexed element using the index with the time
+ *  taken to parse the document up to and including that element.</p>
+ *  A name in a namespace is written as {namespaceURI}localName.
+ */
+public class ElementOffsetIndexSample {
+
+    private static final int ITERATIONS = 100;
+
+    /** Starts the sample.
+     *
+     * @param argv FI document filename and element name
+     */
+    @SuppressWarnings("CallToThreadDumpStack")
+    public static void main(String argv[]) {
+        if (argv.length < 2) {
+            System.err.println("Usage: ElementOffsetIndexSample filename name");
+            System.exit(1);
+        }
+
+        try {
+            final File file = new File(argv[0]);
+            final QName name = QName.valueOf(argv[1]);
+            final StAXDocumentParser parser = new StAXDocumentParser();
+
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            parser.setInputStream(in);
+            ElementOffsetIndex index = ElementOffsetIndex.create(parser, new QName[]{name});
+            in.close();
+
+            final File indexFile = new File(file.getPath() + ".index");
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(indexFile));
+            index.write(out);
+            out.close();
+            System.out.println("Index of " + index.getEntryCount() + " elements written to " +
+                    indexFile + " (" + indexFile.length() + " bytes)\n");
+            if (index.getEntryCount() == 0) {
+                System.exit(0);
+            }
+
+            in = new BufferedInputStream(new FileInputStream(indexFile));
+            index = ElementOffsetIndex.read(in);
+            in.close();
+
+            final int entry = index.getEntryCount() - 1;
+            final RandomAccessFile f = new RandomAccessFile(file, "r");
+            final FileChannel channel = f.getChannel();
+            long start = System.nanoTime();
+            int events = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                parser.setInputChannel(channel, 0, channel.size());
+                index.seek(parser, entry);
+                while (parser.next() != XMLStreamReader.END_DOCUMENT) {
+                    events++;
+                }
+            }
+            final long seeking = (System.nanoTime() - start) / ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                parser.setInputChannel(channel, 0, channel.size());
+                int count = 0;
+                while (count <= entry) {
+                    if (parser.next() == XMLStreamReader.START_ELEMENT && name.equals(parser.getName())) {
+                        count++;
+                    }
+                }
+                for (int depth = 1; depth > 0; ) {
+                    switch (parser.next()) {
+                        case XMLStreamReader.START_ELEMENT:
+                            depth++;
+                            break;
+                        case XMLStreamReader.END_ELEMENT:
+                            depth--;
+                            break;
+                    }
+                }
+            }
+            final long parsing = (System.nanoTime() - start) / ITERATIONS;
+            f.close();
+
+            System.out.println(" Element " + entry + " at position " + index.getPosition(entry) +
+                    " (" + (events / ITERATIONS) + " events)");
+            System.out.println(" ElementOffsetIndex.seek  = " + (seeking / 1000) + " us");
+            System.out.println(" Parsing from the start   = " + (parsing / 1000) + " us");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        System.exit(0);
+    }
+}
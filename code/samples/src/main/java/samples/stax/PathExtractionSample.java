@@ -0,0 +1,114 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.stax;
+
+import com.sun.xml.fastinfoset.sax.SAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.util.StAXPathExtractor;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import org.xml.sax.helpers.DefaultHandler;
+
+/** <p>Compares the time taken to extract the values identified by paths
+ *  from a FI document using StAXPathExtractor, with the time taken to parse
+ *  the whole document using SAXDocumentParser.</p>
+ *  Names of paths in a namespace are written as {namespaceURI}localName,
+ *  for example the issue date of a UBL document converted to FI is
+ *  obtained using the path
+ *  //{urn:oasis:names:tc:ubl:CommonBasicComponents:1:0}IssueDate.
+ *  The extracted values and the average time for each are displayed.
+ */
+public class PathExtractionSample {
+
+    private static final int WARMUP_ITERATIONS = 500;
+
+    private static final int ITERATIONS = 1000;
+
+    /** Starts the sample.
+     *
+     * @param argv FI document filename followed by one or more paths
+     */
+    @SuppressWarnings("CallToThreadDumpStack")
+    public static void main(String argv[]) {
+        if (argv.length < 2) {
+            System.err.println("Usage: PathExtractionSample filename path...");
+            System.exit(1);
+        }
+
+        try {
+            final File file = new File(argv[0]);
+            final byte[] document = read(file);
+
+            final StAXPathExtractor extractor = new StAXPathExtractor();
+            for (int i = 1; i < argv.length; i++) {
+                extractor.addPath(argv[i]);
+            }
+
+            System.out.println("Extracting from " + file + " (" + document.length + " bytes):\n");
+            final String[] values = extractor.extract(new ByteArrayInputStream(document));
+            for (int i = 0; i < values.length; i++) {
+                System.out.println(" " + extractor.getPath(i) + " = " + values[i]);
+            }
+            System.out.println();
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                extractor.extract(new ByteArrayInputStream(document));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                extractor.extract(new ByteArrayInputStream(document));
+            }
+            final long extraction = (System.nanoTime() - start) / ITERATIONS;
+
+            final SAXDocumentParser parser = new SAXDocumentParser();
+            parser.setContentHandler(new DefaultHandler());
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                parser.parse(new ByteArrayInputStream(document));
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                parser.parse(new ByteArrayInputStream(document));
+            }
+            final long parsing = (System.nanoTime() - start) / ITERATIONS;
+
+            System.out.println(" StAXPathExtractor = " + (extraction / 1000) + " us");
+            System.out.println(" SAXDocumentParser = " + (parsing / 1000) + " us");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    private static byte[] read(File file) throws Exception {
+        final byte[] document = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int n;
+            while (offset < document.length &&
+                    (n = in.read(document, offset, document.length - offset)) != -1) {
+                offset += n;
+            }
+        } finally {
+            in.close();
+        }
+        return document;
+    }
+}
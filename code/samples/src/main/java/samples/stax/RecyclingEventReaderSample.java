@@ -0,0 +1,133 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.stax;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.events.StAXEventReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Iterator;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/** <p>Compares the time taken to read the events of a FI document, and the
+ *  number of bytes allocated, using StAXEventReader with and without
+ *  reusing events.</p>
+ *  The number of bytes allocated by the thread is obtained from the
+ *  com.sun.management.ThreadMXBean of the virtual machine, if supported.
+ */
+public class RecyclingEventReaderSample {
+
+    /** Starts the sample.
+     *
+     * @param argv FI document filename
+     */
+    @SuppressWarnings("CallToThreadDumpStack")
+    public static void main(String argv[]) {
+        if (argv.length < 1) {
+            System.err.println("Usage: RecyclingEventReaderSample filename");
+            System.exit(1);
+        }
+
+        try {
+            final File file = new File(argv[0]);
+            final byte[] document = read(file);
+            // Read small documents more often so the readers are compiled
+            final int iterations = Math.max(50, 5000000 / Math.max(document.length, 1));
+
+            int events = 0;
+            final long[] times = new long[2];
+            final long[] allocated = new long[2];
+            for (int mode = 0; mode < 2; mode++) {
+                times[mode] = Long.MAX_VALUE;
+                allocated[mode] = Long.MAX_VALUE;
+            }
+            for (int i = 0; i < iterations; i++) {
+                for (int mode = 0; mode < 2; mode++) {
+                    final long bytes = allocatedBytes();
+                    final long start = System.nanoTime();
+                    events = readEvents(document, mode == 1);
+                    times[mode] = Math.min(times[mode], System.nanoTime() - start);
+                    allocated[mode] = Math.min(allocated[mode], allocatedBytes() - bytes);
+                }
+            }
+
+            System.out.println("Reading " + file + " (" + document.length + " bytes, " +
+                    events + " events):\n");
+            System.out.println(" StAXEventReader                  = " + (times[0] / 1000) + " us" +
+                    ((allocated[0] >= 0) ? ", " + allocated[0] + " bytes allocated" : ""));
+            System.out.println(" StAXEventReader reusing events   = " + (times[1] / 1000) + " us" +
+                    ((allocated[1] >= 0) ? ", " + allocated[1] + " bytes allocated" : ""));
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    private static int readEvents(byte[] document, boolean isRecyclingEvents) throws Exception {
+        final StAXEventReader reader = new StAXEventReader(
+                new StAXDocumentParser(new ByteArrayInputStream(document)), isRecyclingEvents);
+        int events = 0;
+        while (reader.hasNext()) {
+            final XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                final StartElement startElement = event.asStartElement();
+                for (Iterator i = startElement.getAttributes(); i.hasNext(); i.next()) {
+                }
+                for (Iterator i = startElement.getNamespaces(); i.hasNext(); i.next()) {
+                }
+            }
+            events++;
+        }
+        return events;
+    }
+
+    /**
+     * Get the number of bytes allocated by the current thread, or -1 if
+     * not supported.
+     */
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static byte[] read(File file) throws Exception {
+        final byte[] document = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int n;
+            while (offset < document.length &&
+                    (n = in.read(document, offset, document.length - offset)) != -1) {
+                offset += n;
+            }
+        } finally {
+            in.close();
+        }
+        return document;
+    }
+}
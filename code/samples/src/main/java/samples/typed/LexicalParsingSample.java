@@ -0,0 +1,132 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2004-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.typed;
+
+import com.sun.xml.fastinfoset.algorithm.BuiltInEncodingAlgorithm;
+import com.sun.xml.fastinfoset.algorithm.BuiltInEncodingAlgorithmFactory;
+import java.lang.reflect.Method;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the time taken to convert lists of lexical numeric values to
+ * primitive arrays using the built-in encoding algorithms, with the time
+ * taken by converting each value to a String, parsing it to a boxed value
+ * in a List, and unboxing the List to a primitive array.
+ */
+public class LexicalParsingSample {
+
+    private static final int VALUES = 100000;
+
+    private static final int WARMUP_ITERATIONS = 20;
+
+    private static final int ITERATIONS = 50;
+
+    /**
+     * Parses a word to a boxed value.
+     */
+    private interface WordParser {
+        Object parse(String word);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Random r = new Random(17);
+
+        StringBuilder shorts = new StringBuilder();
+        StringBuilder ints = new StringBuilder();
+        StringBuilder longs = new StringBuilder();
+        StringBuilder floats = new StringBuilder();
+        StringBuilder doubles = new StringBuilder();
+        for (int i = 0; i < VALUES; i++) {
+            shorts.append((short)r.nextInt()).append(' ');
+            ints.append(r.nextInt()).append(' ');
+            longs.append(r.nextLong() >> r.nextInt(64)).append(' ');
+            floats.append(r.nextInt(100000) / 100.0f).append(' ');
+            doubles.append(r.nextInt(10000000) / 1000.0).append(' ');
+        }
+
+        System.out.println("Converting " + VALUES + " values (ns per value):\n");
+        System.out.println("          boxed   primitive");
+        run("short ", BuiltInEncodingAlgorithmFactory.shortEncodingAlgorithm, shorts, new WordParser() {
+            public Object parse(String word) { return Short.valueOf(word); }
+        });
+        run("int   ", BuiltInEncodingAlgorithmFactory.intEncodingAlgorithm, ints, new WordParser() {
+            public Object parse(String word) { return Integer.valueOf(word); }
+        });
+        run("long  ", BuiltInEncodingAlgorithmFactory.longEncodingAlgorithm, longs, new WordParser() {
+            public Object parse(String word) { return Long.valueOf(word); }
+        });
+        run("float ", BuiltInEncodingAlgorithmFactory.floatEncodingAlgorithm, floats, new WordParser() {
+            public Object parse(String word) { return Float.valueOf(word); }
+        });
+        run("double", BuiltInEncodingAlgorithmFactory.doubleEncodingAlgorithm, doubles, new WordParser() {
+            public Object parse(String word) { return Double.valueOf(word); }
+        });
+    }
+
+    private static void run(String name, BuiltInEncodingAlgorithm a, StringBuilder values, WordParser p) 
+            throws Exception {
+        final char[] ch = values.toString().toCharArray();
+        final Method toArray = a.getClass().getMethod("generateArrayFromList", List.class);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            convertBoxed(a, ch, p, toArray);
+            a.convertFromCharacters(ch, 0, ch.length);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            convertBoxed(a, ch, p, toArray);
+        }
+        final long boxed = (System.nanoTime() - start) / ITERATIONS / VALUES;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            a.convertFromCharacters(ch, 0, ch.length);
+        }
+        final long primitive = (System.nanoTime() - start) / ITERATIONS / VALUES;
+
+        System.out.println(name + "  " + pad(boxed) + "  " + pad(primitive));
+    }
+
+    /**
+     * Convert the words to a List of boxed values, and then to an array.
+     */
+    private static Object convertBoxed(BuiltInEncodingAlgorithm a, char[] ch, final WordParser p,
+            Method toArray) throws Exception {
+        final CharBuffer cb = CharBuffer.wrap(ch);
+        final List list = new ArrayList();
+        a.matchWhiteSpaceDelimnatedWords(cb, new BuiltInEncodingAlgorithm.WordListener() {
+            public void word(int start, int end) {
+                list.add(p.parse(cb.subSequence(start, end).toString()));
+            }
+        });
+        return toArray.invoke(a, list);
+    }
+
+    private static String pad(long value) {
+        StringBuilder b = new StringBuilder(Long.toString(value));
+        while (b.length() < 10) {
+            b.insert(0, ' ');
+        }
+        return b.toString();
+    }
+}